@@ -0,0 +1,52 @@
+package com.alicloud.openservices.tablestore.timeline2.benchmark;
+
+import com.alicloud.openservices.tablestore.timeline2.model.TimelineMessage;
+import com.alicloud.openservices.tablestore.timeline2.model.TimelineMessageForV1;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Building and parsing of messages, including the v1 compatible content which is split into many columns.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class MessageBenchmark {
+
+    @Param({"128", "16384", "1048576"})
+    public int contentLength;
+
+    @Param({"16", "256"})
+    public int listSize;
+
+    private String content;
+    private TimelineMessageForV1 messageForV1;
+    private List<String> list;
+
+    @Setup
+    public void setup() {
+        content = Synthetic.content(contentLength);
+        messageForV1 = new TimelineMessageForV1(content);
+        list = Synthetic.strings(listSize);
+    }
+
+    @Benchmark
+    public TimelineMessageForV1 v1SetContent() {
+        return new TimelineMessageForV1(new TimelineMessage()).setContent(content);
+    }
+
+    @Benchmark
+    public String v1GetContent() {
+        return messageForV1.getContent();
+    }
+
+    @Benchmark
+    public TimelineMessage setStringListField() {
+        return new TimelineMessage().setField("receivers", list);
+    }
+}
@@ -0,0 +1,92 @@
+package com.alicloud.openservices.tablestore.timeline2.benchmark;
+
+import com.alicloud.openservices.tablestore.model.*;
+import com.alicloud.openservices.tablestore.timeline.store.DistributeTimelineConfig;
+import com.alicloud.openservices.tablestore.timeline2.model.TimelineEntry;
+import com.alicloud.openservices.tablestore.timeline2.model.TimelineIdentifier;
+import com.alicloud.openservices.tablestore.timeline2.model.TimelineIdentifierSchema;
+import com.alicloud.openservices.tablestore.timeline2.model.TimelineSchema;
+import com.alicloud.openservices.tablestore.timeline2.utils.Utils;
+import org.openjdk.jmh.annotations.*;
+
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
+
+/**
+ * Conversion between timeline model and rows of TableStore, of both v2 and v1.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class RowConvertBenchmark {
+
+    @Param({"4", "32"})
+    public int columnCount;
+
+    private TimelineSchema schema;
+    private TimelineIdentifier identifier;
+    private Row row;
+
+    private DistributeTimelineConfig v1Config;
+    private Row v1Row;
+
+    @Setup
+    public void setup() {
+        TimelineIdentifierSchema identifierSchema = new TimelineIdentifierSchema.Builder()
+                .addStringField("timeline_id")
+                .build();
+        schema = new TimelineSchema("timeline", identifierSchema);
+        identifier = new TimelineIdentifier.Builder()
+                .addField("timeline_id", "group_1234567890")
+                .build();
+
+        PrimaryKey primaryKey = Utils.identifierToPrimaryKeyWithSequenceId(identifier, schema.getSequenceIdColumnName(),
+                1560000000000L << 20, false);
+        List<Column> columns = new ArrayList<Column>(columnCount);
+        for (int i = 0; i < columnCount; i++) {
+            columns.add(new Column("column_" + i, ColumnValue.fromString("value of column " + i)));
+        }
+        row = new Row(primaryKey, columns);
+
+        v1Config = new DistributeTimelineConfig("endpoint", "accessKeyId", "accessKeySecret", "instance", "timeline");
+        byte[] content = Synthetic.content(1024).getBytes(Charset.forName("UTF-8"));
+        CRC32 crc32 = new CRC32();
+        crc32.update(content);
+
+        List<Column> v1Columns = new ArrayList<Column>(columnCount + 4);
+        v1Columns.add(new Column("__content10000", ColumnValue.fromBinary(content)));
+        v1Columns.add(new Column("__column_count", ColumnValue.fromLong(1)));
+        v1Columns.add(new Column("__message_id", ColumnValue.fromString("message_1234567890")));
+        v1Columns.add(new Column("__crc32", ColumnValue.fromLong(crc32.getValue())));
+        for (int i = 0; i < columnCount; i++) {
+            v1Columns.add(new Column("attr_" + i, ColumnValue.fromString("value of attribute " + i)));
+        }
+        PrimaryKey v1PrimaryKey = PrimaryKeyBuilder.createPrimaryKeyBuilder()
+                .addPrimaryKeyColumn(v1Config.getFirstPKName(), PrimaryKeyValue.fromString("group_1234567890"))
+                .addPrimaryKeyColumn(v1Config.getSecondPKName(), PrimaryKeyValue.fromLong(1560000000000L))
+                .build();
+        v1Row = new Row(v1PrimaryKey, v1Columns);
+    }
+
+    @Benchmark
+    public PrimaryKey identifierToPrimaryKeyWithSequenceId() {
+        return Utils.identifierToPrimaryKeyWithSequenceId(identifier, schema.getSequenceIdColumnName(),
+                1560000000000L << 20, false);
+    }
+
+    @Benchmark
+    public TimelineEntry rowToTimelineEntry() {
+        return Utils.rowToTimelineEntry(schema, row);
+    }
+
+    @Benchmark
+    public com.alicloud.openservices.tablestore.timeline.TimelineEntry v1ToTimelineEntry() {
+        return com.alicloud.openservices.tablestore.timeline.utils.Utils.toTimelineEntry(v1Row, v1Config);
+    }
+}
@@ -0,0 +1,32 @@
+package com.alicloud.openservices.tablestore.timeline2.benchmark;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Synthetic data of benchmarks, generated with fixed seed so that the numbers are reproducible.
+ */
+final class Synthetic {
+    private static final String ALPHABET = "abcdefghijklmnopqrstuvwxyzABCDEFGHIJKLMNOPQRSTUVWXYZ0123456789 ";
+
+    private Synthetic() {
+    }
+
+    static String content(int length) {
+        Random random = new Random(length);
+        StringBuilder builder = new StringBuilder(length);
+        for (int i = 0; i < length; i++) {
+            builder.append(ALPHABET.charAt(random.nextInt(ALPHABET.length())));
+        }
+        return builder.toString();
+    }
+
+    static List<String> strings(int count) {
+        List<String> list = new ArrayList<String>(count);
+        for (int i = 0; i < count; i++) {
+            list.add("user_" + (1000000 + i));
+        }
+        return list;
+    }
+}
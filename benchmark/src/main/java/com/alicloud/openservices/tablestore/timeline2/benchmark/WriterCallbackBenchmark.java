@@ -0,0 +1,88 @@
+package com.alicloud.openservices.tablestore.timeline2.benchmark;
+
+import com.alicloud.openservices.tablestore.model.Column;
+import com.alicloud.openservices.tablestore.model.PrimaryKey;
+import com.alicloud.openservices.tablestore.model.ReturnType;
+import com.alicloud.openservices.tablestore.model.Row;
+import com.alicloud.openservices.tablestore.timeline2.TimelineCallback;
+import com.alicloud.openservices.tablestore.timeline2.model.*;
+import com.alicloud.openservices.tablestore.timeline2.utils.Utils;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The completion path of rows written by writer: build row change, complete it by result row and get the future.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class WriterCallbackBenchmark {
+
+    private TimelineSchema schema;
+    private TimelineIdentifier identifier;
+    private TimelineMessage message;
+    private PrimaryKey primaryKey;
+    private Row resultRow;
+
+    @Setup
+    public void setup() {
+        TimelineIdentifierSchema identifierSchema = new TimelineIdentifierSchema.Builder()
+                .addStringField("timeline_id")
+                .build();
+        schema = new TimelineSchema("timeline", identifierSchema);
+        identifier = new TimelineIdentifier.Builder()
+                .addField("timeline_id", "group_1234567890")
+                .build();
+        message = new TimelineMessage()
+                .setField("text", Synthetic.content(256))
+                .setField("sender", "user_1234567890")
+                .setField("timestamp", 1560000000000L);
+
+        primaryKey = Utils.identifierToPrimaryKeyWithSequenceId(identifier, schema.getSequenceIdColumnName(), -1, true);
+        resultRow = new Row(Utils.identifierToPrimaryKeyWithSequenceId(identifier, schema.getSequenceIdColumnName(),
+                1560000000000L, false), new Column[0]);
+    }
+
+    @Benchmark
+    public TimelineEntry completeWithFuture() throws ExecutionException, InterruptedException {
+        RowPutChangeWithCallback rowChange = newRowChange();
+
+        rowChange.setComplete(Utils.rowToTimelineEntryWithMessage(schema, resultRow, rowChange.getMessage()));
+        return rowChange.getFuture().get();
+    }
+
+    @Benchmark
+    public void completeWithCallback(final Blackhole blackhole) {
+        RowPutChangeWithCallback rowChange = newRowChange();
+        rowChange.watchBy(new TimelineCallback() {
+            @Override
+            public void onCompleted(TimelineIdentifier identifier, TimelineMessage message, TimelineEntry timelineEntry) {
+                blackhole.consume(timelineEntry);
+            }
+
+            @Override
+            public void onFailed(TimelineIdentifier identifier, TimelineMessage message, Exception e) {
+                blackhole.consume(e);
+            }
+        });
+
+        rowChange.setComplete(Utils.rowToTimelineEntryWithMessage(schema, resultRow, rowChange.getMessage()));
+    }
+
+    private RowPutChangeWithCallback newRowChange() {
+        RowPutChangeWithCallback rowChange = new RowPutChangeWithCallback(schema.getTableName(), primaryKey)
+                .withTimelineIdentifier(identifier)
+                .withMessage(message);
+        for (Column column : message.getFields().values()) {
+            rowChange.addColumn(column);
+        }
+        rowChange.setReturnType(ReturnType.RT_PK);
+        return rowChange;
+    }
+}
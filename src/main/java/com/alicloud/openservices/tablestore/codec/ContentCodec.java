@@ -0,0 +1,254 @@
+package com.alicloud.openservices.tablestore.codec;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.FilterInputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * 消息内容的压缩编码。
+ * 编码名会写入消息的系统列，读取时按编码名找到对应的编码解压，没有编码列的旧数据按未压缩读取。
+ * 内置Deflate编码，自定义编码（比如LZ4）需要先调用{@link #register(ContentCodec)}注册，读写两端都需要注册。
+ * 压缩前的内容不能超过{@link #MAX_DECODED_LENGTH}，解压时超出的数据视为损坏或者恶意构造的数据，避免解压耗尽内存。
+ */
+public abstract class ContentCodec {
+    /**
+     * 默认压缩级别的Deflate编码。
+     */
+    public static final ContentCodec DEFLATE = new DeflateCodec(Deflater.DEFAULT_COMPRESSION);
+
+    /**
+     * 最快压缩级别的Deflate编码，适用于对写入延迟敏感的场景，和DEFLATE使用相同的编码名，可以互相解压。
+     */
+    public static final ContentCodec DEFLATE_FAST = new DeflateCodec(Deflater.BEST_SPEED);
+
+    /**
+     * 压缩前内容的最大长度，为消息内容最大长度2MB的32倍。
+     */
+    public static final int MAX_DECODED_LENGTH = 32 * 2 * 1024 * 1024;
+
+    private static final ConcurrentHashMap<String, ContentCodec> codecs = new ConcurrentHashMap<String, ContentCodec>();
+
+    static {
+        register(DEFLATE);
+    }
+
+    /**
+     * 注册编码，同名的编码会被替换。
+     * @param codec     编码。
+     */
+    public static void register(ContentCodec codec) {
+        codecs.put(codec.getName(), codec);
+    }
+
+    /**
+     * 按编码名获取编码。
+     * @param name      编码名。
+     * @return  编码，不存在时返回null。
+     */
+    public static ContentCodec forName(String name) {
+        return codecs.get(name);
+    }
+
+    /**
+     * 编码名，写入系统列用于读取时解压。
+     * @return  编码名。
+     */
+    public abstract String getName();
+
+    /**
+     * 包装输出流，写入的数据压缩后写入output，关闭返回的流时会关闭output。
+     * 由编码实现，使用时应调用{@link #encode(OutputStream)}以限制长度。
+     * @param output    压缩后数据的输出流。
+     * @return  压缩输出流。
+     */
+    public abstract OutputStream wrapOutput(OutputStream output);
+
+    /**
+     * 包装输入流，从返回的流中读取解压后的数据，关闭返回的流时会关闭input。
+     * 由编码实现，使用时应调用{@link #decode(InputStream)}以限制长度。
+     * @param input     压缩数据的输入流。
+     * @return  解压输入流。
+     */
+    public abstract InputStream wrapInput(InputStream input);
+
+    /**
+     * 压缩输出流，写入超过{@link #MAX_DECODED_LENGTH}的数据时抛出IOException。
+     * @param output    压缩后数据的输出流。
+     * @return  压缩输出流。
+     */
+    public OutputStream encode(OutputStream output) {
+        return new LimitedOutputStream(wrapOutput(output), MAX_DECODED_LENGTH);
+    }
+
+    /**
+     * 解压输入流，解压后的数据超过{@link #MAX_DECODED_LENGTH}时抛出IOException。
+     * @param input     压缩数据的输入流。
+     * @return  解压输入流。
+     */
+    public InputStream decode(InputStream input) {
+        return new LimitedInputStream(wrapInput(input), MAX_DECODED_LENGTH);
+    }
+
+    /**
+     * 压缩字节。
+     * @param content   原始字节。
+     * @return  压缩后的字节。
+     * @throws IOException  压缩失败或者原始字节超过{@link #MAX_DECODED_LENGTH}。
+     */
+    public byte[] encode(byte[] content) throws IOException {
+        ByteArrayOutputStream stream = new ByteArrayOutputStream(content.length / 2 + 64);
+        OutputStream output = encode(stream);
+        output.write(content);
+        output.close();
+        return stream.toByteArray();
+    }
+
+    /**
+     * 解压字节。
+     * @param content   压缩后的字节。
+     * @return  原始字节。
+     * @throws IOException  数据不完整、不是此编码压缩的或者解压后超过{@link #MAX_DECODED_LENGTH}。
+     */
+    public byte[] decode(byte[] content) throws IOException {
+        return readFully(decode(new ByteArrayInputStream(content)),
+                (int) Math.min((long) content.length * 4, MAX_DECODED_LENGTH));
+    }
+
+    private static byte[] readFully(InputStream input, int sizeHint) throws IOException {
+        ByteArrayOutputStream stream = new ByteArrayOutputStream(Math.max(sizeHint, 64));
+        byte[] buffer = new byte[8192];
+        try {
+            int n;
+            while ((n = input.read(buffer)) != -1) {
+                stream.write(buffer, 0, n);
+            }
+        } finally {
+            input.close();
+        }
+        return stream.toByteArray();
+    }
+
+    private static IOException tooLong(long length) {
+        return new IOException(String.format("Decoded content must less than %d, current:%d", MAX_DECODED_LENGTH, length));
+    }
+
+    private static class LimitedOutputStream extends FilterOutputStream {
+        private final long maxLength;
+        private long written = 0;
+
+        LimitedOutputStream(OutputStream output, long maxLength) {
+            super(output);
+            this.maxLength = maxLength;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            write(new byte[]{(byte) b}, 0, 1);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            if (written + len > maxLength) {
+                throw tooLong(written + len);
+            }
+            written += len;
+            out.write(b, off, len);
+        }
+    }
+
+    private static class LimitedInputStream extends FilterInputStream {
+        private final long maxLength;
+        private long read = 0;
+
+        LimitedInputStream(InputStream input, long maxLength) {
+            super(input);
+            this.maxLength = maxLength;
+        }
+
+        private void count(long n) throws IOException {
+            if (n > 0) {
+                read += n;
+                if (read > maxLength) {
+                    throw tooLong(read);
+                }
+            }
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = in.read();
+            count(b == -1 ? 0 : 1);
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int n = in.read(b, off, len);
+            count(n);
+            return n;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            long skipped = in.skip(n);
+            count(skipped);
+            return skipped;
+        }
+
+        @Override
+        public boolean markSupported() {
+            return false;
+        }
+    }
+
+    private static class DeflateCodec extends ContentCodec {
+        private final int level;
+
+        DeflateCodec(int level) {
+            this.level = level;
+        }
+
+        @Override
+        public String getName() {
+            return "deflate";
+        }
+
+        @Override
+        public OutputStream wrapOutput(OutputStream output) {
+            final Deflater deflater = new Deflater(level);
+            return new DeflaterOutputStream(output, deflater, 8192) {
+                @Override
+                public void close() throws IOException {
+                    try {
+                        super.close();
+                    } finally {
+                        deflater.end();
+                    }
+                }
+            };
+        }
+
+        @Override
+        public InputStream wrapInput(InputStream input) {
+            return new InflaterInputStream(input, new Inflater(), 8192) {
+                @Override
+                public void close() throws IOException {
+                    try {
+                        super.close();
+                    } finally {
+                        inf.end();
+                    }
+                }
+            };
+        }
+    }
+}
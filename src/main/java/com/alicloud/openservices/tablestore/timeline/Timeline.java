@@ -92,6 +92,29 @@ public class Timeline {
         this.store.batch(this.timelineID, message);
     }
 
+    /**
+     * 批量写入消息接口，可以通过Future或者回调获取写入的结果。
+     * 消息同样先加入到本地的buffer中，当buffer满、超时或者调用flush()时才会统一写入。
+     * @param message     消息对象，需实现IMessage接口。
+     * @param callback    回调函数。
+     * @return            Future对象。
+     */
+    public Future<TimelineEntry> batchAsync(IMessage message, TimelineCallback<IMessage> callback) {
+        if (message == null) {
+            throw new TimelineException(TimelineExceptionType.INVALID_USE,
+                    "batchAsync parameter message is null");
+        }
+
+        return this.store.batchAsync(this.timelineID, message, callback);
+    }
+
+    /**
+     * 立即写入Store的buffer中所有的消息（包括其他Timeline的消息），并等待写入完成。
+     */
+    public void flush() {
+        this.store.flush();
+    }
+
     /**
      * 同步更新消息。
      * @param sequenceID  消息顺序ID，和TimelineID一起唯一确定一条消息。
@@ -0,0 +1,26 @@
+package com.alicloud.openservices.tablestore.timeline.message;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+/**
+ * 支持流式序列化的消息接口。
+ * 消息内容较大（比如数百KB的附件）时，实现此接口可以避免序列化为完整的字节数组，
+ * LIB会直接把输出流切分为内容列，读取时也会把多个内容列拼接为一个输入流交给消息反序列化。
+ */
+public interface IStreamMessage extends IMessage {
+    /**
+     * 序列化消息体到输出流。
+     * @param output    输出流，由LIB负责关闭。
+     * @throws IOException  写入失败。
+     */
+    void serialize(OutputStream output) throws IOException;
+
+    /**
+     * 从输入流反序列化消息对象。
+     * @param input     消息内容的输入流，由LIB负责关闭。
+     * @throws IOException  读取失败。
+     */
+    void deserialize(InputStream input) throws IOException;
+}
@@ -1,8 +1,10 @@
 package com.alicloud.openservices.tablestore.timeline.store;
 
 import com.alicloud.openservices.tablestore.ClientConfiguration;
+import com.alicloud.openservices.tablestore.codec.ContentCodec;
 import com.alicloud.openservices.tablestore.timeline.message.IMessage;
 import com.alicloud.openservices.tablestore.timeline.message.StringMessage;
+import com.alicloud.openservices.tablestore.timeline.utils.MessageRowLayout;
 import com.alicloud.openservices.tablestore.writer.WriterConfig;
 
 /**
@@ -92,6 +94,25 @@ public class DistributeTimelineConfig {
      */
     private int columnMaxLength = 1024 * 1024;
 
+    /**
+     * 消息内容的压缩编码，默认不压缩。
+     */
+    private ContentCodec contentCodec = null;
+
+    /**
+     * 消息内容压缩的最小长度，默认1KB。
+     */
+    private int contentCodecThreshold = 1024;
+
+    /**
+     * 消息内容压缩编码名所在列的列名后缀。
+     */
+    private String messageContentCodecSuffix = "codec";
+
+    /**
+     * 由列名后缀和列的最大长度生成的列布局，修改这些配置后重新生成。
+     */
+    private volatile MessageRowLayout rowLayout = null;
 
     /**
      * DistributeTimelineConfig的构造函数，构造函数里面的5个参数是必选项，其他参数都有默认值，属于可选项。
@@ -304,6 +325,7 @@ public class DistributeTimelineConfig {
      */
     public void setMessageIDColumnNameSuffix(String messageIDColumnNameSuffix) {
         this.messageIDColumnNameSuffix = messageIDColumnNameSuffix;
+        this.rowLayout = null;
     }
 
     /**
@@ -320,6 +342,7 @@ public class DistributeTimelineConfig {
      */
     public void setMessageContentSuffix(String messageContentSuffix) {
         this.messageContentSuffix = messageContentSuffix;
+        this.rowLayout = null;
     }
 
     /**
@@ -336,6 +359,7 @@ public class DistributeTimelineConfig {
      */
     public void setColumnNameOfMessageCrc32Suffix(String columnNameOfMessageCrc32Suffix) {
         this.columnNameOfMessageCrc32Suffix = columnNameOfMessageCrc32Suffix;
+        this.rowLayout = null;
     }
 
     /**
@@ -352,6 +376,7 @@ public class DistributeTimelineConfig {
      */
     public void setColumnMaxLength(int columnMaxLength) {
         this.columnMaxLength = columnMaxLength;
+        this.rowLayout = null;
     }
 
     /**
@@ -384,5 +409,69 @@ public class DistributeTimelineConfig {
      */
     public void setMessageContentCountSuffix(String messageContentCountSuffix) {
         this.messageContentCountSuffix = messageContentCountSuffix;
+        this.rowLayout = null;
+    }
+
+    /**
+     * 获取消息内容的压缩编码。
+     * @return  压缩编码，为null时不压缩。
+     */
+    public ContentCodec getContentCodec() {
+        return contentCodec;
+    }
+
+    /**
+     * 设置消息内容的压缩编码，消息内容不小于压缩的最小长度，并且压缩后变小时才会压缩。
+     * 编码名会写入编码列，没有编码列的数据按未压缩读取，所以打开压缩后仍然可以读取之前写入的数据。
+     * @param contentCodec  压缩编码，比如ContentCodec.DEFLATE，为null时不压缩。
+     */
+    public void setContentCodec(ContentCodec contentCodec) {
+        this.contentCodec = contentCodec;
+    }
+
+    /**
+     * 获取消息内容压缩的最小长度。
+     * @return  最小长度。
+     */
+    public int getContentCodecThreshold() {
+        return contentCodecThreshold;
+    }
+
+    /**
+     * 设置消息内容压缩的最小长度，小消息压缩的收益一般不足以抵消压缩的开销。
+     * @param contentCodecThreshold     最小长度。
+     */
+    public void setContentCodecThreshold(int contentCodecThreshold) {
+        this.contentCodecThreshold = contentCodecThreshold;
+    }
+
+    /**
+     * 获取消息内容压缩编码名所在列的列名后缀。
+     * @return  列名后缀。
+     */
+    public String getMessageContentCodecSuffix() {
+        return messageContentCodecSuffix;
+    }
+
+    /**
+     * 设置消息内容压缩编码名所在列的列名后缀。
+     * @param messageContentCodecSuffix     列名后缀。
+     */
+    public void setMessageContentCodecSuffix(String messageContentCodecSuffix) {
+        this.messageContentCodecSuffix = messageContentCodecSuffix;
+        this.rowLayout = null;
+    }
+
+    /**
+     * 获取消息在行中的列布局，只在首次获取或者修改列名后缀、列的最大长度后生成。
+     * @return  列布局。
+     */
+    public MessageRowLayout getRowLayout() {
+        MessageRowLayout layout = rowLayout;
+        if (layout == null) {
+            layout = new MessageRowLayout(this);
+            rowLayout = layout;
+        }
+        return layout;
     }
 }
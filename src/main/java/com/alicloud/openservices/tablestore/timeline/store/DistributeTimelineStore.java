@@ -8,14 +8,19 @@ import com.alicloud.openservices.tablestore.timeline.common.TimelineCallback;
 import com.alicloud.openservices.tablestore.timeline.common.TimelineException;
 import com.alicloud.openservices.tablestore.timeline.common.TimelineExceptionType;
 import com.alicloud.openservices.tablestore.timeline.message.IMessage;
+import com.alicloud.openservices.tablestore.timeline.utils.ContentChunks;
+import com.alicloud.openservices.tablestore.timeline.utils.MessageRowLayout;
 import com.alicloud.openservices.tablestore.timeline.utils.Utils;
+import com.alicloud.openservices.tablestore.timeline2.model.TimelineFuture;
+import com.alicloud.openservices.tablestore.writer.RowWriteResult;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.util.Arrays;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
 import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
 
 /**
@@ -27,7 +32,9 @@ public class DistributeTimelineStore implements IStore {
 
     private DistributeTimelineConfig config = null;
     private AsyncClient tableStore = null;
-    private TableStoreWriter tableStoreWriter = null;
+    private volatile TableStoreWriter tableStoreWriter = null;
+    private ExecutorService writerExecutor = null;
+    private DistributeTimelineStoreGroup group = null;
 
     /**
      * TableStoreStore的构造函数。
@@ -40,6 +47,18 @@ public class DistributeTimelineStore implements IStore {
                 config.getInstanceName(), config.getClientConfiguration());
     }
 
+    /**
+     * 使用组内共享的AsyncClient和线程池，由DistributeTimelineStoreGroup创建。
+     * @param config    TableStore的配置参数。
+     * @param group     Store所在的组。
+     */
+    DistributeTimelineStore(DistributeTimelineConfig config, DistributeTimelineStoreGroup group) {
+        this.config = config;
+        this.group = group;
+
+        tableStore = group.getClient();
+    }
+
     @Override
     public TimelineEntry write(String timelineID, IMessage message) {
         try {
@@ -55,22 +74,76 @@ public class DistributeTimelineStore implements IStore {
 
     @Override
     public void batch(String timelineID, IMessage message) {
+        batchAsync(timelineID, message, null);
+    }
+
+    @Override
+    public TimelineFuture<TimelineEntry> batchAsync(String timelineID,
+                                                    IMessage message,
+                                                    TimelineCallback<IMessage> callback) {
+        BatchRowPutChange rowChange = new BatchRowPutChange(config.getTableName(), timelineID, message, callback);
+        fillRowPutChange(rowChange, timelineID, message);
+        if (group != null) {
+            group.acquireRow();
+        }
+        try {
+            getWriter().addRowChange(rowChange);
+        } catch (ClientException ex) {
+            rowChange.release();
+            throw new TimelineException(TimelineExceptionType.INVALID_USE,
+                    "Parameter is invalid, reason:" + ex.getMessage(), ex);
+        } catch (RuntimeException ex) {
+            rowChange.release();
+            throw ex;
+        }
+        return rowChange.future;
+    }
+
+    @Override
+    public void flush() {
+        TableStoreWriter writer = tableStoreWriter;
+        if (writer != null) {
+            writer.flush();
+        }
+    }
+
+    private TableStoreWriter getWriter() {
         if (tableStoreWriter == null) {
             synchronized(this) {
                 if (tableStoreWriter == null) {
-                    ExecutorService executor = Executors.newFixedThreadPool(config.getClientConfiguration().getIoThreadCount());
-                    tableStoreWriter = new DefaultTableStoreWriter(tableStore, config.getTableName(),
-                            config.getWriterConfig(), null, executor);
+                    if (group != null) {
+                        writerExecutor = group.getExecutor();
+                    } else {
+                        writerExecutor = Executors.newFixedThreadPool(config.getClientConfiguration().getIoThreadCount());
+                    }
+                    TableStoreWriter writer = new DefaultTableStoreWriter(tableStore, config.getTableName(),
+                            config.getWriterConfig(), null, writerExecutor);
+                    writer.setResultCallback(new TableStoreCallback<RowChange, RowWriteResult>() {
+                        @Override
+                        public void onCompleted(RowChange rowChange, RowWriteResult result) {
+                            if (rowChange instanceof BatchRowPutChange) {
+                                ((BatchRowPutChange) rowChange).onCompleted(result);
+                            }
+                        }
+
+                        @Override
+                        public void onFailed(RowChange rowChange, Exception ex) {
+                            if (rowChange instanceof BatchRowPutChange) {
+                                ((BatchRowPutChange) rowChange).onFailed(ex);
+                            }
+                        }
+                    });
+                    tableStoreWriter = writer;
                 }
             }
         }
-        tableStoreWriter.addRowChange(createPutRowRequest(timelineID, message).getRowChange());
+        return tableStoreWriter;
     }
 
     @Override
-    public Future<TimelineEntry> writeAsync(final String timelineID,
-                                            final IMessage message,
-                                            final TimelineCallback<IMessage> callback) {
+    public TimelineFuture<TimelineEntry> writeAsync(final String timelineID,
+                                                    final IMessage message,
+                                                    final TimelineCallback<IMessage> callback) {
         try {
             PutRowRequest request = createPutRowRequest(timelineID, message);
             return doWriteAsync(timelineID, message, callback, request);
@@ -99,10 +172,10 @@ public class DistributeTimelineStore implements IStore {
     }
 
     @Override
-    public Future<TimelineEntry> updateAsync(String timelineID,
-                                             Long sequenceID,
-                                             IMessage message,
-                                             TimelineCallback<IMessage> callback)
+    public TimelineFuture<TimelineEntry> updateAsync(String timelineID,
+                                                     Long sequenceID,
+                                                     IMessage message,
+                                                     TimelineCallback<IMessage> callback)
     {
         try {
             UpdateRowRequest request = createUpdateRowRequest(timelineID, sequenceID, message);
@@ -129,9 +202,9 @@ public class DistributeTimelineStore implements IStore {
     }
 
     @Override
-    public Future<TimelineEntry> readAsync(final String timelineID,
-                                           final Long sequenceID,
-                                           final TimelineCallback<Long> callback) {
+    public TimelineFuture<TimelineEntry> readAsync(final String timelineID,
+                                                   final Long sequenceID,
+                                                   final TimelineCallback<Long> callback) {
         try {
             GetRowRequest request = createGetRowRequest(timelineID, sequenceID);
             return doReadAsync(timelineID, callback, request);
@@ -241,10 +314,22 @@ public class DistributeTimelineStore implements IStore {
         }
     }
 
+    /**
+     * 关闭Store，组内的Store只关闭自己的Writer，共享的AsyncClient和线程池由组负责关闭。
+     */
     @Override
     public void close() {
+        if (group != null) {
+            if (tableStoreWriter != null) {
+                tableStoreWriter.close();
+            }
+            group.onStoreClosed(this);
+            return;
+        }
+
         if (tableStoreWriter != null) {
             tableStoreWriter.close();
+            writerExecutor.shutdown();
         }
         tableStore.shutdown();
     }
@@ -278,57 +363,55 @@ public class DistributeTimelineStore implements IStore {
     private PutRowRequest createPutRowRequest(String timelineID, IMessage message) {
         PutRowRequest request = new PutRowRequest();
         RowPutChange putChange = new RowPutChange(config.getTableName());
+        fillRowPutChange(putChange, timelineID, message);
+        request.setRowChange(putChange);
+        return request;
+    }
 
+    private void fillRowPutChange(RowPutChange putChange, String timelineID, IMessage message) {
         PrimaryKeyColumn firstPK = new PrimaryKeyColumn(config.getFirstPKName(), PrimaryKeyValue.fromString(timelineID));
         PrimaryKeyColumn secondPK = new PrimaryKeyColumn(config.getSecondPKName(), PrimaryKeyValue.AUTO_INCREMENT);
         putChange.setPrimaryKey(PrimaryKeyBuilder.createPrimaryKeyBuilder().
                 addPrimaryKeyColumn(firstPK).addPrimaryKeyColumn(secondPK).build());
         putChange.setReturnType(ReturnType.RT_PK);
 
-        byte[] content = message.serialize();
-        if (content.length > 2 * 1024 * 1024) {
-            throw new TimelineException(TimelineExceptionType.INVALID_USE,
-                    String.format("Message Content must less than 2MB, current:%s", String.valueOf(content.length)));
-        }
+        ContentChunks content = ContentChunks.serialize(message, config.getColumnMaxLength(), 2 * 1024 * 1024,
+                config.getContentCodec(), config.getContentCodecThreshold());
 
         /**
          * Write message content.
          */
-        int pos = 0;
-        int index = Utils.CONTENT_COLUMN_START_ID;
-        while (pos < content.length) {
-            byte[] columnValue;
-            if (pos + config.getColumnMaxLength() < content.length) {
-                columnValue = Arrays.copyOfRange(content, pos, pos + config.getColumnMaxLength());
-            } else {
-                columnValue = Arrays.copyOfRange(content, pos, content.length);
-            }
-            String columnName = Utils.SYSTEM_COLUMN_NAME_PREFIX + config.getMessageContentSuffix() + String.valueOf(index++);
-            putChange.addColumn(String.valueOf(columnName), ColumnValue.fromBinary(columnValue));
-            pos += columnValue.length;
+        MessageRowLayout layout = config.getRowLayout();
+        List<byte[]> chunks = content.getChunks();
+        for (int i = 0; i < chunks.size(); i++) {
+            putChange.addColumn(layout.getContentName(i), ColumnValue.fromBinary(chunks.get(i)));
         }
 
         /**
          * Write Message Content Count
          */
         {
-            String columnName = Utils.SYSTEM_COLUMN_NAME_PREFIX + config.getMessageContentCountSuffix();
-            putChange.addColumn(columnName, ColumnValue.fromLong(index - Utils.CONTENT_COLUMN_START_ID));
+            putChange.addColumn(layout.getContentCountName(), ColumnValue.fromLong(chunks.size()));
         }
 
         /**
          * Write CRC32.
          */
-        if (config.getColumnNameOfMessageCrc32Suffix() != null && !config.getColumnNameOfMessageCrc32Suffix().isEmpty()) {
-            long crc32 = Utils.crc32(content);
-            String columnName = Utils.SYSTEM_COLUMN_NAME_PREFIX + config.getColumnNameOfMessageCrc32Suffix();
-            putChange.addColumn(columnName, ColumnValue.fromLong(crc32));
+        if (layout.getCrc32Name() != null) {
+            putChange.addColumn(layout.getCrc32Name(), ColumnValue.fromLong(content.getCrc32()));
+        }
+
+        /**
+         * Write content codec.
+         */
+        if (content.getCodec() != null) {
+            putChange.addColumn(layout.getCodecName(), ColumnValue.fromString(content.getCodec()));
         }
 
         /**
          * Write message ID.
          */
-        putChange.addColumn(Utils.SYSTEM_COLUMN_NAME_PREFIX + config.getMessageIDColumnNameSuffix(), ColumnValue.fromString(message.getMessageID()));
+        putChange.addColumn(layout.getMessageIDName(), ColumnValue.fromString(message.getMessageID()));
 
         /**
          * Write message attributes.
@@ -342,9 +425,6 @@ public class DistributeTimelineStore implements IStore {
             }
             putChange.addColumn(key, ColumnValue.fromString(attributes.get(key)));
         }
-
-        request.setRowChange(putChange);
-        return request;
     }
 
     private UpdateRowRequest createUpdateRowRequest(String timelineID, Long sequenceID, IMessage message) {
@@ -360,47 +440,42 @@ public class DistributeTimelineStore implements IStore {
         /**
          * Write message content.
          */
-        byte[] content = message.serialize();
-        if (content.length > 2 * 1024 * 1024) {
-            throw new TimelineException(TimelineExceptionType.INVALID_USE,
-                    String.format("Message Content must less than 2MB, current:%s", String.valueOf(content.length)));
-        }
+        ContentChunks content = ContentChunks.serialize(message, config.getColumnMaxLength(), 2 * 1024 * 1024,
+                config.getContentCodec(), config.getContentCodecThreshold());
 
-        int pos = 0;
-        int index = Utils.CONTENT_COLUMN_START_ID;
-        while (pos < content.length) {
-            byte[] columnValue;
-            if (pos + config.getColumnMaxLength() < content.length) {
-                columnValue = Arrays.copyOfRange(content, pos, pos + config.getColumnMaxLength());
-            } else {
-                columnValue = Arrays.copyOfRange(content, pos, content.length);
-            }
-            String columnName = Utils.SYSTEM_COLUMN_NAME_PREFIX + config.getMessageContentSuffix() + String.valueOf(index++);
-            updateChange.put(String.valueOf(columnName), ColumnValue.fromBinary(columnValue));
-            pos += columnValue.length;
+        MessageRowLayout layout = config.getRowLayout();
+        List<byte[]> chunks = content.getChunks();
+        for (int i = 0; i < chunks.size(); i++) {
+            updateChange.put(layout.getContentName(i), ColumnValue.fromBinary(chunks.get(i)));
         }
 
         /**
          * Write Message Content Count
          */
         {
-            String columnName = Utils.SYSTEM_COLUMN_NAME_PREFIX + config.getMessageContentCountSuffix();
-            updateChange.put(columnName, ColumnValue.fromLong(index - Utils.CONTENT_COLUMN_START_ID));
+            updateChange.put(layout.getContentCountName(), ColumnValue.fromLong(chunks.size()));
         }
 
         /**
          * Write CRC32.
          */
-        if (config.getColumnNameOfMessageCrc32Suffix() != null && !config.getColumnNameOfMessageCrc32Suffix().isEmpty()) {
-            long crc32 = Utils.crc32(content);
-            String columnName = Utils.SYSTEM_COLUMN_NAME_PREFIX + config.getColumnNameOfMessageCrc32Suffix();
-            updateChange.put(columnName, ColumnValue.fromLong(crc32));
+        if (layout.getCrc32Name() != null) {
+            updateChange.put(layout.getCrc32Name(), ColumnValue.fromLong(content.getCrc32()));
+        }
+
+        /**
+         * Write content codec, or delete the codec of old content.
+         */
+        if (content.getCodec() != null) {
+            updateChange.put(layout.getCodecName(), ColumnValue.fromString(content.getCodec()));
+        } else {
+            updateChange.deleteColumns(layout.getCodecName());
         }
 
         /**
          * Write message ID.
          */
-        updateChange.put(Utils.SYSTEM_COLUMN_NAME_PREFIX + config.getMessageIDColumnNameSuffix(), ColumnValue.fromString(message.getMessageID()));
+        updateChange.put(layout.getMessageIDName(), ColumnValue.fromString(message.getMessageID()));
 
         /**
          * Write message attributes.
@@ -431,201 +506,123 @@ public class DistributeTimelineStore implements IStore {
         return request;
     }
 
-    private Future<TimelineEntry> doReadAsync(final String timelineID, final TimelineCallback<Long> callback, GetRowRequest request) {
-        final TableStoreCallback<GetRowRequest, GetRowResponse> tablestoreCallback = new TableStoreCallback<GetRowRequest, GetRowResponse>() {
+    private TimelineFuture<TimelineEntry> doReadAsync(final String timelineID, final TimelineCallback<Long> callback, GetRowRequest request) {
+        final TimelineFuture<TimelineEntry> future = new StoreFuture<TimelineEntry>();
+        tableStore.getRow(request, new TableStoreCallback<GetRowRequest, GetRowResponse>() {
             @Override
             public void onCompleted(GetRowRequest request, GetRowResponse response) {
-                Row row = response.getRow();
-                TimelineEntry timelineEntry = Utils.toTimelineEntry(row, config);
-                long sequenceID = response.getRow().getPrimaryKey().getPrimaryKeyColumn(config.getSecondPKName()).getValue().asLong();
-                callback.onCompleted(timelineID, sequenceID, timelineEntry);
-            }
-
-            @Override
-            public void onFailed(GetRowRequest getRowRequest, Exception e) {
-                e = createException(e, timelineID, "read");
-
-                long sequenceID = getRowRequest.getRowQueryCriteria().getPrimaryKey().
-                        getPrimaryKeyColumn(config.getSecondPKName()).getValue().asLong();
-                callback.onFailed(timelineID, sequenceID, e);
-            }
-        };
-
-        final Future<GetRowResponse> future = tableStore.getRow(request, tablestoreCallback);
-        return new Future<TimelineEntry>() {
-            @Override
-            public boolean cancel(boolean mayInterruptIfRunning) {
-                return future.cancel(mayInterruptIfRunning);
-            }
-
-            @Override
-            public boolean isCancelled() {
-                return future.isCancelled();
-            }
-
-            @Override
-            public boolean isDone() {
-                return future.isDone();
-            }
+                TimelineEntry timelineEntry;
+                try {
+                    timelineEntry = Utils.toTimelineEntry(response.getRow(), config);
+                } catch (Exception e) {
+                    future.completeExceptionally(e);
+                    return;
+                }
 
-            @Override
-            public TimelineEntry get() throws InterruptedException, ExecutionException {
                 try {
-                    GetRowResponse response = future.get();
-                    return Utils.toTimelineEntry(response.getRow(), config);
-                } catch (TableStoreException ex) {
-                    throw handleTableStoreException(ex, timelineID, "read");
-                } catch (ClientException ex) {
-                    throw new TimelineException(TimelineExceptionType.INVALID_USE,
-                            "Get timeline entry failed, reason:" + ex.getMessage(), ex);
+                    if (callback != null) {
+                        callback.onCompleted(timelineID, timelineEntry.getSequenceID(), timelineEntry);
+                    }
+                } finally {
+                    future.complete(timelineEntry);
                 }
             }
 
             @Override
-            public TimelineEntry get(long timeout, TimeUnit unit) throws InterruptedException, ExecutionException, TimeoutException {
+            public void onFailed(GetRowRequest getRowRequest, Exception e) {
                 try {
-                    GetRowResponse response = future.get(timeout, unit);
-                    return Utils.toTimelineEntry(response.getRow(), config);
-                } catch (TableStoreException ex) {
-                    throw handleTableStoreException(ex, timelineID, "read");
-                } catch (ClientException ex) {
-                    throw new TimelineException(TimelineExceptionType.INVALID_USE,
-                            "Get timeline entry failed, reason:" + ex.getMessage(), ex);
+                    if (callback != null) {
+                        long sequenceID = getRowRequest.getRowQueryCriteria().getPrimaryKey().
+                                getPrimaryKeyColumn(config.getSecondPKName()).getValue().asLong();
+                        callback.onFailed(timelineID, sequenceID, createException(e, timelineID, "read"));
+                    }
+                } finally {
+                    future.completeExceptionally(convertFutureException(e, timelineID, "read"));
                 }
             }
-        };
+        });
+        return future;
     }
 
-    private Future<TimelineEntry> doWriteAsync(final String timelineID,
-                                               final IMessage message,
-                                               final TimelineCallback<IMessage> callback,
-                                               PutRowRequest request)
+    private TimelineFuture<TimelineEntry> doWriteAsync(final String timelineID,
+                                                       final IMessage message,
+                                                       final TimelineCallback<IMessage> callback,
+                                                       PutRowRequest request)
     {
-        final TableStoreCallback<PutRowRequest, PutRowResponse> tablestoreCallback = new TableStoreCallback<PutRowRequest, PutRowResponse>() {
+        final TimelineFuture<TimelineEntry> future = new StoreFuture<TimelineEntry>();
+        tableStore.putRow(request, new TableStoreCallback<PutRowRequest, PutRowResponse>() {
             @Override
             public void onCompleted(PutRowRequest request, PutRowResponse response) {
                 long sequenceID = response.getRow().getPrimaryKey().getPrimaryKeyColumn(config.getSecondPKName()).getValue().asLong();
                 TimelineEntry timelineEntry = new TimelineEntry(sequenceID, message);
-                callback.onCompleted(timelineID, message, timelineEntry);
-            }
-
-            @Override
-            public void onFailed(PutRowRequest putRowRequest, Exception e) {
-                e = createException(e, timelineID, "write");
-
-                callback.onFailed(timelineID, message, e);
-            }
-        };
-
-        final Future<PutRowResponse> future = tableStore.putRow(request, tablestoreCallback);
-        return new Future<TimelineEntry>() {
-            @Override
-            public boolean cancel(boolean mayInterruptIfRunning) {
-                return future.cancel(mayInterruptIfRunning);
-            }
-
-            @Override
-            public boolean isCancelled() {
-                return future.isCancelled();
-            }
-
-            @Override
-            public boolean isDone() {
-                return future.isDone();
-            }
-
-            @Override
-            public TimelineEntry get() throws InterruptedException, ExecutionException {
                 try {
-                    PutRowResponse response = future.get();
-                    return Utils.toTimelineEntry(response, message);
-                } catch (TableStoreException ex) {
-                    throw handleTableStoreException(ex, timelineID, "write");
-                } catch (ClientException ex) {
-                    throw new TimelineException(TimelineExceptionType.INVALID_USE,
-                            "Drop store failed, reason:" + ex.getMessage(), ex);
+                    if (callback != null) {
+                        callback.onCompleted(timelineID, message, timelineEntry);
+                    }
+                } finally {
+                    future.complete(timelineEntry);
                 }
             }
 
             @Override
-            public TimelineEntry get(long timeout, TimeUnit unit) throws InterruptedException, ExecutionException, TimeoutException {
+            public void onFailed(PutRowRequest putRowRequest, Exception e) {
                 try {
-                    PutRowResponse response = future.get(timeout, unit);
-                    return Utils.toTimelineEntry(response, message);
-                } catch (TableStoreException ex) {
-                    throw handleTableStoreException(ex, timelineID, "write");
-                } catch (ClientException ex) {
-                    throw new TimelineException(TimelineExceptionType.INVALID_USE,
-                            "Drop store failed, reason:" + ex.getMessage(), ex);
+                    if (callback != null) {
+                        callback.onFailed(timelineID, message, createException(e, timelineID, "write"));
+                    }
+                } finally {
+                    future.completeExceptionally(convertFutureException(e, timelineID, "write"));
                 }
             }
-        };
+        });
+        return future;
     }
 
-    private Future<TimelineEntry> doUpdateAsync(final String timelineID,
-                                                final IMessage message,
-                                                final TimelineCallback<IMessage> callback,
-                                                UpdateRowRequest request)
+    private TimelineFuture<TimelineEntry> doUpdateAsync(final String timelineID,
+                                                        final IMessage message,
+                                                        final TimelineCallback<IMessage> callback,
+                                                        UpdateRowRequest request)
     {
-        final TableStoreCallback<UpdateRowRequest, UpdateRowResponse> tablestoreCallback = new TableStoreCallback<UpdateRowRequest, UpdateRowResponse>() {
+        final TimelineFuture<TimelineEntry> future = new StoreFuture<TimelineEntry>();
+        tableStore.updateRow(request, new TableStoreCallback<UpdateRowRequest, UpdateRowResponse>() {
             @Override
             public void onCompleted(UpdateRowRequest request, UpdateRowResponse response) {
                 long sequenceID = response.getRow().getPrimaryKey().getPrimaryKeyColumn(config.getSecondPKName()).getValue().asLong();
                 TimelineEntry timelineEntry = new TimelineEntry(sequenceID, message);
-                callback.onCompleted(timelineID, message, timelineEntry);
-            }
-
-            @Override
-            public void onFailed(UpdateRowRequest putRowRequest, Exception e) {
-                e = createException(e, timelineID, "update");
-
-                callback.onFailed(timelineID, message, e);
-            }
-        };
-
-        final Future<UpdateRowResponse> future = tableStore.updateRow(request, tablestoreCallback);
-        return new Future<TimelineEntry>() {
-            @Override
-            public boolean cancel(boolean mayInterruptIfRunning) {
-                return future.cancel(mayInterruptIfRunning);
-            }
-
-            @Override
-            public boolean isCancelled() {
-                return future.isCancelled();
-            }
-
-            @Override
-            public boolean isDone() {
-                return future.isDone();
-            }
-
-            @Override
-            public TimelineEntry get() throws InterruptedException, ExecutionException {
                 try {
-                    UpdateRowResponse response = future.get();
-                    return Utils.toTimelineEntry(response, message);
-                } catch (TableStoreException ex) {
-                    throw handleTableStoreException(ex, timelineID, "update");
-                } catch (ClientException ex) {
-                    throw new TimelineException(TimelineExceptionType.INVALID_USE,
-                            "Drop store failed, reason:" + ex.getMessage(), ex);
+                    if (callback != null) {
+                        callback.onCompleted(timelineID, message, timelineEntry);
+                    }
+                } finally {
+                    future.complete(timelineEntry);
                 }
             }
 
             @Override
-            public TimelineEntry get(long timeout, TimeUnit unit) throws InterruptedException, ExecutionException, TimeoutException {
+            public void onFailed(UpdateRowRequest putRowRequest, Exception e) {
                 try {
-                    UpdateRowResponse response = future.get(timeout, unit);
-                    return Utils.toTimelineEntry(response, message);
-                } catch (TableStoreException ex) {
-                    throw handleTableStoreException(ex, timelineID, "update");
-                } catch (ClientException ex) {
-                    throw new TimelineException(TimelineExceptionType.INVALID_USE,
-                            "Drop store failed, reason:" + ex.getMessage(), ex);
+                    if (callback != null) {
+                        callback.onFailed(timelineID, message, createException(e, timelineID, "update"));
+                    }
+                } finally {
+                    future.completeExceptionally(convertFutureException(e, timelineID, "update"));
                 }
             }
-        };
+        });
+        return future;
+    }
+
+    /**
+     * 转换异步请求失败的异常，即Future的get()抛出的异常。
+     */
+    private Exception convertFutureException(Exception e, String timelineID, String type) {
+        if (e instanceof TableStoreException) {
+            return handleTableStoreException((TableStoreException) e, timelineID, type);
+        } else if (e instanceof ClientException) {
+            return new TimelineException(TimelineExceptionType.INVALID_USE,
+                    String.format("%s timeline %s failed, reason:%s", type, timelineID, e.getMessage()), e);
+        }
+        return e;
     }
 
     private TimelineException handleTableStoreException(TableStoreException ex, String timelineID, String type) {
@@ -666,4 +663,79 @@ public class DistributeTimelineStore implements IStore {
         }
         return e;
     }
+
+    /**
+     * batch接口加入Writer的行，Writer返回结果后完成Future并调用回调函数。
+     */
+    private class BatchRowPutChange extends RowPutChange {
+        private final String timelineID;
+        private final IMessage message;
+        private final TimelineCallback<IMessage> callback;
+        private final TimelineFuture<TimelineEntry> future = new StoreFuture<TimelineEntry>();
+        private final AtomicBoolean released = new AtomicBoolean(false);
+
+        BatchRowPutChange(String tableName, String timelineID, IMessage message, TimelineCallback<IMessage> callback) {
+            super(tableName);
+            this.timelineID = timelineID;
+            this.message = message;
+            this.callback = callback;
+        }
+
+        /**
+         * 释放组内缓存行数的配额，每行只释放一次。
+         */
+        void release() {
+            if (group != null && released.compareAndSet(false, true)) {
+                group.releaseRow();
+            }
+        }
+
+        void onCompleted(RowWriteResult result) {
+            release();
+            TimelineEntry timelineEntry;
+            try {
+                long sequenceID = result.getRow().getPrimaryKey().getPrimaryKeyColumn(config.getSecondPKName()).getValue().asLong();
+                timelineEntry = new TimelineEntry(sequenceID, message);
+            } catch (Exception e) {
+                onFailed(e);
+                return;
+            }
+            try {
+                if (callback != null) {
+                    callback.onCompleted(timelineID, message, timelineEntry);
+                }
+            } finally {
+                future.complete(timelineEntry);
+            }
+        }
+
+        void onFailed(Exception e) {
+            release();
+            try {
+                if (callback != null) {
+                    callback.onFailed(timelineID, message, createException(e, timelineID, "batch"));
+                }
+            } finally {
+                future.completeExceptionally(convertFutureException(e, timelineID, "batch"));
+            }
+        }
+    }
+
+    /**
+     * 异步接口返回的Future，可以通过listener组合而不阻塞线程，get()抛出的异常为转换后的TimelineException。
+     */
+    private static class StoreFuture<T> extends TimelineFuture<T> {
+        @Override
+        protected RuntimeException convertException(Exception cause) {
+            if (cause instanceof RuntimeException) {
+                return (RuntimeException) cause;
+            }
+            return new TimelineException(TimelineExceptionType.UNKNOWN, cause.getMessage(), cause);
+        }
+
+        @Override
+        protected <R> TimelineFuture<R> newFuture() {
+            return new StoreFuture<R>();
+        }
+    }
 }
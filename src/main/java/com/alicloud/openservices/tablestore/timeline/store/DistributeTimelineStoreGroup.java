@@ -0,0 +1,175 @@
+package com.alicloud.openservices.tablestore.timeline.store;
+
+import com.alicloud.openservices.tablestore.AsyncClient;
+import com.alicloud.openservices.tablestore.ClientConfiguration;
+import com.alicloud.openservices.tablestore.timeline.common.TimelineException;
+import com.alicloud.openservices.tablestore.timeline.common.TimelineExceptionType;
+
+import java.io.Closeable;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 共享资源的一组DistributeTimelineStore，比如IM中的存储库和同步库。
+ * 组内的Store共用一个AsyncClient和一个固定大小的线程池，batch接口缓存的行数受组内所有Store共同的上限控制，
+ * 避免每个Store各自创建IO线程、连接池和Writer线程池。
+ * 达到上限时会先在后台提交组内所有Writer缓存的数据再等待，因此上限可以小于Writer的一批行数。
+ * 回调函数在组内的Writer线程中执行，达到上限时回调函数中调用batch接口会抛出TimelineException，而不是阻塞Writer线程。
+ * 组内Store的配置中，endpoint、AccessKey、实例名和ClientConfiguration不再生效，以组的配置为准。
+ */
+public class DistributeTimelineStoreGroup implements Closeable {
+    private final AsyncClient tableStore;
+    private final ThreadPoolExecutor executor;
+    private final ThreadPoolExecutor flusher;
+    private final Semaphore bufferedRows;
+    private final int maxBufferedRows;
+    private final List<DistributeTimelineStore> stores = new CopyOnWriteArrayList<DistributeTimelineStore>();
+    private volatile boolean closed = false;
+
+    /**
+     * DistributeTimelineStoreGroup的构造函数。
+     * @param endpoint              Table Store中实例的endpoint。
+     * @param accessKeyID           阿里云的Access Key ID。
+     * @param accessKeySecret       阿里云Access Key Secret。
+     * @param instanceName          Table Tore的实例名称。
+     * @param clientConfiguration   组内共用的AsyncClient的配置。
+     * @param writerThreads         组内所有Store的Writer共用的线程数。
+     * @param maxBufferedRows       组内所有Store的batch接口最多缓存（未完成）的行数，达到上限时batch接口会阻塞。
+     */
+    public DistributeTimelineStoreGroup(String endpoint, String accessKeyID, String accessKeySecret,
+                                        String instanceName, ClientConfiguration clientConfiguration,
+                                        int writerThreads, int maxBufferedRows) {
+        if (writerThreads <= 0) {
+            throw new TimelineException(TimelineExceptionType.INVALID_USE, "Writer threads must be positive.");
+        }
+        if (maxBufferedRows <= 0) {
+            throw new TimelineException(TimelineExceptionType.INVALID_USE, "Max buffered rows must be positive.");
+        }
+
+        this.tableStore = new AsyncClient(endpoint, accessKeyID, accessKeySecret, instanceName, clientConfiguration);
+        this.maxBufferedRows = maxBufferedRows;
+        this.bufferedRows = new Semaphore(maxBufferedRows);
+        // 任务数受缓存行数的上限控制，队列不设上限，避免回调在调用batch接口的线程中执行
+        this.executor = new ThreadPoolExecutor(writerThreads, writerThreads, 0L, TimeUnit.MILLISECONDS,
+                new LinkedBlockingQueue<Runnable>(), new ThreadFactory() {
+                    private final AtomicInteger counter = new AtomicInteger(1);
+                    @Override
+                    public Thread newThread(Runnable r) {
+                        return new WriterThread(r, "timeline-store-group-" + counter.getAndIncrement());
+                    }
+                });
+        // 最多一个正在执行和一个等待执行的flush，等待中的flush已经覆盖了之后触发的flush
+        this.flusher = new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<Runnable>(1), new ThreadFactory() {
+                    private final AtomicInteger counter = new AtomicInteger(1);
+                    @Override
+                    public Thread newThread(Runnable r) {
+                        Thread thread = new Thread(r, "timeline-store-group-flusher-" + counter.getAndIncrement());
+                        thread.setDaemon(true);
+                        return thread;
+                    }
+                }, new ThreadPoolExecutor.DiscardPolicy());
+    }
+
+    /**
+     * 创建使用组内共享资源的Store，关闭此Store只会关闭它的Writer，共享资源在关闭组时释放。
+     * @param config    Store的配置。
+     * @return  Store。
+     */
+    public DistributeTimelineStore createStore(DistributeTimelineConfig config) {
+        if (closed) {
+            throw new TimelineException(TimelineExceptionType.INVALID_USE, "Store group is closed.");
+        }
+        DistributeTimelineStore store = new DistributeTimelineStore(config, this);
+        stores.add(store);
+        return store;
+    }
+
+    /**
+     * 立即提交组内所有Store的batch接口缓存的数据，并等待提交完成。
+     */
+    public void flush() {
+        for (DistributeTimelineStore store : stores) {
+            store.flush();
+        }
+    }
+
+    /**
+     * 获取组内所有Store的batch接口缓存（未完成）的行数。
+     * @return  缓存的行数。
+     */
+    public int getBufferedRows() {
+        return maxBufferedRows - bufferedRows.availablePermits();
+    }
+
+    /**
+     * 关闭组内所有的Store，并释放共享的AsyncClient和线程池。
+     */
+    @Override
+    public void close() {
+        closed = true;
+        for (DistributeTimelineStore store : stores) {
+            store.close();
+        }
+        flusher.shutdown();
+        executor.shutdown();
+        tableStore.shutdown();
+    }
+
+    AsyncClient getClient() {
+        return tableStore;
+    }
+
+    ExecutorService getExecutor() {
+        return executor;
+    }
+
+    /**
+     * 缓存一行前调用，达到上限时在后台提交组内所有Writer缓存的数据，并阻塞直到有行完成。
+     * 组内的Writer线程不能等待，否则可能占满线程池，导致等待的行无法完成，此时抛出TimelineException。
+     */
+    void acquireRow() {
+        if (bufferedRows.tryAcquire()) {
+            return;
+        }
+        Thread thread = Thread.currentThread();
+        if (thread instanceof WriterThread && ((WriterThread) thread).group == this) {
+            throw new TimelineException(TimelineExceptionType.INVALID_USE,
+                    "Buffered rows reach the limit, batch should not wait in the callback of writer.");
+        }
+
+        flusher.execute(new Runnable() {
+            @Override
+            public void run() {
+                flush();
+            }
+        });
+        try {
+            bufferedRows.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new TimelineException(TimelineExceptionType.ABORT, "Interrupted while waiting for buffered rows.", e);
+        }
+    }
+
+    void releaseRow() {
+        bufferedRows.release();
+    }
+
+    void onStoreClosed(DistributeTimelineStore store) {
+        stores.remove(store);
+    }
+
+    /**
+     * 组内Writer线程池的线程，用于识别在回调函数中调用的batch接口。
+     */
+    private class WriterThread extends Thread {
+        private final DistributeTimelineStoreGroup group = DistributeTimelineStoreGroup.this;
+
+        WriterThread(Runnable target, String name) {
+            super(target, name);
+            setDaemon(true);
+        }
+    }
+}
@@ -31,6 +31,21 @@ public interface IStore extends Closeable {
      */
     void batch(String timelineID, IMessage message);
 
+    /**
+     * 批量写入接口，和batch一样由buffer统一提交，但是可以通过Future或者回调获取写入的结果，包括顺序ID。
+     * 在buffer满或者超时之前，Future不会完成，可以调用flush()立即提交。
+     * @param timelineID    需要写入的Timeline的ID
+     * @param message       需要写入的消息体
+     * @param callback      回调函数，可以为null
+     * @return              Future对象
+     */
+    Future<TimelineEntry> batchAsync(String timelineID, IMessage message, TimelineCallback<IMessage> callback);
+
+    /**
+     * 立即提交batch接口buffer中的数据，并等待提交完成。
+     */
+    void flush();
+
     /**
      * 异步写一条消息到特定Timeline中
      * @param timelineID   需要写入的Timeline的ID
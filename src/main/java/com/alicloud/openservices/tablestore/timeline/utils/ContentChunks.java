@@ -0,0 +1,337 @@
+package com.alicloud.openservices.tablestore.timeline.utils;
+
+import com.alicloud.openservices.tablestore.codec.ContentCodec;
+import com.alicloud.openservices.tablestore.timeline.common.TimelineException;
+import com.alicloud.openservices.tablestore.timeline.common.TimelineExceptionType;
+import com.alicloud.openservices.tablestore.timeline.message.IMessage;
+import com.alicloud.openservices.tablestore.timeline.message.IStreamMessage;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.zip.CRC32;
+
+/**
+ * 消息内容按列切分后的分块，每个分块对应一个内容列。
+ * 写入时直接由消息的序列化结果切分为分块，读取时按列顺序追加分块，CRC32随每个分块增量计算，
+ * 不需要把整个消息内容拷贝为一个完整的字节数组。
+ * 消息内容压缩时，分块保存的是压缩后的字节，CRC32也是按压缩后的字节计算的。
+ */
+public class ContentChunks {
+    private static final int INITIAL_CHUNK_SIZE = 4096;
+
+    private final List<byte[]> chunks = new ArrayList<byte[]>();
+    private final CRC32 crc32 = new CRC32();
+    private int length = 0;
+    private String codec = null;
+
+    /**
+     * 序列化消息并切分为分块。
+     * 如果消息实现了IStreamMessage，序列化的输出流会被直接写入分块，否则按列的最大长度切分序列化后的字节。
+     * @param message       消息。
+     * @param chunkSize     每个分块的最大长度，即内容列的最大长度。
+     * @param maxLength     消息内容的最大长度。
+     * @return  消息内容的分块。
+     */
+    public static ContentChunks serialize(IMessage message, int chunkSize, int maxLength) {
+        return serialize(message, chunkSize, maxLength, null, 0);
+    }
+
+    /**
+     * 序列化消息，压缩后切分为分块。
+     * 序列化后的字节不小于threshold并且压缩后变小时才会压缩，实现了IStreamMessage的消息无法预知长度，总是会压缩。
+     * 压缩前的内容不能超过{@link ContentCodec#MAX_DECODED_LENGTH}，否则读取时无法解压。
+     * @param message       消息。
+     * @param chunkSize     每个分块的最大长度，即内容列的最大长度。
+     * @param maxLength     消息内容（压缩后）的最大长度。
+     * @param codec         压缩编码，为null时不压缩。
+     * @param threshold     压缩的最小长度。
+     * @return  消息内容的分块。
+     */
+    public static ContentChunks serialize(IMessage message, int chunkSize, int maxLength, ContentCodec codec, int threshold) {
+        ContentChunks chunks = new ContentChunks();
+        if (message instanceof IStreamMessage) {
+            OutputStream output = chunks.new ChunkOutputStream(chunkSize, maxLength);
+            if (codec != null) {
+                output = codec.encode(output);
+                chunks.codec = codec.getName();
+            }
+            try {
+                ((IStreamMessage) message).serialize(output);
+                output.close();
+            } catch (IOException ex) {
+                throw new TimelineException(TimelineExceptionType.ABORT, "Serialize message failed", ex);
+            }
+            return chunks;
+        }
+
+        byte[] content = message.serialize();
+        if (codec != null && content.length >= threshold && content.length <= ContentCodec.MAX_DECODED_LENGTH) {
+            byte[] encoded;
+            try {
+                encoded = codec.encode(content);
+            } catch (IOException ex) {
+                throw new TimelineException(TimelineExceptionType.ABORT, "Compress message failed", ex);
+            }
+            if (encoded.length < content.length) {
+                content = encoded;
+                chunks.codec = codec.getName();
+            }
+        }
+        if (content.length > maxLength) {
+            throw new TimelineException(TimelineExceptionType.INVALID_USE,
+                    String.format("Message Content must less than 2MB, current:%s", String.valueOf(content.length)));
+        }
+        if (content.length > 0 && content.length <= chunkSize) {
+            chunks.add(content);
+            return chunks;
+        }
+        for (int pos = 0; pos < content.length; pos += chunkSize) {
+            chunks.add(Arrays.copyOfRange(content, pos, Math.min(pos + chunkSize, content.length)));
+        }
+        return chunks;
+    }
+
+    /**
+     * 追加一个分块，分块的字节不会被拷贝。
+     * @param chunk     内容列的值。
+     */
+    public void add(byte[] chunk) {
+        chunks.add(chunk);
+        crc32.update(chunk, 0, chunk.length);
+        length += chunk.length;
+    }
+
+    /**
+     * 返回消息内容的压缩编码名。
+     * @return  编码名，未压缩时返回null。
+     */
+    public String getCodec() {
+        return codec;
+    }
+
+    /**
+     * 设置消息内容的压缩编码名，用于读取时解压。
+     * @param codec     编码名，为null或者空字符串表示未压缩。
+     */
+    public void setCodec(String codec) {
+        this.codec = codec;
+    }
+
+    /**
+     * 返回所有分块。
+     * @return  分块列表。
+     */
+    public List<byte[]> getChunks() {
+        return Collections.unmodifiableList(chunks);
+    }
+
+    /**
+     * 返回消息内容的总长度。
+     * @return  总长度。
+     */
+    public int getLength() {
+        return length;
+    }
+
+    /**
+     * 返回消息内容的CRC32，和对完整内容计算的结果相同。
+     * @return  CRC32值。
+     */
+    public long getCrc32() {
+        return crc32.getValue();
+    }
+
+    /**
+     * 以输入流的方式读取所有分块，不会拷贝分块的字节。
+     * @return  消息内容的输入流。
+     */
+    public InputStream asInputStream() {
+        return new ChunkInputStream();
+    }
+
+    /**
+     * 返回完整的消息内容，只有一个分块时不会拷贝。
+     * @return  消息内容。
+     */
+    public byte[] toByteArray() {
+        if (chunks.size() == 1) {
+            return chunks.get(0);
+        }
+        byte[] content = new byte[length];
+        int pos = 0;
+        for (byte[] chunk : chunks) {
+            System.arraycopy(chunk, 0, content, pos, chunk.length);
+            pos += chunk.length;
+        }
+        return content;
+    }
+
+    /**
+     * 把消息内容解压并反序列化到消息对象，如果消息实现了IStreamMessage，则以输入流的方式反序列化。
+     * 解压后的内容超过{@link ContentCodec#MAX_DECODED_LENGTH}时抛出TimelineException。
+     * @param message   消息对象。
+     */
+    public void deserializeTo(IMessage message) {
+        ContentCodec contentCodec = null;
+        if (codec != null && !codec.isEmpty()) {
+            contentCodec = ContentCodec.forName(codec);
+            if (contentCodec == null) {
+                throw new TimelineException(TimelineExceptionType.INVALID_USE,
+                        String.format("Unknown message content codec:%s", codec));
+            }
+        }
+
+        if (!(message instanceof IStreamMessage)) {
+            byte[] content = toByteArray();
+            if (contentCodec != null) {
+                try {
+                    content = contentCodec.decode(content);
+                } catch (IOException ex) {
+                    throw new TimelineException(TimelineExceptionType.ABORT, "Decompress message failed", ex);
+                }
+            }
+            message.deserialize(content);
+            return;
+        }
+
+        InputStream input = asInputStream();
+        if (contentCodec != null) {
+            input = contentCodec.decode(input);
+        }
+        try {
+            ((IStreamMessage) message).deserialize(input);
+            input.close();
+        } catch (IOException ex) {
+            throw new TimelineException(TimelineExceptionType.ABORT, "Deserialize message failed", ex);
+        }
+    }
+
+    /**
+     * 写满一个分块后再开始下一个分块，第一个分块按需扩容，避免小消息也分配整列的缓冲区。
+     */
+    private class ChunkOutputStream extends OutputStream {
+        private final int chunkSize;
+        private final int maxLength;
+        private byte[] buffer;
+        private int count = 0;
+        private int written = 0;
+        private boolean closed = false;
+
+        ChunkOutputStream(int chunkSize, int maxLength) {
+            this.chunkSize = chunkSize;
+            this.maxLength = maxLength;
+            this.buffer = new byte[Math.min(chunkSize, INITIAL_CHUNK_SIZE)];
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            write(new byte[]{(byte) b}, 0, 1);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            if (closed) {
+                throw new IOException("Stream is closed.");
+            }
+            if ((long) written + len > maxLength) {
+                throw new TimelineException(TimelineExceptionType.INVALID_USE,
+                        String.format("Message Content must less than 2MB, current:%s", String.valueOf((long) written + len)));
+            }
+            written += len;
+
+            while (len > 0) {
+                if (count == chunkSize) {
+                    add(buffer);
+                    buffer = new byte[chunkSize];
+                    count = 0;
+                } else if (count == buffer.length) {
+                    buffer = Arrays.copyOf(buffer, Math.min(chunkSize, Math.max(buffer.length * 2, count + len)));
+                }
+                int n = Math.min(len, buffer.length - count);
+                System.arraycopy(b, off, buffer, count, n);
+                count += n;
+                off += n;
+                len -= n;
+            }
+        }
+
+        @Override
+        public void close() {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            if (count > 0) {
+                add(count == buffer.length ? buffer : Arrays.copyOf(buffer, count));
+            }
+            buffer = null;
+        }
+    }
+
+    private class ChunkInputStream extends InputStream {
+        private int index = 0;
+        private int pos = 0;
+
+        /**
+         * @return false if all the chunks are consumed.
+         */
+        private boolean advance() {
+            while (index < chunks.size() && pos == chunks.get(index).length) {
+                index++;
+                pos = 0;
+            }
+            return index < chunks.size();
+        }
+
+        @Override
+        public int read() {
+            if (!advance()) {
+                return -1;
+            }
+            return chunks.get(index)[pos++] & 0xff;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) {
+            if (len == 0) {
+                return 0;
+            }
+            int total = 0;
+            while (len > 0 && advance()) {
+                byte[] chunk = chunks.get(index);
+                int n = Math.min(len, chunk.length - pos);
+                System.arraycopy(chunk, pos, b, off, n);
+                pos += n;
+                off += n;
+                len -= n;
+                total += n;
+            }
+            return total == 0 ? -1 : total;
+        }
+
+        @Override
+        public long skip(long n) {
+            long skipped = 0;
+            while (n > 0 && advance()) {
+                int step = (int) Math.min(n, chunks.get(index).length - pos);
+                pos += step;
+                n -= step;
+                skipped += step;
+            }
+            return skipped;
+        }
+
+        @Override
+        public int available() {
+            if (!advance()) {
+                return 0;
+            }
+            return chunks.get(index).length - pos;
+        }
+    }
+}
@@ -0,0 +1,143 @@
+package com.alicloud.openservices.tablestore.timeline.utils;
+
+import com.alicloud.openservices.tablestore.timeline.store.DistributeTimelineConfig;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 消息在行中的列布局，由DistributeTimelineConfig生成一次后重复使用，
+ * 避免读写每一行时都重新拼接系统列的列名和解析内容列的序号。
+ */
+public class MessageRowLayout {
+    /**
+     * 用户的属性列。
+     */
+    public static final int ATTRIBUTE = 0;
+    /**
+     * 消息内容列。
+     */
+    public static final int CONTENT = 1;
+    /**
+     * 消息内容列个数所在的列。
+     */
+    public static final int CONTENT_COUNT = 2;
+    /**
+     * 消息ID所在的列。
+     */
+    public static final int MESSAGE_ID = 3;
+    /**
+     * 消息内容CRC32所在的列。
+     */
+    public static final int CRC32 = 4;
+    /**
+     * 消息内容压缩编码名所在的列。
+     */
+    public static final int CODEC = 5;
+    /**
+     * 其他系统列。
+     */
+    public static final int OTHER_SYSTEM = 6;
+
+    /**
+     * 消息内容不超过2MB，预先生成足够的内容列名，列的最大长度很小时超出MAX_CONTENT_NAMES的部分按需拼接。
+     */
+    private static final int MAX_CONTENT_LENGTH = 2 * 1024 * 1024;
+    private static final int MAX_CONTENT_NAMES = 1024;
+
+    private final String contentPrefix;
+    private final String contentCountName;
+    private final String messageIDName;
+    private final String crc32Name;
+    private final String codecName;
+    private final String[] contentNames;
+    private final Map<String, Integer> systemColumns = new HashMap<String, Integer>();
+
+    /**
+     * 按配置生成列布局。
+     * @param config    Timeline的配置。
+     */
+    public MessageRowLayout(DistributeTimelineConfig config) {
+        this.contentPrefix = Utils.SYSTEM_COLUMN_NAME_PREFIX + config.getMessageContentSuffix();
+        this.contentCountName = Utils.SYSTEM_COLUMN_NAME_PREFIX + config.getMessageContentCountSuffix();
+        this.messageIDName = Utils.SYSTEM_COLUMN_NAME_PREFIX + config.getMessageIDColumnNameSuffix();
+        if (config.getColumnNameOfMessageCrc32Suffix() != null && !config.getColumnNameOfMessageCrc32Suffix().isEmpty()) {
+            this.crc32Name = Utils.SYSTEM_COLUMN_NAME_PREFIX + config.getColumnNameOfMessageCrc32Suffix();
+        } else {
+            this.crc32Name = null;
+        }
+        this.codecName = Utils.SYSTEM_COLUMN_NAME_PREFIX + config.getMessageContentCodecSuffix();
+
+        int maxCount = Math.min(MAX_CONTENT_NAMES,
+                (MAX_CONTENT_LENGTH + config.getColumnMaxLength() - 1) / config.getColumnMaxLength());
+        this.contentNames = new String[maxCount];
+        for (int i = 0; i < maxCount; i++) {
+            contentNames[i] = contentPrefix + String.valueOf(Utils.CONTENT_COLUMN_START_ID + i);
+        }
+
+        // the latter has higher priority if names are the same
+        systemColumns.put(contentCountName, CONTENT_COUNT);
+        systemColumns.put(codecName, CODEC);
+        if (crc32Name != null) {
+            systemColumns.put(crc32Name, CRC32);
+        }
+        systemColumns.put(messageIDName, MESSAGE_ID);
+    }
+
+    /**
+     * 获取列的类型，消息内容列的前缀优先于其他系统列的列名。
+     * @param name  列名。
+     * @return  列的类型，比如{@link #CONTENT}。
+     */
+    public int getColumnType(String name) {
+        if (name.startsWith(contentPrefix)) {
+            return CONTENT;
+        }
+        Integer type = systemColumns.get(name);
+        if (type != null) {
+            return type;
+        }
+        return name.startsWith(Utils.SYSTEM_COLUMN_NAME_PREFIX) ? OTHER_SYSTEM : ATTRIBUTE;
+    }
+
+    /**
+     * 获取第index个消息内容列的列名。
+     * @param index     从0开始的序号。
+     * @return  列名。
+     */
+    public String getContentName(int index) {
+        if (index < contentNames.length) {
+            return contentNames[index];
+        }
+        return contentPrefix + String.valueOf(Utils.CONTENT_COLUMN_START_ID + index);
+    }
+
+    /**
+     * 解析消息内容列的序号，只在列名和预期不一致时使用。
+     * @param name  消息内容列的列名。
+     * @return  列名中的序号。
+     */
+    public int parseContentSeqID(String name) {
+        return Integer.parseInt(name.substring(contentPrefix.length()));
+    }
+
+    public String getContentCountName() {
+        return contentCountName;
+    }
+
+    public String getMessageIDName() {
+        return messageIDName;
+    }
+
+    /**
+     * 获取CRC32所在的列名。
+     * @return  列名，不校验CRC32时返回null。
+     */
+    public String getCrc32Name() {
+        return crc32Name;
+    }
+
+    public String getCodecName() {
+        return codecName;
+    }
+}
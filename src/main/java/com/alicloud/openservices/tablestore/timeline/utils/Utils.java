@@ -9,8 +9,6 @@ import com.alicloud.openservices.tablestore.timeline.store.DistributeTimelineCon
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.io.ByteArrayOutputStream;
-import java.io.IOException;
 import java.lang.management.ManagementFactory;
 import java.net.InetAddress;
 import java.net.UnknownHostException;
@@ -59,47 +57,52 @@ public class Utils {
 
         Long sequenceID = pk.getPrimaryKeyColumn(1).getValue().asLong();
 
+        MessageRowLayout layout = config.getRowLayout();
+
         /**
          * Read Content Column Count.
          */
-        String contentCountName = Utils.SYSTEM_COLUMN_NAME_PREFIX + config.getMessageContentCountSuffix();
         long columnCount = -1;
-        long currentCount = 0;
-        Column contentCountColumn = row.getLatestColumn(contentCountName);
+        int currentCount = 0;
+        Column contentCountColumn = row.getLatestColumn(layout.getContentCountName());
         if (contentCountColumn != null) {
             columnCount = contentCountColumn.getValue().asLong();
         }
 
         Column[] columns = row.getColumns();
-        ByteArrayOutputStream stream = new ByteArrayOutputStream();
+        ContentChunks content = new ContentChunks();
         String messageID = null;
-        int index = CONTENT_COLUMN_START_ID;
         long crc32 = 0;
         for (Column column: columns) {
             String name = column.getName();
-            if (name.startsWith(SYSTEM_COLUMN_NAME_PREFIX + config.getMessageContentSuffix()))
-            {
-                if (currentCount == columnCount) {
-                    continue;
-                }
-                int columnSeqID = Integer.parseInt(name.substring(SYSTEM_COLUMN_NAME_PREFIX.length() + config.getMessageContentSuffix().length()));
-                if (columnSeqID != index) {
-                    throw new TimelineException(TimelineExceptionType.INVALID_USE,
-                            String.format("Message Content column sequence id is wrong, expected:%d, but:%d",
-                            index, columnSeqID));
-                }
-
-                byte[] value = column.getValue().asBinary();
-                stream.write(value, 0, value.length);
-
-                index++;
-                currentCount++;
-            } else if (name.equals(SYSTEM_COLUMN_NAME_PREFIX + config.getMessageIDColumnNameSuffix())) {
-                messageID = column.getValue().asString();
-            } else if (name.equals(SYSTEM_COLUMN_NAME_PREFIX + config.getColumnNameOfMessageCrc32Suffix())) {
-                crc32 = column.getValue().asLong();
-            } else if (!name.startsWith(SYSTEM_COLUMN_NAME_PREFIX)){
-                message.addAttribute(name, column.getValue().asString());
+            switch (layout.getColumnType(name)) {
+                case MessageRowLayout.CONTENT:
+                    if (currentCount == columnCount) {
+                        break;
+                    }
+                    if (!name.equals(layout.getContentName(currentCount))) {
+                        throw new TimelineException(TimelineExceptionType.INVALID_USE,
+                                String.format("Message Content column sequence id is wrong, expected:%d, but:%d",
+                                CONTENT_COLUMN_START_ID + currentCount, layout.parseContentSeqID(name)));
+                    }
+
+                    content.add(column.getValue().asBinary());
+                    currentCount++;
+                    break;
+                case MessageRowLayout.MESSAGE_ID:
+                    messageID = column.getValue().asString();
+                    break;
+                case MessageRowLayout.CRC32:
+                    crc32 = column.getValue().asLong();
+                    break;
+                case MessageRowLayout.CODEC:
+                    content.setCodec(column.getValue().asString());
+                    break;
+                case MessageRowLayout.ATTRIBUTE:
+                    message.addAttribute(name, column.getValue().asString());
+                    break;
+                default:
+                    break;
             }
         }
 
@@ -107,20 +110,8 @@ public class Utils {
             throw new TimelineException(TimelineExceptionType.ABORT,
                     String.format("Message content column is broken, expected %d, but %d", columnCount, currentCount));
         }
-        byte[] content = stream.toByteArray();
-
-        try {
-            stream.close();
-        } catch (IOException ex) {
-            logger.error("Close ByteArrayOutputStream failed", ex);
-            throw new TimelineException(TimelineExceptionType.ABORT,
-                    "Close ByteArrayOutputStream failed", ex);
-        }
-
-        if (config.getColumnNameOfMessageCrc32Suffix() != null
-                && !config.getColumnNameOfMessageCrc32Suffix().isEmpty())
-        {
-            long current = Utils.crc32(content);
+        if (layout.getCrc32Name() != null) {
+            long current = content.getCrc32();
             if (current != crc32) {
                 throw new TimelineException(TimelineExceptionType.INVALID_USE,
                         String.format("Message content is broken, expected crc32:%d, but:%d",
@@ -128,7 +119,7 @@ public class Utils {
             }
         }
 
-        message.deserialize(content);
+        content.deserializeTo(message);
         message.setMessageID(messageID);
         return new TimelineEntry(sequenceID, message);
     }
@@ -0,0 +1,285 @@
+package com.alicloud.openservices.tablestore.timeline2;
+
+import com.alicloud.openservices.tablestore.timeline2.utils.Preconditions;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Client side rate limiter of requests and capacity units per table, which is adjusted by AIMD:
+ * the allowed rate is decreased multiplicatively when TableStore is throttling, and increased additively
+ * when requests succeed without throttling, up to the max rate.
+ * <p>
+ * The limiter could be shared by timeline stores and meta stores, by TimelineSchema.withRateLimiter
+ * and TimelineMetaSchema.withRateLimiter, so that all the requests of the same table are limited together.
+ * The capacity units are estimated from the data size of rows before requests are sent.
+ */
+public class AdaptiveRateLimiter {
+    public static final String ERROR_CAPACITY_UNIT_EXHAUSTED = "OTSCapacityUnitExhausted";
+    public static final String ERROR_SERVER_BUSY = "OTSServerBusy";
+    public static final String ERROR_QUOTA_EXHAUSTED = "OTSQuotaExhausted";
+
+    private final double maxRequestsPerSecond;
+    private final double maxCapacityUnitsPerSecond;
+    private double minRatio = 0.01;
+    private double increaseRatio = 0.05;
+    private double decreaseFactor = 0.5;
+    private long adjustIntervalNanos = TimeUnit.SECONDS.toNanos(1);
+    private TimelineMetricsListener listener = NoopMetricsListener.INSTANCE;
+
+    private final ConcurrentMap<String, TableLimiter> tables = new ConcurrentHashMap<String, TableLimiter>();
+
+    /**
+     * @param maxRequestsPerSecond      The max requests per second of each table.
+     * @param maxCapacityUnitsPerSecond The max capacity units per second of each table, 0 means not limited.
+     */
+    public AdaptiveRateLimiter(double maxRequestsPerSecond, double maxCapacityUnitsPerSecond) {
+        Preconditions.checkArgument(maxRequestsPerSecond > 0, "Max requests per second should be positive.");
+        Preconditions.checkArgument(maxCapacityUnitsPerSecond >= 0, "Max capacity units per second should not be negative.");
+        this.maxRequestsPerSecond = maxRequestsPerSecond;
+        this.maxCapacityUnitsPerSecond = maxCapacityUnitsPerSecond;
+    }
+
+    /**
+     * @param minRatio  The min rate relative to the max rate, 0.01 by default.
+     * @return this
+     */
+    public AdaptiveRateLimiter withMinRatio(double minRatio) {
+        Preconditions.checkArgument(minRatio > 0 && minRatio <= 1, "Min ratio should be in (0, 1].");
+        this.minRatio = minRatio;
+        return this;
+    }
+
+    /**
+     * @param increaseRatio     The rate increased in each interval without throttling, relative to the max rate,
+     *                          0.05 by default.
+     * @param decreaseFactor    The factor multiplied to the rate when throttled, 0.5 by default.
+     * @return this
+     */
+    public AdaptiveRateLimiter withAIMD(double increaseRatio, double decreaseFactor) {
+        Preconditions.checkArgument(increaseRatio > 0 && increaseRatio <= 1, "Increase ratio should be in (0, 1].");
+        Preconditions.checkArgument(decreaseFactor > 0 && decreaseFactor < 1, "Decrease factor should be in (0, 1).");
+        this.increaseRatio = increaseRatio;
+        this.decreaseFactor = decreaseFactor;
+        return this;
+    }
+
+    /**
+     * The rate is increased or decreased at most once in each interval, so that a burst of throttling errors
+     * caused by the same overload only decreases the rate once.
+     *
+     * @param intervalMillis    The interval in milliseconds, 1000 by default.
+     * @return this
+     */
+    public AdaptiveRateLimiter withAdjustInterval(long intervalMillis) {
+        Preconditions.checkArgument(intervalMillis > 0, "Adjust interval should be positive.");
+        this.adjustIntervalNanos = TimeUnit.MILLISECONDS.toNanos(intervalMillis);
+        return this;
+    }
+
+    /**
+     * Report the allowed rate of each table by TimelineMetricsListener.onRateChanged.
+     */
+    public AdaptiveRateLimiter withMetricsListener(TimelineMetricsListener listener) {
+        Preconditions.checkNotNull(listener, "TimelineMetricsListener should not be null.");
+        this.listener = listener;
+        return this;
+    }
+
+    /**
+     * Wait until a request of table with the estimated capacity units is allowed.
+     */
+    public void acquire(String tableName, double capacityUnits) {
+        long waitNanos = reserve(tableName, capacityUnits);
+        if (waitNanos <= 0) {
+            return;
+        }
+
+        try {
+            TimeUnit.NANOSECONDS.sleep(waitNanos);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new TimelineException("Interrupted while waiting for rate limiter.", e);
+        }
+    }
+
+    /**
+     * Reserve a request of table with the estimated capacity units without waiting,
+     * the request should be sent after the returned time, such as by a timer for async requests.
+     *
+     * @return the nanoseconds to wait, 0 if allowed now.
+     */
+    public long reserve(String tableName, double capacityUnits) {
+        return Math.max(0, getTable(tableName).reserve(capacityUnits));
+    }
+
+    /**
+     * Feed back the result of a request, or a row of batch request.
+     *
+     * @param errorCode     The error code of failure, null if succeed.
+     */
+    public void onResult(String tableName, String errorCode) {
+        TableLimiter table = getTable(tableName);
+        if (errorCode == null) {
+            table.onSucceed();
+        } else if (ERROR_CAPACITY_UNIT_EXHAUSTED.equals(errorCode)) {
+            table.onThrottled(true);
+        } else if (ERROR_SERVER_BUSY.equals(errorCode) || ERROR_QUOTA_EXHAUSTED.equals(errorCode)) {
+            table.onThrottled(false);
+        }
+    }
+
+    /**
+     * Get the allowed requests per second of table, the max rate if no request of the table.
+     */
+    public double getRequestRate(String tableName) {
+        TableLimiter table = tables.get(tableName);
+        return table == null ? maxRequestsPerSecond : table.requests.getRate();
+    }
+
+    /**
+     * Get the allowed capacity units per second of table, 0 if not limited.
+     */
+    public double getCapacityUnitRate(String tableName) {
+        TableLimiter table = tables.get(tableName);
+        if (table == null || table.capacityUnits == null) {
+            return maxCapacityUnitsPerSecond;
+        }
+        return table.capacityUnits.getRate();
+    }
+
+    private TableLimiter getTable(String tableName) {
+        TableLimiter table = tables.get(tableName);
+        if (table == null) {
+            TableLimiter newTable = new TableLimiter(tableName);
+            table = tables.putIfAbsent(tableName, newTable);
+            if (table == null) {
+                table = newTable;
+            }
+        }
+        return table;
+    }
+
+    private class TableLimiter {
+        private final String tableName;
+        private final TokenBucket requests;
+        private final TokenBucket capacityUnits;
+        private long lastIncreaseTime;
+        private long lastDecreaseTime;
+
+        TableLimiter(String tableName) {
+            this.tableName = tableName;
+            this.lastIncreaseTime = System.nanoTime() - adjustIntervalNanos;
+            this.lastDecreaseTime = lastIncreaseTime;
+            this.requests = new TokenBucket(maxRequestsPerSecond);
+            this.capacityUnits = maxCapacityUnitsPerSecond > 0 ? new TokenBucket(maxCapacityUnitsPerSecond) : null;
+        }
+
+        long reserve(double units) {
+            long waitNanos = requests.reserve(1);
+            if (capacityUnits != null) {
+                waitNanos = Math.max(waitNanos, capacityUnits.reserve(units));
+            }
+            return waitNanos;
+        }
+
+        void onSucceed() {
+            synchronized (this) {
+                long now = System.nanoTime();
+                if (now - lastIncreaseTime < adjustIntervalNanos) {
+                    return;
+                }
+                lastIncreaseTime = now;
+
+                boolean changed = increase(requests, maxRequestsPerSecond);
+                if (capacityUnits != null) {
+                    changed |= increase(capacityUnits, maxCapacityUnitsPerSecond);
+                }
+                if (!changed) {
+                    return;
+                }
+            }
+            report();
+        }
+
+        void onThrottled(boolean byCapacityUnits) {
+            synchronized (this) {
+                long now = System.nanoTime();
+                if (now - lastDecreaseTime < adjustIntervalNanos) {
+                    return;
+                }
+                // the rate is not increased in the interval after decreased
+                lastDecreaseTime = now;
+                lastIncreaseTime = now;
+
+                if (byCapacityUnits && capacityUnits != null) {
+                    decrease(capacityUnits, maxCapacityUnitsPerSecond);
+                } else {
+                    decrease(requests, maxRequestsPerSecond);
+                }
+            }
+            report();
+        }
+
+        private boolean increase(TokenBucket bucket, double maxRate) {
+            double rate = bucket.getRate();
+            if (rate >= maxRate) {
+                return false;
+            }
+            bucket.setRate(Math.min(maxRate, rate + maxRate * increaseRatio));
+            return true;
+        }
+
+        private void decrease(TokenBucket bucket, double maxRate) {
+            bucket.setRate(Math.max(maxRate * minRatio, bucket.getRate() * decreaseFactor));
+        }
+
+        private void report() {
+            listener.onRateChanged(tableName, requests.getRate(), capacityUnits == null ? 0 : capacityUnits.getRate());
+        }
+    }
+
+    /**
+     * Token bucket with burst of one second, the tokens could be reserved in advance,
+     * and the reserver waits until the debt is paid.
+     */
+    private static class TokenBucket {
+        private double rate;
+        private double tokens;
+        private long lastRefillTime = System.nanoTime();
+
+        TokenBucket(double rate) {
+            this.rate = rate;
+            this.tokens = rate;
+        }
+
+        /**
+         * @return the nanoseconds to wait.
+         */
+        synchronized long reserve(double units) {
+            refill();
+            tokens -= units;
+            if (tokens >= 0) {
+                return 0;
+            }
+            return (long) (-tokens / rate * TimeUnit.SECONDS.toNanos(1));
+        }
+
+        synchronized double getRate() {
+            return rate;
+        }
+
+        synchronized void setRate(double rate) {
+            refill();
+            this.rate = rate;
+            this.tokens = Math.min(tokens, rate);
+        }
+
+        private void refill() {
+            long now = System.nanoTime();
+            tokens = Math.min(rate, tokens + (now - lastRefillTime) * rate / TimeUnit.SECONDS.toNanos(1));
+            lastRefillTime = now;
+        }
+    }
+}
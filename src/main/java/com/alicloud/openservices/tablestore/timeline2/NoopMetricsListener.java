@@ -0,0 +1,28 @@
+package com.alicloud.openservices.tablestore.timeline2;
+
+/**
+ * The listener which ignores all metrics, could be extended to listen to part of metrics.
+ */
+public class NoopMetricsListener implements TimelineMetricsListener {
+    public static final NoopMetricsListener INSTANCE = new NoopMetricsListener();
+
+    @Override
+    public void onRequest(String operation, long latencyMicros, int rowCount, long bytes) {
+    }
+
+    @Override
+    public void onError(String operation, String errorCode) {
+    }
+
+    @Override
+    public void onWriterState(int pendingRows, int callbackQueueLength) {
+    }
+
+    @Override
+    public void onWriterBlocked(long blockedMicros, boolean rejected) {
+    }
+
+    @Override
+    public void onRateChanged(String tableName, double requestsPerSecond, double capacityUnitsPerSecond) {
+    }
+}
@@ -0,0 +1,111 @@
+package com.alicloud.openservices.tablestore.timeline2;
+
+import com.alicloud.openservices.tablestore.TableStoreException;
+import com.alicloud.openservices.tablestore.timeline2.utils.Preconditions;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+
+/**
+ * Retry idempotent requests of timeline store with exponential backoff and full jitter,
+ * and optionally hedge reads by sending a second request when the first one is slower than the percentile latency.
+ * <p>
+ * The idempotent requests are getRow, getRange, batchGetRow, search, and putRow, updateRow, deleteRow
+ * without auto-increment primary key or condition. Writes by writer are retried by writer itself.
+ * The exceptions from client, such as invalid parameters, are not retried.
+ */
+public class RetryPolicy {
+    private static final Set<String> RETRYABLE_ERROR_CODES = new HashSet<String>(Arrays.asList(
+            "OTSServerBusy", "OTSPartitionUnavailable", "OTSTimeout", "OTSServerUnavailable", "OTSInternalServerError",
+            "OTSQuotaExhausted", "OTSCapacityUnitExhausted", "OTSTableNotReady", "OTSRowOperationConflict"));
+
+    private final int maxRetries;
+    private final long baseBackoffMillis;
+    private final long maxBackoffMillis;
+    private double hedgePercentile = -1;
+    private long minHedgeDelayMillis = 0;
+
+    private final Random random = new Random();
+
+    /**
+     * @param maxRetries        The max retries of each request, 0 means no retry.
+     * @param baseBackoffMillis The backoff of the first retry, which is doubled by each retry.
+     * @param maxBackoffMillis  The max backoff.
+     */
+    public RetryPolicy(int maxRetries, long baseBackoffMillis, long maxBackoffMillis) {
+        Preconditions.checkArgument(maxRetries >= 0, "Max retries should not be negative.");
+        Preconditions.checkArgument(baseBackoffMillis > 0, "Base backoff should be positive.");
+        Preconditions.checkArgument(maxBackoffMillis >= baseBackoffMillis, "Max backoff should not be less than base backoff.");
+        this.maxRetries = maxRetries;
+        this.baseBackoffMillis = baseBackoffMillis;
+        this.maxBackoffMillis = maxBackoffMillis;
+    }
+
+    /**
+     * Hedge getRow and getRange, the second request is sent if the first one is not finished in the latency
+     * at percentile of the previous succeed requests, and the first response is used.
+     * Requests are not hedged until enough latencies are recorded.
+     *
+     * @param percentile        The percentile of latency, such as 95.
+     * @param minDelayMillis    The min delay to hedge.
+     * @return this
+     */
+    public RetryPolicy withHedgedReads(double percentile, long minDelayMillis) {
+        Preconditions.checkArgument(percentile > 0 && percentile < 100, "Percentile of hedged reads should be in (0, 100).");
+        Preconditions.checkArgument(minDelayMillis >= 0, "Min delay of hedged reads should not be negative.");
+        this.hedgePercentile = percentile;
+        this.minHedgeDelayMillis = minDelayMillis;
+        return this;
+    }
+
+    public int getMaxRetries() {
+        return maxRetries;
+    }
+
+    public boolean hasHedgedReads() {
+        return hedgePercentile > 0;
+    }
+
+    public double getHedgePercentile() {
+        return hedgePercentile;
+    }
+
+    public long getMinHedgeDelayMillis() {
+        return minHedgeDelayMillis;
+    }
+
+    /**
+     * Whether the failed request could be retried, which are the server errors and throttling errors.
+     */
+    public boolean isRetryable(Exception e) {
+        if (!(e instanceof TableStoreException)) {
+            return false;
+        }
+        TableStoreException ex = (TableStoreException) e;
+        return isRetryableErrorCode(ex.getErrorCode()) || ex.getHttpStatus() >= 500;
+    }
+
+    /**
+     * Whether the error code is a server error or throttling error, such as the error of a row in batch operations.
+     */
+    public static boolean isRetryableErrorCode(String errorCode) {
+        return RETRYABLE_ERROR_CODES.contains(errorCode);
+    }
+
+    /**
+     * Get the backoff before retry with full jitter, which is random in [0, min(max, base * 2^retries)].
+     *
+     * @param retries   The count of retries done.
+     */
+    public long nextBackoffMillis(int retries) {
+        long backoff = baseBackoffMillis << Math.min(retries, 30);
+        if (backoff <= 0 || backoff > maxBackoffMillis) {
+            backoff = maxBackoffMillis;
+        }
+        synchronized (random) {
+            return (long) (random.nextDouble() * (backoff + 1));
+        }
+    }
+}
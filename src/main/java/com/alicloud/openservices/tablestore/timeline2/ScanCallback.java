@@ -0,0 +1,14 @@
+package com.alicloud.openservices.tablestore.timeline2;
+
+import com.alicloud.openservices.tablestore.timeline2.model.TimelineIdentifier;
+import com.alicloud.openservices.tablestore.timeline2.query.ScanResult;
+
+public interface ScanCallback {
+    /**
+     * Function to invoke when a page of timeline entries is arrived, which may be empty if filter is set.
+     * @param identifier        The identifier of timeline.
+     * @param page              The page of timeline entries.
+     * @return                  Whether to continue scanning next page.
+     */
+    boolean onPage(final TimelineIdentifier identifier, final ScanResult page);
+}
@@ -0,0 +1,19 @@
+package com.alicloud.openservices.tablestore.timeline2;
+
+import com.alicloud.openservices.tablestore.timeline2.model.TimelineIdentifier;
+
+/**
+ * The generator of sequence id on client side, which is used by timeline with manually set sequence id.
+ * The sequence ids generated for one timeline should be unique and incremental.
+ */
+public interface SequenceIdGenerator {
+
+    /**
+     * Generate next sequence id of specified timeline.
+     *
+     * @param identifier    The identifier of timeline.
+     *
+     * @return the sequence id
+     */
+    long next(TimelineIdentifier identifier);
+}
@@ -6,6 +6,9 @@ import com.alicloud.openservices.tablestore.timeline2.model.TimelineMeta;
 import com.alicloud.openservices.tablestore.timeline2.query.SearchParameter;
 import com.alicloud.openservices.tablestore.timeline2.query.SearchResult;
 
+import java.util.Collection;
+import java.util.List;
+
 /**
  * The store service of timeline meta.
  */
@@ -20,6 +23,17 @@ public interface TimelineMetaStore {
      */
     TimelineMeta read(TimelineIdentifier identifier);
 
+    /**
+     * Get many timeline metas by BatchGetRow.
+     * The rows are split into requests of the max size allowed by service, which are sent concurrently,
+     * and only the failed rows are retried.
+     *
+     * @param identifiers       The identifiers of timeline metas.
+     *
+     * @return the metas in the same order of identifiers, the meta is null if not exist.
+     */
+    List<TimelineMeta> batchRead(Collection<TimelineIdentifier> identifiers);
+
     /**
      * Search timeline meta by search parameter.
      * Search will throw TimelineException when index info not set in TimelineSchema.
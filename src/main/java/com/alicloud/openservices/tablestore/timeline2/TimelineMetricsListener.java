@@ -0,0 +1,53 @@
+package com.alicloud.openservices.tablestore.timeline2;
+
+/**
+ * The listener of metrics of timeline store, which is invoked in the thread of request or callback,
+ * so that it should be thread safe and return quickly.
+ */
+public interface TimelineMetricsListener {
+
+    /**
+     * Function to invoke when a request to TableStore is finished, whether succeed or not.
+     * The batches flushed by writer of timeline are reported as operation "batchWriteRow".
+     *
+     * @param operation         The method name of client, such as "putRow", "getRange" and "batchWriteRow".
+     * @param latencyMicros     The latency of request in microseconds, including the delay of async callback.
+     * @param rowCount          The count of rows written by write requests, or rows returned by read requests.
+     * @param bytes             The bytes of rows written by write requests, always 0 for read requests.
+     */
+    void onRequest(String operation, long latencyMicros, int rowCount, long bytes);
+
+    /**
+     * Function to invoke when a request fails, or a row of batch request fails.
+     *
+     * @param operation         The method name of client.
+     * @param errorCode         The error code, the same as the message of TimelineException converted by Utils.convertException.
+     */
+    void onError(String operation, String errorCode);
+
+    /**
+     * Function to invoke when a row is added into or finished by the writer of timeline store.
+     *
+     * @param pendingRows           The count of rows added into writer but not finished yet.
+     * @param callbackQueueLength   The count of tasks waiting in the queue of callback thread pool.
+     */
+    void onWriterState(int pendingRows, int callbackQueueLength);
+
+    /**
+     * Function to invoke when a row waits for, or is rejected by, the in-flight limit of timeline store.
+     * It's not invoked when the row is admitted without waiting.
+     *
+     * @param blockedMicros     The time blocked in microseconds, 0 if rejected without waiting.
+     * @param rejected          Whether the row is rejected after timeout.
+     */
+    void onWriterBlocked(long blockedMicros, boolean rejected);
+
+    /**
+     * Function to invoke when the allowed rate of table is changed by AdaptiveRateLimiter.
+     *
+     * @param tableName                 The name of table.
+     * @param requestsPerSecond         The allowed requests per second.
+     * @param capacityUnitsPerSecond    The allowed capacity units per second, 0 if not limited.
+     */
+    void onRateChanged(String tableName, double requestsPerSecond, double capacityUnitsPerSecond);
+}
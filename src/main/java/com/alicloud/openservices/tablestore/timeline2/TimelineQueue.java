@@ -1,15 +1,20 @@
 package com.alicloud.openservices.tablestore.timeline2;
 
 import com.alicloud.openservices.tablestore.timeline2.model.TimelineEntry;
+import com.alicloud.openservices.tablestore.timeline2.model.TimelineFuture;
 import com.alicloud.openservices.tablestore.timeline2.model.TimelineIdentifier;
 import com.alicloud.openservices.tablestore.timeline2.model.TimelineMessage;
 import com.alicloud.openservices.tablestore.timeline2.query.ScanParameter;
+import com.alicloud.openservices.tablestore.timeline2.query.ScanResult;
 
+import java.util.Collection;
 import java.util.Iterator;
-import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 
 /**
  * The queue of single timeline distinguished by identifier.
+ * <p>
+ * The async methods return TimelineFuture, which could be composed by listeners without blocking any thread.
  */
 public interface TimelineQueue {
 
@@ -21,7 +26,16 @@ public interface TimelineQueue {
     TimelineIdentifier getIdentifier();
 
     /**
-     * Store message into specified timeline queue with auto-generated sequence id.
+     * Generate next sequence id by the SequenceIdGenerator of schema, without storing any message.
+     * It's used to know the sequence id before the message is stored, such as by batchStore(sequenceId, message).
+     *
+     * @return the sequence id
+     */
+    long nextSequenceId();
+
+    /**
+     * Store message into specified timeline queue with auto-generated sequence id,
+     * or with the sequence id generated by the SequenceIdGenerator of schema.
      *
      * @param message       The content of the message to store.
      *
@@ -40,14 +54,15 @@ public interface TimelineQueue {
     TimelineEntry store(long sequenceId, TimelineMessage message);
 
     /**
-     * Store message asynchronously with auto-generated sequence id.
+     * Store message asynchronously with auto-generated sequence id,
+     * or with the sequence id generated by the SequenceIdGenerator of schema.
      *
      * @param message       The content of the message to store.
      * @param callback      The timeline callback, which deal with response.
      *
-     * @return Future<TimelineEntry>
+     * @return TimelineFuture<TimelineEntry>
      */
-    Future<TimelineEntry> storeAsync(TimelineMessage message, TimelineCallback callback);
+    TimelineFuture<TimelineEntry> storeAsync(TimelineMessage message, TimelineCallback callback);
 
     /**
      * Store message asynchronously with manually set sequence id.
@@ -56,18 +71,19 @@ public interface TimelineQueue {
      * @param message       The content of the message to store.
      * @param callback      The timeline callback, which deal with response.
      *
-     * @return Future<TimelineEntry>
+     * @return TimelineFuture<TimelineEntry>
      */
-    Future<TimelineEntry> storeAsync(long sequenceId, TimelineMessage message, TimelineCallback callback);
+    TimelineFuture<TimelineEntry> storeAsync(long sequenceId, TimelineMessage message, TimelineCallback callback);
 
     /**
-     * Batch store message to specified timeline queue with auto-generated sequence id.
+     * Batch store message to specified timeline queue with auto-generated sequence id,
+     * or with the sequence id generated by the SequenceIdGenerator of schema.
      *
      * @param message       The content of the message to store.
      *
-     * @return Future<TimelineEntry>
+     * @return TimelineFuture<TimelineEntry>
      */
-    Future<TimelineEntry> batchStore(TimelineMessage message);
+    TimelineFuture<TimelineEntry> batchStore(TimelineMessage message);
 
     /**
      * Batch store message asynchronously with manually set sequence id.
@@ -75,19 +91,20 @@ public interface TimelineQueue {
      * @param sequenceId    The sequence id of the timeline, which should be unique and incremental.
      * @param message       The content of the message to store.
      *
-     * @return Future<TimelineEntry>
+     * @return TimelineFuture<TimelineEntry>
      */
-    Future<TimelineEntry> batchStore(long sequenceId, TimelineMessage message);
+    TimelineFuture<TimelineEntry> batchStore(long sequenceId, TimelineMessage message);
 
     /**
-     * Store message asynchronously with autogenerated sequence id by writer.
+     * Store message asynchronously with autogenerated sequence id by writer,
+     * or with the sequence id generated by the SequenceIdGenerator of schema.
      *
      * @param message       The content of the message to store.
      * @param callback      Timeline callback, which deal with single message response.
      *
-     * @return Future<TimelineEntry>
+     * @return TimelineFuture<TimelineEntry>
      */
-    Future<TimelineEntry> batchStore(TimelineMessage message, TimelineCallback callback);
+    TimelineFuture<TimelineEntry> batchStore(TimelineMessage message, TimelineCallback callback);
 
     /**
      * Store message asynchronously with manually set sequence id by writer.
@@ -96,9 +113,61 @@ public interface TimelineQueue {
      * @param message       The content of the message to store.
      * @param callback      Timeline callback, which deal with single message response.
      *
-     * @return Future<TimelineEntry>
+     * @return TimelineFuture<TimelineEntry>
+     */
+    TimelineFuture<TimelineEntry> batchStore(long sequenceId, TimelineMessage message, TimelineCallback callback);
+
+    /**
+     * Store message asynchronously by writer like batchStore, but wait at most timeout
+     * if the in-flight limit of store is reached.
+     *
+     * @param message       The content of the message to store.
+     * @param callback      Timeline callback, which deal with single message response.
+     * @param timeout       The max time to wait.
+     * @param unit          The unit of timeout.
+     *
+     * @return TimelineFuture<TimelineEntry>, which is failed by TimelineRejectedException if the message is rejected after timeout.
+     */
+    TimelineFuture<TimelineEntry> batchStore(TimelineMessage message, TimelineCallback callback, long timeout, TimeUnit unit);
+
+    /**
+     * Store message asynchronously by writer with manually set sequence id like batchStore, but wait at most timeout
+     * if the in-flight limit of store is reached.
+     *
+     * @param sequenceId    The sequence id of the timeline, which should be unique and incremental.
+     * @param message       The content of the message to store.
+     * @param callback      Timeline callback, which deal with single message response.
+     * @param timeout       The max time to wait.
+     * @param unit          The unit of timeout.
+     *
+     * @return TimelineFuture<TimelineEntry>, which is failed by TimelineRejectedException if the message is rejected after timeout.
+     */
+    TimelineFuture<TimelineEntry> batchStore(long sequenceId, TimelineMessage message, TimelineCallback callback,
+                                             long timeout, TimeUnit unit);
+
+    /**
+     * Store message asynchronously by writer like batchStore, but never wait for the in-flight limit of store.
+     *
+     * @param message       The content of the message to store.
+     * @param callback      Timeline callback, which deal with single message response.
+     *
+     * @return TimelineFuture<TimelineEntry>, which is failed by TimelineRejectedException if the message is rejected
+     * by the in-flight limit.
+     */
+    TimelineFuture<TimelineEntry> tryBatchStore(TimelineMessage message, TimelineCallback callback);
+
+    /**
+     * Store message asynchronously by writer with manually set sequence id like batchStore,
+     * but never wait for the in-flight limit of store.
+     *
+     * @param sequenceId    The sequence id of the timeline, which should be unique and incremental.
+     * @param message       The content of the message to store.
+     * @param callback      Timeline callback, which deal with single message response.
+     *
+     * @return TimelineFuture<TimelineEntry>, which is failed by TimelineRejectedException if the message is rejected
+     * by the in-flight limit.
      */
-    Future<TimelineEntry> batchStore(long sequenceId, TimelineMessage message, TimelineCallback callback);
+    TimelineFuture<TimelineEntry> tryBatchStore(long sequenceId, TimelineMessage message, TimelineCallback callback);
 
     /**
      * Update message with new content by sequence id.
@@ -116,9 +185,9 @@ public interface TimelineQueue {
      * @param message       New content of the message to update.
      * @param callback      Timeline callback to deal with response.
      *
-     * @return Future<TimelineEntry>
+     * @return TimelineFuture<TimelineEntry>
      */
-    Future<TimelineEntry> updateAsync(long sequenceId, TimelineMessage message, TimelineCallback callback);
+    TimelineFuture<TimelineEntry> updateAsync(long sequenceId, TimelineMessage message, TimelineCallback callback);
 
     /**
      * Get timeline entry by sequence id.
@@ -130,6 +199,38 @@ public interface TimelineQueue {
      */
     TimelineEntry get(long sequenceId);
 
+    /**
+     * Get timeline entry by sequence id, only the specified columns of message are read.
+     * Return null if this timeline entry is not exist.
+     *
+     * @param sequenceId    The sequence id of the timeline to get.
+     * @param columns       The names of columns to read.
+     *
+     * @return TimelineEntry
+     */
+    TimelineEntry get(long sequenceId, Collection<String> columns);
+
+    /**
+     * Get timeline entry asynchronously by sequence id.
+     * The future is completed with null if this timeline entry is not exist.
+     *
+     * @param sequenceId    The sequence id of the timeline to get.
+     *
+     * @return TimelineFuture<TimelineEntry>
+     */
+    TimelineFuture<TimelineEntry> getAsync(long sequenceId);
+
+    /**
+     * Get timeline entry asynchronously by sequence id, only the specified columns of message are read.
+     * The future is completed with null if this timeline entry is not exist.
+     *
+     * @param sequenceId    The sequence id of the timeline to get.
+     * @param columns       The names of columns to read.
+     *
+     * @return TimelineFuture<TimelineEntry>
+     */
+    TimelineFuture<TimelineEntry> getAsync(long sequenceId, Collection<String> columns);
+
     /**
      * Delete timeline entry by specified sequence id.
      *
@@ -137,6 +238,15 @@ public interface TimelineQueue {
      */
     void delete(long sequenceId);
 
+    /**
+     * Delete timeline entry asynchronously by specified sequence id.
+     *
+     * @param sequenceId    The sequence id of the timeline to delete.
+     *
+     * @return TimelineFuture<Void>
+     */
+    TimelineFuture<Void> deleteAsync(long sequenceId);
+
     /**
      * Scan a specified range of timeline entries by scan parameter.
      *
@@ -146,6 +256,28 @@ public interface TimelineQueue {
      */
     Iterator<TimelineEntry> scan(ScanParameter parameter);
 
+    /**
+     * Scan one page of timeline entries asynchronously, which contains at most maxCount of parameter entries.
+     * Continue scanning by parameter.withToken(nextToken) if the page has next.
+     *
+     * @param parameter     The parameter of scan range.
+     *
+     * @return TimelineFuture<ScanResult>
+     */
+    TimelineFuture<ScanResult> scanAsync(ScanParameter parameter);
+
+    /**
+     * Scan timeline entries page by page asynchronously, each page is delivered to callback before the next one is requested.
+     * The scan stops when maxCount of parameter entries are scanned, or the callback returns false,
+     * and the future is completed by the last page.
+     *
+     * @param parameter     The parameter of scan range.
+     * @param callback      The callback to deal with each page.
+     *
+     * @return TimelineFuture<ScanResult>
+     */
+    TimelineFuture<ScanResult> scanAsync(ScanParameter parameter, ScanCallback callback);
+
     /**
      * Get the latest sequence id of specified identifier.
      * Return 0 if not exist.
@@ -154,6 +286,14 @@ public interface TimelineQueue {
      */
     long getLatestSequenceId();
 
+    /**
+     * Get the latest sequence id of specified identifier asynchronously.
+     * The future is completed with 0 if not exist.
+     *
+     * @return TimelineFuture<Long>
+     */
+    TimelineFuture<Long> getLatestSequenceIdAsync();
+
     /**
      * Get the latest timeline entry of specified identifier.
      * Return null if not exist.
@@ -162,6 +302,14 @@ public interface TimelineQueue {
      */
     TimelineEntry getLatestTimelineEntry();
 
+    /**
+     * Get the latest timeline entry of specified identifier asynchronously.
+     * The future is completed with null if not exist.
+     *
+     * @return TimelineFuture<TimelineEntry>
+     */
+    TimelineFuture<TimelineEntry> getLatestTimelineEntryAsync();
+
     /**
      * Flush all the messages in buffer, wait until finish writing.
      */
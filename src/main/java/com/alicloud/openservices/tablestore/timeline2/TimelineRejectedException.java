@@ -0,0 +1,10 @@
+package com.alicloud.openservices.tablestore.timeline2;
+
+/**
+ * The message is rejected without being stored, such as by the in-flight limit of store, which could be retried later.
+ */
+public class TimelineRejectedException extends TimelineException {
+    public TimelineRejectedException(String message) {
+        super(message);
+    }
+}
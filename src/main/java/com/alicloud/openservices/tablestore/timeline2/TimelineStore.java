@@ -1,11 +1,22 @@
 package com.alicloud.openservices.tablestore.timeline2;
 
 import com.alicloud.openservices.tablestore.model.search.SearchQuery;
+import com.alicloud.openservices.tablestore.timeline2.model.CacheStatistics;
+import com.alicloud.openservices.tablestore.timeline2.model.FanOutResult;
 import com.alicloud.openservices.tablestore.timeline2.model.TimelineEntry;
+import com.alicloud.openservices.tablestore.timeline2.model.TimelineFuture;
 import com.alicloud.openservices.tablestore.timeline2.model.TimelineIdentifier;
+import com.alicloud.openservices.tablestore.timeline2.model.TimelineMessage;
+import com.alicloud.openservices.tablestore.timeline2.query.ScanParameter;
 import com.alicloud.openservices.tablestore.timeline2.query.SearchParameter;
 import com.alicloud.openservices.tablestore.timeline2.query.SearchResult;
 
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
 /**
  * The store service of timeline.
  */
@@ -20,6 +31,72 @@ public interface TimelineStore {
      */
     TimelineQueue createTimelineQueue(TimelineIdentifier identifier);
 
+    /**
+     * Get the statistics of latest sequence id cache, which is configured by TimelineSchema.
+     *
+     * @return CacheStatistics, or null if the cache is not enabled.
+     */
+    CacheStatistics getSequenceIdCacheStatistics();
+
+    /**
+     * Store one message into many timelines with auto-generated sequence id by writer, which is used for write diffusion.
+     * The columns of message are shared by all the rows, and the rows are flushed by writer in batch.
+     *
+     * @param message       The content of the message to store.
+     * @param identifiers   The identifiers of target timelines.
+     *
+     * @return TimelineFuture<FanOutResult>, which is done when all of the target timelines are done.
+     */
+    TimelineFuture<FanOutResult> fanOut(TimelineMessage message, Collection<TimelineIdentifier> identifiers);
+
+    /**
+     * Store one message into many timelines with manually set sequence id by writer, which is used for write diffusion.
+     * The columns of message are shared by all the rows, and the rows are flushed by writer in batch.
+     *
+     * @param sequenceId    The sequence id of the message in each timeline, which should be unique and incremental.
+     * @param message       The content of the message to store.
+     * @param identifiers   The identifiers of target timelines.
+     *
+     * @return TimelineFuture<FanOutResult>, which is done when all of the target timelines are done.
+     */
+    TimelineFuture<FanOutResult> fanOut(long sequenceId, TimelineMessage message, Collection<TimelineIdentifier> identifiers);
+
+    /**
+     * Get many timeline entries of many timelines by BatchGetRow.
+     * The rows are split into requests of the max size allowed by service, which are sent concurrently,
+     * and only the failed rows are retried.
+     *
+     * @param sequenceIds   The sequence ids of entries to get, grouped by the identifier of timeline.
+     *
+     * @return the entries in the same order of request, the entry is null if not exist.
+     */
+    Map<TimelineIdentifier, List<TimelineEntry>> batchGet(Map<TimelineIdentifier, ? extends Collection<Long>> sequenceIds);
+
+    /**
+     * Scan many timelines concurrently and merge the entries by sequence id, which is used for read diffusion.
+     * Entries are in ascending order of sequence id when scan forward, else in descending order.
+     * The max count of scan parameter limits the total count of merged entries.
+     *
+     * @param identifiers   The identifiers of timelines to scan.
+     * @param parameter     The parameter of scan range, which is applied to every timeline.
+     *
+     * @return Iterator<SearchResult.Entry<TimelineEntry>>
+     */
+    Iterator<SearchResult.Entry<TimelineEntry>> mergeScan(Collection<TimelineIdentifier> identifiers, ScanParameter parameter);
+
+    /**
+     * Scan many timelines concurrently and merge the entries by specified comparator, which is used for read diffusion.
+     * The comparator should be consistent with the scan direction of single timeline.
+     *
+     * @param identifiers   The identifiers of timelines to scan.
+     * @param parameter     The parameter of scan range, which is applied to every timeline.
+     * @param comparator    The comparator to merge entries of different timelines.
+     *
+     * @return Iterator<SearchResult.Entry<TimelineEntry>>
+     */
+    Iterator<SearchResult.Entry<TimelineEntry>> mergeScan(Collection<TimelineIdentifier> identifiers, ScanParameter parameter,
+                                                          Comparator<TimelineEntry> comparator);
+
     /**
      * Search timeline entries by search parameter.
      * Search will throw TimelineException when index info not set in TimelineSchema.
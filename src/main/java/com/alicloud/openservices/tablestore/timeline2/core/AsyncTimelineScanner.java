@@ -0,0 +1,104 @@
+package com.alicloud.openservices.tablestore.timeline2.core;
+
+import com.alicloud.openservices.tablestore.AsyncClientInterface;
+import com.alicloud.openservices.tablestore.TableStoreCallback;
+import com.alicloud.openservices.tablestore.model.*;
+import com.alicloud.openservices.tablestore.timeline2.ScanCallback;
+import com.alicloud.openservices.tablestore.timeline2.model.TimelineEntry;
+import com.alicloud.openservices.tablestore.timeline2.model.TimelineFuture;
+import com.alicloud.openservices.tablestore.timeline2.model.TimelineIdentifier;
+import com.alicloud.openservices.tablestore.timeline2.model.TimelineSchema;
+import com.alicloud.openservices.tablestore.timeline2.query.ScanParameter;
+import com.alicloud.openservices.tablestore.timeline2.query.ScanResult;
+import com.alicloud.openservices.tablestore.timeline2.utils.Preconditions;
+import com.alicloud.openservices.tablestore.timeline2.utils.Utils;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Scan timeline entries page by page without blocking, the next page is requested in the callback thread
+ * after the previous one is accepted by ScanCallback. The future is completed by the last page,
+ * whose next token could be used to continue scanning later.
+ */
+class AsyncTimelineScanner implements TableStoreCallback<GetRangeRequest, GetRangeResponse> {
+    private final AsyncClientInterface asyncClient;
+    private final TimelineSchema schema;
+    private final TimelineIdentifier identifier;
+    private final ScanParameter parameter;
+    private final ScanCallback callback;
+    private final TimelineFuture<ScanResult> future = new TimelineFuture<ScanResult>();
+    private int remaining;
+
+    private AsyncTimelineScanner(AsyncClientInterface asyncClient, TimelineSchema schema, TimelineIdentifier identifier,
+                                 ScanParameter parameter, ScanCallback callback) {
+        this.asyncClient = asyncClient;
+        this.schema = schema;
+        this.identifier = identifier;
+        this.parameter = parameter;
+        this.callback = callback;
+        this.remaining = parameter.getMaxCount();
+    }
+
+    /**
+     * Scan at most maxCount entries of parameter, which stops when ScanCallback returns false.
+     * Only one page is requested if callback is null.
+     */
+    static TimelineFuture<ScanResult> scan(AsyncClientInterface asyncClient, TimelineSchema schema,
+                                           TimelineIdentifier identifier, ScanParameter parameter, ScanCallback callback) {
+        Preconditions.checkNotNull(parameter, "Scan parameter should not be null.");
+        Preconditions.checkArgument(parameter.getMaxCount() > 0, "Max count of scan parameter should be positive.");
+
+        AsyncTimelineScanner scanner = new AsyncTimelineScanner(asyncClient, schema, identifier, parameter, callback);
+        scanner.fetch(null);
+        return scanner.future;
+    }
+
+    private void fetch(PrimaryKey startKey) {
+        RangeRowQueryCriteria criteria = Utils.toRangeRowQueryCriteria(schema, identifier, parameter);
+        criteria.setLimit(remaining);
+        if (startKey != null) {
+            criteria.setInclusiveStartPrimaryKey(startKey);
+        }
+
+        try {
+            asyncClient.getRange(new GetRangeRequest(criteria), this);
+        } catch (Exception e) {
+            future.completeExceptionally(e);
+        }
+    }
+
+    @Override
+    public void onCompleted(GetRangeRequest request, GetRangeResponse response) {
+        ScanResult page;
+        try {
+            List<TimelineEntry> entries = new ArrayList<TimelineEntry>(response.getRows().size());
+            for (Row row : response.getRows()) {
+                entries.add(Utils.rowToTimelineEntry(schema, row));
+            }
+            remaining -= entries.size();
+
+            PrimaryKey nextStartKey = response.getNextStartPrimaryKey();
+            Long nextToken = null;
+            if (nextStartKey != null) {
+                nextToken = nextStartKey.getPrimaryKeyColumn(schema.getSequenceIdColumnName()).getValue().asLong();
+            }
+            page = new ScanResult(entries, nextToken);
+
+            if (callback != null && callback.onPage(identifier, page) && nextStartKey != null && remaining > 0) {
+                fetch(nextStartKey);
+                return;
+            }
+        } catch (Exception e) {
+            future.completeExceptionally(e);
+            return;
+        }
+
+        future.complete(page);
+    }
+
+    @Override
+    public void onFailed(GetRangeRequest request, Exception ex) {
+        future.completeExceptionally(ex);
+    }
+}
@@ -0,0 +1,120 @@
+package com.alicloud.openservices.tablestore.timeline2.core;
+
+import com.alicloud.openservices.tablestore.AsyncClientInterface;
+import com.alicloud.openservices.tablestore.TableStoreException;
+import com.alicloud.openservices.tablestore.model.*;
+import com.alicloud.openservices.tablestore.timeline2.RetryPolicy;
+import com.alicloud.openservices.tablestore.timeline2.TimelineException;
+import com.alicloud.openservices.tablestore.timeline2.utils.Utils;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Future;
+
+/**
+ * Read many rows of one table by BatchGetRow.
+ * The rows are split into requests of the max size allowed by service, which are sent concurrently,
+ * and only the rows failed by server errors or throttling are retried.
+ * The exception of a failed row carries the error code as message, and the error message by its cause.
+ */
+class BatchGetRowExecutor {
+    static final int MAX_ROWS_PER_REQUEST = 100;
+    static final int MAX_RETRY_TIMES = 3;
+    static final long RETRY_BACKOFF_MILLIS = 10;
+
+    private final AsyncClientInterface asyncClient;
+
+    BatchGetRowExecutor(AsyncClientInterface asyncClient) {
+        this.asyncClient = asyncClient;
+    }
+
+    /**
+     * Get rows by primary keys.
+     *
+     * @return the rows in the order of primary keys, null if the row is not exist.
+     */
+    Row[] batchGet(String tableName, List<PrimaryKey> primaryKeys) {
+        Row[] rows = new Row[primaryKeys.size()];
+
+        // the same row is not allowed to appear twice in one request
+        Map<PrimaryKey, List<Integer>> positions = new HashMap<PrimaryKey, List<Integer>>();
+        List<PrimaryKey> pending = new ArrayList<PrimaryKey>();
+        for (int i = 0; i < primaryKeys.size(); i++) {
+            PrimaryKey primaryKey = primaryKeys.get(i);
+            List<Integer> list = positions.get(primaryKey);
+            if (list == null) {
+                list = new ArrayList<Integer>(1);
+                positions.put(primaryKey, list);
+                pending.add(primaryKey);
+            }
+            list.add(i);
+        }
+
+        for (int retry = 0; !pending.isEmpty(); retry++) {
+            if (retry > 0) {
+                backoff(retry);
+            }
+
+            List<List<PrimaryKey>> chunks = new ArrayList<List<PrimaryKey>>();
+            List<Future<BatchGetRowResponse>> futures = new ArrayList<Future<BatchGetRowResponse>>();
+            for (int from = 0; from < pending.size(); from += MAX_ROWS_PER_REQUEST) {
+                List<PrimaryKey> chunk = pending.subList(from, Math.min(from + MAX_ROWS_PER_REQUEST, pending.size()));
+                MultiRowQueryCriteria criteria = new MultiRowQueryCriteria(tableName);
+                criteria.setMaxVersions(1);
+                for (PrimaryKey primaryKey : chunk) {
+                    criteria.addRow(primaryKey);
+                }
+
+                BatchGetRowRequest request = new BatchGetRowRequest();
+                request.addMultiRowQueryCriteria(criteria);
+                try {
+                    futures.add(asyncClient.batchGetRow(request, null));
+                } catch (Exception e) {
+                    throw Utils.convertException(e);
+                }
+                chunks.add(chunk);
+            }
+
+            List<PrimaryKey> failed = new ArrayList<PrimaryKey>();
+            TableStoreException lastError = null;
+            for (int i = 0; i < futures.size(); i++) {
+                BatchGetRowResponse response = Utils.waitForFuture(futures.get(i));
+                List<PrimaryKey> chunk = chunks.get(i);
+
+                for (BatchGetRowResponse.RowResult result : response.getSucceedRows()) {
+                    for (Integer position : positions.get(chunk.get(result.getIndex()))) {
+                        rows[position] = result.getRow();
+                    }
+                }
+                for (BatchGetRowResponse.RowResult result : response.getFailedRows()) {
+                    com.alicloud.openservices.tablestore.model.Error error = result.getError();
+                    TableStoreException ex = new TableStoreException(error.getMessage(), null, error.getCode(),
+                            response.getRequestId(), 0);
+                    if (!RetryPolicy.isRetryableErrorCode(error.getCode())) {
+                        throw Utils.convertException(ex);
+                    }
+                    failed.add(chunk.get(result.getIndex()));
+                    lastError = ex;
+                }
+            }
+
+            if (!failed.isEmpty() && retry >= MAX_RETRY_TIMES) {
+                throw Utils.convertException(lastError);
+            }
+            pending = failed;
+        }
+
+        return rows;
+    }
+
+    private void backoff(int retry) {
+        try {
+            Thread.sleep(RETRY_BACKOFF_MILLIS << (retry - 1));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new TimelineException("Interrupted", e);
+        }
+    }
+}
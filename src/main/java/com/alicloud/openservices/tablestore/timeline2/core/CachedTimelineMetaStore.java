@@ -0,0 +1,181 @@
+package com.alicloud.openservices.tablestore.timeline2.core;
+
+import com.alicloud.openservices.tablestore.model.search.SearchQuery;
+import com.alicloud.openservices.tablestore.timeline2.TimelineMetaStore;
+import com.alicloud.openservices.tablestore.timeline2.model.CacheStatistics;
+import com.alicloud.openservices.tablestore.timeline2.model.TimelineIdentifier;
+import com.alicloud.openservices.tablestore.timeline2.model.TimelineMeta;
+import com.alicloud.openservices.tablestore.timeline2.query.SearchParameter;
+import com.alicloud.openservices.tablestore.timeline2.query.SearchResult;
+import com.alicloud.openservices.tablestore.timeline2.utils.LRUCache;
+import com.alicloud.openservices.tablestore.timeline2.utils.Preconditions;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The meta store which caches the result of read, including the missing ones, and delegates others to origin store.
+ * The cached items are invalidated by insert, update and delete through this store,
+ * while changes from other processes are only visible after the cached items expired.
+ * The TimelineMeta returned by read is shared, and should not be modified.
+ */
+public class CachedTimelineMetaStore implements TimelineMetaStore {
+    private final TimelineMetaStore store;
+    private final LRUCache<TimelineIdentifier, CachedMeta> cache;
+
+    /**
+     * Increase on every change, so that a read started before a change would not fill the cache with stale meta.
+     */
+    private final AtomicLong version = new AtomicLong(0);
+
+    public CachedTimelineMetaStore(TimelineMetaStore store, int maxSize, long ttlMillis) {
+        Preconditions.checkNotNull(store, "TimelineMetaStore should not be null.");
+
+        this.store = store;
+        this.cache = new LRUCache<TimelineIdentifier, CachedMeta>(maxSize, ttlMillis);
+    }
+
+    @Override
+    public TimelineMeta read(TimelineIdentifier identifier) {
+        CachedMeta cached = cache.get(identifier);
+        if (cached != null) {
+            return cached.meta;
+        }
+
+        long versionBeforeRead = version.get();
+        TimelineMeta meta = store.read(identifier);
+        synchronized (cache) {
+            if (version.get() == versionBeforeRead) {
+                cache.put(identifier, new CachedMeta(meta));
+            }
+        }
+        return meta;
+    }
+
+    /**
+     * Serve the cached metas, and read the others by the origin store in one batch.
+     */
+    @Override
+    public List<TimelineMeta> batchRead(Collection<TimelineIdentifier> identifiers) {
+        Preconditions.checkNotNull(identifiers, "Identifiers should not be null.");
+
+        List<TimelineMeta> metas = new ArrayList<TimelineMeta>(identifiers.size());
+        List<TimelineIdentifier> missed = new ArrayList<TimelineIdentifier>();
+        List<Integer> missedPositions = new ArrayList<Integer>();
+        for (TimelineIdentifier identifier : identifiers) {
+            CachedMeta cached = cache.get(identifier);
+            if (cached == null) {
+                missed.add(identifier);
+                missedPositions.add(metas.size());
+            }
+            metas.add(cached != null ? cached.meta : null);
+        }
+
+        if (missed.isEmpty()) {
+            return metas;
+        }
+
+        long versionBeforeRead = version.get();
+        List<TimelineMeta> missedMetas = store.batchRead(missed);
+        synchronized (cache) {
+            boolean unchanged = version.get() == versionBeforeRead;
+            for (int i = 0; i < missed.size(); i++) {
+                TimelineMeta meta = missedMetas.get(i);
+                metas.set(missedPositions.get(i), meta);
+                if (unchanged) {
+                    cache.put(missed.get(i), new CachedMeta(meta));
+                }
+            }
+        }
+        return metas;
+    }
+
+    @Override
+    public SearchResult<TimelineMeta> search(SearchParameter searchParameter) {
+        return store.search(searchParameter);
+    }
+
+    @Override
+    public SearchResult<TimelineMeta> search(SearchQuery searchQuery) {
+        return store.search(searchQuery);
+    }
+
+    @Override
+    public TimelineMeta insert(TimelineMeta meta) {
+        try {
+            return store.insert(meta);
+        } finally {
+            invalidate(meta.getIdentifier());
+        }
+    }
+
+    @Override
+    public TimelineMeta update(TimelineMeta meta) {
+        try {
+            return store.update(meta);
+        } finally {
+            invalidate(meta.getIdentifier());
+        }
+    }
+
+    @Override
+    public void delete(TimelineIdentifier identifier) {
+        try {
+            store.delete(identifier);
+        } finally {
+            invalidate(identifier);
+        }
+    }
+
+    @Override
+    public void prepareTables() {
+        store.prepareTables();
+    }
+
+    @Override
+    public void dropAllTables() {
+        try {
+            store.dropAllTables();
+        } finally {
+            synchronized (cache) {
+                version.incrementAndGet();
+                cache.clear();
+            }
+        }
+    }
+
+    @Override
+    public void close() {
+        cache.clear();
+        store.close();
+    }
+
+    /**
+     * Get the statistics of the meta cache.
+     *
+     * @return CacheStatistics
+     */
+    public CacheStatistics getStatistics() {
+        return cache.getStatistics();
+    }
+
+    private void invalidate(TimelineIdentifier identifier) {
+        synchronized (cache) {
+            version.incrementAndGet();
+            cache.remove(identifier);
+        }
+    }
+
+    /**
+     * The meta is null if the timeline meta is not exist.
+     */
+    private static class CachedMeta {
+        private final TimelineMeta meta;
+
+        CachedMeta(TimelineMeta meta) {
+            this.meta = meta;
+        }
+    }
+}
@@ -0,0 +1,203 @@
+package com.alicloud.openservices.tablestore.timeline2.core;
+
+import com.alicloud.openservices.tablestore.timeline2.TimelineMetricsListener;
+import com.alicloud.openservices.tablestore.timeline2.utils.Histogram;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The listener which aggregates metrics in memory by histograms and counters.
+ * The row count histogram of operation "batchWriteRow" shows the batch sizes flushed by writer.
+ */
+public class HistogramMetricsListener implements TimelineMetricsListener {
+    private final ConcurrentMap<String, OperationMetrics> operations = new ConcurrentHashMap<String, OperationMetrics>();
+    private final ConcurrentMap<String, AtomicLong> errorCounts = new ConcurrentHashMap<String, AtomicLong>();
+    private final Histogram writerPendingRows = new Histogram();
+    private final Histogram callbackQueueLength = new Histogram();
+    private final Histogram writerBlockedMicros = new Histogram();
+    private final AtomicLong writerRejectedCount = new AtomicLong(0);
+    private final ConcurrentMap<String, double[]> allowedRates = new ConcurrentHashMap<String, double[]>();
+
+    @Override
+    public void onRequest(String operation, long latencyMicros, int rowCount, long bytes) {
+        OperationMetrics metrics = getOrCreate(operation);
+        metrics.latencyMicros.record(latencyMicros);
+        metrics.rowsPerRequest.record(rowCount);
+        metrics.rowCount.addAndGet(rowCount);
+        metrics.bytes.addAndGet(bytes);
+    }
+
+    @Override
+    public void onError(String operation, String errorCode) {
+        getOrCreate(operation).errorCount.incrementAndGet();
+
+        AtomicLong count = errorCounts.get(errorCode);
+        if (count == null) {
+            AtomicLong newCount = new AtomicLong(0);
+            count = errorCounts.putIfAbsent(errorCode, newCount);
+            if (count == null) {
+                count = newCount;
+            }
+        }
+        count.incrementAndGet();
+    }
+
+    @Override
+    public void onWriterState(int pendingRows, int callbackQueueLength) {
+        this.writerPendingRows.record(Math.max(0, pendingRows));
+        this.callbackQueueLength.record(callbackQueueLength);
+    }
+
+    @Override
+    public void onWriterBlocked(long blockedMicros, boolean rejected) {
+        this.writerBlockedMicros.record(blockedMicros);
+        if (rejected) {
+            writerRejectedCount.incrementAndGet();
+        }
+    }
+
+    @Override
+    public void onRateChanged(String tableName, double requestsPerSecond, double capacityUnitsPerSecond) {
+        allowedRates.put(tableName, new double[]{requestsPerSecond, capacityUnitsPerSecond});
+    }
+
+    /**
+     * Get the metrics of operation.
+     *
+     * @param operation     The method name of client, such as "putRow".
+     * @return OperationMetrics, null if no request of the operation.
+     */
+    public OperationMetrics getOperationMetrics(String operation) {
+        return operations.get(operation);
+    }
+
+    public Map<String, OperationMetrics> getAllOperationMetrics() {
+        return new TreeMap<String, OperationMetrics>(operations);
+    }
+
+    /**
+     * Get the count of failures, including failed rows of batch requests, by error code.
+     */
+    public Map<String, Long> getErrorCounts() {
+        Map<String, Long> result = new TreeMap<String, Long>();
+        for (Map.Entry<String, AtomicLong> entry : errorCounts.entrySet()) {
+            result.put(entry.getKey(), entry.getValue().get());
+        }
+        return result;
+    }
+
+    public Histogram getWriterPendingRows() {
+        return writerPendingRows;
+    }
+
+    public Histogram getCallbackQueueLength() {
+        return callbackQueueLength;
+    }
+
+    /**
+     * Get the time blocked by the in-flight limit of writer, including the rows rejected after timeout.
+     */
+    public Histogram getWriterBlockedMicros() {
+        return writerBlockedMicros;
+    }
+
+    public long getWriterRejectedCount() {
+        return writerRejectedCount.get();
+    }
+
+    /**
+     * Get the latest allowed requests per second of table reported by AdaptiveRateLimiter.
+     *
+     * @return the rate, or -1 if never changed.
+     */
+    public double getAllowedRequestRate(String tableName) {
+        double[] rates = allowedRates.get(tableName);
+        return rates == null ? -1 : rates[0];
+    }
+
+    /**
+     * Get the latest allowed capacity units per second of table reported by AdaptiveRateLimiter.
+     *
+     * @return the rate, or -1 if never changed.
+     */
+    public double getAllowedCapacityUnitRate(String tableName) {
+        double[] rates = allowedRates.get(tableName);
+        return rates == null ? -1 : rates[1];
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        for (Map.Entry<String, OperationMetrics> entry : getAllOperationMetrics().entrySet()) {
+            sb.append(entry.getKey()).append(": ").append(entry.getValue()).append("\n");
+        }
+        sb.append("errors: ").append(getErrorCounts()).append("\n");
+        sb.append("writerPendingRows: [").append(writerPendingRows).append("]\n");
+        sb.append("callbackQueueLength: [").append(callbackQueueLength).append("]\n");
+        sb.append("writerBlockedMicros: [").append(writerBlockedMicros).append("]\n");
+        sb.append("writerRejected: ").append(getWriterRejectedCount());
+        for (Map.Entry<String, double[]> entry : new TreeMap<String, double[]>(allowedRates).entrySet()) {
+            sb.append("\nallowedRate(").append(entry.getKey()).append("): requests=").append(entry.getValue()[0])
+                    .append(", capacityUnits=").append(entry.getValue()[1]);
+        }
+        return sb.toString();
+    }
+
+    private OperationMetrics getOrCreate(String operation) {
+        OperationMetrics metrics = operations.get(operation);
+        if (metrics == null) {
+            OperationMetrics newMetrics = new OperationMetrics();
+            metrics = operations.putIfAbsent(operation, newMetrics);
+            if (metrics == null) {
+                metrics = newMetrics;
+            }
+        }
+        return metrics;
+    }
+
+    public static class OperationMetrics {
+        private final Histogram latencyMicros = new Histogram();
+        private final Histogram rowsPerRequest = new Histogram();
+        private final AtomicLong rowCount = new AtomicLong(0);
+        private final AtomicLong bytes = new AtomicLong(0);
+        private final AtomicLong errorCount = new AtomicLong(0);
+
+        public Histogram getLatencyMicros() {
+            return latencyMicros;
+        }
+
+        public Histogram getRowsPerRequest() {
+            return rowsPerRequest;
+        }
+
+        public long getRequestCount() {
+            return latencyMicros.getCount();
+        }
+
+        public long getRowCount() {
+            return rowCount.get();
+        }
+
+        public long getBytes() {
+            return bytes.get();
+        }
+
+        public long getErrorCount() {
+            return errorCount.get();
+        }
+
+        @Override
+        public String toString() {
+            return "requests=" + getRequestCount()
+                    + ", rows=" + getRowCount()
+                    + ", bytes=" + getBytes()
+                    + ", errors=" + getErrorCount()
+                    + ", latencyMicros=[" + latencyMicros + "]"
+                    + ", rowsPerRequest=[" + rowsPerRequest + "]";
+        }
+    }
+}
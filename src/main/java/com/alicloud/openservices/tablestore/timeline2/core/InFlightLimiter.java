@@ -0,0 +1,132 @@
+package com.alicloud.openservices.tablestore.timeline2.core;
+
+import com.alicloud.openservices.tablestore.timeline2.TimelineException;
+import com.alicloud.openservices.tablestore.timeline2.TimelineMetricsListener;
+import com.alicloud.openservices.tablestore.timeline2.model.TimelineFuture;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Bound the rows and bytes added into writers of timeline store but not finished yet.
+ * A row larger than max bytes is admitted when nothing is in flight, so that it never blocks forever.
+ * The writers are flushed before waiting, since the rows held by writers may be less than a batch,
+ * which are otherwise not sent until the flush interval.
+ */
+class InFlightLimiter {
+    static final long WAIT_FOREVER = Long.MAX_VALUE;
+
+    private final int maxRows;
+    private final long maxBytes;
+    private final TimelineMetricsListener listener;
+    private final Runnable flusher;
+    private int rows = 0;
+    private long bytes = 0;
+
+    InFlightLimiter(int maxRows, long maxBytes, TimelineMetricsListener listener) {
+        this(maxRows, maxBytes, listener, null);
+    }
+
+    /**
+     * @param flusher   The function to trigger flush of writers before waiting, which should return without
+     *                  waiting for the flush, or null if nothing to flush.
+     */
+    InFlightLimiter(int maxRows, long maxBytes, TimelineMetricsListener listener, Runnable flusher) {
+        this.maxRows = maxRows;
+        this.maxBytes = maxBytes;
+        this.listener = listener;
+        this.flusher = flusher;
+    }
+
+    /**
+     * Acquire the quota of a row, waiting at most timeoutNanos if the limit is reached.
+     * The flush of writers is triggered before waiting, and the wait is bounded by timeout.
+     * The time blocked, or the rejection, is reported to metrics listener.
+     *
+     * @param size          The data size of row.
+     * @param timeoutNanos  The max time to wait in nanoseconds, 0 to return immediately, or WAIT_FOREVER.
+     * @return false if the quota is not acquired before timeout.
+     */
+    boolean acquire(long size, long timeoutNanos) {
+        long start = System.nanoTime();
+        synchronized (this) {
+            if (tryAcquire(size)) {
+                return true;
+            }
+        }
+
+        if (flusher != null && timeoutNanos > 0) {
+            flusher.run();
+        }
+
+        boolean acquired;
+        synchronized (this) {
+            try {
+                acquired = tryAcquire(size) || waitFor(size, start, timeoutNanos);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new TimelineException("Interrupted while waiting for in-flight rows of writer.", e);
+            }
+        }
+
+        listener.onWriterBlocked(TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - start), !acquired);
+        return acquired;
+    }
+
+    /**
+     * Release the quota of row when the future is completed, whether succeed or not.
+     */
+    void releaseOnCompletion(TimelineFuture<?> future, final long size) {
+        future.addListener(new TimelineFuture.CompletionHandler<Object>() {
+            @Override
+            public void onComplete(Object value, Exception ex) {
+                release(size);
+            }
+        });
+    }
+
+    synchronized void release(long size) {
+        rows--;
+        bytes -= size;
+        notifyAll();
+    }
+
+    synchronized int getRows() {
+        return rows;
+    }
+
+    synchronized long getBytes() {
+        return bytes;
+    }
+
+    /**
+     * Should be invoked with lock held.
+     */
+    private boolean waitFor(long size, long start, long timeoutNanos) throws InterruptedException {
+        while (true) {
+            long waitNanos = timeoutNanos;
+            if (timeoutNanos != WAIT_FOREVER) {
+                waitNanos = timeoutNanos - (System.nanoTime() - start);
+                if (waitNanos <= 0) {
+                    return false;
+                }
+            }
+
+            TimeUnit.NANOSECONDS.timedWait(this, waitNanos);
+            if (tryAcquire(size)) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Should be invoked with lock held.
+     */
+    private boolean tryAcquire(long size) {
+        if (rows > 0 && (rows >= maxRows || bytes + size > maxBytes)) {
+            return false;
+        }
+        rows++;
+        bytes += size;
+        return true;
+    }
+}
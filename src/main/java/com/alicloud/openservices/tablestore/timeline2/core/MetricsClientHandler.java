@@ -0,0 +1,175 @@
+package com.alicloud.openservices.tablestore.timeline2.core;
+
+import com.alicloud.openservices.tablestore.AsyncClientInterface;
+import com.alicloud.openservices.tablestore.SyncClientInterface;
+import com.alicloud.openservices.tablestore.TableStoreCallback;
+import com.alicloud.openservices.tablestore.model.*;
+import com.alicloud.openservices.tablestore.timeline2.TimelineMetricsListener;
+import com.alicloud.openservices.tablestore.timeline2.utils.Utils;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.List;
+
+/**
+ * Report the latency, rows, bytes and errors of every request of the wrapped client to metrics listener.
+ * The methods are intercepted by name, so that all the requests, including the ones from writer, are covered.
+ */
+class MetricsClientHandler implements InvocationHandler {
+    private final Object client;
+    private final TimelineMetricsListener listener;
+
+    private MetricsClientHandler(Object client, TimelineMetricsListener listener) {
+        this.client = client;
+        this.listener = listener;
+    }
+
+    static SyncClientInterface wrap(SyncClientInterface client, TimelineMetricsListener listener) {
+        return (SyncClientInterface) Proxy.newProxyInstance(SyncClientInterface.class.getClassLoader(),
+                new Class[]{SyncClientInterface.class}, new MetricsClientHandler(client, listener));
+    }
+
+    static AsyncClientInterface wrap(AsyncClientInterface client, TimelineMetricsListener listener) {
+        return (AsyncClientInterface) Proxy.newProxyInstance(AsyncClientInterface.class.getClassLoader(),
+                new Class[]{AsyncClientInterface.class}, new MetricsClientHandler(client, listener));
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+        String name = method.getName();
+        if (method.getDeclaringClass() == Object.class) {
+            if (name.equals("equals")) {
+                return proxy == args[0];
+            } else if (name.equals("hashCode")) {
+                return System.identityHashCode(proxy);
+            }
+            return "Metrics(" + client + ")";
+        }
+
+        if (name.equals("asAsyncClient")) {
+            return wrap((AsyncClientInterface) invokeClient(method, args), listener);
+        } else if (name.equals("asSyncClient")) {
+            return wrap((SyncClientInterface) invokeClient(method, args), listener);
+        }
+
+        if (args == null || args.length == 0 || !isRequest(args[0])) {
+            return invokeClient(method, args);
+        }
+
+        final String operation = name;
+        final long startTime = System.nanoTime();
+        if (args.length == 2 && (args[1] == null || args[1] instanceof TableStoreCallback)) {
+            final TableStoreCallback<Object, Object> callback = (TableStoreCallback<Object, Object>) args[1];
+            Object[] newArgs = new Object[]{args[0], new TableStoreCallback<Object, Object>() {
+                @Override
+                public void onCompleted(Object request, Object response) {
+                    onSucceed(operation, startTime, request, response);
+                    if (callback != null) {
+                        callback.onCompleted(request, response);
+                    }
+                }
+
+                @Override
+                public void onFailed(Object request, Exception ex) {
+                    onFailure(operation, startTime, request, ex);
+                    if (callback != null) {
+                        callback.onFailed(request, ex);
+                    }
+                }
+            }};
+            return invokeClient(method, newArgs);
+        }
+
+        Object response;
+        try {
+            response = invokeClient(method, args);
+        } catch (Exception e) {
+            onFailure(operation, startTime, args[0], e);
+            throw e;
+        }
+        onSucceed(operation, startTime, args[0], response);
+        return response;
+    }
+
+    private Object invokeClient(Method method, Object[] args) throws Exception {
+        try {
+            return method.invoke(client, args);
+        } catch (InvocationTargetException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof Exception) {
+                throw (Exception) cause;
+            }
+            throw (java.lang.Error) cause;
+        }
+    }
+
+    private void onSucceed(String operation, long startTime, Object request, Object response) {
+        listener.onRequest(operation, latencyMicros(startTime), rowCount(request, response), bytes(request));
+
+        if (response instanceof BatchWriteRowResponse) {
+            for (BatchWriteRowResponse.RowResult result : ((BatchWriteRowResponse) response).getFailedRows()) {
+                listener.onError(operation, result.getError().getCode());
+            }
+        } else if (response instanceof BatchGetRowResponse) {
+            for (BatchGetRowResponse.RowResult result : ((BatchGetRowResponse) response).getFailedRows()) {
+                listener.onError(operation, result.getError().getCode());
+            }
+        }
+    }
+
+    private void onFailure(String operation, long startTime, Object request, Exception e) {
+        listener.onRequest(operation, latencyMicros(startTime), 0, bytes(request));
+        listener.onError(operation, Utils.getErrorCode(e));
+    }
+
+    private static long latencyMicros(long startTime) {
+        return Math.max(0, (System.nanoTime() - startTime) / 1000);
+    }
+
+    private static boolean isRequest(Object arg) {
+        return arg != null && arg.getClass().getSimpleName().endsWith("Request");
+    }
+
+    private static int rowCount(Object request, Object response) {
+        if (request instanceof BatchWriteRowRequest) {
+            return ((BatchWriteRowRequest) request).getRowsCount();
+        } else if (request instanceof PutRowRequest || request instanceof UpdateRowRequest || request instanceof DeleteRowRequest) {
+            return 1;
+        } else if (response instanceof GetRowResponse) {
+            return ((GetRowResponse) response).getRow() != null ? 1 : 0;
+        } else if (response instanceof GetRangeResponse) {
+            return ((GetRangeResponse) response).getRows().size();
+        } else if (response instanceof BatchGetRowResponse) {
+            int count = 0;
+            for (BatchGetRowResponse.RowResult result : ((BatchGetRowResponse) response).getSucceedRows()) {
+                if (result.getRow() != null) {
+                    count++;
+                }
+            }
+            return count;
+        }
+        return 0;
+    }
+
+    private static long bytes(Object request) {
+        if (request instanceof PutRowRequest) {
+            return ((PutRowRequest) request).getRowChange().getDataSize();
+        } else if (request instanceof UpdateRowRequest) {
+            return ((UpdateRowRequest) request).getRowChange().getDataSize();
+        } else if (request instanceof DeleteRowRequest) {
+            return ((DeleteRowRequest) request).getRowChange().getDataSize();
+        } else if (request instanceof BatchWriteRowRequest) {
+            long bytes = 0;
+            for (List<RowChange> rowChanges : ((BatchWriteRowRequest) request).getRowChange().values()) {
+                for (RowChange rowChange : rowChanges) {
+                    bytes += rowChange.getDataSize();
+                }
+            }
+            return bytes;
+        }
+        return 0;
+    }
+}
@@ -0,0 +1,206 @@
+package com.alicloud.openservices.tablestore.timeline2.core;
+
+import com.alicloud.openservices.tablestore.AsyncClientInterface;
+import com.alicloud.openservices.tablestore.TableStoreCallback;
+import com.alicloud.openservices.tablestore.model.*;
+import com.alicloud.openservices.tablestore.timeline2.TimelineException;
+import com.alicloud.openservices.tablestore.timeline2.model.TimelineEntry;
+import com.alicloud.openservices.tablestore.timeline2.model.TimelineIdentifier;
+import com.alicloud.openservices.tablestore.timeline2.model.TimelineSchema;
+import com.alicloud.openservices.tablestore.timeline2.query.ScanParameter;
+import com.alicloud.openservices.tablestore.timeline2.utils.Utils;
+
+import java.util.*;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * The iterator of timeline entries which requests next pages asynchronously while the current page is being consumed.
+ * The pages buffered ahead are bounded by both prefetch depth and bytes.
+ */
+public class PrefetchTimelineEntryIterator implements Iterator<TimelineEntry> {
+    private final AsyncClientInterface asyncClient;
+    private final TimelineSchema schema;
+    private final TimelineIdentifier identifier;
+    private final ScanParameter parameter;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition pageArrived = lock.newCondition();
+    private final LinkedList<Page> pages = new LinkedList<Page>();
+    private long bufferedBytes = 0;
+    private boolean inFlight = false;
+    private boolean finished = false;
+    private Exception failure = null;
+    private PrimaryKey nextStartKey = null;
+    private int remaining;
+
+    private Iterator<Row> current = Collections.<Row>emptyList().iterator();
+
+    PrefetchTimelineEntryIterator(AsyncClientInterface asyncClient, TimelineSchema schema, TimelineIdentifier identifier,
+                                  ScanParameter parameter) {
+        this.asyncClient = asyncClient;
+        this.schema = schema;
+        this.identifier = identifier;
+        this.parameter = parameter;
+        this.remaining = parameter.getMaxCount();
+
+        lock.lock();
+        try {
+            if (remaining <= 0) {
+                finished = true;
+            } else {
+                fetch();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public boolean hasNext() {
+        while (!current.hasNext()) {
+            Page page = takePage();
+            if (page == null) {
+                return false;
+            }
+            current = page.rows.iterator();
+        }
+        return true;
+    }
+
+    @Override
+    public TimelineEntry next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        return Utils.rowToTimelineEntry(schema, current.next());
+    }
+
+    @Override
+    public void remove() {
+        throw new UnsupportedOperationException();
+    }
+
+    private Page takePage() {
+        lock.lock();
+        try {
+            while (pages.isEmpty()) {
+                if (failure != null) {
+                    throw Utils.convertException(failure);
+                }
+                if (finished) {
+                    return null;
+                }
+                if (!inFlight) {
+                    // the request may fail synchronously, check the state again before waiting
+                    fetch();
+                    continue;
+                }
+                try {
+                    pageArrived.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new TimelineException("Interrupted while waiting for next page.", e);
+                }
+            }
+
+            Page page = pages.removeFirst();
+            bufferedBytes -= page.bytes;
+            prefetchIfAllowed();
+            return page;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Should be invoked with lock held.
+     */
+    private void prefetchIfAllowed() {
+        if (!inFlight && !finished && failure == null
+                && pages.size() < parameter.getPrefetchDepth()
+                && bufferedBytes < parameter.getMaxPrefetchBytes()) {
+            fetch();
+        }
+    }
+
+    /**
+     * Should be invoked with lock held.
+     */
+    private void fetch() {
+        RangeRowQueryCriteria criteria = Utils.toRangeRowQueryCriteria(schema, identifier, parameter);
+        criteria.setLimit(remaining);
+        if (nextStartKey != null) {
+            criteria.setInclusiveStartPrimaryKey(nextStartKey);
+        }
+
+        inFlight = true;
+        try {
+            asyncClient.getRange(new GetRangeRequest(criteria), new TableStoreCallback<GetRangeRequest, GetRangeResponse>() {
+                @Override
+                public void onCompleted(GetRangeRequest request, GetRangeResponse response) {
+                    onPageArrived(response);
+                }
+
+                @Override
+                public void onFailed(GetRangeRequest request, Exception ex) {
+                    onPageFailed(ex);
+                }
+            });
+        } catch (Exception e) {
+            inFlight = false;
+            failure = e;
+            pageArrived.signalAll();
+        }
+    }
+
+    private void onPageArrived(GetRangeResponse response) {
+        Page page = new Page(response.getRows());
+
+        lock.lock();
+        try {
+            inFlight = false;
+            pages.addLast(page);
+            bufferedBytes += page.bytes;
+            remaining -= page.rows.size();
+            nextStartKey = response.getNextStartPrimaryKey();
+            if (nextStartKey == null || remaining <= 0) {
+                finished = true;
+            }
+
+            prefetchIfAllowed();
+            pageArrived.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void onPageFailed(Exception ex) {
+        lock.lock();
+        try {
+            inFlight = false;
+            failure = ex;
+            pageArrived.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private static class Page {
+        private final List<Row> rows;
+        private final long bytes;
+
+        Page(List<Row> rows) {
+            this.rows = rows;
+
+            long size = 0;
+            for (Row row : rows) {
+                size += row.getPrimaryKey().getDataSize();
+                for (Column column : row.getColumns()) {
+                    size += column.getDataSize();
+                }
+            }
+            this.bytes = size;
+        }
+    }
+}
@@ -0,0 +1,268 @@
+package com.alicloud.openservices.tablestore.timeline2.core;
+
+import com.alicloud.openservices.tablestore.AsyncClientInterface;
+import com.alicloud.openservices.tablestore.SyncClientInterface;
+import com.alicloud.openservices.tablestore.TableStoreCallback;
+import com.alicloud.openservices.tablestore.model.*;
+import com.alicloud.openservices.tablestore.model.search.SearchRequest;
+import com.alicloud.openservices.tablestore.timeline2.AdaptiveRateLimiter;
+import com.alicloud.openservices.tablestore.timeline2.TimelineException;
+import com.alicloud.openservices.tablestore.timeline2.utils.Utils;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Limit the data requests of the wrapped client by AdaptiveRateLimiter, and feed back the throttling errors,
+ * including the failed rows of batch requests. Sync requests wait in the calling thread, while async requests
+ * are sent by the timer after the wait, so that the threads sending them, such as the callback threads of client
+ * and the timer of retry, are never blocked. The delayed requests still count in the concurrency of writer,
+ * so that rows are held in writer instead of sent to be throttled.
+ */
+class RateLimitClientHandler implements InvocationHandler {
+    private static final long CAPACITY_UNIT_BYTES = 4 * 1024;
+
+    private final Object client;
+    private final AdaptiveRateLimiter limiter;
+    private final ScheduledExecutorService timer;
+
+    private RateLimitClientHandler(Object client, AdaptiveRateLimiter limiter, ScheduledExecutorService timer) {
+        this.client = client;
+        this.limiter = limiter;
+        this.timer = timer;
+    }
+
+    static SyncClientInterface wrap(SyncClientInterface client, AdaptiveRateLimiter limiter, ScheduledExecutorService timer) {
+        return (SyncClientInterface) Proxy.newProxyInstance(SyncClientInterface.class.getClassLoader(),
+                new Class[]{SyncClientInterface.class}, new RateLimitClientHandler(client, limiter, timer));
+    }
+
+    static AsyncClientInterface wrap(AsyncClientInterface client, AdaptiveRateLimiter limiter, ScheduledExecutorService timer) {
+        return (AsyncClientInterface) Proxy.newProxyInstance(AsyncClientInterface.class.getClassLoader(),
+                new Class[]{AsyncClientInterface.class}, new RateLimitClientHandler(client, limiter, timer));
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+        String name = method.getName();
+        if (method.getDeclaringClass() == Object.class) {
+            if (name.equals("equals")) {
+                return proxy == args[0];
+            } else if (name.equals("hashCode")) {
+                return System.identityHashCode(proxy);
+            }
+            return "RateLimit(" + client + ")";
+        }
+
+        if (name.equals("asAsyncClient")) {
+            return wrap((AsyncClientInterface) invokeClient(method, args), limiter, timer);
+        } else if (name.equals("asSyncClient")) {
+            return wrap((SyncClientInterface) invokeClient(method, args), limiter, timer);
+        }
+
+        final Map<String, Double> capacityUnits = args == null || args.length == 0 ? null : capacityUnitsByTable(args[0]);
+        if (capacityUnits == null) {
+            return invokeClient(method, args);
+        }
+
+        long waitNanos = 0;
+        for (Map.Entry<String, Double> entry : capacityUnits.entrySet()) {
+            waitNanos = Math.max(waitNanos, limiter.reserve(entry.getKey(), entry.getValue()));
+        }
+
+        if (args.length == 2 && (args[1] == null || args[1] instanceof TableStoreCallback)) {
+            final TableStoreCallback<Object, Object> callback = (TableStoreCallback<Object, Object>) args[1];
+            if (waitNanos <= 0) {
+                return invokeClient(method, new Object[]{args[0], new FeedbackCallback(capacityUnits, callback, null)});
+            }
+            return sendLater(method, args[0], new FeedbackCallback(capacityUnits, callback, new ResponseFuture()), waitNanos);
+        }
+
+        if (waitNanos > 0) {
+            try {
+                TimeUnit.NANOSECONDS.sleep(waitNanos);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new TimelineException("Interrupted while waiting for rate limiter.", e);
+            }
+        }
+
+        Object response;
+        try {
+            response = invokeClient(method, args);
+        } catch (Exception e) {
+            onFailure(capacityUnits, e);
+            throw e;
+        }
+        onSucceed(capacityUnits, response);
+        return response;
+    }
+
+    /**
+     * Send the async request by timer after the wait, the exception of sending is delivered by callback.
+     */
+    private Object sendLater(final Method method, final Object request, final FeedbackCallback callback, long waitNanos)
+            throws Exception {
+        try {
+            timer.schedule(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        invokeClient(method, new Object[]{request, callback});
+                    } catch (Exception e) {
+                        callback.onFailed(request, e);
+                    }
+                }
+            }, waitNanos, TimeUnit.NANOSECONDS);
+        } catch (RejectedExecutionException e) {
+            // the store is closed, send it without waiting
+            return invokeClient(method, new Object[]{request, callback.withoutFuture()});
+        }
+        return callback.future;
+    }
+
+    private Object invokeClient(Method method, Object[] args) throws Exception {
+        try {
+            return method.invoke(client, args);
+        } catch (InvocationTargetException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof Exception) {
+                throw (Exception) cause;
+            }
+            throw (java.lang.Error) cause;
+        }
+    }
+
+    private void onSucceed(Map<String, Double> capacityUnits, Object response) {
+        String errorCode = null;
+        if (response instanceof BatchWriteRowResponse) {
+            for (BatchWriteRowResponse.RowResult result : ((BatchWriteRowResponse) response).getFailedRows()) {
+                limiter.onResult(result.getTableName(), result.getError().getCode());
+                errorCode = result.getError().getCode();
+            }
+        } else if (response instanceof BatchGetRowResponse) {
+            for (BatchGetRowResponse.RowResult result : ((BatchGetRowResponse) response).getFailedRows()) {
+                limiter.onResult(result.getTableName(), result.getError().getCode());
+                errorCode = result.getError().getCode();
+            }
+        }
+
+        // the rate is only increased by the requests without any failed row
+        if (errorCode == null) {
+            for (String tableName : capacityUnits.keySet()) {
+                limiter.onResult(tableName, null);
+            }
+        }
+    }
+
+    private void onFailure(Map<String, Double> capacityUnits, Exception e) {
+        String errorCode = Utils.getErrorCode(e);
+        for (String tableName : capacityUnits.keySet()) {
+            limiter.onResult(tableName, errorCode);
+        }
+    }
+
+    /**
+     * Feed back the result to limiter before invoking the callback of request,
+     * and complete the future if the request is sent by timer.
+     */
+    private class FeedbackCallback implements TableStoreCallback<Object, Object> {
+        private final Map<String, Double> capacityUnits;
+        private final TableStoreCallback<Object, Object> callback;
+        private final ResponseFuture future;
+
+        FeedbackCallback(Map<String, Double> capacityUnits, TableStoreCallback<Object, Object> callback,
+                         ResponseFuture future) {
+            this.capacityUnits = capacityUnits;
+            this.callback = callback;
+            this.future = future;
+        }
+
+        FeedbackCallback withoutFuture() {
+            return new FeedbackCallback(capacityUnits, callback, null);
+        }
+
+        @Override
+        public void onCompleted(Object request, Object response) {
+            try {
+                onSucceed(capacityUnits, response);
+                if (callback != null) {
+                    callback.onCompleted(request, response);
+                }
+            } finally {
+                if (future != null) {
+                    future.complete(response);
+                }
+            }
+        }
+
+        @Override
+        public void onFailed(Object request, Exception ex) {
+            try {
+                onFailure(capacityUnits, ex);
+                if (callback != null) {
+                    callback.onFailed(request, ex);
+                }
+            } finally {
+                if (future != null) {
+                    future.completeExceptionally(ex);
+                }
+            }
+        }
+    }
+
+    /**
+     * Estimate capacity units of the request by table, null if the request is not limited, such as createTable.
+     */
+    private static Map<String, Double> capacityUnitsByTable(Object request) {
+        Map<String, Double> result = new LinkedHashMap<String, Double>();
+        if (request instanceof PutRowRequest) {
+            addRowChange(result, ((PutRowRequest) request).getRowChange());
+        } else if (request instanceof UpdateRowRequest) {
+            addRowChange(result, ((UpdateRowRequest) request).getRowChange());
+        } else if (request instanceof DeleteRowRequest) {
+            addRowChange(result, ((DeleteRowRequest) request).getRowChange());
+        } else if (request instanceof BatchWriteRowRequest) {
+            for (List<RowChange> rowChanges : ((BatchWriteRowRequest) request).getRowChange().values()) {
+                for (RowChange rowChange : rowChanges) {
+                    addRowChange(result, rowChange);
+                }
+            }
+        } else if (request instanceof GetRowRequest) {
+            result.put(((GetRowRequest) request).getRowQueryCriteria().getTableName(), 1.0);
+        } else if (request instanceof GetRangeRequest) {
+            result.put(((GetRangeRequest) request).getRangeRowQueryCriteria().getTableName(), 1.0);
+        } else if (request instanceof BatchGetRowRequest) {
+            for (Map.Entry<String, MultiRowQueryCriteria> entry : ((BatchGetRowRequest) request).getCriteriasByTable().entrySet()) {
+                result.put(entry.getKey(), (double) Math.max(1, entry.getValue().size()));
+            }
+        } else if (request instanceof SearchRequest) {
+            result.put(((SearchRequest) request).getTableName(), 1.0);
+        } else {
+            return null;
+        }
+        return result;
+    }
+
+    private static void addRowChange(Map<String, Double> result, RowChange rowChange) {
+        Double units = result.get(rowChange.getTableName());
+        double rowUnits = capacityUnitsOf(rowChange.getDataSize());
+        result.put(rowChange.getTableName(), units == null ? rowUnits : units + rowUnits);
+    }
+
+    /**
+     * Estimate the capacity units of a row by its data size, at least 1.
+     */
+    private static double capacityUnitsOf(long dataSize) {
+        return Math.max(1, (dataSize + CAPACITY_UNIT_BYTES - 1) / CAPACITY_UNIT_BYTES);
+    }
+}
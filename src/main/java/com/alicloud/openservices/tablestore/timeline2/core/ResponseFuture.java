@@ -0,0 +1,17 @@
+package com.alicloud.openservices.tablestore.timeline2.core;
+
+import com.alicloud.openservices.tablestore.timeline2.TimelineException;
+import com.alicloud.openservices.tablestore.timeline2.model.TimelineFuture;
+
+/**
+ * The future returned by async requests of the wrapped clients, get() throws the original exception of client.
+ */
+class ResponseFuture extends TimelineFuture<Object> {
+    @Override
+    protected RuntimeException convertException(Exception cause) {
+        if (cause instanceof RuntimeException) {
+            return (RuntimeException) cause;
+        }
+        return new TimelineException(cause.getMessage(), cause);
+    }
+}
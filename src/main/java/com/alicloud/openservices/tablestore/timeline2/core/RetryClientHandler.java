@@ -0,0 +1,333 @@
+package com.alicloud.openservices.tablestore.timeline2.core;
+
+import com.alicloud.openservices.tablestore.AsyncClientInterface;
+import com.alicloud.openservices.tablestore.SyncClientInterface;
+import com.alicloud.openservices.tablestore.TableStoreCallback;
+import com.alicloud.openservices.tablestore.model.*;
+import com.alicloud.openservices.tablestore.model.search.SearchRequest;
+import com.alicloud.openservices.tablestore.timeline2.RetryPolicy;
+import com.alicloud.openservices.tablestore.timeline2.TimelineException;
+import com.alicloud.openservices.tablestore.timeline2.utils.Histogram;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Retry and hedge the idempotent requests of the wrapped client by RetryPolicy.
+ * Sync requests are retried in the calling thread, while async requests and hedged reads
+ * are retried by the timer, whose callback is invoked once by the first response or the last failure.
+ * The latencies to hedge reads are recorded per wrapped client, and shared by its sync and async views.
+ */
+class RetryClientHandler implements InvocationHandler {
+    private static final int MIN_HEDGE_SAMPLES = 20;
+
+    private final Object client;
+    private final RetryPolicy policy;
+    private final ScheduledExecutorService timer;
+    private final ConcurrentMap<String, Histogram> latencies;
+    private volatile AsyncClientInterface asyncClient;
+
+    private RetryClientHandler(Object client, RetryPolicy policy, ScheduledExecutorService timer,
+                               ConcurrentMap<String, Histogram> latencies) {
+        this.client = client;
+        this.policy = policy;
+        this.timer = timer;
+        this.latencies = latencies;
+    }
+
+    static SyncClientInterface wrap(SyncClientInterface client, RetryPolicy policy, ScheduledExecutorService timer) {
+        return wrap(client, policy, timer, new ConcurrentHashMap<String, Histogram>());
+    }
+
+    static AsyncClientInterface wrap(AsyncClientInterface client, RetryPolicy policy, ScheduledExecutorService timer) {
+        return wrap(client, policy, timer, new ConcurrentHashMap<String, Histogram>());
+    }
+
+    private static SyncClientInterface wrap(SyncClientInterface client, RetryPolicy policy,
+                                            ScheduledExecutorService timer, ConcurrentMap<String, Histogram> latencies) {
+        return (SyncClientInterface) Proxy.newProxyInstance(SyncClientInterface.class.getClassLoader(),
+                new Class[]{SyncClientInterface.class}, new RetryClientHandler(client, policy, timer, latencies));
+    }
+
+    private static AsyncClientInterface wrap(AsyncClientInterface client, RetryPolicy policy,
+                                             ScheduledExecutorService timer, ConcurrentMap<String, Histogram> latencies) {
+        return (AsyncClientInterface) Proxy.newProxyInstance(AsyncClientInterface.class.getClassLoader(),
+                new Class[]{AsyncClientInterface.class}, new RetryClientHandler(client, policy, timer, latencies));
+    }
+
+    /**
+     * Get the delay to hedge the request of operation, which is the latency at percentile of the succeed requests.
+     *
+     * @return the delay in milliseconds, or -1 if not hedged.
+     */
+    private long getHedgeDelayMillis(String operation) {
+        Histogram histogram = latencies.get(operation);
+        if (!policy.hasHedgedReads() || histogram == null || histogram.getCount() < MIN_HEDGE_SAMPLES) {
+            return -1;
+        }
+        return Math.max(policy.getMinHedgeDelayMillis(), histogram.getValueAtPercentile(policy.getHedgePercentile()) / 1000);
+    }
+
+    private void recordLatency(String operation, long latencyMicros) {
+        Histogram histogram = latencies.get(operation);
+        if (histogram == null) {
+            Histogram newHistogram = new Histogram();
+            histogram = latencies.putIfAbsent(operation, newHistogram);
+            if (histogram == null) {
+                histogram = newHistogram;
+            }
+        }
+        histogram.record(Math.max(0, latencyMicros));
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+        String name = method.getName();
+        if (method.getDeclaringClass() == Object.class) {
+            if (name.equals("equals")) {
+                return proxy == args[0];
+            } else if (name.equals("hashCode")) {
+                return System.identityHashCode(proxy);
+            }
+            return "Retry(" + client + ")";
+        }
+
+        if (name.equals("asAsyncClient")) {
+            return wrap((AsyncClientInterface) invokeClient(method, args), policy, timer, latencies);
+        } else if (name.equals("asSyncClient")) {
+            return wrap((SyncClientInterface) invokeClient(method, args), policy, timer, latencies);
+        }
+
+        if (args == null || args.length == 0 || !isIdempotent(args[0])) {
+            return invokeClient(method, args);
+        }
+
+        boolean hedged = policy.hasHedgedReads() && (args[0] instanceof GetRowRequest || args[0] instanceof GetRangeRequest);
+        if (args.length == 2 && (args[1] == null || args[1] instanceof TableStoreCallback)) {
+            AsyncCall call = new AsyncCall((AsyncClientInterface) client, method, args[0],
+                    (TableStoreCallback<Object, Object>) args[1], hedged);
+            call.start();
+            return call.future;
+        }
+
+        if (hedged) {
+            Method asyncMethod = AsyncClientInterface.class.getMethod(name, method.getParameterTypes()[0],
+                    TableStoreCallback.class);
+            AsyncCall call = new AsyncCall(getAsyncClient(), asyncMethod, args[0], null, true);
+            call.start();
+            try {
+                return call.future.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new TimelineException("Interrupted while waiting for hedged request.", e);
+            }
+        }
+
+        for (int retries = 0; ; retries++) {
+            try {
+                return invokeClient(method, args);
+            } catch (Exception e) {
+                if (retries >= policy.getMaxRetries() || !policy.isRetryable(e)) {
+                    throw e;
+                }
+                try {
+                    Thread.sleep(policy.nextBackoffMillis(retries));
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                    throw e;
+                }
+            }
+        }
+    }
+
+    private AsyncClientInterface getAsyncClient() {
+        if (asyncClient == null) {
+            asyncClient = ((SyncClientInterface) client).asAsyncClient();
+        }
+        return asyncClient;
+    }
+
+    private Object invokeClient(Method method, Object[] args) throws Exception {
+        try {
+            return method.invoke(client, args);
+        } catch (InvocationTargetException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof Exception) {
+                throw (Exception) cause;
+            }
+            throw (java.lang.Error) cause;
+        }
+    }
+
+    private static boolean isIdempotent(Object request) {
+        if (request instanceof GetRowRequest || request instanceof GetRangeRequest
+                || request instanceof BatchGetRowRequest || request instanceof SearchRequest) {
+            return true;
+        } else if (request instanceof PutRowRequest) {
+            RowPutChange rowChange = ((PutRowRequest) request).getRowChange();
+            for (PrimaryKeyColumn column : rowChange.getPrimaryKey().getPrimaryKeyColumns()) {
+                if (column.getValue().isPlaceHolderForAutoIncr()) {
+                    return false;
+                }
+            }
+            return isUnconditional(rowChange);
+        } else if (request instanceof UpdateRowRequest) {
+            return isUnconditional(((UpdateRowRequest) request).getRowChange());
+        } else if (request instanceof DeleteRowRequest) {
+            return isUnconditional(((DeleteRowRequest) request).getRowChange());
+        }
+        return false;
+    }
+
+    /**
+     * The retry of a conditional write may fail by the change of the first attempt.
+     */
+    private static boolean isUnconditional(RowChange rowChange) {
+        Condition condition = rowChange.getCondition();
+        return condition == null || (condition.getRowExistenceExpectation() == RowExistenceExpectation.IGNORE
+                && condition.getColumnCondition() == null);
+    }
+
+    private class AsyncCall {
+        private final AsyncClientInterface asyncClient;
+        private final Method method;
+        private final Object request;
+        private final TableStoreCallback<Object, Object> callback;
+        private final boolean hedged;
+        private final ResponseFuture future = new ResponseFuture();
+
+        // guarded by this
+        private boolean finished = false;
+        private int retries = 0;
+        private int pending = 0;
+
+        AsyncCall(AsyncClientInterface asyncClient, Method method, Object request,
+                  TableStoreCallback<Object, Object> callback, boolean hedged) {
+            this.asyncClient = asyncClient;
+            this.method = method;
+            this.request = request;
+            this.callback = callback;
+            this.hedged = hedged;
+        }
+
+        void start() {
+            final int round;
+            synchronized (this) {
+                pending = 1;
+                round = retries;
+            }
+            send();
+
+            long delay = hedged ? getHedgeDelayMillis(method.getName()) : -1;
+            if (delay < 0) {
+                return;
+            }
+            try {
+                timer.schedule(new Runnable() {
+                    @Override
+                    public void run() {
+                        synchronized (AsyncCall.this) {
+                            if (finished || retries != round || pending == 0) {
+                                return;
+                            }
+                            pending++;
+                        }
+                        send();
+                    }
+                }, delay, TimeUnit.MILLISECONDS);
+            } catch (RuntimeException e) {
+                // the store is closed, the request is just not hedged
+            }
+        }
+
+        private void send() {
+            final long startTime = System.nanoTime();
+            try {
+                method.invoke(asyncClient, request, new TableStoreCallback<Object, Object>() {
+                    @Override
+                    public void onCompleted(Object req, Object response) {
+                        recordLatency(method.getName(), (System.nanoTime() - startTime) / 1000);
+                        onSucceed(response);
+                    }
+
+                    @Override
+                    public void onFailed(Object req, Exception ex) {
+                        onFailure(ex);
+                    }
+                });
+            } catch (InvocationTargetException e) {
+                Throwable cause = e.getCause();
+                onFailure(cause instanceof Exception ? (Exception) cause : new TimelineException(cause.getMessage(), cause));
+            } catch (Exception e) {
+                onFailure(e);
+            }
+        }
+
+        private void onSucceed(Object response) {
+            synchronized (this) {
+                if (finished) {
+                    return;
+                }
+                finished = true;
+            }
+
+            try {
+                if (callback != null) {
+                    callback.onCompleted(request, response);
+                }
+            } finally {
+                future.complete(response);
+            }
+        }
+
+        private void onFailure(Exception e) {
+            boolean retry;
+            long backoff = 0;
+            synchronized (this) {
+                // wait for the other request of the same round if hedged
+                if (finished || --pending > 0) {
+                    return;
+                }
+                retry = retries < policy.getMaxRetries() && policy.isRetryable(e);
+                if (retry) {
+                    backoff = policy.nextBackoffMillis(retries);
+                    retries++;
+                } else {
+                    finished = true;
+                }
+            }
+
+            if (retry) {
+                try {
+                    timer.schedule(new Runnable() {
+                        @Override
+                        public void run() {
+                            start();
+                        }
+                    }, backoff, TimeUnit.MILLISECONDS);
+                    return;
+                } catch (RuntimeException ex) {
+                    // the store is closed, fail with the last exception
+                    synchronized (this) {
+                        finished = true;
+                    }
+                }
+            }
+
+            try {
+                if (callback != null) {
+                    callback.onFailed(request, e);
+                }
+            } finally {
+                future.completeExceptionally(e);
+            }
+        }
+    }
+}
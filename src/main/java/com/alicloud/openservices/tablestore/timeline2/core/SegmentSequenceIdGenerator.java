@@ -0,0 +1,210 @@
+package com.alicloud.openservices.tablestore.timeline2.core;
+
+import com.alicloud.openservices.tablestore.SyncClientInterface;
+import com.alicloud.openservices.tablestore.TableStoreException;
+import com.alicloud.openservices.tablestore.model.*;
+import com.alicloud.openservices.tablestore.model.condition.SingleColumnValueCondition;
+import com.alicloud.openservices.tablestore.timeline2.SequenceIdGenerator;
+import com.alicloud.openservices.tablestore.timeline2.TimelineException;
+import com.alicloud.openservices.tablestore.timeline2.model.TimelineIdentifier;
+import com.alicloud.openservices.tablestore.timeline2.model.TimelineSchema;
+import com.alicloud.openservices.tablestore.timeline2.query.ScanParameter;
+import com.alicloud.openservices.tablestore.timeline2.utils.Preconditions;
+import com.alicloud.openservices.tablestore.timeline2.utils.Utils;
+
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Generate sequence id from segments leased per timeline, which is safe for many processes writing the same timeline.
+ * The max leased sequence id of each timeline is kept in a dedicated lease table, which should not be written
+ * by anything else, such as the meta store, otherwise the lease may be lost and the ids generated again.
+ * A segment is leased by conditional write of the lease row, and the first segment of a timeline starts
+ * from the latest sequence id stored in the timeline. The ids not used before exit are skipped.
+ */
+public class SegmentSequenceIdGenerator implements SequenceIdGenerator {
+    public static final String LEASE_COLUMN_NAME = "sequence_id_lease";
+    private static final int MAX_LEASE_RETRY_TIMES = 10;
+
+    private final SyncClientInterface client;
+    private final String leaseTableName;
+    private final TimelineSchema timelineSchema;
+    private final int segmentSize;
+    private final ConcurrentMap<TimelineIdentifier, Segment> segments = new ConcurrentHashMap<TimelineIdentifier, Segment>();
+
+    /**
+     * @param client            The client of the instance of both lease table and timeline table.
+     * @param leaseTableName    The name of the lease table, which is created by {@link #prepareTables()}.
+     * @param timelineSchema    The schema of timeline with manually set sequence id.
+     * @param segmentSize       The count of sequence ids leased at once.
+     */
+    public SegmentSequenceIdGenerator(SyncClientInterface client, String leaseTableName, TimelineSchema timelineSchema,
+                                      int segmentSize) {
+        Preconditions.checkNotNull(client, "SyncClient should not be null.");
+        Preconditions.checkArgument(leaseTableName != null && !leaseTableName.isEmpty(),
+                "Lease table name should not be null or empty.");
+        Preconditions.checkNotNull(timelineSchema, "TimelineSchema should not be null.");
+        Preconditions.checkArgument(!timelineSchema.isAutoGenerateSeqId(),
+                "The sequence id of this timeline is not allowed to set manually.");
+        Preconditions.checkArgument(!leaseTableName.equals(timelineSchema.getTableName()),
+                "Lease table should not be the timeline table.");
+        Preconditions.checkArgument(segmentSize > 0, "Segment size should be positive.");
+
+        this.client = client;
+        this.leaseTableName = leaseTableName;
+        this.timelineSchema = timelineSchema;
+        this.segmentSize = segmentSize;
+    }
+
+    @Override
+    public long next(TimelineIdentifier identifier) {
+        Preconditions.checkNotNull(identifier, "Identifier should not be null.");
+
+        Segment segment = segments.get(identifier);
+        if (segment == null) {
+            Segment newSegment = new Segment(identifier);
+            segment = segments.putIfAbsent(identifier, newSegment);
+            if (segment == null) {
+                segment = newSegment;
+            }
+        }
+        return segment.next();
+    }
+
+    /**
+     * Create the lease table, whose primary key is the same as the identifier of timeline.
+     */
+    public void prepareTables() {
+        TableMeta tableMeta = new TableMeta(leaseTableName);
+        for (PrimaryKeySchema key : timelineSchema.getIdentifierSchema().getKeys()) {
+            tableMeta.addPrimaryKeyColumn(key);
+        }
+
+        TableOptions tableOptions = new TableOptions();
+        tableOptions.setTimeToLive(-1);
+        tableOptions.setMaxVersions(1);
+
+        try {
+            client.createTable(new CreateTableRequest(tableMeta, tableOptions));
+        } catch (Exception e) {
+            throw Utils.convertException(e);
+        }
+    }
+
+    public void dropAllTables() {
+        try {
+            client.deleteTable(new DeleteTableRequest(leaseTableName));
+        } catch (Exception e) {
+            throw Utils.convertException(e);
+        }
+    }
+
+    /**
+     * Lease the next segment of timeline, return the max sequence id of the segment.
+     */
+    private long lease(TimelineIdentifier identifier) {
+        PrimaryKey primaryKey = Utils.identifierToPrimaryKey(identifier);
+
+        for (int i = 0; i < MAX_LEASE_RETRY_TIMES; i++) {
+            Long current = readLease(primaryKey);
+
+            long leased;
+            try {
+                if (current == null) {
+                    // the first segment, which is created only once
+                    leased = readLatestSequenceId(identifier) + segmentSize;
+                    RowPutChange rowChange = new RowPutChange(leaseTableName, primaryKey);
+                    rowChange.addColumn(LEASE_COLUMN_NAME, ColumnValue.fromLong(leased));
+                    rowChange.setCondition(new Condition(RowExistenceExpectation.EXPECT_NOT_EXIST));
+                    client.putRow(new PutRowRequest(rowChange));
+                } else {
+                    leased = current + segmentSize;
+                    SingleColumnValueCondition columnCondition = new SingleColumnValueCondition(LEASE_COLUMN_NAME,
+                            SingleColumnValueCondition.CompareOperator.EQUAL, ColumnValue.fromLong(current));
+                    columnCondition.setPassIfMissing(false);
+                    columnCondition.setLatestVersionsOnly(true);
+                    Condition condition = new Condition(RowExistenceExpectation.EXPECT_EXIST);
+                    condition.setColumnCondition(columnCondition);
+
+                    RowUpdateChange rowChange = new RowUpdateChange(leaseTableName, primaryKey);
+                    rowChange.put(LEASE_COLUMN_NAME, ColumnValue.fromLong(leased));
+                    rowChange.setCondition(condition);
+                    client.updateRow(new UpdateRowRequest(rowChange));
+                }
+                return leased;
+            } catch (TableStoreException e) {
+                if (!"OTSConditionCheckFail".equals(e.getErrorCode())) {
+                    throw Utils.convertException(e);
+                }
+                // leased by others concurrently, read and try again
+            } catch (Exception e) {
+                throw Utils.convertException(e);
+            }
+        }
+
+        throw new TimelineException("Lease sequence id segment failed after retry " + MAX_LEASE_RETRY_TIMES + " times.");
+    }
+
+    /**
+     * @return the max leased sequence id, or null if the timeline has never been leased.
+     */
+    private Long readLease(PrimaryKey primaryKey) {
+        SingleRowQueryCriteria criteria = new SingleRowQueryCriteria(leaseTableName, primaryKey);
+        criteria.setMaxVersions(1);
+        criteria.addColumnsToGet(LEASE_COLUMN_NAME);
+
+        GetRowResponse response;
+        try {
+            response = client.getRow(new GetRowRequest(criteria));
+        } catch (Exception e) {
+            throw Utils.convertException(e);
+        }
+
+        Row row = response.getRow();
+        if (row == null || !row.contains(LEASE_COLUMN_NAME)) {
+            return null;
+        }
+        return row.getLatestColumn(LEASE_COLUMN_NAME).getValue().asLong();
+    }
+
+    /**
+     * @return the latest sequence id stored in timeline, or 0 if the timeline is empty.
+     */
+    private long readLatestSequenceId(TimelineIdentifier identifier) {
+        RangeRowQueryCriteria criteria = Utils.toRangeRowQueryCriteria(timelineSchema, identifier,
+                new ScanParameter().scanBackward(Long.MAX_VALUE, 0).maxCount(1));
+        criteria.addColumnsToGet(timelineSchema.getSequenceIdColumnName());
+
+        GetRangeResponse response;
+        try {
+            response = client.getRange(new GetRangeRequest(criteria));
+        } catch (Exception e) {
+            throw Utils.convertException(e);
+        }
+
+        List<Row> rows = response.getRows();
+        if (rows.isEmpty()) {
+            return 0;
+        }
+        return rows.get(0).getPrimaryKey().getPrimaryKeyColumn(timelineSchema.getSequenceIdColumnName()).getValue().asLong();
+    }
+
+    private class Segment {
+        private final TimelineIdentifier identifier;
+        private long current = 0;
+        private long max = 0;
+
+        Segment(TimelineIdentifier identifier) {
+            this.identifier = identifier;
+        }
+
+        synchronized long next() {
+            if (current >= max) {
+                max = lease(identifier);
+                current = max - segmentSize;
+            }
+            return ++current;
+        }
+    }
+}
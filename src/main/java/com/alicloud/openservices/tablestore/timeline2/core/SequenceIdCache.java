@@ -0,0 +1,91 @@
+package com.alicloud.openservices.tablestore.timeline2.core;
+
+import com.alicloud.openservices.tablestore.timeline2.model.CacheStatistics;
+import com.alicloud.openservices.tablestore.timeline2.model.TimelineIdentifier;
+import com.alicloud.openservices.tablestore.timeline2.utils.LRUCache;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * The cache of latest sequence id of each timeline, which is updated on writes through the same store.
+ * Writes from other processes are only visible after the cached item expired.
+ * A load started before a write or invalidation of the same timeline is dropped, so that it would not fill
+ * the cache with stale sequence id. The generations are striped by identifier to bound the memory.
+ */
+class SequenceIdCache {
+    private static final int GENERATION_STRIPES = 256;
+
+    private final LRUCache<TimelineIdentifier, Long> cache;
+    private final boolean autoGenerateSeqId;
+    /**
+     * Increase on every write and invalidation of the timelines in the stripe.
+     */
+    private final AtomicLongArray generations = new AtomicLongArray(GENERATION_STRIPES);
+
+    SequenceIdCache(int maxSize, long ttlMillis, boolean autoGenerateSeqId) {
+        this.cache = new LRUCache<TimelineIdentifier, Long>(maxSize, ttlMillis);
+        this.autoGenerateSeqId = autoGenerateSeqId;
+    }
+
+    Long get(TimelineIdentifier identifier) {
+        return cache.get(identifier);
+    }
+
+    /**
+     * Called when a message is stored.
+     * An auto-increment sequence id is always the latest one, while a manual sequence id may be out of order,
+     * so that a manual sequence id is only compared with the cached one and never inserted.
+     */
+    void onStored(TimelineIdentifier identifier, long sequenceId) {
+        synchronized (cache) {
+            generations.incrementAndGet(stripeOf(identifier));
+            update(identifier, sequenceId, autoGenerateSeqId);
+        }
+    }
+
+    /**
+     * Called before the latest sequence id is read from table.
+     *
+     * @return the generation passed to {@link #onLoaded(TimelineIdentifier, long, long)}.
+     */
+    long beforeLoad(TimelineIdentifier identifier) {
+        return generations.get(stripeOf(identifier));
+    }
+
+    /**
+     * Called when the latest sequence id is read from table, which is dropped if the timeline is changed since
+     * {@link #beforeLoad(TimelineIdentifier)}.
+     */
+    void onLoaded(TimelineIdentifier identifier, long generation, long sequenceId) {
+        synchronized (cache) {
+            if (generations.get(stripeOf(identifier)) == generation) {
+                update(identifier, sequenceId, true);
+            }
+        }
+    }
+
+    void invalidate(TimelineIdentifier identifier) {
+        synchronized (cache) {
+            generations.incrementAndGet(stripeOf(identifier));
+            cache.remove(identifier);
+        }
+    }
+
+    CacheStatistics getStatistics() {
+        return cache.getStatistics();
+    }
+
+    /**
+     * Should be invoked with lock of cache held.
+     */
+    private void update(TimelineIdentifier identifier, long sequenceId, boolean insertIfAbsent) {
+        Long current = cache.peek(identifier);
+        if (current == null ? insertIfAbsent : sequenceId > current) {
+            cache.put(identifier, sequenceId);
+        }
+    }
+
+    private static int stripeOf(TimelineIdentifier identifier) {
+        return (identifier.hashCode() & 0x7fffffff) % GENERATION_STRIPES;
+    }
+}
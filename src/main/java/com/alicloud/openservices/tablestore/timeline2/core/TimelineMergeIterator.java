@@ -0,0 +1,153 @@
+package com.alicloud.openservices.tablestore.timeline2.core;
+
+import com.alicloud.openservices.tablestore.AsyncClientInterface;
+import com.alicloud.openservices.tablestore.model.*;
+import com.alicloud.openservices.tablestore.timeline2.model.TimelineEntry;
+import com.alicloud.openservices.tablestore.timeline2.model.TimelineIdentifier;
+import com.alicloud.openservices.tablestore.timeline2.model.TimelineSchema;
+import com.alicloud.openservices.tablestore.timeline2.query.ScanParameter;
+import com.alicloud.openservices.tablestore.timeline2.query.SearchResult;
+import com.alicloud.openservices.tablestore.timeline2.utils.Utils;
+
+import java.util.*;
+import java.util.concurrent.Future;
+
+/**
+ * Merge the entries of many timelines into one ordered stream.
+ * The first page of every timeline is requested concurrently, and a further page is only requested
+ * when all the fetched entries of that timeline have been consumed, so that only the timelines which
+ * still contribute to the top N are read again.
+ */
+public class TimelineMergeIterator implements Iterator<SearchResult.Entry<TimelineEntry>> {
+    private final AsyncClientInterface asyncClient;
+    private final TimelineSchema schema;
+    private final ScanParameter parameter;
+    private final PriorityQueue<Cursor> heap;
+    private final List<Cursor> pending;
+    private int remaining;
+
+    TimelineMergeIterator(AsyncClientInterface asyncClient, TimelineSchema schema, Collection<TimelineIdentifier> identifiers,
+                          ScanParameter parameter, final Comparator<TimelineEntry> comparator) {
+        this.asyncClient = asyncClient;
+        this.schema = schema;
+        this.parameter = parameter;
+        this.remaining = parameter.getMaxCount();
+        this.pending = new ArrayList<Cursor>(identifiers.size());
+        this.heap = new PriorityQueue<Cursor>(Math.max(1, identifiers.size()), new Comparator<Cursor>() {
+            @Override
+            public int compare(Cursor o1, Cursor o2) {
+                int result = comparator.compare(o1.head, o2.head);
+                if (result != 0) {
+                    return result;
+                }
+                return o1.order < o2.order ? -1 : (o1.order == o2.order ? 0 : 1);
+            }
+        });
+
+        int order = 0;
+        for (TimelineIdentifier identifier : identifiers) {
+            Cursor cursor = new Cursor(identifier, order++);
+            cursor.fetch(null);
+            pending.add(cursor);
+        }
+    }
+
+    @Override
+    public boolean hasNext() {
+        if (remaining <= 0) {
+            return false;
+        }
+
+        resolvePending();
+        return !heap.isEmpty();
+    }
+
+    @Override
+    public SearchResult.Entry<TimelineEntry> next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+
+        Cursor cursor = heap.poll();
+        TimelineEntry entry = cursor.head;
+        remaining--;
+
+        if (cursor.advance()) {
+            heap.add(cursor);
+        } else if (cursor.nextStartKey != null && remaining > 0) {
+            cursor.fetch(cursor.nextStartKey);
+            pending.add(cursor);
+        }
+
+        return new SearchResult.Entry<TimelineEntry>(cursor.identifier, entry);
+    }
+
+    @Override
+    public void remove() {
+        throw new UnsupportedOperationException();
+    }
+
+    private void resolvePending() {
+        while (!pending.isEmpty()) {
+            Cursor cursor = pending.remove(pending.size() - 1);
+            cursor.resolve();
+
+            if (cursor.advance()) {
+                heap.add(cursor);
+            } else if (cursor.nextStartKey != null) {
+                // the page may be empty because of filter, continue to read next page
+                cursor.fetch(cursor.nextStartKey);
+                pending.add(cursor);
+            }
+        }
+    }
+
+    private class Cursor {
+        private final TimelineIdentifier identifier;
+        private final int order;
+        private Future<GetRangeResponse> future;
+        private List<Row> rows = Collections.emptyList();
+        private int position = 0;
+        private PrimaryKey nextStartKey;
+        private TimelineEntry head;
+
+        Cursor(TimelineIdentifier identifier, int order) {
+            this.identifier = identifier;
+            this.order = order;
+        }
+
+        void fetch(PrimaryKey startKey) {
+            RangeRowQueryCriteria criteria = Utils.toRangeRowQueryCriteria(schema, identifier, parameter);
+            criteria.setLimit(remaining);
+            if (startKey != null) {
+                criteria.setInclusiveStartPrimaryKey(startKey);
+            }
+
+            try {
+                future = asyncClient.getRange(new GetRangeRequest(criteria), null);
+            } catch (Exception e) {
+                throw Utils.convertException(e);
+            }
+        }
+
+        void resolve() {
+            GetRangeResponse response = Utils.waitForFuture(future);
+            future = null;
+            rows = response.getRows();
+            position = 0;
+            nextStartKey = response.getNextStartPrimaryKey();
+        }
+
+        /**
+         * Move head to the next fetched entry, return false if all the fetched entries are consumed.
+         */
+        boolean advance() {
+            if (position < rows.size()) {
+                head = Utils.rowToTimelineEntry(schema, rows.get(position++));
+                return true;
+            }
+            head = null;
+            return false;
+        }
+    }
+}
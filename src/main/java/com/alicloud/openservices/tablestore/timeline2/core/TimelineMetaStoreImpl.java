@@ -1,6 +1,6 @@
 package com.alicloud.openservices.tablestore.timeline2.core;
 
-import com.alicloud.openservices.tablestore.SyncClient;
+import com.alicloud.openservices.tablestore.SyncClientInterface;
 import com.alicloud.openservices.tablestore.model.*;
 import com.alicloud.openservices.tablestore.model.search.*;
 import com.alicloud.openservices.tablestore.timeline2.TimelineMetaStore;
@@ -9,18 +9,40 @@ import com.alicloud.openservices.tablestore.timeline2.model.TimelineMeta;
 import com.alicloud.openservices.tablestore.timeline2.model.TimelineMetaSchema;
 import com.alicloud.openservices.tablestore.timeline2.query.SearchParameter;
 import com.alicloud.openservices.tablestore.timeline2.query.SearchResult;
+import com.alicloud.openservices.tablestore.timeline2.utils.Preconditions;
 import com.alicloud.openservices.tablestore.timeline2.utils.Utils;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
 import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
 
 public class TimelineMetaStoreImpl implements TimelineMetaStore {
 
-    private final SyncClient client;
+    private final SyncClientInterface client;
     private final TimelineMetaSchema schema;
-
-    public TimelineMetaStoreImpl(SyncClient client, TimelineMetaSchema schema) {
+    private final ScheduledExecutorService timer;
+
+    public TimelineMetaStoreImpl(SyncClientInterface client, TimelineMetaSchema schema) {
+        if (schema.hasRateLimiter()) {
+            // the timer of async requests delayed by rate limiter, such as of batchRead
+            this.timer = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+                private final AtomicInteger counter = new AtomicInteger(1);
+                @Override
+                public Thread newThread(Runnable r) {
+                    Thread thread = new Thread(r, "timeline-meta-timer-" + counter.getAndIncrement());
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+            client = RateLimitClientHandler.wrap(client, schema.getRateLimiter(), timer);
+        } else {
+            this.timer = null;
+        }
         this.client = client;
         this.schema = schema;
     }
@@ -42,17 +64,38 @@ public class TimelineMetaStoreImpl implements TimelineMetaStore {
         return Utils.rowToMeta(schema.getIdentifierSchema(), response.getRow());
     }
 
+    @Override
+    public List<TimelineMeta> batchRead(Collection<TimelineIdentifier> identifiers) {
+        Preconditions.checkNotNull(identifiers, "Identifiers should not be null.");
+
+        List<PrimaryKey> primaryKeys = new ArrayList<PrimaryKey>(identifiers.size());
+        for (TimelineIdentifier identifier : identifiers) {
+            Preconditions.checkNotNull(identifier, "Identifier should not be null.");
+            primaryKeys.add(Utils.identifierToPrimaryKey(identifier));
+        }
+
+        Row[] rows = new BatchGetRowExecutor(client.asAsyncClient()).batchGet(schema.getTableName(), primaryKeys);
+
+        List<TimelineMeta> metas = new ArrayList<TimelineMeta>(rows.length);
+        for (Row row : rows) {
+            metas.add(Utils.rowToMeta(schema.getIdentifierSchema(), row));
+        }
+        return metas;
+    }
+
     @Override
     public SearchResult<TimelineMeta> search(SearchParameter searchParameter) {
-        return search(Utils.toSearchQuery(searchParameter));
+        return doSearch(Utils.toSearchQuery(searchParameter), searchParameter.getColumnsToGet());
     }
 
     @Override
     public SearchResult<TimelineMeta> search(SearchQuery searchQuery) {
+        return doSearch(searchQuery, null);
+    }
+
+    private SearchResult<TimelineMeta> doSearch(SearchQuery searchQuery, List<String> columns) {
         SearchRequest request = new SearchRequest(schema.getTableName(), schema.getIndexName(), searchQuery);
-        SearchRequest.ColumnsToGet columnsToGet = new SearchRequest.ColumnsToGet();
-        columnsToGet.setReturnAll(true);
-        request.setColumnsToGet(columnsToGet);
+        request.setColumnsToGet(Utils.toSearchColumnsToGet(columns));
         SearchResponse response;
 
         try {
@@ -185,6 +228,9 @@ public class TimelineMetaStoreImpl implements TimelineMetaStore {
 
     @Override
     public void close() {
-        // do nothing, SyncClient should be shutdown outside;
+        // SyncClient should be shutdown outside
+        if (timer != null) {
+            timer.shutdown();
+        }
     }
 }
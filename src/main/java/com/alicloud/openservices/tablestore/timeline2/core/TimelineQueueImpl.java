@@ -2,17 +2,20 @@ package com.alicloud.openservices.tablestore.timeline2.core;
 
 import com.alicloud.openservices.tablestore.*;
 import com.alicloud.openservices.tablestore.model.*;
+import com.alicloud.openservices.tablestore.timeline2.ScanCallback;
 import com.alicloud.openservices.tablestore.timeline2.TimelineQueue;
 import com.alicloud.openservices.tablestore.timeline2.TimelineCallback;
-import com.alicloud.openservices.tablestore.timeline2.TimelineException;
+import com.alicloud.openservices.tablestore.timeline2.TimelineRejectedException;
 import com.alicloud.openservices.tablestore.timeline2.model.*;
 import com.alicloud.openservices.tablestore.timeline2.model.RowPutChangeWithCallback;
 import com.alicloud.openservices.tablestore.timeline2.query.ScanParameter;
+import com.alicloud.openservices.tablestore.timeline2.query.ScanResult;
 import com.alicloud.openservices.tablestore.timeline2.utils.Preconditions;
 import com.alicloud.openservices.tablestore.timeline2.utils.Utils;
 
+import java.util.Collection;
 import java.util.Iterator;
-import java.util.concurrent.*;
+import java.util.concurrent.TimeUnit;
 
 public class TimelineQueueImpl implements TimelineQueue {
     private SyncClientInterface client;
@@ -20,13 +23,29 @@ public class TimelineQueueImpl implements TimelineQueue {
     private TimelineSchema schema;
     private TimelineIdentifier identifier;
     private TableStoreWriter writer;
+    private SequenceIdCache sequenceIdCache;
+    private WriterMetrics writerMetrics;
+    private WriteCoalescer writeCoalescer;
+    private WriteCoalescer orderedWriter;
+    private InFlightLimiter inFlightLimiter;
 
     public TimelineQueueImpl(SyncClientInterface client, TableStoreWriter writer, TimelineSchema schema, TimelineIdentifier identifier) {
+        this(client, writer, schema, identifier, null, null, null, null, null);
+    }
+
+    TimelineQueueImpl(SyncClientInterface client, TableStoreWriter writer, TimelineSchema schema, TimelineIdentifier identifier,
+                      SequenceIdCache sequenceIdCache, WriterMetrics writerMetrics,
+                      WriteCoalescer writeCoalescer, WriteCoalescer orderedWriter, InFlightLimiter inFlightLimiter) {
         this.client = client;
         this.writer = writer;
         this.asyncClient = client.asAsyncClient();
         this.schema = schema;
         this.identifier = identifier;
+        this.sequenceIdCache = sequenceIdCache;
+        this.writerMetrics = writerMetrics;
+        this.writeCoalescer = writeCoalescer;
+        this.orderedWriter = orderedWriter;
+        this.inFlightLimiter = inFlightLimiter;
     }
 
     @Override
@@ -34,8 +53,20 @@ public class TimelineQueueImpl implements TimelineQueue {
         return identifier;
     }
 
+    @Override
+    public long nextSequenceId() {
+        Preconditions.checkArgument(schema.hasSequenceIdGenerator(),
+                "The sequence id generator of this timeline is not set.");
+
+        return schema.getSequenceIdGenerator().next(identifier);
+    }
+
     @Override
     public TimelineEntry store(TimelineMessage message) {
+        if (schema.hasSequenceIdGenerator()) {
+            return store(nextSequenceId(), message);
+        }
+
         Preconditions.checkArgument(schema.isAutoGenerateSeqId(),
                 "The sequence id of this timeline is not auto generated.");
 
@@ -63,6 +94,9 @@ public class TimelineQueueImpl implements TimelineQueue {
             throw Utils.convertException(e);
         }
 
+        if (sequenceIdCache != null) {
+            sequenceIdCache.onStored(identifier, sequenceId);
+        }
         return new TimelineEntry(sequenceId, message);
     }
 
@@ -88,11 +122,18 @@ public class TimelineQueueImpl implements TimelineQueue {
             throw Utils.convertException(e);
         }
 
+        if (sequenceIdCache != null) {
+            sequenceIdCache.onStored(identifier, sequenceId);
+        }
         return new TimelineEntry(sequenceId, message);
     }
 
     @Override
-    public Future<TimelineEntry> storeAsync(TimelineMessage message, TimelineCallback callback) {
+    public TimelineFuture<TimelineEntry> storeAsync(TimelineMessage message, TimelineCallback callback) {
+        if (schema.hasSequenceIdGenerator()) {
+            return storeAsync(nextSequenceId(), message, callback);
+        }
+
         Preconditions.checkArgument(schema.isAutoGenerateSeqId(),
                 "The sequence id of this timeline is not auto generated.");
 
@@ -113,7 +154,7 @@ public class TimelineQueueImpl implements TimelineQueue {
 
 
     @Override
-    public Future<TimelineEntry> storeAsync(long sequenceId, TimelineMessage message, TimelineCallback callback) {
+    public TimelineFuture<TimelineEntry> storeAsync(long sequenceId, TimelineMessage message, TimelineCallback callback) {
         Preconditions.checkArgument(!schema.isAutoGenerateSeqId(),
                 "The sequence id of this timeline is not allowed to set manually.");
 
@@ -132,34 +173,70 @@ public class TimelineQueueImpl implements TimelineQueue {
     }
 
     @Override
-    public Future<TimelineEntry> batchStore(TimelineMessage message) {
+    public TimelineFuture<TimelineEntry> batchStore(TimelineMessage message) {
         return batchStore(message, null);
     }
 
     @Override
-    public Future<TimelineEntry> batchStore(long sequenceId, TimelineMessage message) {
+    public TimelineFuture<TimelineEntry> batchStore(long sequenceId, TimelineMessage message) {
         return batchStore(sequenceId, message, null);
     }
 
 
     @Override
-    public Future<TimelineEntry> batchStore(TimelineMessage message, TimelineCallback callback) {
+    public TimelineFuture<TimelineEntry> batchStore(TimelineMessage message, TimelineCallback callback) {
+        return doBatchStore(message, callback, InFlightLimiter.WAIT_FOREVER);
+    }
+
+    @Override
+    public TimelineFuture<TimelineEntry> batchStore(long sequenceId, TimelineMessage message, TimelineCallback callback) {
+        return doBatchStore(sequenceId, message, callback, InFlightLimiter.WAIT_FOREVER);
+    }
+
+    @Override
+    public TimelineFuture<TimelineEntry> batchStore(TimelineMessage message, TimelineCallback callback, long timeout, TimeUnit unit) {
+        Preconditions.checkNotNull(unit, "TimeUnit should not be null.");
+        return doBatchStore(message, callback, Math.max(unit.toNanos(timeout), 0));
+    }
+
+    @Override
+    public TimelineFuture<TimelineEntry> batchStore(long sequenceId, TimelineMessage message, TimelineCallback callback,
+                                                    long timeout, TimeUnit unit) {
+        Preconditions.checkNotNull(unit, "TimeUnit should not be null.");
+        return doBatchStore(sequenceId, message, callback, Math.max(unit.toNanos(timeout), 0));
+    }
+
+    @Override
+    public TimelineFuture<TimelineEntry> tryBatchStore(TimelineMessage message, TimelineCallback callback) {
+        return doBatchStore(message, callback, 0);
+    }
+
+    @Override
+    public TimelineFuture<TimelineEntry> tryBatchStore(long sequenceId, TimelineMessage message, TimelineCallback callback) {
+        return doBatchStore(sequenceId, message, callback, 0);
+    }
+
+    private TimelineFuture<TimelineEntry> doBatchStore(TimelineMessage message, TimelineCallback callback, long timeoutNanos) {
+        if (schema.hasSequenceIdGenerator()) {
+            return doBatchStore(nextSequenceId(), message, callback, timeoutNanos);
+        }
+
         Preconditions.checkArgument(schema.isAutoGenerateSeqId(),
                 "The sequence id of this timeline is not auto generated.");
         PrimaryKey primaryKey = Utils.identifierToPrimaryKeyWithSequenceId(identifier, schema.getSequenceIdColumnName(),
                 -1, schema.isAutoGenerateSeqId());
 
-        return doBatchWriteAsync(primaryKey, message, callback);
+        return doBatchWriteAsync(-1, primaryKey, message, callback, timeoutNanos);
     }
 
-    @Override
-    public Future<TimelineEntry> batchStore(long sequenceId, TimelineMessage message, TimelineCallback callback) {
+    private TimelineFuture<TimelineEntry> doBatchStore(long sequenceId, TimelineMessage message, TimelineCallback callback,
+                                                       long timeoutNanos) {
         Preconditions.checkArgument(!schema.isAutoGenerateSeqId(),
                 "The sequence id of this timeline is not allowed to set manually.");
         PrimaryKey primaryKey = Utils.identifierToPrimaryKeyWithSequenceId(identifier, schema.getSequenceIdColumnName(),
                 sequenceId, schema.isAutoGenerateSeqId());
 
-        return doBatchWriteAsync(primaryKey, message, callback);
+        return doBatchWriteAsync(sequenceId, primaryKey, message, callback, timeoutNanos);
     }
 
     @Override
@@ -185,7 +262,7 @@ public class TimelineQueueImpl implements TimelineQueue {
     }
 
     @Override
-    public Future<TimelineEntry> updateAsync(long sequenceId, TimelineMessage message, TimelineCallback callback) {
+    public TimelineFuture<TimelineEntry> updateAsync(long sequenceId, TimelineMessage message, TimelineCallback callback) {
         PrimaryKey primaryKey = Utils.identifierToPrimaryKeyWithSequenceId(identifier, this.schema.getSequenceIdColumnName(),
                 sequenceId, false);
         RowUpdateChange rowChange = new RowUpdateChange(schema.getTableName(), primaryKey);
@@ -203,15 +280,27 @@ public class TimelineQueueImpl implements TimelineQueue {
 
     @Override
     public TimelineEntry get(long sequenceId) {
-        PrimaryKey primaryKey = Utils.identifierToPrimaryKeyWithSequenceId(identifier, schema.getSequenceIdColumnName(),
-                sequenceId, false);
+        return doGet(createGetRowRequest(sequenceId, null));
+    }
 
-        GetRowRequest request = new GetRowRequest();
-        SingleRowQueryCriteria singleRowQueryCriteria =new SingleRowQueryCriteria(schema.getTableName(), primaryKey);
-        singleRowQueryCriteria.setMaxVersions(1);
+    @Override
+    public TimelineEntry get(long sequenceId, Collection<String> columns) {
+        Preconditions.checkArgument(columns != null && !columns.isEmpty(), "Columns to get should not be null or empty.");
+        return doGet(createGetRowRequest(sequenceId, columns));
+    }
 
-        request.setRowQueryCriteria(singleRowQueryCriteria);
+    @Override
+    public TimelineFuture<TimelineEntry> getAsync(long sequenceId) {
+        return doGetAsync(createGetRowRequest(sequenceId, null));
+    }
+
+    @Override
+    public TimelineFuture<TimelineEntry> getAsync(long sequenceId, Collection<String> columns) {
+        Preconditions.checkArgument(columns != null && !columns.isEmpty(), "Columns to get should not be null or empty.");
+        return doGetAsync(createGetRowRequest(sequenceId, columns));
+    }
 
+    private TimelineEntry doGet(GetRowRequest request) {
         GetRowResponse response;
         try {
             response = client.getRow(request);
@@ -224,22 +313,43 @@ public class TimelineQueueImpl implements TimelineQueue {
 
     @Override
     public void delete(long sequenceId) {
-        PrimaryKey primaryKey = Utils.identifierToPrimaryKeyWithSequenceId(identifier, schema.getSequenceIdColumnName(),
-                sequenceId, false);
-        RowDeleteChange rowChange = new RowDeleteChange(schema.getTableName(), primaryKey);
-
-        DeleteRowRequest request = new DeleteRowRequest();
-        request.setRowChange(rowChange);
-
         try {
-            client.deleteRow(request);
+            client.deleteRow(createDeleteRowRequest(sequenceId));
         } catch (Exception e) {
             throw Utils.convertException(e);
         }
+
+        if (sequenceIdCache != null) {
+            sequenceIdCache.invalidate(identifier);
+        }
+    }
+
+    @Override
+    public TimelineFuture<Void> deleteAsync(long sequenceId) {
+        final TimelineFuture<Void> future = new TimelineFuture<Void>();
+        asyncClient.deleteRow(createDeleteRowRequest(sequenceId), new TableStoreCallback<DeleteRowRequest, DeleteRowResponse>() {
+            @Override
+            public void onCompleted(DeleteRowRequest request, DeleteRowResponse response) {
+                if (sequenceIdCache != null) {
+                    sequenceIdCache.invalidate(identifier);
+                }
+                future.complete(null);
+            }
+
+            @Override
+            public void onFailed(DeleteRowRequest request, Exception e) {
+                future.completeExceptionally(e);
+            }
+        });
+        return future;
     }
 
     @Override
     public Iterator<TimelineEntry> scan(ScanParameter parameter) {
+        if (parameter.getPrefetchDepth() > 0) {
+            return new PrefetchTimelineEntryIterator(asyncClient, schema, identifier, parameter);
+        }
+
         RangeIteratorParameter param = new RangeIteratorParameter(schema.getTableName());
         param.setMaxVersions(1);
         param.setMaxCount(parameter.getMaxCount());
@@ -247,6 +357,9 @@ public class TimelineQueueImpl implements TimelineQueue {
         if (parameter.getFilter() != null) {
             param.setFilter(parameter.getFilter());
         }
+        if (parameter.getColumnsToGet() != null) {
+            param.addColumnsToGet(Utils.toColumnsToGet(schema, parameter.getColumnsToGet()));
+        }
 
         PrimaryKey startKey = Utils.identifierToPrimaryKeyWithSequenceId(identifier, schema.getSequenceIdColumnName(), parameter.getFrom(), false);
         PrimaryKey endKey = Utils.identifierToPrimaryKeyWithSequenceId(identifier, schema.getSequenceIdColumnName(), parameter.getTo(), false);
@@ -264,8 +377,26 @@ public class TimelineQueueImpl implements TimelineQueue {
         return timelineEntryIterator;
     }
 
+    @Override
+    public TimelineFuture<ScanResult> scanAsync(ScanParameter parameter) {
+        return AsyncTimelineScanner.scan(asyncClient, schema, identifier, parameter, null);
+    }
+
+    @Override
+    public TimelineFuture<ScanResult> scanAsync(ScanParameter parameter, ScanCallback callback) {
+        Preconditions.checkNotNull(callback, "Scan callback should not be null.");
+        return AsyncTimelineScanner.scan(asyncClient, schema, identifier, parameter, callback);
+    }
+
     @Override
     public long getLatestSequenceId() {
+        if (sequenceIdCache != null) {
+            Long sequenceId = sequenceIdCache.get(identifier);
+            if (sequenceId != null) {
+                return sequenceId;
+            }
+        }
+
         TimelineEntry timelineEntry = getLatestTimelineEntry();
         if (timelineEntry != null) {
             return timelineEntry.getSequenceID();
@@ -274,27 +405,70 @@ public class TimelineQueueImpl implements TimelineQueue {
         return 0;
     }
 
+    @Override
+    public TimelineFuture<Long> getLatestSequenceIdAsync() {
+        if (sequenceIdCache != null) {
+            Long sequenceId = sequenceIdCache.get(identifier);
+            if (sequenceId != null) {
+                return TimelineFuture.completedFuture(sequenceId);
+            }
+        }
+
+        return getLatestTimelineEntryAsync().thenApply(new TimelineFuture.Function<TimelineEntry, Long>() {
+            @Override
+            public Long apply(TimelineEntry timelineEntry) {
+                return timelineEntry != null ? timelineEntry.getSequenceID() : 0L;
+            }
+        });
+    }
+
     @Override
     public TimelineEntry getLatestTimelineEntry() {
+        long generation = sequenceIdCache != null ? sequenceIdCache.beforeLoad(identifier) : 0;
         Iterator<TimelineEntry> iterator = scan(new ScanParameter()
             .scanBackward(Long.MAX_VALUE, 0)
             .maxCount(1));
 
-        if (iterator.hasNext()) {
-            return iterator.next();
+        TimelineEntry timelineEntry = iterator.hasNext() ? iterator.next() : null;
+        if (sequenceIdCache != null) {
+            sequenceIdCache.onLoaded(identifier, generation, timelineEntry != null ? timelineEntry.getSequenceID() : 0);
         }
 
-        return null;
+        return timelineEntry;
+    }
+
+    @Override
+    public TimelineFuture<TimelineEntry> getLatestTimelineEntryAsync() {
+        final long generation = sequenceIdCache != null ? sequenceIdCache.beforeLoad(identifier) : 0;
+        return scanAsync(new ScanParameter()
+            .scanBackward(Long.MAX_VALUE, 0)
+            .maxCount(1))
+            .thenApply(new TimelineFuture.Function<ScanResult, TimelineEntry>() {
+                @Override
+                public TimelineEntry apply(ScanResult page) {
+                    TimelineEntry timelineEntry = page.getEntries().isEmpty() ? null : page.getEntries().get(0);
+                    if (sequenceIdCache != null) {
+                        sequenceIdCache.onLoaded(identifier, generation,
+                                timelineEntry != null ? timelineEntry.getSequenceID() : 0);
+                    }
+                    return timelineEntry;
+                }
+            });
     }
 
 
-    private Future<TimelineEntry> doStoreAsync(final long sequenceId, final TimelineMessage message, final PutRowRequest request, final TimelineCallback callback)
+    private TimelineFuture<TimelineEntry> doStoreAsync(final long sequenceId, final TimelineMessage message, final PutRowRequest request, final TimelineCallback callback)
     {
-        TableStoreCallback<PutRowRequest, PutRowResponse> tableStoreCallback = null;
-        if (callback != null) {
-            tableStoreCallback = new TableStoreCallback<PutRowRequest, PutRowResponse>() {
-                @Override
-                public void onCompleted(PutRowRequest request, PutRowResponse response) {
+        if (writeCoalescer != null) {
+            return writeCoalescer.add(identifier, (RowPutChange) request.getRowChange(), sequenceId, message, callback);
+        }
+
+        final TimelineFuture<TimelineEntry> future = new TimelineFuture<TimelineEntry>();
+        asyncClient.putRow(request, new TableStoreCallback<PutRowRequest, PutRowResponse>() {
+            @Override
+            public void onCompleted(PutRowRequest request, PutRowResponse response) {
+                TimelineEntry timelineEntry;
+                try {
                     long finalSequenceId = sequenceId;
                     if (schema.isAutoGenerateSeqId()) {
                         finalSequenceId = response.getRow()
@@ -303,152 +477,179 @@ public class TimelineQueueImpl implements TimelineQueue {
                                 .getValue()
                                 .asLong();
                     }
-                    TimelineEntry timelineEntry = new TimelineEntry(finalSequenceId, message);
-                    callback.onCompleted(identifier, message, timelineEntry);
+                    timelineEntry = new TimelineEntry(finalSequenceId, message);
+                } catch (Exception e) {
+                    onFailed(request, e);
+                    return;
                 }
 
-                @Override
-                public void onFailed(PutRowRequest request, Exception e) {
-                    e = Utils.convertException(e);
-                    callback.onFailed(identifier, message, e);
+                if (sequenceIdCache != null) {
+                    sequenceIdCache.onStored(identifier, timelineEntry.getSequenceID());
                 }
-            };
-        }
-
-        final Future<PutRowResponse> future = asyncClient.putRow(request, tableStoreCallback);
-        return new Future<TimelineEntry>() {
-            @Override
-            public boolean cancel(boolean mayInterruptIfRunning) {
-                return future.cancel(mayInterruptIfRunning);
-            }
-
-            @Override
-            public boolean isCancelled() {
-                return future.isCancelled();
-            }
-
-            @Override
-            public boolean isDone() {
-                return future.isDone();
-            }
-
-            @Override
-            public TimelineEntry get() throws InterruptedException, ExecutionException {
-                PutRowResponse response;
                 try {
-                    response = future.get();
-                } catch (InterruptedException e) {
-                    throw e;
-                } catch (ExecutionException e) {
-                    throw e;
-                }  catch (Exception e) {
-                    throw Utils.convertException(e);
+                    if (callback != null) {
+                        callback.onCompleted(identifier, message, timelineEntry);
+                    }
+                } finally {
+                    future.complete(timelineEntry);
                 }
-                return Utils.rowToTimelineEntryWithMessage(schema, response.getRow(), message);
             }
 
             @Override
-            public TimelineEntry get(long timeout, TimeUnit unit) throws InterruptedException, ExecutionException, TimeoutException {
-                PutRowResponse response;
+            public void onFailed(PutRowRequest request, Exception e) {
                 try {
-                    response = future.get(timeout, unit);
-                } catch (TimeoutException e) {
-                    throw e;
-                } catch (InterruptedException e) {
-                    throw e;
-                } catch (ExecutionException e) {
-                    throw e;
-                }  catch (Exception e) {
-                    throw Utils.convertException(e);
+                    if (callback != null) {
+                        callback.onFailed(identifier, message, Utils.convertException(e));
+                    }
+                } finally {
+                    future.completeExceptionally(e);
                 }
-                return Utils.rowToTimelineEntryWithMessage(schema, response.getRow(), message);
             }
-        };
+        });
+        return future;
     }
 
-    private Future<TimelineEntry> doUpdateAsync(final Long sequenceId, final TimelineMessage message, final UpdateRowRequest request, final TimelineCallback callback)
+    private TimelineFuture<TimelineEntry> doUpdateAsync(final Long sequenceId, final TimelineMessage message, final UpdateRowRequest request, final TimelineCallback callback)
     {
-        TableStoreCallback<UpdateRowRequest, UpdateRowResponse> tableStoreCallback = null;
-        if (callback != null) {
-            tableStoreCallback = new TableStoreCallback<UpdateRowRequest, UpdateRowResponse> () {
-                @Override
-                public void onCompleted(UpdateRowRequest request, UpdateRowResponse response) {
-                    TimelineEntry timelineEntry = new TimelineEntry(sequenceId, message);
-                    callback.onCompleted(identifier, message, timelineEntry);
-                }
-
-                @Override
-                public void onFailed(UpdateRowRequest request, Exception e) {
-                    e = Utils.convertException(e);
-                    callback.onFailed(identifier, message, e);
-                }
-            };
-        }
-
-        final Future<UpdateRowResponse> future = asyncClient.updateRow(request, tableStoreCallback);
-        return new Future<TimelineEntry>() {
+        final TimelineFuture<TimelineEntry> future = new TimelineFuture<TimelineEntry>();
+        asyncClient.updateRow(request, new TableStoreCallback<UpdateRowRequest, UpdateRowResponse>() {
             @Override
-            public boolean cancel(boolean mayInterruptIfRunning) {
-                return future.cancel(mayInterruptIfRunning);
-            }
-
-            @Override
-            public boolean isCancelled() {
-                return future.isCancelled();
+            public void onCompleted(UpdateRowRequest request, UpdateRowResponse response) {
+                TimelineEntry timelineEntry = new TimelineEntry(sequenceId, message);
+                try {
+                    if (callback != null) {
+                        callback.onCompleted(identifier, message, timelineEntry);
+                    }
+                } finally {
+                    future.complete(timelineEntry);
+                }
             }
 
             @Override
-            public boolean isDone() {
-                return future.isDone();
+            public void onFailed(UpdateRowRequest request, Exception e) {
+                try {
+                    if (callback != null) {
+                        callback.onFailed(identifier, message, Utils.convertException(e));
+                    }
+                } finally {
+                    future.completeExceptionally(e);
+                }
             }
+        });
+        return future;
+    }
 
+    private TimelineFuture<TimelineEntry> doGetAsync(GetRowRequest request) {
+        final TimelineFuture<TimelineEntry> future = new TimelineFuture<TimelineEntry>();
+        asyncClient.getRow(request, new TableStoreCallback<GetRowRequest, GetRowResponse>() {
             @Override
-            public TimelineEntry get() throws InterruptedException, ExecutionException {
+            public void onCompleted(GetRowRequest request, GetRowResponse response) {
+                TimelineEntry timelineEntry;
                 try {
-                    future.get();
-                } catch (InterruptedException e) {
-                    throw e;
-                } catch (ExecutionException e) {
-                    throw e;
-                }  catch (Exception e) {
-                    throw Utils.convertException(e);
+                    timelineEntry = Utils.rowToTimelineEntry(schema, response.getRow());
+                } catch (Exception e) {
+                    future.completeExceptionally(e);
+                    return;
                 }
-                return new TimelineEntry(sequenceId, message);
+                future.complete(timelineEntry);
             }
 
             @Override
-            public TimelineEntry get(long timeout, TimeUnit unit) throws TimelineException, InterruptedException, ExecutionException, TimeoutException {
-                try {
-                    future.get(timeout, unit);
-                } catch (TimeoutException e) {
-                    throw e;
-                } catch (InterruptedException e) {
-                    throw e;
-                } catch (ExecutionException e) {
-                    throw e;
-                }  catch (Exception e) {
-                    throw Utils.convertException(e);
-                }
-                return new TimelineEntry(sequenceId, message);
+            public void onFailed(GetRowRequest request, Exception e) {
+                future.completeExceptionally(e);
             }
-        };
+        });
+        return future;
     }
 
-    private Future<TimelineEntry> doBatchWriteAsync(PrimaryKey primaryKey, TimelineMessage message, TimelineCallback callback) {
+    /**
+     * @return the future failed by TimelineRejectedException if the row is rejected by the in-flight limit after timeout.
+     */
+    private TimelineFuture<TimelineEntry> doBatchWriteAsync(long sequenceId, PrimaryKey primaryKey, TimelineMessage message,
+                                                            TimelineCallback callback, long timeoutNanos) {
         RowPutChangeWithCallback rowChange = Utils.messageToNewRowPutChange(schema.getTableName(), primaryKey,  message)
-                .withTimelineIdentifier(identifier);
+                .withTimelineIdentifier(identifier)
+                .withMessage(message);
+
+        if (inFlightLimiter == null) {
+            return addRowChange(sequenceId, rowChange, message, callback);
+        }
+
+        long size = rowChange.getDataSize();
+        if (!inFlightLimiter.acquire(size, timeoutNanos)) {
+            TimelineRejectedException ex = new TimelineRejectedException("The in-flight limit of store is reached.");
+            if (callback != null) {
+                callback.onFailed(identifier, message, ex);
+            }
+            return TimelineFuture.failedFuture(ex);
+        }
+
+        TimelineFuture<TimelineEntry> future;
+        try {
+            future = addRowChange(sequenceId, rowChange, message, callback);
+        } catch (RuntimeException e) {
+            inFlightLimiter.release(size);
+            throw e;
+        }
+        inFlightLimiter.releaseOnCompletion(future, size);
+        return future;
+    }
+
+    private TimelineFuture<TimelineEntry> addRowChange(long sequenceId, RowPutChangeWithCallback rowChange,
+                                                       TimelineMessage message, TimelineCallback callback) {
+        if (orderedWriter != null) {
+            return orderedWriter.add(identifier, rowChange, sequenceId, message, callback);
+        }
 
         if (callback != null) {
             rowChange.watchBy(callback);
         }
 
-        writer.addRowChange(rowChange);
+        if (writerMetrics != null) {
+            writerMetrics.addRowChange(writer, rowChange);
+        } else {
+            writer.addRowChange(rowChange);
+        }
 
         return rowChange.getFuture();
     }
 
+    private DeleteRowRequest createDeleteRowRequest(long sequenceId) {
+        PrimaryKey primaryKey = Utils.identifierToPrimaryKeyWithSequenceId(identifier, schema.getSequenceIdColumnName(),
+                sequenceId, false);
+        RowDeleteChange rowChange = new RowDeleteChange(schema.getTableName(), primaryKey);
+
+        DeleteRowRequest request = new DeleteRowRequest();
+        request.setRowChange(rowChange);
+        return request;
+    }
+
+    /**
+     * @param columns   The columns to get, null to get all columns.
+     */
+    private GetRowRequest createGetRowRequest(long sequenceId, Collection<String> columns) {
+        PrimaryKey primaryKey = Utils.identifierToPrimaryKeyWithSequenceId(identifier, schema.getSequenceIdColumnName(),
+                sequenceId, false);
+
+        GetRowRequest request = new GetRowRequest();
+        SingleRowQueryCriteria singleRowQueryCriteria =new SingleRowQueryCriteria(schema.getTableName(), primaryKey);
+        singleRowQueryCriteria.setMaxVersions(1);
+        if (columns != null) {
+            singleRowQueryCriteria.addColumnsToGet(Utils.toColumnsToGet(schema, columns));
+        }
+
+        request.setRowQueryCriteria(singleRowQueryCriteria);
+        return request;
+    }
+
     @Override
     public void flush() {
+        if (writeCoalescer != null) {
+            writeCoalescer.flush(identifier);
+        }
+        if (orderedWriter != null) {
+            orderedWriter.flush(identifier);
+        }
         if (writer != null) {
             writer.flush();
         }
@@ -1,6 +1,6 @@
 package com.alicloud.openservices.tablestore.timeline2.core;
 
-import com.alicloud.openservices.tablestore.SyncClient;
+import com.alicloud.openservices.tablestore.SyncClientInterface;
 import com.alicloud.openservices.tablestore.timeline2.TimelineMetaStore;
 import com.alicloud.openservices.tablestore.timeline2.TimelineStore;
 import com.alicloud.openservices.tablestore.timeline2.TimelineStoreFactory;
@@ -13,9 +13,9 @@ import com.alicloud.openservices.tablestore.timeline2.utils.Preconditions;
  * Timeline V2 based on TableStore with SearchIndex.
  */
 public class TimelineStoreFactoryImpl implements TimelineStoreFactory {
-    private SyncClient client;
+    private SyncClientInterface client;
 
-    public TimelineStoreFactoryImpl(SyncClient client) {
+    public TimelineStoreFactoryImpl(SyncClientInterface client) {
         Preconditions.checkNotNull(client, "SyncClient should not be null.");
 
         this.client = client;
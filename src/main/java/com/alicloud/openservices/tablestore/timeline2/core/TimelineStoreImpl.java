@@ -3,18 +3,26 @@ package com.alicloud.openservices.tablestore.timeline2.core;
 import com.alicloud.openservices.tablestore.*;
 import com.alicloud.openservices.tablestore.model.*;
 import com.alicloud.openservices.tablestore.model.search.*;
+import com.alicloud.openservices.tablestore.timeline2.TimelineCallback;
 import com.alicloud.openservices.tablestore.timeline2.TimelineQueue;
 import com.alicloud.openservices.tablestore.timeline2.TimelineStore;
 import com.alicloud.openservices.tablestore.timeline2.model.*;
 import com.alicloud.openservices.tablestore.timeline2.model.RowPutChangeWithCallback;
+import com.alicloud.openservices.tablestore.timeline2.query.ScanParameter;
 import com.alicloud.openservices.tablestore.timeline2.query.SearchParameter;
 import com.alicloud.openservices.tablestore.timeline2.query.SearchResult;
 import com.alicloud.openservices.tablestore.timeline2.utils.Preconditions;
 import com.alicloud.openservices.tablestore.timeline2.utils.Utils;
 import com.alicloud.openservices.tablestore.writer.RowWriteResult;
+import com.alicloud.openservices.tablestore.writer.WriterConfig;
 
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.concurrent.*;
 import java.util.concurrent.atomic.AtomicInteger;
 
@@ -24,16 +32,29 @@ public class TimelineStoreImpl implements TimelineStore {
     private final SyncClientInterface client;
     private final AsyncClientInterface asyncClient;
     private final TimelineSchema schema;
+    private final SequenceIdCache sequenceIdCache;
+    private final WriterMetrics writerMetrics;
+    private final WriteCoalescer writeCoalescer;
+    private final WriteCoalescer orderedWriter;
+    private final InFlightLimiter inFlightLimiter;
+    private final ScheduledExecutorService timer;
+    private final ExecutorService flusher;
 
     private ExecutorService threadPool;
-    private TableStoreWriter writer;
+    private volatile TableStoreWriter writer;
     private TableStoreCallback<RowChange, ConsumedCapacity> callback = null;
     private TableStoreCallback<RowChange, RowWriteResult> resultCallback = new TableStoreCallback<RowChange, RowWriteResult>() {
         @Override
         public void onCompleted(RowChange req, RowWriteResult res) {
+            if (writerMetrics != null) {
+                writerMetrics.onRowFinished();
+            }
             if (req instanceof RowPutChangeWithCallback) {
                 RowPutChangeWithCallback rowPutChange = (RowPutChangeWithCallback) req;
-                TimelineEntry timelineEntry = Utils.rowToTimelineEntryWithColumnList(schema, res.getRow(), rowPutChange.getColumnsToPut());
+                TimelineEntry timelineEntry = Utils.rowToTimelineEntryWithMessage(schema, res.getRow(), rowPutChange.getMessage());
+                if (sequenceIdCache != null && rowPutChange.getTimelineIdentifier() != null) {
+                    sequenceIdCache.onStored(rowPutChange.getTimelineIdentifier(), timelineEntry.getSequenceID());
+                }
 
                 rowPutChange.setComplete(timelineEntry);
             }
@@ -41,6 +62,9 @@ public class TimelineStoreImpl implements TimelineStore {
 
         @Override
         public void onFailed(RowChange req, Exception ex) {
+            if (writerMetrics != null) {
+                writerMetrics.onRowFinished();
+            }
             if (req instanceof RowPutChangeWithCallback) {
                 RowPutChangeWithCallback rowPutChange = (RowPutChangeWithCallback) req;
 
@@ -50,16 +74,230 @@ public class TimelineStoreImpl implements TimelineStore {
     };
 
 
-    public TimelineStoreImpl(SyncClient client, final TimelineSchema schema) {
+    public TimelineStoreImpl(SyncClientInterface client, final TimelineSchema schema) {
+        if (schema.hasMetricsListener()) {
+            client = MetricsClientHandler.wrap(client, schema.getMetricsListener());
+            this.writerMetrics = new WriterMetrics(schema.getMetricsListener());
+        } else {
+            this.writerMetrics = null;
+        }
+        if (schema.hasRateLimiter() || schema.hasRetryPolicy()) {
+            // the timer of delayed requests by rate limiter, and retries of async requests
+            this.timer = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+                private final AtomicInteger counter = new AtomicInteger(1);
+                @Override
+                public Thread newThread(Runnable r) {
+                    Thread thread = new Thread(r, "timeline-timer-" + counter.getAndIncrement());
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+        } else {
+            this.timer = null;
+        }
+        if (schema.hasRateLimiter()) {
+            client = RateLimitClientHandler.wrap(client, schema.getRateLimiter(), timer);
+        }
+        if (schema.hasRetryPolicy()) {
+            client = RetryClientHandler.wrap(client, schema.getRetryPolicy(), timer);
+        }
         this.client = client;
         this.asyncClient = client.asAsyncClient();
         this.schema = schema;
+        if (schema.hasSequenceIdCache()) {
+            this.sequenceIdCache = new SequenceIdCache(schema.getSequenceIdCacheSize(),
+                    schema.getSequenceIdCacheTTLMillis(), schema.isAutoGenerateSeqId());
+        } else {
+            this.sequenceIdCache = null;
+        }
+        if (schema.hasWriteCoalescing()) {
+            this.writeCoalescer = new WriteCoalescer(asyncClient, schema, sequenceIdCache);
+        } else {
+            this.writeCoalescer = null;
+        }
+        if (schema.hasOrderedWriter()) {
+            this.orderedWriter = createOrderedWriter();
+        } else {
+            this.orderedWriter = null;
+        }
+        if (schema.hasInFlightLimit()) {
+            // at most one flush is running and one is pending, the flush triggered while one is pending is covered by it
+            this.flusher = new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS,
+                    new ArrayBlockingQueue<Runnable>(1), new ThreadFactory() {
+                        private final AtomicInteger counter = new AtomicInteger(1);
+                        @Override
+                        public Thread newThread(Runnable r) {
+                            Thread thread = new Thread(r, "timeline-flusher-" + counter.getAndIncrement());
+                            thread.setDaemon(true);
+                            return thread;
+                        }
+                    }, new ThreadPoolExecutor.DiscardPolicy());
+            this.inFlightLimiter = new InFlightLimiter(schema.getInFlightMaxRows(), schema.getInFlightMaxBytes(),
+                    schema.getMetricsListener(), new Runnable() {
+                        @Override
+                        public void run() {
+                            flusher.execute(new Runnable() {
+                                @Override
+                                public void run() {
+                                    flushWriters();
+                                }
+                            });
+                        }
+                    });
+        } else {
+            this.flusher = null;
+            this.inFlightLimiter = null;
+        }
     }
 
     @Override
     public TimelineQueue createTimelineQueue(TimelineIdentifier identifier) {
         Preconditions.checkNotNull(identifier, "Identifier should not be null.");
 
+        return new TimelineQueueImpl(client, getWriter(), schema, identifier, sequenceIdCache, writerMetrics,
+                writeCoalescer, orderedWriter, inFlightLimiter);
+    }
+
+    @Override
+    public CacheStatistics getSequenceIdCacheStatistics() {
+        return sequenceIdCache == null ? null : sequenceIdCache.getStatistics();
+    }
+
+    @Override
+    public TimelineFuture<FanOutResult> fanOut(TimelineMessage message, Collection<TimelineIdentifier> identifiers) {
+        Preconditions.checkArgument(schema.isAutoGenerateSeqId(),
+                "The sequence id of this timeline is not auto generated.");
+
+        return doFanOut(-1, message, identifiers);
+    }
+
+    @Override
+    public TimelineFuture<FanOutResult> fanOut(long sequenceId, TimelineMessage message, Collection<TimelineIdentifier> identifiers) {
+        Preconditions.checkArgument(!schema.isAutoGenerateSeqId(),
+                "The sequence id of this timeline is not allowed to set manually.");
+
+        return doFanOut(sequenceId, message, identifiers);
+    }
+
+    private TimelineFuture<FanOutResult> doFanOut(long sequenceId, final TimelineMessage message, Collection<TimelineIdentifier> identifiers) {
+        Preconditions.checkNotNull(message, "Message should not be null.");
+        Preconditions.checkNotNull(identifiers, "Identifiers should not be null.");
+
+        final TimelineIdentifier[] targets = identifiers.toArray(new TimelineIdentifier[identifiers.size()]);
+        // validate all the targets before any row is submitted, otherwise the future never completes
+        for (TimelineIdentifier target : targets) {
+            Preconditions.checkNotNull(target, "Identifier should not be null.");
+        }
+        final TimelineEntry[] entries = new TimelineEntry[targets.length];
+        final Exception[] exceptions = new Exception[targets.length];
+        final AtomicInteger remaining = new AtomicInteger(targets.length);
+        final TimelineCallbackImpledFuture<TimelineMessage, FanOutResult> future =
+                new TimelineCallbackImpledFuture<TimelineMessage, FanOutResult>();
+
+        if (targets.length == 0) {
+            future.onCompleted(message, new FanOutResult(targets, entries, exceptions));
+            return future;
+        }
+
+        // all the rows share the same columns, which are immutable
+        List<Column> columns = new ArrayList<Column>(message.getFields().values());
+        TableStoreWriter writer = orderedWriter == null ? getWriter() : null;
+
+        for (int i = 0; i < targets.length; i++) {
+            final int index = i;
+            PrimaryKey primaryKey = Utils.identifierToPrimaryKeyWithSequenceId(targets[i], schema.getSequenceIdColumnName(),
+                    sequenceId, schema.isAutoGenerateSeqId());
+            RowPutChangeWithCallback rowChange = new RowPutChangeWithCallback(schema.getTableName(), primaryKey)
+                    .withTimelineIdentifier(targets[i])
+                    .withMessage(message);
+            rowChange.addColumns(columns);
+            rowChange.setReturnType(ReturnType.RT_PK);
+
+            final long size = rowChange.getDataSize();
+            if (inFlightLimiter != null) {
+                try {
+                    inFlightLimiter.acquire(size, InFlightLimiter.WAIT_FOREVER);
+                } catch (RuntimeException e) {
+                    // interrupted, the rows submitted are still finished by writer, and the others fail
+                    for (int j = i; j < targets.length; j++) {
+                        exceptions[j] = e;
+                        if (remaining.decrementAndGet() == 0) {
+                            future.onCompleted(message, new FanOutResult(targets, entries, exceptions));
+                        }
+                    }
+                    break;
+                }
+            }
+
+            TimelineCallback callback = new TimelineCallback() {
+                @Override
+                public void onCompleted(TimelineIdentifier identifier, TimelineMessage msg, TimelineEntry timelineEntry) {
+                    entries[index] = timelineEntry;
+                    countDown();
+                }
+
+                @Override
+                public void onFailed(TimelineIdentifier identifier, TimelineMessage msg, Exception ex) {
+                    exceptions[index] = ex;
+                    countDown();
+                }
+
+                private void countDown() {
+                    if (inFlightLimiter != null) {
+                        inFlightLimiter.release(size);
+                    }
+                    if (remaining.decrementAndGet() == 0) {
+                        future.onCompleted(message, new FanOutResult(targets, entries, exceptions));
+                    }
+                }
+            };
+
+            if (orderedWriter != null) {
+                try {
+                    orderedWriter.add(targets[i], rowChange, sequenceId, message, callback);
+                } catch (Exception e) {
+                    callback.onFailed(targets[i], message, e);
+                }
+                continue;
+            }
+
+            rowChange.watchBy(callback);
+            try {
+                if (writerMetrics != null) {
+                    writerMetrics.addRowChange(writer, rowChange);
+                } else {
+                    writer.addRowChange(rowChange);
+                }
+            } catch (Exception e) {
+                rowChange.setFailed(e);
+            }
+        }
+
+        return future;
+    }
+
+    private WriteCoalescer createOrderedWriter() {
+        WriterConfig writerConfig = schema.getWriterConfig();
+        int maxRows = Math.min(Math.max(writerConfig.getMaxBatchRowsCount(), 1), 200);
+        long maxBytes = writerConfig.getMaxBatchSize() > 0 ? writerConfig.getMaxBatchSize() : 4 * 1024 * 1024;
+        long windowMillis = Math.max(writerConfig.getFlushInterval(), 0);
+
+        return new WriteCoalescer(asyncClient, schema, sequenceIdCache, windowMillis, maxRows, maxBytes,
+                schema.getOrderedWriterPartitions(), "timeline-ordered-writer-");
+    }
+
+    /**
+     * The callbacks of in-flight rows never overflow the queue of callback thread pool,
+     * so that they are not executed by the thread of writer.
+     */
+    private int callbackQueueSize() {
+        if (inFlightLimiter != null) {
+            return Math.max(1024, schema.getInFlightMaxRows());
+        }
+        return 1024;
+    }
+
+    private TableStoreWriter getWriter() {
         if (null == writer) {
             synchronized (this) {
                 if (null == writer) {
@@ -74,30 +312,90 @@ public class TimelineStoreImpl implements TimelineStore {
                     //common thread pool
                     threadPool = new ThreadPoolExecutor(schema.getCallbackExecuteThreads(), schema.getMaxCallbackExecuteThreads(),
                             0L, TimeUnit.MILLISECONDS,
-                            new LinkedBlockingQueue(1024), threadFactory, new ThreadPoolExecutor.CallerRunsPolicy());
-
-                    writer = new DefaultTableStoreWriter(asyncClient, schema.getTableName(), schema.getWriterConfig(), callback, threadPool);
-                    writer.setResultCallback(resultCallback);
+                            new LinkedBlockingQueue(callbackQueueSize()), threadFactory, new ThreadPoolExecutor.CallerRunsPolicy());
+                    if (writerMetrics != null) {
+                        writerMetrics.setCallbackPool((ThreadPoolExecutor) threadPool);
+                    }
+
+                    TableStoreWriter tableStoreWriter = new DefaultTableStoreWriter(asyncClient, schema.getTableName(),
+                            schema.getWriterConfig(), callback, threadPool);
+                    tableStoreWriter.setResultCallback(resultCallback);
+                    writer = tableStoreWriter;
                 }
             }
         }
 
-        return new TimelineQueueImpl(client, writer, schema, identifier);
+        return writer;
+    }
+
+    @Override
+    public Map<TimelineIdentifier, List<TimelineEntry>> batchGet(Map<TimelineIdentifier, ? extends Collection<Long>> sequenceIds) {
+        Preconditions.checkNotNull(sequenceIds, "SequenceIds should not be null.");
+
+        List<PrimaryKey> primaryKeys = new ArrayList<PrimaryKey>();
+        for (Map.Entry<TimelineIdentifier, ? extends Collection<Long>> entry : sequenceIds.entrySet()) {
+            Preconditions.checkNotNull(entry.getKey(), "Identifier should not be null.");
+            Preconditions.checkNotNull(entry.getValue(), "SequenceIds should not be null.");
+            for (Long sequenceId : entry.getValue()) {
+                primaryKeys.add(Utils.identifierToPrimaryKeyWithSequenceId(entry.getKey(), schema.getSequenceIdColumnName(),
+                        sequenceId, false));
+            }
+        }
+
+        Row[] rows = new BatchGetRowExecutor(asyncClient).batchGet(schema.getTableName(), primaryKeys);
+
+        Map<TimelineIdentifier, List<TimelineEntry>> result = new LinkedHashMap<TimelineIdentifier, List<TimelineEntry>>();
+        int index = 0;
+        for (Map.Entry<TimelineIdentifier, ? extends Collection<Long>> entry : sequenceIds.entrySet()) {
+            List<TimelineEntry> entries = new ArrayList<TimelineEntry>(entry.getValue().size());
+            for (int i = 0; i < entry.getValue().size(); i++) {
+                entries.add(Utils.rowToTimelineEntry(schema, rows[index++]));
+            }
+            result.put(entry.getKey(), entries);
+        }
+        return result;
+    }
+
+    @Override
+    public Iterator<SearchResult.Entry<TimelineEntry>> mergeScan(Collection<TimelineIdentifier> identifiers, ScanParameter parameter) {
+        Preconditions.checkNotNull(parameter, "ScanParameter should not be null.");
+
+        final boolean isForward = parameter.isForward();
+        return mergeScan(identifiers, parameter, new Comparator<TimelineEntry>() {
+            @Override
+            public int compare(TimelineEntry o1, TimelineEntry o2) {
+                long seq1 = isForward ? o1.getSequenceID() : o2.getSequenceID();
+                long seq2 = isForward ? o2.getSequenceID() : o1.getSequenceID();
+                return seq1 < seq2 ? -1 : (seq1 == seq2 ? 0 : 1);
+            }
+        });
+    }
+
+    @Override
+    public Iterator<SearchResult.Entry<TimelineEntry>> mergeScan(Collection<TimelineIdentifier> identifiers, ScanParameter parameter,
+                                                                 Comparator<TimelineEntry> comparator) {
+        Preconditions.checkNotNull(identifiers, "Identifiers should not be null.");
+        Preconditions.checkNotNull(parameter, "ScanParameter should not be null.");
+        Preconditions.checkNotNull(comparator, "Comparator should not be null.");
+
+        return new TimelineMergeIterator(asyncClient, schema, identifiers, parameter, comparator);
     }
 
     @Override
     public SearchResult<TimelineEntry> search(SearchParameter searchParameter) {
-        return search(Utils.toSearchQuery(searchParameter));
+        return doSearch(Utils.toSearchQuery(searchParameter), searchParameter.getColumnsToGet());
     }
 
     @Override
     public SearchResult<TimelineEntry> search(SearchQuery searchQuery) {
+        return doSearch(searchQuery, null);
+    }
+
+    private SearchResult<TimelineEntry> doSearch(SearchQuery searchQuery, List<String> columns) {
         Preconditions.checkArgument(schema.hasDataIndex(), "The store not support search cause not has data index");
 
         SearchRequest request = new SearchRequest(schema.getTableName(), schema.getIndexName(), searchQuery);
-        SearchRequest.ColumnsToGet columnsToGet = new SearchRequest.ColumnsToGet();
-        columnsToGet.setReturnAll(true);
-        request.setColumnsToGet(columnsToGet);
+        request.setColumnsToGet(Utils.toSearchColumnsToGet(columns));
 
         SearchResponse response;
         try {
@@ -183,8 +481,26 @@ public class TimelineStoreImpl implements TimelineStore {
         }
     }
 
+    /**
+     * Flush the writers limited by in-flight limit, the rows of write coalescing are not limited.
+     * It's triggered by in-flight limiter in the flusher thread, so that the writer blocked is bounded by its timeout.
+     */
+    private void flushWriters() {
+        if (orderedWriter != null) {
+            orderedWriter.flush();
+        } else if (writer != null) {
+            writer.flush();
+        }
+    }
+
     @Override
     public void flush() {
+        if (writeCoalescer != null) {
+            writeCoalescer.flush();
+        }
+        if (orderedWriter != null) {
+            orderedWriter.flush();
+        }
         if (writer != null) {
             writer.flush();
         }
@@ -192,10 +508,22 @@ public class TimelineStoreImpl implements TimelineStore {
 
     @Override
     public void close() {
+        if (writeCoalescer != null) {
+            writeCoalescer.close();
+        }
+        if (orderedWriter != null) {
+            orderedWriter.close();
+        }
         if (writer != null) {
             writer.close();
             threadPool.shutdown();
         }
+        if (timer != null) {
+            timer.shutdown();
+        }
+        if (flusher != null) {
+            flusher.shutdown();
+        }
 
     }
 }
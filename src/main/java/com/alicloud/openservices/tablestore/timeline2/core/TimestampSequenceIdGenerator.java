@@ -0,0 +1,32 @@
+package com.alicloud.openservices.tablestore.timeline2.core;
+
+import com.alicloud.openservices.tablestore.timeline2.SequenceIdGenerator;
+import com.alicloud.openservices.tablestore.timeline2.model.TimelineIdentifier;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Generate sequence id as 0(1bit) + timestamp(ms, 43bit) + counter(20bit) without lock.
+ * The ids are shared by all the timelines and only unique in current process,
+ * so that each timeline should be written by one process, otherwise use SegmentSequenceIdGenerator.
+ */
+public class TimestampSequenceIdGenerator implements SequenceIdGenerator {
+    private static final int COUNTER_BITS = 20;
+
+    private final AtomicLong lastId = new AtomicLong(0);
+
+    @Override
+    public long next(TimelineIdentifier identifier) {
+        while (true) {
+            long last = lastId.get();
+            long next = Math.max(currentTimeMillis() << COUNTER_BITS, last + 1);
+            if (lastId.compareAndSet(last, next)) {
+                return next;
+            }
+        }
+    }
+
+    protected long currentTimeMillis() {
+        return System.currentTimeMillis();
+    }
+}
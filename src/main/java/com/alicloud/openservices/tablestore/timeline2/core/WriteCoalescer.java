@@ -0,0 +1,496 @@
+package com.alicloud.openservices.tablestore.timeline2.core;
+
+import com.alicloud.openservices.tablestore.AsyncClientInterface;
+import com.alicloud.openservices.tablestore.TableStoreCallback;
+import com.alicloud.openservices.tablestore.TableStoreException;
+import com.alicloud.openservices.tablestore.model.*;
+import com.alicloud.openservices.tablestore.timeline2.RetryPolicy;
+import com.alicloud.openservices.tablestore.timeline2.TimelineCallback;
+import com.alicloud.openservices.tablestore.timeline2.TimelineException;
+import com.alicloud.openservices.tablestore.timeline2.model.TimelineEntry;
+import com.alicloud.openservices.tablestore.timeline2.model.TimelineFuture;
+import com.alicloud.openservices.tablestore.timeline2.model.TimelineIdentifier;
+import com.alicloud.openservices.tablestore.timeline2.model.TimelineMessage;
+import com.alicloud.openservices.tablestore.timeline2.model.TimelineSchema;
+import com.alicloud.openservices.tablestore.timeline2.utils.Utils;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Coalesce the async writes of the same lane into BatchWriteRow requests, the lane is either a timeline,
+ * or a partition of timelines by the hash of identifier.
+ * Rows are held for a micro window, or until max rows or bytes are buffered, and at most one batch of each lane
+ * is in flight, so that rows are written in the order they are added. The rows buffered while a batch is in flight
+ * are sent as soon as the batch is finished.
+ * <p>
+ * The rows failed by retryable errors, such as throttling of a row, are retried in order with backoff before the
+ * next batch of lane is sent, and the rows of batch are completed in order after the retries.
+ */
+class WriteCoalescer {
+    static final int MAX_ROW_RETRY_TIMES = 3;
+    private static final long ROW_RETRY_BACKOFF_MILLIS = 10;
+
+    private final AsyncClientInterface asyncClient;
+    private final TimelineSchema schema;
+    private final SequenceIdCache sequenceIdCache;
+    private final long windowMillis;
+    private final int maxRows;
+    private final long maxBytes;
+    private final int partitions;
+
+    private final ConcurrentHashMap<Object, Lane> lanes = new ConcurrentHashMap<Object, Lane>();
+    private final ScheduledExecutorService timer;
+
+    /**
+     * Coalesce the rows of each timeline.
+     */
+    WriteCoalescer(AsyncClientInterface asyncClient, TimelineSchema schema, SequenceIdCache sequenceIdCache) {
+        this(asyncClient, schema, sequenceIdCache, schema.getCoalescingWindowMillis(), schema.getCoalescingMaxRows(),
+                schema.getCoalescingMaxBytes(), 0, "timeline-coalescer-");
+    }
+
+    /**
+     * @param partitions    The count of partitions to coalesce rows by the hash of identifier, 0 means by each timeline.
+     */
+    WriteCoalescer(AsyncClientInterface asyncClient, TimelineSchema schema, SequenceIdCache sequenceIdCache,
+                   long windowMillis, int maxRows, long maxBytes, int partitions, final String threadNamePrefix) {
+        this.asyncClient = asyncClient;
+        this.schema = schema;
+        this.sequenceIdCache = sequenceIdCache;
+        this.windowMillis = windowMillis;
+        this.maxRows = maxRows;
+        this.maxBytes = maxBytes;
+        this.partitions = partitions;
+
+        this.timer = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+            private final AtomicInteger counter = new AtomicInteger(1);
+            @Override
+            public Thread newThread(Runnable r) {
+                Thread thread = new Thread(r, threadNamePrefix + counter.getAndIncrement());
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+    }
+
+    private Object laneKeyOf(TimelineIdentifier identifier) {
+        if (partitions > 0) {
+            return (identifier.hashCode() & Integer.MAX_VALUE) % partitions;
+        }
+        return identifier;
+    }
+
+    /**
+     * Add the row into the lane of its timeline.
+     *
+     * @param sequenceId    The sequence id set manually, or -1 if it's auto generated.
+     */
+    TimelineFuture<TimelineEntry> add(TimelineIdentifier identifier, RowPutChange rowChange, long sequenceId,
+                                      TimelineMessage message, TimelineCallback callback) {
+        PendingRow row = new PendingRow(identifier, rowChange, sequenceId, message, callback);
+        Object key = laneKeyOf(identifier);
+        while (true) {
+            Lane lane = lanes.get(key);
+            if (lane == null) {
+                lane = new Lane(key);
+                Lane old = lanes.putIfAbsent(key, lane);
+                if (old != null) {
+                    lane = old;
+                }
+            }
+            if (lane.add(row)) {
+                return row.future;
+            }
+        }
+    }
+
+    /**
+     * Send the buffered rows of timeline without waiting for window, and wait until they are finished.
+     */
+    void flush(TimelineIdentifier identifier) {
+        Lane lane = lanes.get(laneKeyOf(identifier));
+        if (lane != null) {
+            lane.flush();
+        }
+    }
+
+    /**
+     * Send all the buffered rows, and wait until they are finished.
+     */
+    void flush() {
+        for (Lane lane : lanes.values()) {
+            lane.flush();
+        }
+    }
+
+    /**
+     * Send all the buffered rows, and wait until they are finished.
+     */
+    void close() {
+        flush();
+        timer.shutdown();
+    }
+
+    private class Lane implements Runnable {
+        private final Object key;
+        private final LinkedList<PendingRow> buffer = new LinkedList<PendingRow>();
+        private long bufferedBytes = 0;
+        private boolean inFlight = false;
+        private boolean removed = false;
+        private ScheduledFuture<?> scheduled = null;
+        private PendingRow last = null;
+
+        Lane(Object key) {
+            this.key = key;
+        }
+
+        /**
+         * @return false if the lane has been removed, and the row should be added into a new lane.
+         */
+        boolean add(PendingRow row) {
+            List<PendingRow> batch = null;
+            synchronized (this) {
+                if (removed) {
+                    return false;
+                }
+
+                buffer.addLast(row);
+                bufferedBytes += row.size;
+                last = row;
+                if (!inFlight) {
+                    if (buffer.size() >= maxRows || bufferedBytes >= maxBytes) {
+                        batch = takeBatch();
+                    } else if (scheduled == null) {
+                        scheduled = timer.schedule(this, windowMillis, TimeUnit.MILLISECONDS);
+                    }
+                }
+            }
+
+            if (batch != null) {
+                send(batch);
+            }
+            return true;
+        }
+
+        /**
+         * The window is closed.
+         */
+        @Override
+        public void run() {
+            List<PendingRow> batch = null;
+            synchronized (this) {
+                scheduled = null;
+                if (!inFlight && !buffer.isEmpty()) {
+                    batch = takeBatch();
+                }
+            }
+
+            if (batch != null) {
+                send(batch);
+            }
+        }
+
+        void flush() {
+            PendingRow last;
+            List<PendingRow> batch = null;
+            synchronized (this) {
+                last = this.last;
+                if (last == null) {
+                    return;
+                }
+                if (!inFlight && !buffer.isEmpty()) {
+                    batch = takeBatch();
+                }
+            }
+
+            if (batch != null) {
+                send(batch);
+            }
+            try {
+                last.future.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (Exception e) {
+                // the failure is delivered by the future of row
+            }
+        }
+
+        /**
+         * The batch is finished, send the rows buffered meanwhile, or remove the lane if nothing is buffered.
+         */
+        void onBatchFinished() {
+            List<PendingRow> batch = null;
+            synchronized (this) {
+                inFlight = false;
+                if (!buffer.isEmpty()) {
+                    batch = takeBatch();
+                } else if (scheduled == null) {
+                    removed = true;
+                    lanes.remove(key, this);
+                }
+            }
+
+            if (batch != null) {
+                send(batch);
+            }
+        }
+
+        /**
+         * Should be invoked with lock held.
+         */
+        private List<PendingRow> takeBatch() {
+            if (scheduled != null) {
+                scheduled.cancel(false);
+                scheduled = null;
+            }
+
+            List<PendingRow> batch = new ArrayList<PendingRow>();
+            long bytes = 0;
+            while (!buffer.isEmpty() && batch.size() < maxRows
+                    && (batch.isEmpty() || bytes + buffer.getFirst().size <= maxBytes)) {
+                PendingRow row = buffer.removeFirst();
+                bytes += row.size;
+                batch.add(row);
+            }
+            bufferedBytes -= bytes;
+            inFlight = true;
+            return batch;
+        }
+
+        private void send(List<PendingRow> batch) {
+            sendAttempt(batch, batch, 0);
+        }
+
+        /**
+         * Send the rows of batch, which are not written yet.
+         *
+         * @param batch     All the rows of batch, which are completed in order after all the attempts.
+         * @param attempt   The rows to send in this attempt, in the order of batch.
+         * @param retries   The count of retries done.
+         */
+        private void sendAttempt(final List<PendingRow> batch, final List<PendingRow> attempt, final int retries) {
+            BatchWriteRowRequest request = new BatchWriteRowRequest();
+            for (PendingRow row : attempt) {
+                row.written = null;
+                row.error = null;
+                request.addRowChange(row.rowChange);
+            }
+
+            try {
+                asyncClient.batchWriteRow(request, new TableStoreCallback<BatchWriteRowRequest, BatchWriteRowResponse>() {
+                    @Override
+                    public void onCompleted(BatchWriteRowRequest request, BatchWriteRowResponse response) {
+                        try {
+                            for (BatchWriteRowResponse.RowResult result : response.getRowStatus(schema.getTableName())) {
+                                PendingRow row = attempt.get(result.getIndex());
+                                if (result.isSucceed()) {
+                                    row.written = result.getRow();
+                                } else {
+                                    com.alicloud.openservices.tablestore.model.Error error = result.getError();
+                                    row.error = new TableStoreException(error.getMessage(), null, error.getCode(),
+                                            response.getRequestId(), 0);
+                                }
+                            }
+                        } catch (RuntimeException e) {
+                            for (PendingRow row : attempt) {
+                                if (row.error == null) {
+                                    row.error = e;
+                                }
+                            }
+                        }
+                        onAttemptFinished(batch, attempt, retries);
+                    }
+
+                    @Override
+                    public void onFailed(BatchWriteRowRequest request, Exception ex) {
+                        for (PendingRow row : attempt) {
+                            row.error = ex;
+                        }
+                        onAttemptFinished(batch, attempt, retries);
+                    }
+                });
+            } catch (RuntimeException e) {
+                for (PendingRow row : attempt) {
+                    row.error = e;
+                }
+                onAttemptFinished(batch, attempt, retries);
+            }
+        }
+
+        /**
+         * Retry the failed rows in order before the lane is released, so that the rows buffered meanwhile are not
+         * written ahead of them. Once a row fails finally, the later rows of the same timeline in the batch and
+         * in the buffer are failed too, instead of being written after a gap that may be filled later.
+         */
+        private void onAttemptFinished(final List<PendingRow> batch, List<PendingRow> attempt, final int retries) {
+            final List<PendingRow> retryRows = new ArrayList<PendingRow>();
+            Map<TimelineIdentifier, Exception> failedTimelines = new HashMap<TimelineIdentifier, Exception>();
+            for (int i = 0; i < attempt.size(); i++) {
+                PendingRow row = attempt.get(i);
+                if (row.error == null && row.written == null) {
+                    row.error = new TimelineException("The result of row is missing in BatchWriteRow response.");
+                }
+                if (row.error == null) {
+                    continue;
+                }
+
+                Exception previous = failedTimelines.get(row.identifier);
+                if (previous != null) {
+                    row.error = previousRowFailed(previous);
+                } else if (retries < MAX_ROW_RETRY_TIMES && isRetryable(row.error) && !isWrittenLater(attempt, i)) {
+                    retryRows.add(row);
+                } else {
+                    failedTimelines.put(row.identifier, row.error);
+                }
+            }
+
+            if (!retryRows.isEmpty()) {
+                try {
+                    timer.schedule(new Runnable() {
+                        @Override
+                        public void run() {
+                            sendAttempt(batch, retryRows, retries + 1);
+                        }
+                    }, ROW_RETRY_BACKOFF_MILLIS << retries, TimeUnit.MILLISECONDS);
+                    return;
+                } catch (RuntimeException e) {
+                    // the coalescer is closed, the rows fail with their errors
+                    for (PendingRow row : retryRows) {
+                        if (!failedTimelines.containsKey(row.identifier)) {
+                            failedTimelines.put(row.identifier, row.error);
+                        }
+                    }
+                }
+            }
+
+            List<PendingRow> skipped = new ArrayList<PendingRow>();
+            if (!failedTimelines.isEmpty()) {
+                synchronized (this) {
+                    Iterator<PendingRow> iterator = buffer.iterator();
+                    while (iterator.hasNext()) {
+                        PendingRow row = iterator.next();
+                        Exception previous = failedTimelines.get(row.identifier);
+                        if (previous != null) {
+                            iterator.remove();
+                            bufferedBytes -= row.size;
+                            row.error = previousRowFailed(previous);
+                            skipped.add(row);
+                        }
+                    }
+                }
+            }
+
+            try {
+                for (PendingRow row : batch) {
+                    if (row.error == null) {
+                        row.onCompleted(row.written);
+                    } else {
+                        row.onFailed(row.error);
+                    }
+                }
+                for (PendingRow row : skipped) {
+                    row.onFailed(row.error);
+                }
+            } finally {
+                onBatchFinished();
+            }
+        }
+
+        /**
+         * Whether a later row of the same timeline has been written in the attempt. The failed row is not retried
+         * in this case if the sequence id is auto generated, since it would be ordered after the later row.
+         */
+        private boolean isWrittenLater(List<PendingRow> attempt, int index) {
+            if (!schema.isAutoGenerateSeqId()) {
+                return false;
+            }
+            TimelineIdentifier identifier = attempt.get(index).identifier;
+            for (int i = index + 1; i < attempt.size(); i++) {
+                PendingRow row = attempt.get(i);
+                if (row.error == null && row.identifier.equals(identifier)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+
+    private static boolean isRetryable(Exception e) {
+        return e instanceof TableStoreException && RetryPolicy.isRetryableErrorCode(((TableStoreException) e).getErrorCode());
+    }
+
+    private static TimelineException previousRowFailed(Exception cause) {
+        return new TimelineException("Previous row of the timeline failed.", cause);
+    }
+
+    private class PendingRow {
+        private final TimelineIdentifier identifier;
+        private final RowPutChange rowChange;
+        private final long sequenceId;
+        private final TimelineMessage message;
+        private final TimelineCallback callback;
+        private final long size;
+        private final TimelineFuture<TimelineEntry> future = new TimelineFuture<TimelineEntry>();
+        private Row written;
+        private Exception error;
+
+        PendingRow(TimelineIdentifier identifier, RowPutChange rowChange, long sequenceId,
+                   TimelineMessage message, TimelineCallback callback) {
+            this.identifier = identifier;
+            this.rowChange = rowChange;
+            this.sequenceId = sequenceId;
+            this.message = message;
+            this.callback = callback;
+            this.size = rowChange.getDataSize();
+        }
+
+        void onCompleted(Row row) {
+            TimelineEntry timelineEntry;
+            try {
+                long finalSequenceId = sequenceId;
+                if (schema.isAutoGenerateSeqId()) {
+                    finalSequenceId = row.getPrimaryKey()
+                            .getPrimaryKeyColumn(schema.getSequenceIdColumnName())
+                            .getValue()
+                            .asLong();
+                }
+                timelineEntry = new TimelineEntry(finalSequenceId, message);
+            } catch (Exception e) {
+                onFailed(e);
+                return;
+            }
+
+            if (sequenceIdCache != null) {
+                sequenceIdCache.onStored(identifier, timelineEntry.getSequenceID());
+            }
+            try {
+                if (callback != null) {
+                    callback.onCompleted(identifier, message, timelineEntry);
+                }
+                future.complete(timelineEntry);
+            } catch (RuntimeException e) {
+                // the exception of callback should not break other rows of batch
+                future.complete(timelineEntry);
+            }
+        }
+
+        void onFailed(Exception e) {
+            try {
+                if (callback != null) {
+                    callback.onFailed(identifier, message, Utils.convertException(e));
+                }
+                future.completeExceptionally(e);
+            } catch (RuntimeException ex) {
+                // the exception of callback should not break other rows of batch
+                future.completeExceptionally(e);
+            }
+        }
+    }
+}
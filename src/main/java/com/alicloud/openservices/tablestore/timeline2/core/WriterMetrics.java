@@ -0,0 +1,47 @@
+package com.alicloud.openservices.tablestore.timeline2.core;
+
+import com.alicloud.openservices.tablestore.TableStoreWriter;
+import com.alicloud.openservices.tablestore.model.RowChange;
+import com.alicloud.openservices.tablestore.timeline2.TimelineMetricsListener;
+
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Track the rows pending in writer of timeline store, and report them with the queue length of callback thread pool.
+ */
+class WriterMetrics {
+    private final TimelineMetricsListener listener;
+    private final AtomicInteger pendingRows = new AtomicInteger(0);
+    private volatile ThreadPoolExecutor callbackPool;
+
+    WriterMetrics(TimelineMetricsListener listener) {
+        this.listener = listener;
+    }
+
+    void setCallbackPool(ThreadPoolExecutor callbackPool) {
+        this.callbackPool = callbackPool;
+    }
+
+    /**
+     * Add row change into writer, the row is finished by onRowFinished in the result callback of writer.
+     */
+    void addRowChange(TableStoreWriter writer, RowChange rowChange) {
+        report(pendingRows.incrementAndGet());
+        try {
+            writer.addRowChange(rowChange);
+        } catch (RuntimeException e) {
+            onRowFinished();
+            throw e;
+        }
+    }
+
+    void onRowFinished() {
+        report(pendingRows.decrementAndGet());
+    }
+
+    private void report(int pending) {
+        ThreadPoolExecutor pool = callbackPool;
+        listener.onWriterState(pending, pool == null ? 0 : pool.getQueue().size());
+    }
+}
@@ -0,0 +1,55 @@
+package com.alicloud.openservices.tablestore.timeline2.memory;
+
+import com.alicloud.openservices.tablestore.TableStoreCallback;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+
+/**
+ * Dispatch the method of SyncClientInterface or AsyncClientInterface to MemoryTableStore by method name,
+ * so that the stand-in does not break with new methods of client interfaces.
+ */
+class MemoryClientHandler implements InvocationHandler {
+    private final MemoryTableStore store;
+    private final boolean async;
+
+    MemoryClientHandler(MemoryTableStore store, boolean async) {
+        this.store = store;
+        this.async = async;
+    }
+
+    @Override
+    public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+        String name = method.getName();
+
+        if (method.getDeclaringClass() == Object.class) {
+            if (name.equals("equals")) {
+                return proxy == args[0];
+            } else if (name.equals("hashCode")) {
+                return System.identityHashCode(proxy);
+            } else {
+                return "MemoryTableStore." + (async ? "AsyncClient" : "SyncClient");
+            }
+        }
+
+        if (name.equals("asSyncClient")) {
+            return store.asSyncClient();
+        } else if (name.equals("asAsyncClient")) {
+            return store.asAsyncClient();
+        } else if (name.equals("shutdown")) {
+            // do nothing, the clients share the MemoryTableStore, which should be shutdown outside;
+            return null;
+        }
+
+        int argCount = args == null ? 0 : args.length;
+        if (!MemoryTableStore.SUPPORTED_OPERATIONS.contains(name) || argCount != (async ? 2 : 1)) {
+            throw new UnsupportedOperationException("Method " + name + " is not supported by MemoryTableStore.");
+        }
+
+        if (async) {
+            return store.invokeAsync(name, args[0], (TableStoreCallback) args[1]);
+        } else {
+            return store.invokeSync(name, args[0]);
+        }
+    }
+}
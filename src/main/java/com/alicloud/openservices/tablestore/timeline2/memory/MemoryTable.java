@@ -0,0 +1,274 @@
+package com.alicloud.openservices.tablestore.timeline2.memory;
+
+import com.alicloud.openservices.tablestore.core.utils.Pair;
+import com.alicloud.openservices.tablestore.model.*;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The rows of one table sorted by primary key.
+ * Reads are lock free, while writes of the table are serialized to check the condition and generate auto-increment values.
+ */
+class MemoryTable {
+    static final int MAX_ROWS_PER_GET_RANGE = 5000;
+
+    private final TableMeta tableMeta;
+    private final TableOptions tableOptions;
+    private final ConcurrentSkipListMap<PrimaryKey, Row> rows = new ConcurrentSkipListMap<PrimaryKey, Row>();
+    private final AtomicLong autoIncrement = new AtomicLong(System.currentTimeMillis() * 1000);
+
+    MemoryTable(TableMeta tableMeta, TableOptions tableOptions) {
+        List<PrimaryKeySchema> schemas = tableMeta.getPrimaryKeyList();
+        if (schemas.isEmpty()) {
+            throw MemoryTableStore.newException(MemoryTableStore.ERROR_PARAMETER_INVALID, "The primary key should not be empty.");
+        }
+        if (isAutoIncrement(schemas.get(0))) {
+            throw MemoryTableStore.newException(MemoryTableStore.ERROR_PARAMETER_INVALID,
+                    "The first primary key should not be auto-increment.");
+        }
+
+        this.tableMeta = tableMeta;
+        this.tableOptions = tableOptions;
+    }
+
+    TableMeta getTableMeta() {
+        return tableMeta;
+    }
+
+    TableOptions getTableOptions() {
+        return tableOptions;
+    }
+
+    int size() {
+        return rows.size();
+    }
+
+    synchronized Row putRow(RowPutChange change) {
+        PrimaryKey primaryKey = fillAutoIncrement(change.getPrimaryKey());
+        checkCondition(change.getCondition(), rows.get(primaryKey), change.getPrimaryKey() != primaryKey);
+
+        long now = System.currentTimeMillis();
+        Map<String, Column> columns = new TreeMap<String, Column>();
+        for (Column column : change.getColumnsToPut()) {
+            columns.put(column.getName(), withTimestamp(column, now));
+        }
+        rows.put(primaryKey, new Row(primaryKey, new ArrayList<Column>(columns.values())));
+        return returnRow(change, primaryKey);
+    }
+
+    synchronized Row updateRow(RowUpdateChange change) {
+        PrimaryKey primaryKey = change.getPrimaryKey();
+        checkPrimaryKey(primaryKey);
+        Row current = rows.get(primaryKey);
+        checkCondition(change.getCondition(), current, false);
+
+        long now = System.currentTimeMillis();
+        Map<String, Column> columns = new TreeMap<String, Column>();
+        if (current != null) {
+            for (Column column : current.getColumns()) {
+                columns.put(column.getName(), column);
+            }
+        }
+        for (Pair<Column, RowUpdateChange.Type> pair : change.getColumnsToUpdate()) {
+            Column column = pair.getFirst();
+            switch (pair.getSecond()) {
+                case PUT:
+                    columns.put(column.getName(), withTimestamp(column, now));
+                    break;
+                case DELETE:
+                    Column existed = columns.get(column.getName());
+                    if (existed != null && existed.getTimestamp() == column.getTimestamp()) {
+                        columns.remove(column.getName());
+                    }
+                    break;
+                case DELETE_ALL:
+                    columns.remove(column.getName());
+                    break;
+                default:
+                    throw MemoryTableStore.newException(MemoryTableStore.ERROR_PARAMETER_INVALID,
+                            "Update type " + pair.getSecond() + " is not supported.");
+            }
+        }
+
+        // the row without any attribute column is not exist
+        if (columns.isEmpty()) {
+            rows.remove(primaryKey);
+        } else {
+            rows.put(primaryKey, new Row(primaryKey, new ArrayList<Column>(columns.values())));
+        }
+        return returnRow(change, primaryKey);
+    }
+
+    synchronized Row deleteRow(RowDeleteChange change) {
+        PrimaryKey primaryKey = change.getPrimaryKey();
+        checkPrimaryKey(primaryKey);
+        checkCondition(change.getCondition(), rows.get(primaryKey), false);
+
+        rows.remove(primaryKey);
+        return returnRow(change, primaryKey);
+    }
+
+    Row getRow(PrimaryKey primaryKey, RowQueryCriteria criteria) {
+        checkPrimaryKey(primaryKey);
+        return RowMatcher.select(rows.get(primaryKey), criteria);
+    }
+
+    RangeResult getRange(RangeRowQueryCriteria criteria) {
+        PrimaryKey start = criteria.getInclusiveStartPrimaryKey();
+        PrimaryKey end = criteria.getExclusiveEndPrimaryKey();
+        checkRangePrimaryKey(start);
+        checkRangePrimaryKey(end);
+
+        NavigableMap<PrimaryKey, Row> range;
+        if (criteria.getDirection() == Direction.BACKWARD) {
+            ConcurrentNavigableMap<PrimaryKey, Row> descending = rows.descendingMap();
+            range = start.compareTo(end) > 0 ? descending.subMap(start, true, end, false) : new TreeMap<PrimaryKey, Row>();
+        } else {
+            range = start.compareTo(end) < 0 ? rows.subMap(start, true, end, false) : new TreeMap<PrimaryKey, Row>();
+        }
+
+        int limit = criteria.getLimit() > 0 ? Math.min(criteria.getLimit(), MAX_ROWS_PER_GET_RANGE) : MAX_ROWS_PER_GET_RANGE;
+        List<Row> result = new ArrayList<Row>();
+        PrimaryKey nextStartPrimaryKey = null;
+        int scanned = 0;
+        Iterator<Row> iterator = range.values().iterator();
+        while (iterator.hasNext()) {
+            Row row = iterator.next();
+            if (result.size() >= limit || scanned >= MAX_ROWS_PER_GET_RANGE) {
+                nextStartPrimaryKey = row.getPrimaryKey();
+                break;
+            }
+
+            scanned++;
+            Row selected = RowMatcher.select(row, criteria);
+            if (selected != null) {
+                result.add(selected);
+            }
+        }
+        return new RangeResult(result, nextStartPrimaryKey);
+    }
+
+    private PrimaryKey fillAutoIncrement(PrimaryKey primaryKey) {
+        List<PrimaryKeySchema> schemas = tableMeta.getPrimaryKeyList();
+        checkPrimaryKeyName(primaryKey);
+
+        PrimaryKeyColumn[] columns = primaryKey.getPrimaryKeyColumns();
+        PrimaryKeyColumn[] filled = null;
+        for (int i = 0; i < columns.length; i++) {
+            PrimaryKeyValue value = columns[i].getValue();
+            if (value.isPlaceHolderForAutoIncr() && isAutoIncrement(schemas.get(i))) {
+                if (filled == null) {
+                    filled = columns.clone();
+                }
+                filled[i] = new PrimaryKeyColumn(columns[i].getName(), PrimaryKeyValue.fromLong(autoIncrement.incrementAndGet()));
+            } else {
+                checkPrimaryKeyValue(schemas.get(i), value);
+            }
+        }
+        return filled == null ? primaryKey : new PrimaryKey(filled);
+    }
+
+    private void checkPrimaryKey(PrimaryKey primaryKey) {
+        checkPrimaryKeyName(primaryKey);
+
+        List<PrimaryKeySchema> schemas = tableMeta.getPrimaryKeyList();
+        for (int i = 0; i < schemas.size(); i++) {
+            checkPrimaryKeyValue(schemas.get(i), primaryKey.getPrimaryKeyColumn(i).getValue());
+        }
+    }
+
+    private void checkRangePrimaryKey(PrimaryKey primaryKey) {
+        checkPrimaryKeyName(primaryKey);
+
+        List<PrimaryKeySchema> schemas = tableMeta.getPrimaryKeyList();
+        for (int i = 0; i < schemas.size(); i++) {
+            PrimaryKeyValue value = primaryKey.getPrimaryKeyColumn(i).getValue();
+            if (!value.isInfMin() && !value.isInfMax()) {
+                checkPrimaryKeyValue(schemas.get(i), value);
+            }
+        }
+    }
+
+    private void checkPrimaryKeyName(PrimaryKey primaryKey) {
+        List<PrimaryKeySchema> schemas = tableMeta.getPrimaryKeyList();
+        if (primaryKey == null || primaryKey.size() != schemas.size()) {
+            throw MemoryTableStore.newException(MemoryTableStore.ERROR_PARAMETER_INVALID,
+                    "The number of primary key columns must be " + schemas.size() + ".");
+        }
+        for (int i = 0; i < schemas.size(); i++) {
+            if (!schemas.get(i).getName().equals(primaryKey.getPrimaryKeyColumn(i).getName())) {
+                throw MemoryTableStore.newException(MemoryTableStore.ERROR_PARAMETER_INVALID,
+                        "Validate PK name fail. Input: " + primaryKey.getPrimaryKeyColumn(i).getName()
+                                + ", Meta: " + schemas.get(i).getName() + ".");
+            }
+        }
+    }
+
+    private void checkPrimaryKeyValue(PrimaryKeySchema schema, PrimaryKeyValue value) {
+        if (value.isInfMin() || value.isInfMax() || value.isPlaceHolderForAutoIncr() || value.getType() != schema.getType()) {
+            throw MemoryTableStore.newException(MemoryTableStore.ERROR_PARAMETER_INVALID,
+                    "Validate PK type fail. Input: " + value.getType() + ", Meta: " + schema.getType() + ".");
+        }
+    }
+
+    private static void checkCondition(Condition condition, Row current, boolean autoIncrement) {
+        if (condition == null) {
+            return;
+        }
+
+        RowExistenceExpectation expectation = condition.getRowExistenceExpectation();
+        if (autoIncrement && expectation != RowExistenceExpectation.IGNORE) {
+            throw MemoryTableStore.newException(MemoryTableStore.ERROR_PARAMETER_INVALID,
+                    "The row existence expectation should be IGNORE with auto-increment primary key.");
+        }
+        if ((expectation == RowExistenceExpectation.EXPECT_EXIST && current == null)
+                || (expectation == RowExistenceExpectation.EXPECT_NOT_EXIST && current != null)
+                || (condition.getColumnCondition() != null && !RowMatcher.matches(current, condition.getColumnCondition()))) {
+            throw MemoryTableStore.newException(MemoryTableStore.ERROR_CONDITION_CHECK_FAIL, "Condition check failed.");
+        }
+    }
+
+    private static Row returnRow(RowChange change, PrimaryKey primaryKey) {
+        if (change.getReturnType() == ReturnType.RT_PK) {
+            return new Row(primaryKey, new Column[0]);
+        }
+        return null;
+    }
+
+    private static Column withTimestamp(Column column, long now) {
+        if (column.hasSetTimestamp()) {
+            return column;
+        }
+        return new Column(column.getName(), column.getValue(), now);
+    }
+
+    private static boolean isAutoIncrement(PrimaryKeySchema schema) {
+        return schema.getOption() == PrimaryKeyOption.AUTO_INCREMENT;
+    }
+
+    static class RangeResult {
+        private final List<Row> rows;
+        private final PrimaryKey nextStartPrimaryKey;
+
+        RangeResult(List<Row> rows, PrimaryKey nextStartPrimaryKey) {
+            this.rows = rows;
+            this.nextStartPrimaryKey = nextStartPrimaryKey;
+        }
+
+        List<Row> getRows() {
+            return rows;
+        }
+
+        PrimaryKey getNextStartPrimaryKey() {
+            return nextStartPrimaryKey;
+        }
+    }
+}
@@ -0,0 +1,473 @@
+package com.alicloud.openservices.tablestore.timeline2.memory;
+
+import com.alicloud.openservices.tablestore.AsyncClientInterface;
+import com.alicloud.openservices.tablestore.ClientException;
+import com.alicloud.openservices.tablestore.SyncClientInterface;
+import com.alicloud.openservices.tablestore.TableStoreCallback;
+import com.alicloud.openservices.tablestore.TableStoreException;
+import com.alicloud.openservices.tablestore.model.*;
+import com.alicloud.openservices.tablestore.timeline2.TimelineException;
+import com.alicloud.openservices.tablestore.timeline2.utils.Preconditions;
+
+import java.lang.reflect.Proxy;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The in-memory stand-in of TableStore, which serves the table and row operations used by timeline without any endpoint,
+ * so that the overhead and concurrency behavior of the library itself could be tested and benchmarked offline.
+ * Latency, throttling errors and partial failures of batch operations could be injected,
+ * which are reproducible with the same random seed and the same order of requests.
+ * Only the latest version of each column is kept, and search index is not supported.
+ */
+public class MemoryTableStore {
+    public static final String ERROR_OBJECT_NOT_EXIST = "OTSObjectNotExist";
+    public static final String ERROR_OBJECT_ALREADY_EXIST = "OTSObjectAlreadyExist";
+    public static final String ERROR_CONDITION_CHECK_FAIL = "OTSConditionCheckFail";
+    public static final String ERROR_PARAMETER_INVALID = "OTSParameterInvalid";
+    public static final String ERROR_SERVER_BUSY = "OTSServerBusy";
+
+    static final Set<String> SUPPORTED_OPERATIONS = Collections.unmodifiableSet(new HashSet<String>(Arrays.asList(
+            "createTable", "deleteTable", "describeTable", "putRow", "updateRow", "deleteRow", "getRow", "getRange",
+            "batchGetRow", "batchWriteRow")));
+
+    private static final int DEFAULT_CALLBACK_THREADS = 4;
+
+    private final ConcurrentMap<String, MemoryTable> tables = new ConcurrentHashMap<String, MemoryTable>();
+    private final ConcurrentMap<String, AtomicLong> requestCounts = new ConcurrentHashMap<String, AtomicLong>();
+    private final AtomicLong requestIdGenerator = new AtomicLong(0);
+    private final Random random = new Random();
+
+    private volatile long minLatencyMillis = 0;
+    private volatile long maxLatencyMillis = 0;
+    private volatile double throttlingRate = 0;
+    private volatile String throttlingErrorCode = ERROR_SERVER_BUSY;
+    private volatile double batchRowFailureRate = 0;
+    private volatile String batchRowErrorCode = ERROR_SERVER_BUSY;
+    private int callbackThreads = DEFAULT_CALLBACK_THREADS;
+
+    private volatile ScheduledExecutorService executor;
+    private volatile boolean shutdown = false;
+
+    private final SyncClientInterface syncClient;
+    private final AsyncClientInterface asyncClient;
+
+    public MemoryTableStore() {
+        this.syncClient = (SyncClientInterface) Proxy.newProxyInstance(SyncClientInterface.class.getClassLoader(),
+                new Class[]{SyncClientInterface.class}, new MemoryClientHandler(this, false));
+        this.asyncClient = (AsyncClientInterface) Proxy.newProxyInstance(AsyncClientInterface.class.getClassLoader(),
+                new Class[]{AsyncClientInterface.class}, new MemoryClientHandler(this, true));
+    }
+
+    /**
+     * Delay every request by a random latency in [minMillis, maxMillis].
+     */
+    public MemoryTableStore withLatency(long minMillis, long maxMillis) {
+        Preconditions.checkArgument(minMillis >= 0 && maxMillis >= minMillis, "Latency range is invalid.");
+
+        this.minLatencyMillis = minMillis;
+        this.maxLatencyMillis = maxMillis;
+        return this;
+    }
+
+    /**
+     * Reject the request by TableStoreException with OTSServerBusy in the rate.
+     */
+    public MemoryTableStore withThrottling(double rate) {
+        return withThrottling(rate, ERROR_SERVER_BUSY);
+    }
+
+    /**
+     * Reject the request by TableStoreException with the error code in the rate.
+     */
+    public MemoryTableStore withThrottling(double rate, String errorCode) {
+        Preconditions.checkArgument(rate >= 0 && rate <= 1, "Throttling rate should be in [0, 1].");
+        Preconditions.checkNotNull(errorCode, "Error code should not be null.");
+
+        this.throttlingRate = rate;
+        this.throttlingErrorCode = errorCode;
+        return this;
+    }
+
+    /**
+     * Fail each row of BatchGetRow and BatchWriteRow with OTSServerBusy in the rate, while the other rows succeed.
+     */
+    public MemoryTableStore withBatchRowFailure(double rate) {
+        return withBatchRowFailure(rate, ERROR_SERVER_BUSY);
+    }
+
+    /**
+     * Fail each row of BatchGetRow and BatchWriteRow with the error code in the rate, while the other rows succeed.
+     */
+    public MemoryTableStore withBatchRowFailure(double rate, String errorCode) {
+        Preconditions.checkArgument(rate >= 0 && rate <= 1, "Batch row failure rate should be in [0, 1].");
+        Preconditions.checkNotNull(errorCode, "Error code should not be null.");
+
+        this.batchRowFailureRate = rate;
+        this.batchRowErrorCode = errorCode;
+        return this;
+    }
+
+    public MemoryTableStore withRandomSeed(long seed) {
+        synchronized (random) {
+            random.setSeed(seed);
+        }
+        return this;
+    }
+
+    /**
+     * Set the count of threads which delay and complete the requests of async client, should be set before the first async request.
+     */
+    public MemoryTableStore withCallbackThreads(int callbackThreads) {
+        Preconditions.checkArgument(callbackThreads > 0, "Callback threads should be positive.");
+
+        this.callbackThreads = callbackThreads;
+        return this;
+    }
+
+    public SyncClientInterface asSyncClient() {
+        return syncClient;
+    }
+
+    public AsyncClientInterface asAsyncClient() {
+        return asyncClient;
+    }
+
+    /**
+     * Get the count of requests of the operation, including the rejected ones.
+     *
+     * @param operation     The method name of client, such as "putRow" and "batchWriteRow".
+     */
+    public long getRequestCount(String operation) {
+        AtomicLong count = requestCounts.get(operation);
+        return count == null ? 0 : count.get();
+    }
+
+    /**
+     * Get the count of rows in table.
+     */
+    public int getRowCount(String tableName) {
+        return getTable(tableName).size();
+    }
+
+    /**
+     * Stop the callback threads, the pending async requests are dropped.
+     * Both of SyncClient and AsyncClient are not usable after shutdown.
+     */
+    public void shutdown() {
+        shutdown = true;
+        synchronized (this) {
+            if (executor != null) {
+                executor.shutdownNow();
+            }
+        }
+    }
+
+    Response invokeSync(String operation, Object request) {
+        checkNotShutdown();
+        sleep(nextLatency());
+        return execute(operation, request);
+    }
+
+    @SuppressWarnings("unchecked")
+    Future<Response> invokeAsync(final String operation, final Object request, final TableStoreCallback callback) {
+        checkNotShutdown();
+
+        final ResponseFuture<Response> future = new ResponseFuture<Response>();
+        Runnable task = new Runnable() {
+            @Override
+            public void run() {
+                Response response = null;
+                Exception exception = null;
+                try {
+                    response = execute(operation, request);
+                } catch (Exception e) {
+                    exception = e;
+                }
+
+                try {
+                    if (callback != null) {
+                        if (exception == null) {
+                            callback.onCompleted(request, response);
+                        } else {
+                            callback.onFailed(request, exception);
+                        }
+                    }
+                } finally {
+                    if (exception == null) {
+                        future.onCompleted(response);
+                    } else {
+                        future.onFailed(exception);
+                    }
+                }
+            }
+        };
+
+        try {
+            getExecutor().schedule(task, nextLatency(), TimeUnit.MILLISECONDS);
+        } catch (RejectedExecutionException e) {
+            throw new ClientException("MemoryTableStore has been shutdown.");
+        }
+        return future;
+    }
+
+    private Response execute(String operation, Object request) {
+        countRequest(operation);
+        if (throttlingRate > 0 && nextDouble() < throttlingRate) {
+            throw newException(throttlingErrorCode, "Injected throttling error.");
+        }
+
+        if (operation.equals("createTable")) {
+            return createTable((CreateTableRequest) request);
+        } else if (operation.equals("deleteTable")) {
+            return deleteTable((DeleteTableRequest) request);
+        } else if (operation.equals("describeTable")) {
+            return describeTable((DescribeTableRequest) request);
+        } else if (operation.equals("putRow")) {
+            RowPutChange change = ((PutRowRequest) request).getRowChange();
+            Row row = getTable(change.getTableName()).putRow(change);
+            return new PutRowResponse(newResponseMeta(), row, consumed(0, change.getDataSize()));
+        } else if (operation.equals("updateRow")) {
+            RowUpdateChange change = ((UpdateRowRequest) request).getRowChange();
+            Row row = getTable(change.getTableName()).updateRow(change);
+            return new UpdateRowResponse(newResponseMeta(), row, consumed(0, change.getDataSize()));
+        } else if (operation.equals("deleteRow")) {
+            RowDeleteChange change = ((DeleteRowRequest) request).getRowChange();
+            Row row = getTable(change.getTableName()).deleteRow(change);
+            return new DeleteRowResponse(newResponseMeta(), row, consumed(0, change.getDataSize()));
+        } else if (operation.equals("getRow")) {
+            SingleRowQueryCriteria criteria = ((GetRowRequest) request).getRowQueryCriteria();
+            Row row = getTable(criteria.getTableName()).getRow(criteria.getPrimaryKey(), criteria);
+            return new GetRowResponse(newResponseMeta(), row, consumed(sizeOf(row), 0));
+        } else if (operation.equals("getRange")) {
+            return getRange((GetRangeRequest) request);
+        } else if (operation.equals("batchGetRow")) {
+            return batchGetRow((BatchGetRowRequest) request);
+        } else {
+            return batchWriteRow((BatchWriteRowRequest) request);
+        }
+    }
+
+    private CreateTableResponse createTable(CreateTableRequest request) {
+        TableMeta tableMeta = request.getTableMeta();
+        MemoryTable table = new MemoryTable(tableMeta, request.getTableOptions());
+        if (tables.putIfAbsent(tableMeta.getTableName(), table) != null) {
+            throw newException(ERROR_OBJECT_ALREADY_EXIST, "Requested table already exists.");
+        }
+        return new CreateTableResponse(newResponseMeta());
+    }
+
+    private DeleteTableResponse deleteTable(DeleteTableRequest request) {
+        if (tables.remove(request.getTableName()) == null) {
+            throw newException(ERROR_OBJECT_NOT_EXIST, "Requested table does not exist.");
+        }
+        return new DeleteTableResponse(newResponseMeta());
+    }
+
+    private DescribeTableResponse describeTable(DescribeTableRequest request) {
+        MemoryTable table = getTable(request.getTableName());
+
+        DescribeTableResponse response = new DescribeTableResponse(newResponseMeta());
+        response.setTableMeta(table.getTableMeta());
+        response.setTableOptions(table.getTableOptions());
+        return response;
+    }
+
+    private GetRangeResponse getRange(GetRangeRequest request) {
+        RangeRowQueryCriteria criteria = request.getRangeRowQueryCriteria();
+        MemoryTable.RangeResult result = getTable(criteria.getTableName()).getRange(criteria);
+
+        int readBytes = 0;
+        for (Row row : result.getRows()) {
+            readBytes += sizeOf(row);
+        }
+        GetRangeResponse response = new GetRangeResponse(newResponseMeta(), consumed(readBytes, 0));
+        response.setRows(result.getRows());
+        response.setNextStartPrimaryKey(result.getNextStartPrimaryKey());
+        return response;
+    }
+
+    private BatchGetRowResponse batchGetRow(BatchGetRowRequest request) {
+        BatchGetRowResponse response = new BatchGetRowResponse(newResponseMeta());
+        for (Map.Entry<String, MultiRowQueryCriteria> entry : request.getCriteriasByTable().entrySet()) {
+            String tableName = entry.getKey();
+            MultiRowQueryCriteria criteria = entry.getValue();
+            List<PrimaryKey> primaryKeys = criteria.getRowKeys();
+            for (int i = 0; i < primaryKeys.size(); i++) {
+                try {
+                    checkBatchRowFailure();
+                    Row row = getTable(tableName).getRow(primaryKeys.get(i), criteria);
+                    response.addResult(new BatchGetRowResponse.RowResult(tableName, row, consumed(sizeOf(row), 0), i));
+                } catch (TableStoreException e) {
+                    response.addResult(new BatchGetRowResponse.RowResult(tableName, toError(e), i));
+                }
+            }
+        }
+        return response;
+    }
+
+    private BatchWriteRowResponse batchWriteRow(BatchWriteRowRequest request) {
+        BatchWriteRowResponse response = new BatchWriteRowResponse(newResponseMeta());
+        for (Map.Entry<String, List<RowChange>> entry : request.getRowChange().entrySet()) {
+            String tableName = entry.getKey();
+            List<RowChange> changes = entry.getValue();
+            for (int i = 0; i < changes.size(); i++) {
+                RowChange change = changes.get(i);
+                try {
+                    checkBatchRowFailure();
+                    MemoryTable table = getTable(tableName);
+                    Row row;
+                    if (change instanceof RowPutChange) {
+                        row = table.putRow((RowPutChange) change);
+                    } else if (change instanceof RowUpdateChange) {
+                        row = table.updateRow((RowUpdateChange) change);
+                    } else {
+                        row = table.deleteRow((RowDeleteChange) change);
+                    }
+                    response.addRowResult(new BatchWriteRowResponse.RowResult(tableName, row,
+                            consumed(0, change.getDataSize()), i));
+                } catch (TableStoreException e) {
+                    response.addRowResult(new BatchWriteRowResponse.RowResult(tableName, toError(e), i));
+                }
+            }
+        }
+        return response;
+    }
+
+    private MemoryTable getTable(String tableName) {
+        MemoryTable table = tables.get(tableName);
+        if (table == null) {
+            throw newException(ERROR_OBJECT_NOT_EXIST, "Requested table does not exist.");
+        }
+        return table;
+    }
+
+    private void checkBatchRowFailure() {
+        if (batchRowFailureRate > 0 && nextDouble() < batchRowFailureRate) {
+            throw newException(batchRowErrorCode, "Injected batch row error.");
+        }
+    }
+
+    private void countRequest(String operation) {
+        AtomicLong count = requestCounts.get(operation);
+        if (count == null) {
+            AtomicLong newCount = new AtomicLong(0);
+            count = requestCounts.putIfAbsent(operation, newCount);
+            if (count == null) {
+                count = newCount;
+            }
+        }
+        count.incrementAndGet();
+    }
+
+    private Response newResponseMeta() {
+        Response meta = new Response();
+        meta.setRequestId("memory-" + requestIdGenerator.incrementAndGet());
+        return meta;
+    }
+
+    private long nextLatency() {
+        if (maxLatencyMillis <= minLatencyMillis) {
+            return minLatencyMillis;
+        }
+        return minLatencyMillis + (long) (nextDouble() * (maxLatencyMillis - minLatencyMillis + 1));
+    }
+
+    private double nextDouble() {
+        synchronized (random) {
+            return random.nextDouble();
+        }
+    }
+
+    private void checkNotShutdown() {
+        if (shutdown) {
+            throw new ClientException("MemoryTableStore has been shutdown.");
+        }
+    }
+
+    private ScheduledExecutorService getExecutor() {
+        if (executor == null) {
+            synchronized (this) {
+                if (executor == null) {
+                    final AtomicInteger counter = new AtomicInteger(0);
+                    executor = new ScheduledThreadPoolExecutor(callbackThreads, new ThreadFactory() {
+                        @Override
+                        public Thread newThread(Runnable r) {
+                            Thread thread = new Thread(r, "memory-table-store-" + counter.incrementAndGet());
+                            thread.setDaemon(true);
+                            return thread;
+                        }
+                    });
+                }
+            }
+        }
+        return executor;
+    }
+
+    private static void sleep(long millis) {
+        if (millis <= 0) {
+            return;
+        }
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new TimelineException("Interrupted", e);
+        }
+    }
+
+    private static int sizeOf(Row row) {
+        if (row == null) {
+            return 0;
+        }
+        int size = row.getPrimaryKey().getDataSize();
+        for (Column column : row.getColumns()) {
+            size += column.getDataSize();
+        }
+        return size;
+    }
+
+    /**
+     * Every 4KB is counted as one capacity unit, and at least one unit is consumed by read or write.
+     */
+    private static ConsumedCapacity consumed(int readBytes, int writeBytes) {
+        int read = writeBytes == 0 ? Math.max(1, (readBytes + 4095) / 4096) : 0;
+        int write = writeBytes > 0 ? (writeBytes + 4095) / 4096 : 0;
+        return new ConsumedCapacity(new CapacityUnit(read, write));
+    }
+
+    private static com.alicloud.openservices.tablestore.model.Error toError(TableStoreException e) {
+        return new com.alicloud.openservices.tablestore.model.Error(e.getErrorCode(), e.getMessage());
+    }
+
+    static TableStoreException newException(String errorCode, String message) {
+        int httpStatus;
+        if (ERROR_OBJECT_NOT_EXIST.equals(errorCode)) {
+            httpStatus = 404;
+        } else if (ERROR_OBJECT_ALREADY_EXIST.equals(errorCode)) {
+            httpStatus = 409;
+        } else if (ERROR_CONDITION_CHECK_FAIL.equals(errorCode)) {
+            httpStatus = 403;
+        } else if (ERROR_PARAMETER_INVALID.equals(errorCode)) {
+            httpStatus = 400;
+        } else {
+            httpStatus = 503;
+        }
+        return new TableStoreException(message, null, errorCode, "", httpStatus);
+    }
+}
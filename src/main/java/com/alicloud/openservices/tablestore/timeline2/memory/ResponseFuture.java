@@ -0,0 +1,62 @@
+package com.alicloud.openservices.tablestore.timeline2.memory;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * The future of async request, which throws ExecutionException with the origin exception as cause like AsyncClient.
+ */
+class ResponseFuture<Res> implements Future<Res> {
+    private final CountDownLatch latch = new CountDownLatch(1);
+    private volatile Res response;
+    private volatile Exception exception;
+
+    void onCompleted(Res response) {
+        this.response = response;
+        latch.countDown();
+    }
+
+    void onFailed(Exception exception) {
+        this.exception = exception;
+        latch.countDown();
+    }
+
+    @Override
+    public boolean cancel(boolean mayInterruptIfRunning) {
+        return false;
+    }
+
+    @Override
+    public boolean isCancelled() {
+        return false;
+    }
+
+    @Override
+    public boolean isDone() {
+        return latch.getCount() == 0;
+    }
+
+    @Override
+    public Res get() throws InterruptedException, ExecutionException {
+        latch.await();
+        return getResult();
+    }
+
+    @Override
+    public Res get(long timeout, TimeUnit unit) throws InterruptedException, ExecutionException, TimeoutException {
+        if (!latch.await(timeout, unit)) {
+            throw new TimeoutException();
+        }
+        return getResult();
+    }
+
+    private Res getResult() throws ExecutionException {
+        if (exception != null) {
+            throw new ExecutionException(exception);
+        }
+        return response;
+    }
+}
@@ -0,0 +1,133 @@
+package com.alicloud.openservices.tablestore.timeline2.memory;
+
+import com.alicloud.openservices.tablestore.model.Column;
+import com.alicloud.openservices.tablestore.model.ColumnValue;
+import com.alicloud.openservices.tablestore.model.PrimaryKeyColumn;
+import com.alicloud.openservices.tablestore.model.Row;
+import com.alicloud.openservices.tablestore.model.RowQueryCriteria;
+import com.alicloud.openservices.tablestore.model.condition.ColumnCondition;
+import com.alicloud.openservices.tablestore.model.condition.SingleColumnValueCondition;
+import com.alicloud.openservices.tablestore.model.filter.CompositeColumnValueFilter;
+import com.alicloud.openservices.tablestore.model.filter.Filter;
+import com.alicloud.openservices.tablestore.model.filter.SingleColumnValueFilter;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Evaluate the filter of query and the column condition of write on a row, as the service does.
+ */
+class RowMatcher {
+
+    /**
+     * Apply the filter and columns to get of criteria on row.
+     *
+     * @return the selected row, null if the row is filtered out or none of columns to get exists.
+     */
+    static Row select(Row row, RowQueryCriteria criteria) {
+        if (row == null) {
+            return null;
+        }
+        if (criteria.hasSetFilter() && !matches(row, criteria.getFilter())) {
+            return null;
+        }
+
+        Set<String> columnsToGet = criteria.getColumnsToGet();
+        if (columnsToGet == null || columnsToGet.isEmpty()) {
+            return row;
+        }
+
+        List<Column> columns = new ArrayList<Column>();
+        for (Column column : row.getColumns()) {
+            if (columnsToGet.contains(column.getName())) {
+                columns.add(column);
+            }
+        }
+        if (columns.isEmpty() && !containsPrimaryKey(row, columnsToGet)) {
+            return null;
+        }
+        return new Row(row.getPrimaryKey(), columns);
+    }
+
+    static boolean matches(Row row, Filter filter) {
+        if (filter instanceof SingleColumnValueFilter) {
+            SingleColumnValueFilter single = (SingleColumnValueFilter) filter;
+            Column column = row == null ? null : row.getLatestColumn(single.getColumnName());
+            if (column == null) {
+                return single.isPassIfMissing();
+            }
+            return compare(single.getOperator().name(), column.getValue(), single.getColumnValue());
+        } else if (filter instanceof CompositeColumnValueFilter) {
+            CompositeColumnValueFilter composite = (CompositeColumnValueFilter) filter;
+            List<? extends Filter> subFilters = composite.getSubFilters();
+            switch (composite.getOperationType()) {
+                case NOT:
+                    return subFilters.size() == 1 && !matches(row, subFilters.get(0));
+                case AND:
+                    for (Filter subFilter : subFilters) {
+                        if (!matches(row, subFilter)) {
+                            return false;
+                        }
+                    }
+                    return true;
+                default:
+                    for (Filter subFilter : subFilters) {
+                        if (matches(row, subFilter)) {
+                            return true;
+                        }
+                    }
+                    return false;
+            }
+        }
+        throw MemoryTableStore.newException(MemoryTableStore.ERROR_PARAMETER_INVALID,
+                "Filter " + filter.getClass().getSimpleName() + " is not supported.");
+    }
+
+    static boolean matches(Row row, ColumnCondition condition) {
+        if (condition instanceof SingleColumnValueCondition) {
+            SingleColumnValueCondition single = (SingleColumnValueCondition) condition;
+            Column column = row == null ? null : row.getLatestColumn(single.getColumnName());
+            if (column == null) {
+                return single.isPassIfMissing();
+            }
+            return compare(single.getOperator().name(), column.getValue(), single.getColumnValue());
+        }
+        throw MemoryTableStore.newException(MemoryTableStore.ERROR_PARAMETER_INVALID,
+                "Column condition " + condition.getClass().getSimpleName() + " is not supported.");
+    }
+
+    /**
+     * The operators of filter and condition share the same names.
+     * Values of different types are never equal.
+     */
+    private static boolean compare(String operator, ColumnValue actual, ColumnValue expected) {
+        if (actual.getType() != expected.getType()) {
+            return operator.equals("NOT_EQUAL");
+        }
+
+        int result = actual.compareTo(expected);
+        if (operator.equals("EQUAL")) {
+            return result == 0;
+        } else if (operator.equals("NOT_EQUAL")) {
+            return result != 0;
+        } else if (operator.equals("GREATER_THAN")) {
+            return result > 0;
+        } else if (operator.equals("GREATER_EQUAL")) {
+            return result >= 0;
+        } else if (operator.equals("LESS_THAN")) {
+            return result < 0;
+        } else {
+            return result <= 0;
+        }
+    }
+
+    private static boolean containsPrimaryKey(Row row, Set<String> columnsToGet) {
+        for (PrimaryKeyColumn column : row.getPrimaryKey().getPrimaryKeyColumns()) {
+            if (columnsToGet.contains(column.getName())) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -2,6 +2,7 @@ package com.alicloud.openservices.tablestore.timeline2.model;
 
 import com.alicloud.openservices.tablestore.model.Column;
 import com.alicloud.openservices.tablestore.model.ColumnValue;
+import com.alicloud.openservices.tablestore.model.Row;
 import com.google.gson.Gson;
 import com.google.gson.JsonSyntaxException;
 
@@ -13,14 +14,79 @@ import java.util.*;
  * @param <T>
  */
 public class DynamicRow<T> {
-    private Map<String, Column> fields;
+    /**
+     * The map of fields, which is published once built and shared with readers of other threads.
+     */
+    private volatile Map<String, Column> fields;
+    /**
+     * The columns of row sorted by name, which are never changed, fields are resolved from it until the map is materialized.
+     */
+    private final Column[] columns;
 
     public DynamicRow() {
         fields = new HashMap<String, Column>();
+        columns = null;
+    }
+
+    /**
+     * Construct a view backed by the columns of row without copying them, the columns should be sorted by name
+     * and the versions of the same column sorted by timestamp descending, which is the order of {@link Row#getColumns()}.
+     * The map of fields is materialized on the first mutation or {@link #getFields()}.
+     *
+     * @param columns the sorted columns of row
+     */
+    protected DynamicRow(Column[] columns) {
+        this.columns = columns;
     }
 
     public Map<String, Column> getFields() {
-        return Collections.unmodifiableMap(fields);
+        return Collections.unmodifiableMap(materialize());
+    }
+
+    /**
+     * Build the map of fields and publish it, the columns are kept so that the readers which have not seen
+     * the map yet can still resolve fields from them.
+     */
+    private Map<String, Column> materialize() {
+        Map<String, Column> map = fields;
+        if (map == null) {
+            map = new HashMap<String, Column>(columns.length * 4 / 3 + 1);
+            for (Column column : columns) {
+                if (!map.containsKey(column.getName())) {
+                    map.put(column.getName(), column);
+                }
+            }
+            fields = map;
+        }
+        return map;
+    }
+
+    /**
+     * Find the latest version of column by binary search if the map is not materialized.
+     */
+    private Column getColumn(String name) {
+        Map<String, Column> map = fields;
+        if (map != null) {
+            return map.get(name);
+        }
+
+        int low = 0;
+        int high = columns.length - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            int cmp = columns[mid].getName().compareTo(name);
+            if (cmp < 0) {
+                low = mid + 1;
+            } else if (cmp > 0) {
+                high = mid - 1;
+            } else {
+                while (mid > 0 && columns[mid - 1].getName().equals(name)) {
+                    mid--;
+                }
+                return columns[mid];
+            }
+        }
+        return null;
     }
 
     /**
@@ -32,7 +98,7 @@ public class DynamicRow<T> {
      */
     @SuppressWarnings("unchecked")
     public T setField(String name, String value) {
-        fields.put(name, new Column(name, ColumnValue.fromString(value)));
+        materialize().put(name, new Column(name, ColumnValue.fromString(value)));
         return (T)this;
     }
 
@@ -45,7 +111,7 @@ public class DynamicRow<T> {
      */
     @SuppressWarnings("unchecked")
     public T setField(String name, boolean value) {
-        fields.put(name, new Column(name, ColumnValue.fromBoolean(value)));
+        materialize().put(name, new Column(name, ColumnValue.fromBoolean(value)));
         return (T)this;
     }
 
@@ -58,7 +124,7 @@ public class DynamicRow<T> {
      */
     @SuppressWarnings("unchecked")
     public T setField(String name, double value) {
-        fields.put(name, new Column(name, ColumnValue.fromDouble(value)));
+        materialize().put(name, new Column(name, ColumnValue.fromDouble(value)));
         return (T)this;
     }
 
@@ -71,7 +137,7 @@ public class DynamicRow<T> {
      */
     @SuppressWarnings("unchecked")
     public T setField(String name, long value) {
-        fields.put(name, new Column(name, ColumnValue.fromLong(value)));
+        materialize().put(name, new Column(name, ColumnValue.fromLong(value)));
         return (T)this;
     }
 
@@ -85,7 +151,7 @@ public class DynamicRow<T> {
     @SuppressWarnings("unchecked")
     public T setField(String name, List<String> value) {
         Gson gson = new Gson();
-        fields.put(name, new Column(name, ColumnValue.fromString(gson.toJson(value))));
+        materialize().put(name, new Column(name, ColumnValue.fromString(gson.toJson(value))));
         return (T)this;
     }
 
@@ -98,7 +164,7 @@ public class DynamicRow<T> {
     @SuppressWarnings("unchecked")
     public T setFields(List<Column> columns) {
         for (Column column : columns) {
-            fields.put(column.getName(), column);
+            materialize().put(column.getName(), column);
         }
         return (T)this;
     }
@@ -113,7 +179,7 @@ public class DynamicRow<T> {
     @SuppressWarnings("unchecked")
     public T setField(String name, String[] value) {
         Gson gson = new Gson();
-        fields.put(name, new Column(name, ColumnValue.fromString(gson.toJson(value))));
+        materialize().put(name, new Column(name, ColumnValue.fromString(gson.toJson(value))));
         return (T)this;
     }
 
@@ -125,7 +191,7 @@ public class DynamicRow<T> {
      */
     @SuppressWarnings("unchecked")
     public T setField(Column column) {
-        fields.put(column.getName(), column);
+        materialize().put(column.getName(), column);
         return (T)this;
     }
 
@@ -136,7 +202,7 @@ public class DynamicRow<T> {
      * @return true if exist, else false.
      */
     public boolean contains(String name) {
-        return fields.containsKey(name);
+        return getColumn(name) != null;
     }
 
     /**
@@ -148,7 +214,7 @@ public class DynamicRow<T> {
      * @throws NullPointerException if the field is not exist
      */
     public String getString(String name) {
-        return fields.get(name).getValue().asString();
+        return getColumn(name).getValue().asString();
     }
 
     /**
@@ -160,7 +226,7 @@ public class DynamicRow<T> {
      * @throws NullPointerException if the field is not exist
      */
     public long getLong(String name) {
-        return fields.get(name).getValue().asLong();
+        return getColumn(name).getValue().asLong();
     }
 
     /**
@@ -172,7 +238,7 @@ public class DynamicRow<T> {
      * @throws NullPointerException if the field is not exist
      */
     public boolean getBoolean(String name) {
-        return fields.get(name).getValue().asBoolean();
+        return getColumn(name).getValue().asBoolean();
     }
 
     /**
@@ -184,7 +250,7 @@ public class DynamicRow<T> {
      * @throws NullPointerException if the field is not exist
      */
     public double getDouble(String name) {
-        return fields.get(name).getValue().asDouble();
+        return getColumn(name).getValue().asDouble();
     }
 
     /**
@@ -196,7 +262,7 @@ public class DynamicRow<T> {
      * @throws NullPointerException if the field is not exist
      */
     public List<String> getStringList(String name) {
-        String jsonArray = fields.get(name).getValue().asString();
+        String jsonArray = getColumn(name).getValue().asString();
         Gson gson = new Gson();
         try {
             String[] strArray = gson.fromJson(jsonArray, String[].class);
@@ -209,7 +275,7 @@ public class DynamicRow<T> {
     @Override
     public String toString() {
         StringBuilder sb = new StringBuilder();
-        List<Map.Entry<String,Column>> list = new ArrayList<Map.Entry<String,Column>>(fields.entrySet());
+        List<Map.Entry<String,Column>> list = new ArrayList<Map.Entry<String,Column>>(materialize().entrySet());
 
         Collections.sort(list, new Comparator<Map.Entry<String,Column>>(){
 
@@ -0,0 +1,81 @@
+package com.alicloud.openservices.tablestore.timeline2.model;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * The result of fanning out one message to many timelines, which contains the result of each target timeline.
+ */
+public class FanOutResult {
+    private TimelineIdentifier[] identifiers;
+    private TimelineEntry[] entries;
+    private Exception[] exceptions;
+
+    public FanOutResult(TimelineIdentifier[] identifiers, TimelineEntry[] entries, Exception[] exceptions) {
+        this.identifiers = identifiers;
+        this.entries = entries;
+        this.exceptions = exceptions;
+    }
+
+    /**
+     * Whether the message is stored into all of the target timelines.
+     *
+     * @return true if all succeed, else false.
+     */
+    public boolean isAllSucceed() {
+        for (Exception exception : exceptions) {
+            if (exception != null) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Get the timeline entries of succeed timelines, in the order of request.
+     *
+     * @return the succeed entries, the map returned is unmodifiable.
+     */
+    public Map<TimelineIdentifier, TimelineEntry> getSucceedEntries() {
+        Map<TimelineIdentifier, TimelineEntry> result = new LinkedHashMap<TimelineIdentifier, TimelineEntry>();
+        for (int i = 0; i < identifiers.length; i++) {
+            if (exceptions[i] == null) {
+                result.put(identifiers[i], entries[i]);
+            }
+        }
+        return Collections.unmodifiableMap(result);
+    }
+
+    /**
+     * Get the exceptions of failed timelines, in the order of request.
+     *
+     * @return the exceptions of failed timelines, the map returned is unmodifiable.
+     */
+    public Map<TimelineIdentifier, Exception> getFailedEntries() {
+        Map<TimelineIdentifier, Exception> result = new LinkedHashMap<TimelineIdentifier, Exception>();
+        for (int i = 0; i < identifiers.length; i++) {
+            if (exceptions[i] != null) {
+                result.put(identifiers[i], exceptions[i]);
+            }
+        }
+        return Collections.unmodifiableMap(result);
+    }
+
+    /**
+     * Get the timeline entry stored into specified timeline.
+     * Return null if the timeline is not in target list or failed.
+     *
+     * @param identifier    The identifier of target timeline.
+     *
+     * @return TimelineEntry
+     */
+    public TimelineEntry getEntry(TimelineIdentifier identifier) {
+        for (int i = 0; i < identifiers.length; i++) {
+            if (identifiers[i].equals(identifier)) {
+                return entries[i];
+            }
+        }
+        return null;
+    }
+}
@@ -5,10 +5,9 @@ import com.alicloud.openservices.tablestore.model.PrimaryKey;
 import com.alicloud.openservices.tablestore.model.RowPutChange;
 import com.alicloud.openservices.tablestore.timeline2.TimelineCallback;
 
-import java.util.concurrent.Future;
-
 public class RowPutChangeWithCallback extends RowPutChange {
     private TimelineIdentifier identifier = null;
+    private TimelineMessage message = null;
     private TimelineCallbackImpledFuture<TimelineMessage, TimelineEntry> future = new TimelineCallbackImpledFuture<TimelineMessage, TimelineEntry>();
 
     public RowPutChangeWithCallback(String tableName, PrimaryKey primaryKey) {
@@ -16,22 +15,14 @@ public class RowPutChangeWithCallback extends RowPutChange {
     }
 
     public void setComplete(TimelineEntry timelineEntry) {
-        TimelineMessage message = new TimelineMessage();
-        message.setFields(this.getColumnsToPut());
-
-        future.onCompleted(message, timelineEntry);
+        future.onCompleted(getMessage(), timelineEntry);
     }
 
     public void setFailed(Exception ex) {
-        TimelineMessage message = new TimelineMessage();
-        message.setFields(this.getColumnsToPut());
-
-        future.onFailed(message, ex);
+        future.onFailed(getMessage(), ex);
     }
 
     public RowPutChangeWithCallback watchBy(final TimelineCallback callback) {
-        final TimelineMessage message = new TimelineMessage();
-        message.setFields(this.getColumnsToPut());
         TableStoreCallback<TimelineMessage, TimelineEntry> tsCallback = new TableStoreCallback<TimelineMessage, TimelineEntry>() {
 
             @Override
@@ -54,7 +45,27 @@ public class RowPutChangeWithCallback extends RowPutChange {
         return this;
     }
 
-    public Future<TimelineEntry> getFuture() {
+    public TimelineIdentifier getTimelineIdentifier() {
+        return identifier;
+    }
+
+    /**
+     * Keep the origin message, so that it would not be rebuilt from columns when the row is completed.
+     */
+    public RowPutChangeWithCallback withMessage(TimelineMessage message) {
+        this.message = message;
+        return this;
+    }
+
+    public TimelineMessage getMessage() {
+        if (message == null) {
+            message = new TimelineMessage();
+            message.setFields(this.getColumnsToPut());
+        }
+        return message;
+    }
+
+    public TimelineFuture<TimelineEntry> getFuture() {
         return future;
     }
 }
@@ -0,0 +1,431 @@
+package com.alicloud.openservices.tablestore.timeline2.model;
+
+import com.alicloud.openservices.tablestore.timeline2.utils.Preconditions;
+import com.alicloud.openservices.tablestore.timeline2.utils.Utils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Lock free future which could be completed only once, and be composed without blocking any thread.
+ * Before completion, the state is a stack of listeners and waiting threads pushed by CAS,
+ * and the completion replaces the stack by the result, then notifies the listeners in the order they were added.
+ * Listeners are invoked in the thread which completes the future, or in the thread which adds them after completion,
+ * so that they should return quickly. The exception thrown by a listener is logged and never breaks the completer.
+ * The waiting threads which are timed out or interrupted are unlinked from the stack.
+ * <p>
+ * The same as other futures of timeline, get() throws TimelineException converted from the cause of failure,
+ * which could be changed by subclass with convertException() and newFuture().
+ */
+public class TimelineFuture<T> implements Future<T> {
+    private static final Logger logger = LoggerFactory.getLogger(TimelineFuture.class);
+
+    @SuppressWarnings("rawtypes")
+    private static final AtomicReferenceFieldUpdater<TimelineFuture, Object> STATE =
+            AtomicReferenceFieldUpdater.newUpdater(TimelineFuture.class, Object.class, "state");
+
+    /**
+     * Null or the top Node of stack before completion, Result after completion.
+     */
+    private volatile Object state;
+
+    /**
+     * The function applied on result of future.
+     */
+    public interface Function<T, R> {
+        R apply(T value) throws Exception;
+    }
+
+    /**
+     * The handler invoked when future is completed.
+     */
+    public interface CompletionHandler<T> {
+        /**
+         * @param value     The result, null if failed.
+         * @param ex        The cause of failure, null if succeed.
+         */
+        void onComplete(T value, Exception ex);
+    }
+
+    public TimelineFuture() {
+    }
+
+    public static <T> TimelineFuture<T> completedFuture(T value) {
+        TimelineFuture<T> future = new TimelineFuture<T>();
+        future.complete(value);
+        return future;
+    }
+
+    public static <T> TimelineFuture<T> failedFuture(Exception ex) {
+        TimelineFuture<T> future = new TimelineFuture<T>();
+        future.completeExceptionally(ex);
+        return future;
+    }
+
+    /**
+     * Complete the future with value.
+     *
+     * @return false if the future has been completed already.
+     */
+    public boolean complete(T value) {
+        return completeWith(new Result(value, null));
+    }
+
+    /**
+     * Complete the future with the cause of failure.
+     *
+     * @return false if the future has been completed already.
+     */
+    public boolean completeExceptionally(Exception ex) {
+        Preconditions.checkNotNull(ex, "Exception should not be null.");
+        return completeWith(new Result(null, ex));
+    }
+
+    /**
+     * Add the handler which is invoked when the future is completed, or immediately if the future is completed already.
+     */
+    @SuppressWarnings("unchecked")
+    public void addListener(CompletionHandler<? super T> handler) {
+        Preconditions.checkNotNull(handler, "CompletionHandler should not be null.");
+
+        Node node = new Node((CompletionHandler<Object>) handler, null);
+        if (!push(node)) {
+            Result result = (Result) state;
+            handler.onComplete((T) result.value, result.exception);
+        }
+    }
+
+    /**
+     * Get a future completed by the result of function on the value of this future,
+     * which fails if this future fails or the function throws.
+     */
+    public <R> TimelineFuture<R> thenApply(final Function<? super T, ? extends R> function) {
+        Preconditions.checkNotNull(function, "Function should not be null.");
+
+        final TimelineFuture<R> next = newFuture();
+        addListener(new CompletionHandler<T>() {
+            @Override
+            public void onComplete(T value, Exception ex) {
+                if (ex != null) {
+                    next.completeExceptionally(ex);
+                    return;
+                }
+
+                R result;
+                try {
+                    result = function.apply(value);
+                } catch (Exception e) {
+                    next.completeExceptionally(e);
+                    return;
+                }
+                next.complete(result);
+            }
+        });
+        return next;
+    }
+
+    /**
+     * Get a future completed by the future returned by function on the value of this future,
+     * which is used to chain async operations.
+     */
+    public <R> TimelineFuture<R> thenCompose(final Function<? super T, ? extends TimelineFuture<R>> function) {
+        Preconditions.checkNotNull(function, "Function should not be null.");
+
+        final TimelineFuture<R> next = newFuture();
+        addListener(new CompletionHandler<T>() {
+            @Override
+            public void onComplete(T value, Exception ex) {
+                if (ex != null) {
+                    next.completeExceptionally(ex);
+                    return;
+                }
+
+                TimelineFuture<R> future;
+                try {
+                    future = function.apply(value);
+                    Preconditions.checkNotNull(future, "The future returned by function should not be null.");
+                } catch (Exception e) {
+                    next.completeExceptionally(e);
+                    return;
+                }
+                future.addListener(new CompletionHandler<R>() {
+                    @Override
+                    public void onComplete(R result, Exception e) {
+                        if (e != null) {
+                            next.completeExceptionally(e);
+                        } else {
+                            next.complete(result);
+                        }
+                    }
+                });
+            }
+        });
+        return next;
+    }
+
+    /**
+     * Get a future completed by the same result after handler is invoked.
+     * If the handler throws while this future succeeds, the returned future fails by the exception of handler.
+     */
+    public TimelineFuture<T> whenComplete(final CompletionHandler<? super T> handler) {
+        Preconditions.checkNotNull(handler, "CompletionHandler should not be null.");
+
+        final TimelineFuture<T> next = newFuture();
+        addListener(new CompletionHandler<T>() {
+            @Override
+            public void onComplete(T value, Exception ex) {
+                try {
+                    handler.onComplete(value, ex);
+                } catch (RuntimeException e) {
+                    if (ex == null) {
+                        next.completeExceptionally(e);
+                        return;
+                    }
+                }
+
+                if (ex != null) {
+                    next.completeExceptionally(ex);
+                } else {
+                    next.complete(value);
+                }
+            }
+        });
+        return next;
+    }
+
+    /**
+     * The future could not be cancelled.
+     */
+    @Override
+    public boolean cancel(boolean mayInterruptIfRunning) {
+        return false;
+    }
+
+    @Override
+    public boolean isCancelled() {
+        return false;
+    }
+
+    @Override
+    public boolean isDone() {
+        return state instanceof Result;
+    }
+
+    @Override
+    public T get() throws InterruptedException, ExecutionException {
+        Object s = state;
+        if (!(s instanceof Result)) {
+            try {
+                s = waitForResult(false, 0);
+            } catch (TimeoutException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+        return getValue((Result) s);
+    }
+
+    @Override
+    public T get(long timeout, TimeUnit unit) throws InterruptedException, ExecutionException, TimeoutException {
+        Preconditions.checkNotNull(unit, "Time unit should not be null");
+
+        Object s = state;
+        if (!(s instanceof Result)) {
+            s = waitForResult(true, unit.toNanos(timeout));
+        }
+        return getValue((Result) s);
+    }
+
+    @SuppressWarnings("unchecked")
+    private T getValue(Result result) {
+        if (result.exception != null) {
+            throw convertException(result.exception);
+        }
+        return (T) result.value;
+    }
+
+    /**
+     * Convert the cause of failure to the exception thrown by get().
+     */
+    protected RuntimeException convertException(Exception cause) {
+        return Utils.convertException(cause);
+    }
+
+    /**
+     * Create the future returned by thenApply(), thenCompose() and whenComplete().
+     */
+    protected <R> TimelineFuture<R> newFuture() {
+        return new TimelineFuture<R>();
+    }
+
+    private Object waitForResult(boolean timed, long nanos) throws InterruptedException, TimeoutException {
+        Node node = new Node(null, Thread.currentThread());
+        if (!push(node)) {
+            return state;
+        }
+
+        long deadline = timed ? System.nanoTime() + nanos : 0;
+        Object s;
+        while (!((s = state) instanceof Result)) {
+            if (Thread.interrupted()) {
+                removeWaiter(node);
+                throw new InterruptedException();
+            }
+            if (timed) {
+                long remaining = deadline - System.nanoTime();
+                if (remaining <= 0) {
+                    removeWaiter(node);
+                    throw new TimeoutException();
+                }
+                LockSupport.parkNanos(this, remaining);
+            } else {
+                LockSupport.park(this);
+            }
+        }
+        return s;
+    }
+
+    /**
+     * Unlink the node of waiting thread which is timed out or interrupted, together with other such nodes,
+     * the same as FutureTask. The stack is traversed again if a race is detected.
+     */
+    private void removeWaiter(Node node) {
+        node.waiter = null;
+        retry:
+        while (true) {
+            Object s = state;
+            if (!(s instanceof Node)) {
+                return;
+            }
+            Node pred = null;
+            Node succ;
+            for (Node q = (Node) s; q != null; q = succ) {
+                succ = q.next;
+                if (!q.isCancelled()) {
+                    pred = q;
+                } else if (pred != null) {
+                    pred.next = succ;
+                    if (pred.isCancelled()) {
+                        continue retry;
+                    }
+                } else if (!STATE.compareAndSet(this, q, succ)) {
+                    continue retry;
+                }
+            }
+            return;
+        }
+    }
+
+    /**
+     * @return the count of listeners and waiting threads before completion.
+     */
+    int getNumberOfDependents() {
+        int count = 0;
+        Object s = state;
+        for (Node node = s instanceof Node ? (Node) s : null; node != null; node = node.next) {
+            count++;
+        }
+        return count;
+    }
+
+    /**
+     * Push node into the stack.
+     *
+     * @return false if the future has been completed.
+     */
+    private boolean push(Node node) {
+        while (true) {
+            Object s = state;
+            if (s instanceof Result) {
+                return false;
+            }
+            node.next = (Node) s;
+            if (STATE.compareAndSet(this, s, node)) {
+                return true;
+            }
+        }
+    }
+
+    private boolean completeWith(Result result) {
+        while (true) {
+            Object s = state;
+            if (s instanceof Result) {
+                return false;
+            }
+            if (STATE.compareAndSet(this, s, result)) {
+                notifyNodes((Node) s, result);
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Wake up all the waiting threads, and invoke the listeners in the order they were added.
+     * The exception of listener is logged, so that the other listeners and the completer are not affected.
+     * The links of nodes are not changed, which may be unlinked by removeWaiter() concurrently.
+     */
+    private static void notifyNodes(Node top, Result result) {
+        if (top == null) {
+            return;
+        }
+        List<Node> nodes = new ArrayList<Node>();
+        for (Node node = top; node != null; node = node.next) {
+            nodes.add(node);
+        }
+
+        for (int i = nodes.size() - 1; i >= 0; i--) {
+            Node node = nodes.get(i);
+            if (node.handler == null) {
+                Thread waiter = node.waiter;
+                if (waiter != null) {
+                    LockSupport.unpark(waiter);
+                }
+                continue;
+            }
+
+            try {
+                node.handler.onComplete(result.value, result.exception);
+            } catch (RuntimeException e) {
+                logger.warn("Listener of future throws exception.", e);
+            }
+        }
+    }
+
+    private static final class Result {
+        private final Object value;
+        private final Exception exception;
+
+        Result(Object value, Exception exception) {
+            this.value = value;
+            this.exception = exception;
+        }
+    }
+
+    /**
+     * The node of stack, which is either a listener or a waiting thread.
+     */
+    private static final class Node {
+        private final CompletionHandler<Object> handler;
+        private volatile Thread waiter;
+        private volatile Node next;
+
+        Node(CompletionHandler<Object> handler, Thread waiter) {
+            this.handler = handler;
+            this.waiter = waiter;
+        }
+
+        /**
+         * @return true if it's the node of waiting thread which is timed out or interrupted.
+         */
+        boolean isCancelled() {
+            return handler == null && waiter == null;
+        }
+    }
+}
@@ -1,5 +1,7 @@
 package com.alicloud.openservices.tablestore.timeline2.model;
 
+import com.alicloud.openservices.tablestore.model.Row;
+
 /**
  * The message sent by timeline, which can contain any type of fields.
  */
@@ -7,4 +9,14 @@ public class TimelineMessage extends DynamicRow<TimelineMessage> {
     public TimelineMessage() {
     }
 
+    /**
+     * Construct a message backed by the columns of row, fields are resolved on first access
+     * without copying all the columns into a map.
+     *
+     * @param row the row read from table
+     */
+    public TimelineMessage(Row row) {
+        super(row.getColumns());
+    }
+
 }
@@ -1,5 +1,6 @@
 package com.alicloud.openservices.tablestore.timeline2.model;
 
+import com.alicloud.openservices.tablestore.codec.ContentCodec;
 import com.alicloud.openservices.tablestore.model.Column;
 import com.alicloud.openservices.tablestore.model.ColumnValue;
 import com.alicloud.openservices.tablestore.timeline2.utils.Utils;
@@ -41,6 +42,11 @@ public class TimelineMessageForV1 {
      */
     private int columnMaxLength = 1024 * 1024;
 
+    /**
+     * The column name of content codec, the content is not compressed if it's not exist or empty.
+     */
+    private String contentCodecSuffix = "codec";
+
 
     public TimelineMessageForV1(String content) {
         baseID.compareAndSet(Integer.MAX_VALUE, 0);
@@ -69,7 +75,33 @@ public class TimelineMessageForV1 {
     }
 
     public TimelineMessageForV1 setContent(String stringMessage) {
+        return setContent(stringMessage, null, 0);
+    }
+
+    /**
+     * Set content, which is compressed by codec if it's not shorter than threshold and becomes shorter.
+     * The content longer than {@link ContentCodec#MAX_DECODED_LENGTH} is not compressed, as it could not be decoded.
+     *
+     * @param stringMessage the content
+     * @param codec the codec to compress content, or null to store content raw
+     * @param threshold the min length of content to compress
+     * @return this
+     */
+    public TimelineMessageForV1 setContent(String stringMessage, ContentCodec codec, int threshold) {
         byte[] content = stringMessage.getBytes();//编码
+        String codecName = null;
+        if (codec != null && content.length >= threshold && content.length <= ContentCodec.MAX_DECODED_LENGTH) {
+            byte[] encoded;
+            try {
+                encoded = codec.encode(content);
+            } catch (IOException ex) {
+                throw new TimelineException("Compress message content failed", ex);
+            }
+            if (encoded.length < content.length) {
+                content = encoded;
+                codecName = codec.getName();
+            }
+        }
         if (content.length > 2 * 1024 * 1024) {
             throw new TimelineException(String.format("Message Content must less than 2MB, current:%s", String.valueOf(content.length)));
         }
@@ -108,6 +140,19 @@ public class TimelineMessageForV1 {
             message.setField(columnName, crc32);
         }
 
+        /**
+         * Write content codec, the codec of old content is cleared.
+         */
+        {
+            String columnName = SYSTEM_COLUMN_NAME_PREFIX + contentCodecSuffix;
+            if (codecName != null) {
+                message.setField(columnName, codecName);
+            } else if (message.contains(columnName)) {
+                message.setField(columnName, "");
+            }
+        }
+
+        this.stringMessage = null;
         return this;
     }
 
@@ -129,6 +174,7 @@ public class TimelineMessageForV1 {
          */
         int index = CONTENT_COLUMN_START_ID;
         long crc32 = 0;
+        String codecName = null;
 
         Map<String, Column> columns = message.getFields();
         List<Map.Entry<String,Column>> list = new ArrayList<Map.Entry<String,Column>>(columns.entrySet());
@@ -160,6 +206,8 @@ public class TimelineMessageForV1 {
                 currentCount++;
             } else if (name.equals(SYSTEM_COLUMN_NAME_PREFIX + columnNameOfMessageCrc32Suffix)) {
                 crc32 = column.getValue().asLong();
+            } else if (name.equals(SYSTEM_COLUMN_NAME_PREFIX + contentCodecSuffix)) {
+                codecName = column.getValue().asString();
             }
         }
 
@@ -184,6 +232,18 @@ public class TimelineMessageForV1 {
             }
         }
 
+        if (codecName != null && !codecName.isEmpty()) {
+            ContentCodec codec = ContentCodec.forName(codecName);
+            if (codec == null) {
+                throw new TimelineException(String.format("Unknown message content codec:%s", codecName));
+            }
+            try {
+                content = codec.decode(content);
+            } catch (IOException ex) {
+                throw new TimelineException("Decompress message content failed", ex);
+            }
+        }
+
         stringMessage = new String(content);
 
         return stringMessage;
@@ -1,6 +1,8 @@
 package com.alicloud.openservices.tablestore.timeline2.model;
 
 import com.alicloud.openservices.tablestore.model.search.IndexSchema;
+import com.alicloud.openservices.tablestore.timeline2.AdaptiveRateLimiter;
+import com.alicloud.openservices.tablestore.timeline2.utils.Preconditions;
 
 public class TimelineMetaSchema {
     private TimelineIdentifierSchema identifierSchema;
@@ -8,6 +10,7 @@ public class TimelineMetaSchema {
     private String tableName;
     private String indexName;
     private IndexSchema indexSchema;
+    private AdaptiveRateLimiter rateLimiter;
 
     public TimelineMetaSchema(String tableName, TimelineIdentifierSchema identifierSchema) {
         this.tableName = tableName;
@@ -20,6 +23,26 @@ public class TimelineMetaSchema {
         return this;
     }
 
+    /**
+     * Limit the requests of meta store by the adaptive rate limiter, which could be shared with timeline stores.
+     *
+     * @param rateLimiter   The rate limiter.
+     * @return this
+     */
+    public TimelineMetaSchema withRateLimiter(AdaptiveRateLimiter rateLimiter) {
+        Preconditions.checkNotNull(rateLimiter, "AdaptiveRateLimiter should not be null.");
+        this.rateLimiter = rateLimiter;
+        return this;
+    }
+
+    public boolean hasRateLimiter() {
+        return rateLimiter != null;
+    }
+
+    public AdaptiveRateLimiter getRateLimiter() {
+        return rateLimiter;
+    }
+
     public boolean hasMetaIndex() {
         return indexName != null && indexSchema != null;
     }
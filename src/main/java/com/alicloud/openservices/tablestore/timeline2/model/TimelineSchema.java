@@ -1,6 +1,12 @@
 package com.alicloud.openservices.tablestore.timeline2.model;
 
 import com.alicloud.openservices.tablestore.model.search.IndexSchema;
+import com.alicloud.openservices.tablestore.timeline2.AdaptiveRateLimiter;
+import com.alicloud.openservices.tablestore.timeline2.NoopMetricsListener;
+import com.alicloud.openservices.tablestore.timeline2.RetryPolicy;
+import com.alicloud.openservices.tablestore.timeline2.SequenceIdGenerator;
+import com.alicloud.openservices.tablestore.timeline2.TimelineMetricsListener;
+import com.alicloud.openservices.tablestore.timeline2.utils.Preconditions;
 import com.alicloud.openservices.tablestore.writer.WriterConfig;
 
 public class TimelineSchema {
@@ -23,6 +29,7 @@ public class TimelineSchema {
     private TimelineIdentifierSchema identifierSchema;
     private SequenceIdGeneration sequenceIdGeneration = SequenceIdGeneration.AUTO_INCREMENT;
     private String sequenceIdColumnName = SEQUENCE_ID_COLUMN_NAME;
+    private SequenceIdGenerator sequenceIdGenerator;
     private int ttl = -1;
 
     private IndexSchema indexSchema;
@@ -31,6 +38,23 @@ public class TimelineSchema {
     private int callbackExecuteThreads = maxCallbackExecuteThreads / 2;
     private WriterConfig writerConfig;
 
+    private int sequenceIdCacheSize = 0;
+    private long sequenceIdCacheTTLMillis = 0;
+
+    private TimelineMetricsListener metricsListener;
+
+    private long coalescingWindowMillis = -1;
+    private int coalescingMaxRows = 0;
+    private long coalescingMaxBytes = 0;
+
+    private int orderedWriterPartitions = 0;
+
+    private int inFlightMaxRows = 0;
+    private long inFlightMaxBytes = 0;
+
+    private AdaptiveRateLimiter rateLimiter;
+    private RetryPolicy retryPolicy;
+
     public TimelineSchema(String tableName, TimelineIdentifierSchema identifierSchema) {
         this.tableName = tableName;
         this.identifierSchema = identifierSchema;
@@ -47,6 +71,19 @@ public class TimelineSchema {
         return this;
     }
 
+    /**
+     * Manual set sequence id, and generate it by specified generator when store message without sequence id.
+     *
+     * @param sequenceIdGenerator   The generator of sequence id.
+     * @return this
+     */
+    public TimelineSchema withSequenceIdGenerator(SequenceIdGenerator sequenceIdGenerator) {
+        Preconditions.checkNotNull(sequenceIdGenerator, "SequenceIdGenerator should not be null.");
+        this.sequenceIdGeneration = SequenceIdGeneration.MANUAL;
+        this.sequenceIdGenerator = sequenceIdGenerator;
+        return this;
+    }
+
     public TimelineSchema withIndex(String indexName, IndexSchema dataIndex) {
         this.indexName = indexName;
         this.indexSchema = dataIndex;
@@ -76,6 +113,111 @@ public class TimelineSchema {
         return this;
     }
 
+    /**
+     * Cache the latest sequence id of each timeline in process, which is updated on writes through the same store.
+     * Writes from other processes are only visible after the cached item expired.
+     *
+     * @param maxSize       The max count of cached timelines.
+     * @param ttlMillis     The time to live of cached items in milliseconds.
+     * @return this
+     */
+    public TimelineSchema withSequenceIdCache(int maxSize, long ttlMillis) {
+        Preconditions.checkArgument(maxSize > 0, "Max size of sequence id cache should be positive.");
+        Preconditions.checkArgument(ttlMillis > 0, "TTL of sequence id cache should be positive.");
+        this.sequenceIdCacheSize = maxSize;
+        this.sequenceIdCacheTTLMillis = ttlMillis;
+        return this;
+    }
+
+    /**
+     * Report the metrics of requests and writer of timeline store to listener, no metrics is collected by default.
+     *
+     * @param metricsListener   The listener of metrics, such as HistogramMetricsListener.
+     * @return this
+     */
+    public TimelineSchema withMetricsListener(TimelineMetricsListener metricsListener) {
+        Preconditions.checkNotNull(metricsListener, "TimelineMetricsListener should not be null.");
+        this.metricsListener = metricsListener;
+        return this;
+    }
+
+    /**
+     * Coalesce storeAsync of the same timeline into BatchWriteRow requests, which keeps the order of the timeline.
+     * Rows are held for the window, or until max rows or bytes are buffered.
+     *
+     * @param windowMillis  The max time to hold rows in milliseconds.
+     * @param maxRows       The max rows of one request, no more than 200.
+     * @param maxBytes      The max bytes of one request.
+     * @return this
+     */
+    public TimelineSchema withWriteCoalescing(long windowMillis, int maxRows, long maxBytes) {
+        Preconditions.checkArgument(windowMillis >= 0, "Window of write coalescing should not be negative.");
+        Preconditions.checkArgument(maxRows > 0 && maxRows <= 200, "Max rows of write coalescing should be in [1, 200].");
+        Preconditions.checkArgument(maxBytes > 0, "Max bytes of write coalescing should be positive.");
+        this.coalescingWindowMillis = windowMillis;
+        this.coalescingMaxRows = maxRows;
+        this.coalescingMaxBytes = maxBytes;
+        return this;
+    }
+
+    /**
+     * Write rows of batchStore and fanOut in the order they are added for each timeline,
+     * instead of the shared writer which may reorder rows by batching and retries.
+     * Timelines are partitioned by the hash of identifier, each partition has at most one BatchWriteRow in flight,
+     * and batches are flushed by max batch rows, max batch size and flush interval of writer config.
+     *
+     * @param partitions    The count of partitions, which is the max concurrency of requests.
+     * @return this
+     */
+    public TimelineSchema withOrderedWriter(int partitions) {
+        Preconditions.checkArgument(partitions > 0, "Partitions of ordered writer should be positive.");
+        this.orderedWriterPartitions = partitions;
+        return this;
+    }
+
+    /**
+     * Bound the rows and bytes of batchStore and fanOut which are added into writers of store but not finished yet.
+     * batchStore and fanOut block when the limit is reached, tryBatchStore returns a failed future instead,
+     * so that the memory is bounded when TableStore is throttling. The flush of writers is triggered in background
+     * before blocking, so that the limit could be less than a batch of writer.
+     *
+     * @param maxRows       The max in-flight rows of store.
+     * @param maxBytes      The max in-flight bytes of store.
+     * @return this
+     */
+    public TimelineSchema withInFlightLimit(int maxRows, long maxBytes) {
+        Preconditions.checkArgument(maxRows > 0, "Max rows of in-flight limit should be positive.");
+        Preconditions.checkArgument(maxBytes > 0, "Max bytes of in-flight limit should be positive.");
+        this.inFlightMaxRows = maxRows;
+        this.inFlightMaxBytes = maxBytes;
+        return this;
+    }
+
+    /**
+     * Limit the requests of store, including the ones from writer, by the adaptive rate limiter,
+     * which could be shared with other stores of the same tables.
+     *
+     * @param rateLimiter   The rate limiter.
+     * @return this
+     */
+    public TimelineSchema withRateLimiter(AdaptiveRateLimiter rateLimiter) {
+        Preconditions.checkNotNull(rateLimiter, "AdaptiveRateLimiter should not be null.");
+        this.rateLimiter = rateLimiter;
+        return this;
+    }
+
+    /**
+     * Retry the idempotent requests of store, and hedge reads if enabled by the policy.
+     *
+     * @param retryPolicy   The retry policy.
+     * @return this
+     */
+    public TimelineSchema withRetryPolicy(RetryPolicy retryPolicy) {
+        Preconditions.checkNotNull(retryPolicy, "RetryPolicy should not be null.");
+        this.retryPolicy = retryPolicy;
+        return this;
+    }
+
     public WriterConfig getWriterConfig() {
         return writerConfig;
     }
@@ -100,6 +242,14 @@ public class TimelineSchema {
         return sequenceIdGeneration == SequenceIdGeneration.AUTO_INCREMENT;
     }
 
+    public boolean hasSequenceIdGenerator() {
+        return !isAutoGenerateSeqId() && sequenceIdGenerator != null;
+    }
+
+    public SequenceIdGenerator getSequenceIdGenerator() {
+        return sequenceIdGenerator;
+    }
+
     public String getTableName() {
         return tableName;
     }
@@ -120,4 +270,79 @@ public class TimelineSchema {
     public int getCallbackExecuteThreads() {
         return callbackExecuteThreads;
     }
+
+    public boolean hasSequenceIdCache() {
+        return sequenceIdCacheSize > 0;
+    }
+
+    public int getSequenceIdCacheSize() {
+        return sequenceIdCacheSize;
+    }
+
+    public long getSequenceIdCacheTTLMillis() {
+        return sequenceIdCacheTTLMillis;
+    }
+
+    public boolean hasWriteCoalescing() {
+        return coalescingMaxRows > 0;
+    }
+
+    public long getCoalescingWindowMillis() {
+        return coalescingWindowMillis;
+    }
+
+    public int getCoalescingMaxRows() {
+        return coalescingMaxRows;
+    }
+
+    public long getCoalescingMaxBytes() {
+        return coalescingMaxBytes;
+    }
+
+    public boolean hasOrderedWriter() {
+        return orderedWriterPartitions > 0;
+    }
+
+    public int getOrderedWriterPartitions() {
+        return orderedWriterPartitions;
+    }
+
+    public boolean hasInFlightLimit() {
+        return inFlightMaxRows > 0;
+    }
+
+    public int getInFlightMaxRows() {
+        return inFlightMaxRows;
+    }
+
+    public long getInFlightMaxBytes() {
+        return inFlightMaxBytes;
+    }
+
+    public boolean hasRateLimiter() {
+        return rateLimiter != null;
+    }
+
+    public AdaptiveRateLimiter getRateLimiter() {
+        return rateLimiter;
+    }
+
+    public boolean hasRetryPolicy() {
+        return retryPolicy != null;
+    }
+
+    public RetryPolicy getRetryPolicy() {
+        return retryPolicy;
+    }
+
+    public boolean hasMetricsListener() {
+        return metricsListener != null;
+    }
+
+    /**
+     * Get the listener of metrics, NoopMetricsListener if not set.
+     */
+    public TimelineMetricsListener getMetricsListener() {
+        return metricsListener != null ? metricsListener : NoopMetricsListener.INSTANCE;
+    }
 }
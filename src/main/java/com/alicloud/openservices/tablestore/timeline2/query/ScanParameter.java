@@ -3,6 +3,10 @@ package com.alicloud.openservices.tablestore.timeline2.query;
 import com.alicloud.openservices.tablestore.model.filter.Filter;
 import com.alicloud.openservices.tablestore.timeline2.utils.Preconditions;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
 public class ScanParameter {
     private long from = 0;
     private long to = Long.MAX_VALUE;
@@ -10,6 +14,10 @@ public class ScanParameter {
 
     private int maxCount = 100;
     private Filter filter;
+    private List<String> columnsToGet;
+
+    private int prefetchDepth = 0;
+    private long maxPrefetchBytes = 8 * 1024 * 1024;
 
     public ScanParameter() {}
 
@@ -66,11 +74,60 @@ public class ScanParameter {
         return this;
     }
 
+    /**
+     * Continue scanning from the token of last page in the same direction.
+     *
+     * @param token     The next token of ScanResult.
+     * @return this
+     */
+    public ScanParameter withToken(long token) {
+        this.from = token;
+        checkCondition();
+        return this;
+    }
+
     public ScanParameter withFilter(Filter filter) {
         this.filter = filter;
         return this;
     }
 
+    /**
+     * Only read the specified columns of messages, all columns are read by default.
+     *
+     * @param columns   The names of columns.
+     * @return this
+     */
+    public ScanParameter withColumnsToGet(Collection<String> columns) {
+        Preconditions.checkArgument(columns != null && !columns.isEmpty(), "Columns to get should not be null or empty.");
+        this.columnsToGet = new ArrayList<String>(columns);
+        return this;
+    }
+
+    /**
+     * Request next pages asynchronously while the current page is being consumed.
+     *
+     * @param prefetchDepth     The max count of pages buffered ahead, 0 means no prefetch.
+     * @return this
+     */
+    public ScanParameter prefetch(int prefetchDepth) {
+        Preconditions.checkArgument(prefetchDepth >= 0, "Prefetch depth should not be negative.");
+        this.prefetchDepth = prefetchDepth;
+        return this;
+    }
+
+    /**
+     * Request next pages asynchronously while the current page is being consumed.
+     *
+     * @param prefetchDepth     The max count of pages buffered ahead, 0 means no prefetch.
+     * @param maxPrefetchBytes  The max bytes of pages buffered ahead.
+     * @return this
+     */
+    public ScanParameter prefetch(int prefetchDepth, long maxPrefetchBytes) {
+        Preconditions.checkArgument(maxPrefetchBytes > 0, "Max prefetch bytes should be positive.");
+        this.maxPrefetchBytes = maxPrefetchBytes;
+        return prefetch(prefetchDepth);
+    }
+
     public long getFrom() {
         return from;
     }
@@ -90,4 +147,19 @@ public class ScanParameter {
     public Filter getFilter() {
         return filter;
     }
+
+    /**
+     * Get the columns to read, null if all columns are read.
+     */
+    public List<String> getColumnsToGet() {
+        return columnsToGet;
+    }
+
+    public int getPrefetchDepth() {
+        return prefetchDepth;
+    }
+
+    public long getMaxPrefetchBytes() {
+        return maxPrefetchBytes;
+    }
 }
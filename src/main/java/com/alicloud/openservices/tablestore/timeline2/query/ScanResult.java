@@ -0,0 +1,33 @@
+package com.alicloud.openservices.tablestore.timeline2.query;
+
+import com.alicloud.openservices.tablestore.timeline2.model.TimelineEntry;
+
+import java.util.List;
+
+/**
+ * One page of timeline entries returned by async scan.
+ */
+public class ScanResult {
+    private List<TimelineEntry> entries;
+    private Long nextToken;
+
+    public ScanResult(List<TimelineEntry> entries, Long nextToken) {
+        this.entries = entries;
+        this.nextToken = nextToken;
+    }
+
+    public List<TimelineEntry> getEntries() {
+        return entries;
+    }
+
+    /**
+     * The token to continue scanning by ScanParameter.withToken(), null if there is no more entry in the range.
+     */
+    public Long getNextToken() {
+        return nextToken;
+    }
+
+    public boolean hasNext() {
+        return nextToken != null;
+    }
+}
@@ -6,6 +6,7 @@ import com.alicloud.openservices.tablestore.model.search.sort.SortOrder;
 import com.alicloud.openservices.tablestore.timeline2.utils.Preconditions;
 
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
 
 public class SearchParameter {
@@ -15,6 +16,7 @@ public class SearchParameter {
     private Sort sort;
     private byte[] token;
     private boolean calculateTotalCount = false;
+    private List<String> columnsToGet;
 
     public SearchParameter(Condition fieldCondition) {
         this.fieldCondition = fieldCondition;
@@ -41,6 +43,18 @@ public class SearchParameter {
         return this;
     }
 
+    /**
+     * Only return the specified columns, all columns are returned by default.
+     *
+     * @param columns   The names of columns.
+     * @return this
+     */
+    public SearchParameter withColumnsToGet(Collection<String> columns) {
+        Preconditions.checkArgument(columns != null && !columns.isEmpty(), "Columns to get should not be null or empty.");
+        this.columnsToGet = new ArrayList<String>(columns);
+        return this;
+    }
+
     public SearchParameter orderBy(String[] fields, SortOrder order) {
         Preconditions.checkArgument(sort == null, "You have already set sort condition.");
 
@@ -75,4 +89,11 @@ public class SearchParameter {
     public byte[] getToken() {
         return token;
     }
+
+    /**
+     * Get the columns to return, null if all columns are returned.
+     */
+    public List<String> getColumnsToGet() {
+        return columnsToGet;
+    }
 }
@@ -0,0 +1,102 @@
+package com.alicloud.openservices.tablestore.timeline2.utils;
+
+import com.alicloud.openservices.tablestore.timeline2.model.CacheStatistics;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Thread safe cache bounded by both size and time to live, the least recently used item is evicted first.
+ */
+public class LRUCache<K, V> {
+    private final int maxSize;
+    private final long ttlMillis;
+    private final LinkedHashMap<K, Item<V>> map;
+
+    private long hitCount = 0;
+    private long missCount = 0;
+    private long evictionCount = 0;
+
+    public LRUCache(int maxSize, long ttlMillis) {
+        Preconditions.checkArgument(maxSize > 0, "Max size of cache should be positive.");
+        Preconditions.checkArgument(ttlMillis > 0, "TTL of cache should be positive.");
+
+        this.maxSize = maxSize;
+        this.ttlMillis = ttlMillis;
+        this.map = new LinkedHashMap<K, Item<V>>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<K, Item<V>> eldest) {
+                if (size() > LRUCache.this.maxSize) {
+                    evictionCount++;
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    /**
+     * Get the value of key, return null if absent or expired.
+     * The request is counted in statistics.
+     */
+    public synchronized V get(K key) {
+        V value = peek(key);
+        if (value == null) {
+            missCount++;
+        } else {
+            hitCount++;
+        }
+        return value;
+    }
+
+    /**
+     * Get the value of key without counting in statistics, return null if absent or expired.
+     */
+    public synchronized V peek(K key) {
+        Item<V> item = map.get(key);
+        if (item == null) {
+            return null;
+        }
+        if (item.expireTime <= currentTimeMillis()) {
+            map.remove(key);
+            evictionCount++;
+            return null;
+        }
+        return item.value;
+    }
+
+    public synchronized void put(K key, V value) {
+        Preconditions.checkNotNull(value, "Value of cache should not be null.");
+        map.put(key, new Item<V>(value, currentTimeMillis() + ttlMillis));
+    }
+
+    public synchronized void remove(K key) {
+        map.remove(key);
+    }
+
+    public synchronized void clear() {
+        map.clear();
+    }
+
+    public synchronized int size() {
+        return map.size();
+    }
+
+    public synchronized CacheStatistics getStatistics() {
+        return new CacheStatistics(hitCount, missCount, evictionCount, map.size());
+    }
+
+    protected long currentTimeMillis() {
+        return System.currentTimeMillis();
+    }
+
+    private static class Item<V> {
+        private final V value;
+        private final long expireTime;
+
+        Item(V value, long expireTime) {
+            this.value = value;
+            this.expireTime = expireTime;
+        }
+    }
+}
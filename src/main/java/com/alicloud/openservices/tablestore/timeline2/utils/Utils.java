@@ -4,16 +4,21 @@ import com.alicloud.openservices.tablestore.ClientException;
 import com.alicloud.openservices.tablestore.TableStoreException;
 import com.alicloud.openservices.tablestore.model.*;
 import com.alicloud.openservices.tablestore.model.search.SearchQuery;
+import com.alicloud.openservices.tablestore.model.search.SearchRequest;
 import com.alicloud.openservices.tablestore.timeline2.TimelineException;
 import com.alicloud.openservices.tablestore.timeline2.model.*;
 import com.alicloud.openservices.tablestore.timeline2.model.RowPutChangeWithCallback;
+import com.alicloud.openservices.tablestore.timeline2.query.ScanParameter;
 import com.alicloud.openservices.tablestore.timeline2.query.SearchParameter;
 
 import java.lang.management.ManagementFactory;
 import java.net.InetAddress;
 import java.net.UnknownHostException;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
 
 public class Utils {
     public static SearchQuery toSearchQuery(SearchParameter searchParam) {
@@ -78,6 +83,54 @@ public class Utils {
         return builder.build();
     }
 
+    public static RangeRowQueryCriteria toRangeRowQueryCriteria(TimelineSchema schema, TimelineIdentifier identifier,
+                                                                ScanParameter parameter) {
+        RangeRowQueryCriteria criteria = new RangeRowQueryCriteria(schema.getTableName());
+        criteria.setMaxVersions(1);
+        criteria.setLimit(parameter.getMaxCount());
+        criteria.setDirection(parameter.isForward() ? Direction.FORWARD : Direction.BACKWARD);
+        if (parameter.getFilter() != null) {
+            criteria.setFilter(parameter.getFilter());
+        }
+
+        criteria.setInclusiveStartPrimaryKey(identifierToPrimaryKeyWithSequenceId(identifier,
+                schema.getSequenceIdColumnName(), parameter.getFrom(), false));
+        criteria.setExclusiveEndPrimaryKey(identifierToPrimaryKeyWithSequenceId(identifier,
+                schema.getSequenceIdColumnName(), parameter.getTo(), false));
+        if (parameter.getColumnsToGet() != null) {
+            criteria.addColumnsToGet(toColumnsToGet(schema, parameter.getColumnsToGet()));
+        }
+
+        return criteria;
+    }
+
+    /**
+     * Get the columns to read with primary key columns, so that the row is returned
+     * even if none of the columns exists.
+     */
+    public static String[] toColumnsToGet(TimelineSchema schema, Collection<String> columns) {
+        List<String> columnsToGet = new ArrayList<String>(columns.size() + schema.getIdentifierSchema().getKeys().size() + 1);
+        for (PrimaryKeySchema keySchema : schema.getIdentifierSchema().getKeys()) {
+            columnsToGet.add(keySchema.getName());
+        }
+        columnsToGet.add(schema.getSequenceIdColumnName());
+        columnsToGet.addAll(columns);
+        return columnsToGet.toArray(new String[columnsToGet.size()]);
+    }
+
+    /**
+     * Get the columns to get of search, which returns all columns if columns is null.
+     */
+    public static SearchRequest.ColumnsToGet toSearchColumnsToGet(Collection<String> columns) {
+        SearchRequest.ColumnsToGet columnsToGet = new SearchRequest.ColumnsToGet();
+        if (columns == null) {
+            columnsToGet.setReturnAll(true);
+        } else {
+            columnsToGet.setColumns(new ArrayList<String>(columns));
+        }
+        return columnsToGet;
+    }
+
     public static TimelineIdentifier primaryKeyToIdentifier(TimelineIdentifierSchema identifierSchema, PrimaryKey primaryKey) {
         TimelineIdentifier.Builder builder = new TimelineIdentifier.Builder();
         for (int i = 0; i < identifierSchema.getKeys().size(); i++) {
@@ -116,12 +169,7 @@ public class Utils {
         Preconditions.checkArgument(seqCol != null, "Invalid schema, can not find sequence column.");
         long sequenceId = seqCol.getValue().asLong();
 
-        TimelineMessage message = new TimelineMessage();
-        for (Column column : row.getColumns()) {
-            message.setField(column);
-        }
-
-        return new TimelineEntry(sequenceId, message);
+        return new TimelineEntry(sequenceId, new TimelineMessage(row));
     }
 
     /**
@@ -153,13 +201,38 @@ public class Utils {
     }
 
     public static TimelineException convertException(Exception e) {
-        if (e instanceof TableStoreException) {
-            TableStoreException ex = (TableStoreException)e;
-            return new TimelineException(ex.getErrorCode(), ex);
+        if (e instanceof TimelineException) {
+            return (TimelineException) e;
+        }
+        return new TimelineException(getErrorCode(e), e);
+    }
+
+    /**
+     * Get the error code of exception, which is the message of TimelineException converted by convertException.
+     */
+    public static String getErrorCode(Throwable e) {
+        if (e instanceof TimelineException) {
+            return e.getMessage();
+        } else if (e instanceof TableStoreException) {
+            return ((TableStoreException) e).getErrorCode();
         } else if (e instanceof ClientException) {
-            return new TimelineException("ClientError", e);
+            return "ClientError";
         } else {
-            return new TimelineException("OtherError", e);
+            return "OtherError";
+        }
+    }
+
+    public static <T> T waitForFuture(Future<T> future) {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new TimelineException("Interrupted", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            throw convertException(cause instanceof Exception ? (Exception) cause : e);
+        } catch (Exception e) {
+            throw convertException(e);
         }
     }
 
@@ -1,5 +1,6 @@
 package com.alicloud.openservices.tablestore.timeline;
 
+import com.alicloud.openservices.tablestore.ClientConfiguration;
 import com.alicloud.openservices.tablestore.SyncClient;
 import com.alicloud.openservices.tablestore.model.ColumnValue;
 import com.alicloud.openservices.tablestore.model.DeleteTableRequest;
@@ -11,11 +12,13 @@ import com.alicloud.openservices.tablestore.timeline.message.IMessage;
 import com.alicloud.openservices.tablestore.timeline.message.StringMessage;
 import com.alicloud.openservices.tablestore.timeline.store.DistributeTimelineConfig;
 import com.alicloud.openservices.tablestore.timeline.store.DistributeTimelineStore;
+import com.alicloud.openservices.tablestore.timeline.store.DistributeTimelineStoreGroup;
 import com.alicloud.openservices.tablestore.timeline.store.IStore;
 import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
 
+import java.util.ArrayList;
 import java.util.Date;
 import java.util.Iterator;
 import java.util.List;
@@ -501,6 +504,70 @@ public class TestDistributeTimelineStore {
         assertEquals(new String(message.serialize()), new String(entry.getMessage().serialize()));
     }
 
+    @Test
+    public void testBatchAsync() throws Exception {
+        config.setTableName(testTablePrefix + "testBatchAsync");
+        IStore store = new DistributeTimelineStore(config);
+        store.create();
+        sleep(5);
+
+        String timelineID = "00001";
+        final AtomicReference<TimelineEntry> callbackEntry = new AtomicReference<TimelineEntry>();
+        Future<TimelineEntry> first = store.batchAsync(timelineID, new StringMessage("first"), null);
+        Future<TimelineEntry> second = store.batchAsync(timelineID, new StringMessage("second"), new TimelineCallback<IMessage>() {
+            @Override
+            public void onCompleted(String timelineID, IMessage request, TimelineEntry timelineEntry) {
+                callbackEntry.set(timelineEntry);
+            }
+
+            @Override
+            public void onFailed(String timelineID, IMessage request, Exception ex) {
+            }
+        });
+
+        store.flush();
+        assertTrue(first.isDone());
+        assertTrue(second.isDone());
+        assertTrue(second.get().getSequenceID() > first.get().getSequenceID());
+        assertEquals(second.get().getSequenceID(), callbackEntry.get().getSequenceID());
+
+        TimelineEntry entry = store.read(timelineID, second.get().getSequenceID());
+        assertEquals("second", new String(entry.getMessage().serialize()));
+        store.close();
+    }
+
+    @Test
+    public void testStoreGroup() throws Exception {
+        DistributeTimelineStoreGroup group = new DistributeTimelineStoreGroup(endpoint, accessKeyID,
+                accessKeySecret, instanceName, new ClientConfiguration(), 2, 10);
+        config.setTableName(testTablePrefix + "testStoreGroup_store");
+        IStore store = group.createStore(config);
+        DistributeTimelineConfig syncConfig = new DistributeTimelineConfig(endpoint, accessKeyID,
+                accessKeySecret, instanceName, testTablePrefix + "testStoreGroup_sync");
+        IStore sync = group.createStore(syncConfig);
+        store.create();
+        sync.create();
+        sleep(5);
+
+        String timelineID = "00001";
+        List<Future<TimelineEntry>> futures = new ArrayList<Future<TimelineEntry>>();
+        for (int i = 0; i < 50; i++) {
+            futures.add(store.batchAsync(timelineID, new StringMessage("store_" + i), null));
+            futures.add(sync.batchAsync(timelineID, new StringMessage("sync_" + i), null));
+        }
+        group.flush();
+        for (Future<TimelineEntry> future : futures) {
+            assertTrue(future.get().getSequenceID() > 0);
+        }
+        assertEquals(0, group.getBufferedRows());
+
+        // the shared client is still available after one of the stores is closed
+        store.close();
+        assertEquals("sync_0", new String(sync.read(timelineID, futures.get(1).get().getSequenceID())
+                .getMessage().serialize()));
+        group.close();
+    }
+
     @Test
     public void testWriteUpdateRead_Attribute() {
         config.setTableName(testTablePrefix + "testWriteUpdateRead_Attribute");
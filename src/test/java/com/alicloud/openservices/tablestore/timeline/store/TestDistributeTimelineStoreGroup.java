@@ -0,0 +1,77 @@
+package com.alicloud.openservices.tablestore.timeline.store;
+
+import com.alicloud.openservices.tablestore.ClientConfiguration;
+import com.alicloud.openservices.tablestore.timeline.common.TimelineException;
+import com.alicloud.openservices.tablestore.timeline.common.TimelineExceptionType;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class TestDistributeTimelineStoreGroup {
+    private DistributeTimelineStoreGroup group;
+
+    @Before
+    public void setUp() {
+        group = new DistributeTimelineStoreGroup("http://localhost", "id", "secret", "instance",
+                new ClientConfiguration(), 1, 2);
+    }
+
+    @After
+    public void tearDown() {
+        group.close();
+    }
+
+    @Test(timeout = 5000)
+    public void testAcquireRow() throws Exception {
+        group.acquireRow();
+        group.acquireRow();
+        assertEquals(2, group.getBufferedRows());
+
+        Thread releaser = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    Thread.sleep(50);
+                } catch (InterruptedException e) {
+                    return;
+                }
+                group.releaseRow();
+            }
+        });
+        releaser.start();
+        group.acquireRow();
+        releaser.join();
+        assertEquals(2, group.getBufferedRows());
+    }
+
+    @Test(timeout = 5000)
+    public void testAcquireInWriterThread() throws Exception {
+        Callable<Void> acquire = new Callable<Void>() {
+            @Override
+            public Void call() {
+                group.acquireRow();
+                return null;
+            }
+        };
+        group.getExecutor().submit(acquire).get();
+        group.getExecutor().submit(acquire).get();
+
+        // the writer thread is not blocked when the limit is reached
+        Future<Void> future = group.getExecutor().submit(acquire);
+        try {
+            future.get(1, TimeUnit.SECONDS);
+            fail();
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof TimelineException);
+            assertEquals(TimelineExceptionType.INVALID_USE, ((TimelineException) e.getCause()).getType());
+        }
+        assertEquals(2, group.getBufferedRows());
+    }
+}
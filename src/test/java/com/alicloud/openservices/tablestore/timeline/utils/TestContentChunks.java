@@ -0,0 +1,262 @@
+package com.alicloud.openservices.tablestore.timeline.utils;
+
+import com.alicloud.openservices.tablestore.codec.ContentCodec;
+import com.alicloud.openservices.tablestore.model.*;
+import com.alicloud.openservices.tablestore.timeline.TimelineEntry;
+import com.alicloud.openservices.tablestore.timeline.common.TimelineException;
+import com.alicloud.openservices.tablestore.timeline.common.TimelineExceptionType;
+import com.alicloud.openservices.tablestore.timeline.message.IMessage;
+import com.alicloud.openservices.tablestore.timeline.message.IStreamMessage;
+import com.alicloud.openservices.tablestore.timeline.message.StringMessage;
+import com.alicloud.openservices.tablestore.timeline.store.DistributeTimelineConfig;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.zip.DeflaterOutputStream;
+
+import static org.junit.Assert.*;
+
+public class TestContentChunks {
+
+    private static class BytesMessage extends StringMessage implements IStreamMessage {
+        private byte[] bytes;
+        private int writeSize;
+
+        BytesMessage(byte[] bytes, int writeSize) {
+            this.bytes = bytes;
+            this.writeSize = writeSize;
+        }
+
+        @Override
+        public IMessage newInstance() {
+            return new BytesMessage(null, 0);
+        }
+
+        @Override
+        public byte[] serialize() {
+            return bytes;
+        }
+
+        @Override
+        public void deserialize(byte[] input) {
+            bytes = input;
+        }
+
+        @Override
+        public void serialize(OutputStream output) throws IOException {
+            for (int pos = 0; pos < bytes.length; pos += writeSize) {
+                output.write(bytes, pos, Math.min(writeSize, bytes.length - pos));
+            }
+        }
+
+        @Override
+        public void deserialize(InputStream input) throws IOException {
+            ByteArrayOutputStream stream = new ByteArrayOutputStream();
+            byte[] buffer = new byte[777];
+            int n;
+            while ((n = input.read(buffer)) != -1) {
+                stream.write(buffer, 0, n);
+            }
+            bytes = stream.toByteArray();
+        }
+    }
+
+    private static byte[] randomBytes(int length) {
+        byte[] bytes = new byte[length];
+        new Random(length).nextBytes(bytes);
+        return bytes;
+    }
+
+    @Test
+    public void testStreamSerialize() {
+        byte[] bytes = randomBytes(10000);
+        ContentChunks chunks = ContentChunks.serialize(new BytesMessage(bytes, 333), 4000, 2 * 1024 * 1024);
+
+        assertEquals(3, chunks.getChunks().size());
+        assertEquals(4000, chunks.getChunks().get(0).length);
+        assertEquals(4000, chunks.getChunks().get(1).length);
+        assertEquals(2000, chunks.getChunks().get(2).length);
+        assertEquals(10000, chunks.getLength());
+        assertEquals(Utils.crc32(bytes), chunks.getCrc32());
+        assertArrayEquals(bytes, chunks.toByteArray());
+
+        BytesMessage message = new BytesMessage(null, 0);
+        chunks.deserializeTo(message);
+        assertArrayEquals(bytes, message.serialize());
+    }
+
+    @Test
+    public void testBytesSerialize() {
+        char[] chars = new char[10000];
+        Arrays.fill(chars, 'a');
+        ContentChunks chunks = ContentChunks.serialize(new StringMessage(new String(chars)), 4000, 2 * 1024 * 1024);
+        assertEquals(3, chunks.getChunks().size());
+        assertEquals(2000, chunks.getChunks().get(2).length);
+
+        // the content is not copied if it fits in one column
+        StringMessage message = new StringMessage("hello");
+        chunks = ContentChunks.serialize(message, 4000, 2 * 1024 * 1024);
+        assertEquals(1, chunks.getChunks().size());
+        assertEquals(Utils.crc32("hello".getBytes()), chunks.getCrc32());
+
+        chunks = ContentChunks.serialize(new StringMessage(), 4000, 2 * 1024 * 1024);
+        assertEquals(0, chunks.getChunks().size());
+        assertEquals(0, chunks.getLength());
+    }
+
+    @Test
+    public void testReadChunks() throws IOException {
+        byte[] bytes = randomBytes(1000);
+        ContentChunks chunks = new ContentChunks();
+        chunks.add(Arrays.copyOfRange(bytes, 0, 100));
+        chunks.add(new byte[0]);
+        chunks.add(Arrays.copyOfRange(bytes, 100, 1000));
+        assertEquals(Utils.crc32(bytes), chunks.getCrc32());
+
+        InputStream input = chunks.asInputStream();
+        assertEquals(bytes[0] & 0xff, input.read());
+        assertEquals(99, input.skip(99));
+        byte[] rest = new byte[1000];
+        assertEquals(900, input.read(rest, 0, rest.length));
+        assertArrayEquals(Arrays.copyOfRange(bytes, 100, 1000), Arrays.copyOf(rest, 900));
+        assertEquals(-1, input.read());
+        assertEquals(-1, input.read(rest, 0, rest.length));
+
+        BytesMessage message = new BytesMessage(null, 0);
+        chunks.deserializeTo(message);
+        assertArrayEquals(bytes, message.serialize());
+    }
+
+    @Test
+    public void testTooLarge() {
+        try {
+            ContentChunks.serialize(new BytesMessage(randomBytes(2000), 100), 400, 1000);
+            fail();
+        } catch (TimelineException e) {
+            assertEquals(TimelineExceptionType.INVALID_USE, e.getType());
+        }
+    }
+
+    private static String repeat(String text, int count) {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < count; i++) {
+            sb.append(text);
+        }
+        return sb.toString();
+    }
+
+    @Test
+    public void testCodec() {
+        String text = repeat("{\"sender\":\"user_a\",\"text\":\"hello\"}", 1000);
+        ContentChunks chunks = ContentChunks.serialize(new StringMessage(text), 4000, 2 * 1024 * 1024,
+                ContentCodec.DEFLATE_FAST, 1024);
+        assertEquals("deflate", chunks.getCodec());
+        assertTrue(chunks.getLength() < text.length() / 10);
+
+        StringMessage message = new StringMessage();
+        chunks.deserializeTo(message);
+        assertEquals(text, message.getContent());
+
+        // not compressed if shorter than threshold, or compressed content is not shorter
+        chunks = ContentChunks.serialize(new StringMessage("hello"), 4000, 2 * 1024 * 1024, ContentCodec.DEFLATE, 0);
+        assertNull(chunks.getCodec());
+        chunks = ContentChunks.serialize(new StringMessage(text), 4000, 2 * 1024 * 1024, ContentCodec.DEFLATE, 1024 * 1024);
+        assertNull(chunks.getCodec());
+
+        // stream message is always compressed, even if the content is not compressible
+        byte[] bytes = randomBytes(5000);
+        chunks = ContentChunks.serialize(new BytesMessage(bytes, 1000), 400, 2 * 1024 * 1024, ContentCodec.DEFLATE, 1024 * 1024);
+        assertEquals("deflate", chunks.getCodec());
+        assertTrue(chunks.getChunks().size() > 1);
+        BytesMessage bytesMessage = new BytesMessage(null, 0);
+        chunks.deserializeTo(bytesMessage);
+        assertArrayEquals(bytes, bytesMessage.serialize());
+
+        chunks.setCodec("unknown");
+        try {
+            chunks.deserializeTo(bytesMessage);
+            fail();
+        } catch (TimelineException e) {
+            assertEquals(TimelineExceptionType.INVALID_USE, e.getType());
+        }
+    }
+
+    private static byte[] deflateZeros(int length) throws IOException {
+        ByteArrayOutputStream stream = new ByteArrayOutputStream();
+        DeflaterOutputStream output = new DeflaterOutputStream(stream);
+        byte[] zeros = new byte[1024 * 1024];
+        for (int pos = 0; pos < length; pos += zeros.length) {
+            output.write(zeros, 0, Math.min(zeros.length, length - pos));
+        }
+        output.close();
+        return stream.toByteArray();
+    }
+
+    @Test
+    public void testDecodedTooLong() throws IOException {
+        ContentChunks chunks = new ContentChunks();
+        chunks.add(deflateZeros(ContentCodec.MAX_DECODED_LENGTH + 1));
+        chunks.setCodec("deflate");
+        assertTrue(chunks.getLength() < 2 * 1024 * 1024);
+
+        try {
+            chunks.deserializeTo(new StringMessage());
+            fail();
+        } catch (TimelineException e) {
+            assertEquals(TimelineExceptionType.ABORT, e.getType());
+        }
+
+        try {
+            chunks.deserializeTo(new BytesMessage(null, 0));
+            fail();
+        } catch (TimelineException e) {
+            assertEquals(TimelineExceptionType.ABORT, e.getType());
+        }
+
+        // the content of max length is still readable
+        chunks = new ContentChunks();
+        chunks.add(deflateZeros(ContentCodec.MAX_DECODED_LENGTH));
+        chunks.setCodec("deflate");
+        BytesMessage bytesMessage = new BytesMessage(null, 0);
+        chunks.deserializeTo(bytesMessage);
+        assertEquals(ContentCodec.MAX_DECODED_LENGTH, bytesMessage.serialize().length);
+    }
+
+    @Test
+    public void testReadCompressedRow() {
+        DistributeTimelineConfig config = new DistributeTimelineConfig("", "", "", "", "");
+        String text = repeat("hello world ", 1000);
+        ContentChunks chunks = ContentChunks.serialize(new StringMessage(text), 100, 2 * 1024 * 1024,
+                ContentCodec.DEFLATE, 1024);
+
+        List<Column> columns = new ArrayList<Column>();
+        int index = Utils.CONTENT_COLUMN_START_ID;
+        for (byte[] chunk : chunks.getChunks()) {
+            columns.add(new Column(Utils.SYSTEM_COLUMN_NAME_PREFIX + config.getMessageContentSuffix() + (index++),
+                    ColumnValue.fromBinary(chunk)));
+        }
+        columns.add(new Column(Utils.SYSTEM_COLUMN_NAME_PREFIX + config.getMessageContentCountSuffix(),
+                ColumnValue.fromLong(chunks.getChunks().size())));
+        columns.add(new Column(Utils.SYSTEM_COLUMN_NAME_PREFIX + config.getColumnNameOfMessageCrc32Suffix(),
+                ColumnValue.fromLong(chunks.getCrc32())));
+        columns.add(new Column(Utils.SYSTEM_COLUMN_NAME_PREFIX + config.getMessageContentCodecSuffix(),
+                ColumnValue.fromString(chunks.getCodec())));
+        columns.add(new Column(Utils.SYSTEM_COLUMN_NAME_PREFIX + config.getMessageIDColumnNameSuffix(),
+                ColumnValue.fromString("10000000001")));
+        PrimaryKey pk = PrimaryKeyBuilder.createPrimaryKeyBuilder()
+                .addPrimaryKeyColumn("pk1", PrimaryKeyValue.fromString("t_1"))
+                .addPrimaryKeyColumn("pk2", PrimaryKeyValue.fromLong(10001))
+                .build();
+
+        TimelineEntry entry = Utils.toTimelineEntry(new Row(pk, columns), config);
+        assertEquals(text, ((StringMessage) entry.getMessage()).getContent());
+        assertEquals("10000000001", entry.getMessage().getMessageID());
+    }
+}
@@ -0,0 +1,44 @@
+package com.alicloud.openservices.tablestore.timeline.utils;
+
+import com.alicloud.openservices.tablestore.timeline.store.DistributeTimelineConfig;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class TestMessageRowLayout {
+    @Test
+    public void testColumnType() {
+        DistributeTimelineConfig config = new DistributeTimelineConfig("", "", "", "", "");
+        MessageRowLayout layout = config.getRowLayout();
+        assertSame(layout, config.getRowLayout());
+
+        assertEquals(MessageRowLayout.CONTENT, layout.getColumnType("__content10000"));
+        assertEquals(MessageRowLayout.CONTENT_COUNT, layout.getColumnType("__column_count"));
+        assertEquals(MessageRowLayout.MESSAGE_ID, layout.getColumnType("__message_id"));
+        assertEquals(MessageRowLayout.CRC32, layout.getColumnType("__crc32"));
+        assertEquals(MessageRowLayout.CODEC, layout.getColumnType("__codec"));
+        assertEquals(MessageRowLayout.OTHER_SYSTEM, layout.getColumnType("__other"));
+        assertEquals(MessageRowLayout.ATTRIBUTE, layout.getColumnType("age"));
+
+        assertEquals("__content10000", layout.getContentName(0));
+        assertEquals("__content10002", layout.getContentName(2));
+        assertEquals(10005, layout.parseContentSeqID("__content10005"));
+    }
+
+    @Test
+    public void testRebuildOnChange() {
+        DistributeTimelineConfig config = new DistributeTimelineConfig("", "", "", "", "");
+        MessageRowLayout layout = config.getRowLayout();
+
+        config.setColumnNameOfMessageCrc32Suffix("");
+        config.setMessageContentSuffix("body");
+        config.setColumnMaxLength(1);
+        assertNotSame(layout, config.getRowLayout());
+        layout = config.getRowLayout();
+
+        assertNull(layout.getCrc32Name());
+        assertEquals(MessageRowLayout.OTHER_SYSTEM, layout.getColumnType("__crc32"));
+        assertEquals(MessageRowLayout.CONTENT, layout.getColumnType("__body10000"));
+        assertEquals("__body12000", layout.getContentName(2000));
+    }
+}
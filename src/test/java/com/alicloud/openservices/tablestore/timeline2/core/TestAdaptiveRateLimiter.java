@@ -0,0 +1,150 @@
+package com.alicloud.openservices.tablestore.timeline2.core;
+
+import com.alicloud.openservices.tablestore.timeline2.AdaptiveRateLimiter;
+import com.alicloud.openservices.tablestore.timeline2.TimelineException;
+import com.alicloud.openservices.tablestore.timeline2.TimelineQueue;
+import com.alicloud.openservices.tablestore.timeline2.TimelineStore;
+import com.alicloud.openservices.tablestore.timeline2.memory.MemoryTableStore;
+import com.alicloud.openservices.tablestore.timeline2.model.TimelineEntry;
+import com.alicloud.openservices.tablestore.timeline2.model.TimelineFuture;
+import com.alicloud.openservices.tablestore.timeline2.model.TimelineIdentifier;
+import com.alicloud.openservices.tablestore.timeline2.model.TimelineIdentifierSchema;
+import com.alicloud.openservices.tablestore.timeline2.model.TimelineMessage;
+import com.alicloud.openservices.tablestore.timeline2.model.TimelineSchema;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class TestAdaptiveRateLimiter {
+    private static final double DELTA = 1e-6;
+
+    @Test
+    public void testAIMD() throws Exception {
+        HistogramMetricsListener listener = new HistogramMetricsListener();
+        AdaptiveRateLimiter limiter = new AdaptiveRateLimiter(100, 1000)
+                .withAdjustInterval(10)
+                .withMetricsListener(listener);
+        assertEquals(100, limiter.getRequestRate("table"), DELTA);
+        assertEquals(1000, limiter.getCapacityUnitRate("table"), DELTA);
+
+        Thread.sleep(20);
+        limiter.onResult("table", AdaptiveRateLimiter.ERROR_SERVER_BUSY);
+        assertEquals(50, limiter.getRequestRate("table"), DELTA);
+        assertEquals(50, listener.getAllowedRequestRate("table"), DELTA);
+
+        // decreased only once in the same interval
+        limiter.onResult("table", AdaptiveRateLimiter.ERROR_SERVER_BUSY);
+        assertEquals(50, limiter.getRequestRate("table"), DELTA);
+
+        Thread.sleep(20);
+        limiter.onResult("table", AdaptiveRateLimiter.ERROR_CAPACITY_UNIT_EXHAUSTED);
+        assertEquals(50, limiter.getRequestRate("table"), DELTA);
+        assertEquals(500, limiter.getCapacityUnitRate("table"), DELTA);
+
+        Thread.sleep(20);
+        limiter.onResult("table", null);
+        assertEquals(55, limiter.getRequestRate("table"), DELTA);
+        assertEquals(550, limiter.getCapacityUnitRate("table"), DELTA);
+        assertEquals(550, listener.getAllowedCapacityUnitRate("table"), DELTA);
+
+        // other errors don't change the rate, and other tables are not affected
+        Thread.sleep(20);
+        limiter.onResult("table", "OTSConditionCheckFail");
+        assertEquals(55, limiter.getRequestRate("table"), DELTA);
+        assertEquals(100, limiter.getRequestRate("other_table"), DELTA);
+    }
+
+    @Test
+    public void testMinRate() throws Exception {
+        AdaptiveRateLimiter limiter = new AdaptiveRateLimiter(100, 0)
+                .withAdjustInterval(1)
+                .withMinRatio(0.1);
+        for (int i = 0; i < 10; i++) {
+            Thread.sleep(5);
+            limiter.onResult("table", AdaptiveRateLimiter.ERROR_QUOTA_EXHAUSTED);
+        }
+        assertEquals(10, limiter.getRequestRate("table"), DELTA);
+        assertEquals(0, limiter.getCapacityUnitRate("table"), DELTA);
+    }
+
+    @Test
+    public void testAcquire() {
+        AdaptiveRateLimiter limiter = new AdaptiveRateLimiter(1000, 20);
+
+        // the burst of one second is allowed without waiting
+        long start = System.nanoTime();
+        for (int i = 0; i < 10; i++) {
+            limiter.acquire("table", 2);
+        }
+        assertTrue(System.nanoTime() - start < 50 * 1000 * 1000L);
+
+        // 10 capacity units in debt at 20 per second
+        limiter.acquire("table", 10);
+        assertTrue(System.nanoTime() - start >= 400 * 1000 * 1000L);
+    }
+
+    @Test
+    public void testTimelineStore() throws Exception {
+        MemoryTableStore memoryStore = new MemoryTableStore();
+        AdaptiveRateLimiter limiter = new AdaptiveRateLimiter(1000, 0).withAdjustInterval(1);
+        TimelineSchema schema = new TimelineSchema("rate_table", new TimelineIdentifierSchema.Builder()
+                .addStringField("timeline_id").build())
+                .withRateLimiter(limiter);
+        TimelineStore timelineStore = new TimelineStoreImpl(memoryStore.asSyncClient(), schema);
+        timelineStore.prepareTables();
+        TimelineQueue queue = timelineStore.createTimelineQueue(new TimelineIdentifier.Builder()
+                .addField("timeline_id", "group_a").build());
+
+        Thread.sleep(5);
+        memoryStore.withThrottling(1.0);
+        try {
+            queue.store(new TimelineMessage().setField("text", "throttled"));
+            fail();
+        } catch (TimelineException e) {
+            assertEquals(MemoryTableStore.ERROR_SERVER_BUSY, e.getMessage());
+        }
+        assertEquals(500, limiter.getRequestRate("rate_table"), DELTA);
+
+        Thread.sleep(5);
+        memoryStore.withThrottling(0);
+        queue.store(new TimelineMessage().setField("text", "stored"));
+        assertEquals(550, limiter.getRequestRate("rate_table"), DELTA);
+
+        timelineStore.close();
+        memoryStore.shutdown();
+    }
+
+    @Test
+    public void testAsyncNotBlocked() throws Exception {
+        MemoryTableStore memoryStore = new MemoryTableStore();
+        TimelineSchema schema = new TimelineSchema("rate_table", new TimelineIdentifierSchema.Builder()
+                .addStringField("timeline_id").build())
+                .withRateLimiter(new AdaptiveRateLimiter(20, 0));
+        TimelineStore timelineStore = new TimelineStoreImpl(memoryStore.asSyncClient(), schema);
+        timelineStore.prepareTables();
+        TimelineQueue queue = timelineStore.createTimelineQueue(new TimelineIdentifier.Builder()
+                .addField("timeline_id", "group_a").build());
+
+        // the requests out of the burst are sent by timer, instead of blocking the caller
+        long start = System.nanoTime();
+        List<TimelineFuture<TimelineEntry>> futures = new ArrayList<TimelineFuture<TimelineEntry>>();
+        for (int i = 0; i < 30; i++) {
+            futures.add(queue.storeAsync(new TimelineMessage().setField("index", i), null));
+        }
+        assertTrue(System.nanoTime() - start < 100 * 1000 * 1000L);
+
+        for (int i = 0; i < futures.size(); i++) {
+            assertEquals(i, futures.get(i).get(5, TimeUnit.SECONDS).getMessage().getLong("index"));
+        }
+        // 10 requests in debt at 20 per second
+        assertTrue(System.nanoTime() - start >= 400 * 1000 * 1000L);
+        assertEquals(30, memoryStore.getRowCount("rate_table"));
+
+        timelineStore.close();
+        memoryStore.shutdown();
+    }
+}
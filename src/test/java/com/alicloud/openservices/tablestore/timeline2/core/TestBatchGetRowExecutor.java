@@ -0,0 +1,197 @@
+package com.alicloud.openservices.tablestore.timeline2.core;
+
+import com.alicloud.openservices.tablestore.TableStoreException;
+import com.alicloud.openservices.tablestore.model.PrimaryKey;
+import com.alicloud.openservices.tablestore.model.Row;
+import com.alicloud.openservices.tablestore.timeline2.TimelineException;
+import com.alicloud.openservices.tablestore.timeline2.TimelineMetaStore;
+import com.alicloud.openservices.tablestore.timeline2.TimelineQueue;
+import com.alicloud.openservices.tablestore.timeline2.TimelineStore;
+import com.alicloud.openservices.tablestore.timeline2.memory.MemoryTableStore;
+import com.alicloud.openservices.tablestore.timeline2.model.*;
+import com.alicloud.openservices.tablestore.timeline2.utils.Utils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+public class TestBatchGetRowExecutor {
+    private static final String META_TABLE = "meta_table";
+    private static final int META_COUNT = 250;
+
+    private MemoryTableStore memoryStore;
+    private TimelineMetaStore metaStore;
+
+    @Before
+    public void setUp() {
+        memoryStore = new MemoryTableStore().withRandomSeed(7);
+        metaStore = new TimelineMetaStoreImpl(memoryStore.asSyncClient(), new TimelineMetaSchema(META_TABLE,
+                new TimelineIdentifierSchema.Builder().addStringField("timeline_id").build()));
+        metaStore.prepareTables();
+        for (int i = 0; i < META_COUNT; i++) {
+            metaStore.insert(new TimelineMeta(identifier(i)).setField("index", i));
+        }
+    }
+
+    @After
+    public void tearDown() {
+        metaStore.close();
+        memoryStore.shutdown();
+    }
+
+    private static TimelineIdentifier identifier(int index) {
+        return new TimelineIdentifier.Builder().addField("timeline_id", "group_" + index).build();
+    }
+
+    private static List<PrimaryKey> primaryKeys(int... indexes) {
+        List<PrimaryKey> primaryKeys = new ArrayList<PrimaryKey>();
+        for (int index : indexes) {
+            primaryKeys.add(Utils.identifierToPrimaryKey(identifier(index)));
+        }
+        return primaryKeys;
+    }
+
+    private static int[] range(int from, int to) {
+        int[] indexes = new int[to - from];
+        for (int i = from; i < to; i++) {
+            indexes[i - from] = i;
+        }
+        return indexes;
+    }
+
+    private Row[] batchGet(List<PrimaryKey> primaryKeys) {
+        return new BatchGetRowExecutor(memoryStore.asAsyncClient()).batchGet(META_TABLE, primaryKeys);
+    }
+
+    @Test
+    public void testChunksInOrder() {
+        // the rows of the last chunk are not exist
+        Row[] rows = batchGet(primaryKeys(range(0, META_COUNT + 20)));
+
+        assertEquals(META_COUNT + 20, rows.length);
+        for (int i = 0; i < META_COUNT; i++) {
+            assertEquals(i, rows[i].getLatestColumn("index").getValue().asLong());
+        }
+        for (int i = META_COUNT; i < rows.length; i++) {
+            assertNull(rows[i]);
+        }
+        assertEquals(3, memoryStore.getRequestCount("batchGetRow"));
+
+        assertEquals(0, batchGet(new ArrayList<PrimaryKey>()).length);
+        assertEquals(3, memoryStore.getRequestCount("batchGetRow"));
+    }
+
+    @Test
+    public void testDuplicatedKeys() {
+        List<PrimaryKey> primaryKeys = primaryKeys(range(0, 100));
+        primaryKeys.addAll(primaryKeys(3, 1, 3, 300));
+
+        // the repeated keys are read once, so that 101 distinct keys are split into 2 chunks
+        Row[] rows = batchGet(primaryKeys);
+        assertEquals(104, rows.length);
+        assertEquals(3, rows[100].getLatestColumn("index").getValue().asLong());
+        assertEquals(1, rows[101].getLatestColumn("index").getValue().asLong());
+        assertEquals(3, rows[102].getLatestColumn("index").getValue().asLong());
+        assertNull(rows[103]);
+        assertEquals(2, memoryStore.getRequestCount("batchGetRow"));
+    }
+
+    @Test
+    public void testRetryFailedRows() {
+        memoryStore.withBatchRowFailure(0.1);
+
+        Row[] rows = batchGet(primaryKeys(range(0, META_COUNT)));
+        for (int i = 0; i < META_COUNT; i++) {
+            assertEquals(i, rows[i].getLatestColumn("index").getValue().asLong());
+        }
+        assertTrue(memoryStore.getRequestCount("batchGetRow") > 3);
+    }
+
+    @Test
+    public void testRetryExhausted() {
+        memoryStore.withBatchRowFailure(1.0);
+
+        try {
+            batchGet(primaryKeys(1, 2));
+            fail();
+        } catch (TimelineException e) {
+            assertEquals(MemoryTableStore.ERROR_SERVER_BUSY, e.getMessage());
+            assertEquals("Injected batch row error.", e.getCause().getMessage());
+        }
+        assertEquals(BatchGetRowExecutor.MAX_RETRY_TIMES + 1, memoryStore.getRequestCount("batchGetRow"));
+    }
+
+    @Test
+    public void testNotRetryable() {
+        memoryStore.withBatchRowFailure(1.0, MemoryTableStore.ERROR_PARAMETER_INVALID);
+
+        try {
+            batchGet(primaryKeys(1, 2));
+            fail();
+        } catch (TimelineException e) {
+            assertEquals(MemoryTableStore.ERROR_PARAMETER_INVALID, e.getMessage());
+            assertTrue(e.getCause() instanceof TableStoreException);
+            assertEquals("Injected batch row error.", e.getCause().getMessage());
+        }
+        assertEquals(1, memoryStore.getRequestCount("batchGetRow"));
+    }
+
+    @Test
+    public void testBatchRead() {
+        List<TimelineIdentifier> identifiers = Arrays.asList(identifier(5), identifier(300), identifier(1), identifier(5));
+
+        List<TimelineMeta> metas = metaStore.batchRead(identifiers);
+        assertEquals(4, metas.size());
+        assertEquals(identifier(5), metas.get(0).getIdentifier());
+        assertEquals(5, metas.get(0).getLong("index"));
+        assertNull(metas.get(1));
+        assertEquals(1, metas.get(2).getLong("index"));
+        assertEquals(5, metas.get(3).getLong("index"));
+    }
+
+    @Test
+    public void testBatchGet() {
+        TimelineStore timelineStore = new TimelineStoreImpl(memoryStore.asSyncClient(), new TimelineSchema("batch_get_table",
+                new TimelineIdentifierSchema.Builder().addStringField("timeline_id").build()).manualSetSeqId());
+        timelineStore.prepareTables();
+        TimelineQueue queueA = timelineStore.createTimelineQueue(identifier(0));
+        TimelineQueue queueB = timelineStore.createTimelineQueue(identifier(1));
+        for (long sequenceId = 1; sequenceId <= 150; sequenceId++) {
+            queueA.store(sequenceId, new TimelineMessage().setField("text", "a" + sequenceId));
+        }
+        queueB.store(7, new TimelineMessage().setField("text", "b7"));
+
+        List<Long> sequenceIdsOfA = new ArrayList<Long>();
+        for (long sequenceId = 150; sequenceId >= 1; sequenceId--) {
+            sequenceIdsOfA.add(sequenceId);
+        }
+        Map<TimelineIdentifier, List<Long>> sequenceIds = new LinkedHashMap<TimelineIdentifier, List<Long>>();
+        sequenceIds.put(identifier(1), Arrays.asList(8L, 7L));
+        sequenceIds.put(identifier(0), sequenceIdsOfA);
+
+        Map<TimelineIdentifier, List<TimelineEntry>> result = timelineStore.batchGet(sequenceIds);
+        assertArrayEquals(new Object[]{identifier(1), identifier(0)}, result.keySet().toArray());
+
+        List<TimelineEntry> entriesOfB = result.get(identifier(1));
+        assertNull(entriesOfB.get(0));
+        assertEquals("b7", entriesOfB.get(1).getMessage().getString("text"));
+
+        List<TimelineEntry> entriesOfA = result.get(identifier(0));
+        assertEquals(150, entriesOfA.size());
+        for (int i = 0; i < entriesOfA.size(); i++) {
+            long sequenceId = 150 - i;
+            assertEquals(sequenceId, entriesOfA.get(i).getSequenceID());
+            assertEquals("a" + sequenceId, entriesOfA.get(i).getMessage().getString("text"));
+        }
+        assertEquals(2, memoryStore.getRequestCount("batchGetRow"));
+
+        timelineStore.close();
+    }
+}
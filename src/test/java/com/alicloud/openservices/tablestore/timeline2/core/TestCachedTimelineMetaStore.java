@@ -0,0 +1,160 @@
+package com.alicloud.openservices.tablestore.timeline2.core;
+
+import com.alicloud.openservices.tablestore.model.search.SearchQuery;
+import com.alicloud.openservices.tablestore.timeline2.TimelineMetaStore;
+import com.alicloud.openservices.tablestore.timeline2.model.CacheStatistics;
+import com.alicloud.openservices.tablestore.timeline2.model.TimelineIdentifier;
+import com.alicloud.openservices.tablestore.timeline2.model.TimelineMeta;
+import com.alicloud.openservices.tablestore.timeline2.query.SearchParameter;
+import com.alicloud.openservices.tablestore.timeline2.query.SearchResult;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+public class TestCachedTimelineMetaStore {
+
+    private static class MemoryMetaStore implements TimelineMetaStore {
+        private final Map<TimelineIdentifier, TimelineMeta> metas = new HashMap<TimelineIdentifier, TimelineMeta>();
+        private int readCount = 0;
+        private int batchReadCount = 0;
+
+        @Override
+        public TimelineMeta read(TimelineIdentifier identifier) {
+            readCount++;
+            return metas.get(identifier);
+        }
+
+        @Override
+        public List<TimelineMeta> batchRead(Collection<TimelineIdentifier> identifiers) {
+            batchReadCount++;
+            List<TimelineMeta> result = new ArrayList<TimelineMeta>();
+            for (TimelineIdentifier identifier : identifiers) {
+                readCount++;
+                result.add(metas.get(identifier));
+            }
+            return result;
+        }
+
+        @Override
+        public SearchResult<TimelineMeta> search(SearchParameter searchParameter) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public SearchResult<TimelineMeta> search(SearchQuery searchQuery) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public TimelineMeta insert(TimelineMeta meta) {
+            metas.put(meta.getIdentifier(), meta);
+            return meta;
+        }
+
+        @Override
+        public TimelineMeta update(TimelineMeta meta) {
+            metas.put(meta.getIdentifier(), meta);
+            return meta;
+        }
+
+        @Override
+        public void delete(TimelineIdentifier identifier) {
+            metas.remove(identifier);
+        }
+
+        @Override
+        public void prepareTables() {
+        }
+
+        @Override
+        public void dropAllTables() {
+            metas.clear();
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+
+    private TimelineIdentifier identifier(String id) {
+        return new TimelineIdentifier.Builder()
+                .addField("groupId", id)
+                .build();
+    }
+
+    @Test
+    public void testReadThrough() {
+        MemoryMetaStore store = new MemoryMetaStore();
+        CachedTimelineMetaStore cachedStore = new CachedTimelineMetaStore(store, 100, 60000);
+
+        cachedStore.insert(new TimelineMeta(identifier("group_a")).setField("name", "a"));
+        assertEquals("a", cachedStore.read(identifier("group_a")).getString("name"));
+        assertEquals("a", cachedStore.read(identifier("group_a")).getString("name"));
+        assertEquals(1, store.readCount);
+
+        CacheStatistics statistics = cachedStore.getStatistics();
+        assertEquals(1, statistics.getHitCount());
+        assertEquals(1, statistics.getMissCount());
+    }
+
+    @Test
+    public void testNegativeCache() {
+        MemoryMetaStore store = new MemoryMetaStore();
+        CachedTimelineMetaStore cachedStore = new CachedTimelineMetaStore(store, 100, 60000);
+
+        assertNull(cachedStore.read(identifier("group_a")));
+        assertNull(cachedStore.read(identifier("group_a")));
+        assertEquals(1, store.readCount);
+
+        cachedStore.insert(new TimelineMeta(identifier("group_a")).setField("name", "a"));
+        assertEquals("a", cachedStore.read(identifier("group_a")).getString("name"));
+        assertEquals(2, store.readCount);
+    }
+
+    @Test
+    public void testInvalidate() {
+        MemoryMetaStore store = new MemoryMetaStore();
+        CachedTimelineMetaStore cachedStore = new CachedTimelineMetaStore(store, 100, 60000);
+
+        cachedStore.insert(new TimelineMeta(identifier("group_a")).setField("name", "a"));
+        cachedStore.read(identifier("group_a"));
+
+        cachedStore.update(new TimelineMeta(identifier("group_a")).setField("name", "b"));
+        assertEquals("b", cachedStore.read(identifier("group_a")).getString("name"));
+
+        cachedStore.delete(identifier("group_a"));
+        assertNull(cachedStore.read(identifier("group_a")));
+        assertEquals(3, store.readCount);
+    }
+
+    @Test
+    public void testBatchRead() {
+        MemoryMetaStore store = new MemoryMetaStore();
+        CachedTimelineMetaStore cachedStore = new CachedTimelineMetaStore(store, 100, 60000);
+
+        cachedStore.insert(new TimelineMeta(identifier("group_a")).setField("name", "a"));
+        cachedStore.insert(new TimelineMeta(identifier("group_c")).setField("name", "c"));
+        cachedStore.read(identifier("group_a"));
+
+        List<TimelineMeta> metas = cachedStore.batchRead(Arrays.asList(
+                identifier("group_c"), identifier("group_b"), identifier("group_a")));
+        assertEquals(3, metas.size());
+        assertEquals("c", metas.get(0).getString("name"));
+        assertNull(metas.get(1));
+        assertEquals("a", metas.get(2).getString("name"));
+        assertEquals(1, store.batchReadCount);
+        assertEquals(3, store.readCount);
+
+        metas = cachedStore.batchRead(Arrays.asList(identifier("group_b"), identifier("group_c")));
+        assertNull(metas.get(0));
+        assertEquals("c", metas.get(1).getString("name"));
+        assertEquals(1, store.batchReadCount);
+    }
+}
@@ -0,0 +1,77 @@
+package com.alicloud.openservices.tablestore.timeline2.core;
+
+import com.alicloud.openservices.tablestore.timeline2.TimelineException;
+import com.alicloud.openservices.tablestore.timeline2.TimelineQueue;
+import com.alicloud.openservices.tablestore.timeline2.TimelineStore;
+import com.alicloud.openservices.tablestore.timeline2.memory.MemoryTableStore;
+import com.alicloud.openservices.tablestore.timeline2.model.TimelineIdentifier;
+import com.alicloud.openservices.tablestore.timeline2.model.TimelineIdentifierSchema;
+import com.alicloud.openservices.tablestore.timeline2.model.TimelineMessage;
+import com.alicloud.openservices.tablestore.timeline2.model.TimelineSchema;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class TestHistogramMetricsListener {
+
+    @Test
+    public void testListener() {
+        HistogramMetricsListener listener = new HistogramMetricsListener();
+        listener.onRequest("putRow", 100, 1, 20);
+        listener.onRequest("putRow", 300, 1, 40);
+        listener.onRequest("batchWriteRow", 1000, 50, 2000);
+        listener.onError("batchWriteRow", "OTSServerBusy");
+        listener.onError("putRow", "OTSServerBusy");
+        listener.onWriterState(10, 2);
+
+        HistogramMetricsListener.OperationMetrics putRow = listener.getOperationMetrics("putRow");
+        assertEquals(2, putRow.getRequestCount());
+        assertEquals(2, putRow.getRowCount());
+        assertEquals(60, putRow.getBytes());
+        assertEquals(1, putRow.getErrorCount());
+        assertEquals(300, putRow.getLatencyMicros().getMax());
+
+        assertEquals(50, listener.getOperationMetrics("batchWriteRow").getRowsPerRequest().getMax());
+        assertEquals(2, (long) listener.getErrorCounts().get("OTSServerBusy"));
+        assertEquals(10, listener.getWriterPendingRows().getMax());
+        assertEquals(2, listener.getCallbackQueueLength().getMax());
+        assertNull(listener.getOperationMetrics("getRow"));
+    }
+
+    @Test
+    public void testTimelineStoreMetrics() {
+        MemoryTableStore memoryStore = new MemoryTableStore();
+        HistogramMetricsListener listener = new HistogramMetricsListener();
+        TimelineSchema schema = new TimelineSchema("metrics_table", new TimelineIdentifierSchema.Builder()
+                .addStringField("timeline_id").build())
+                .withMetricsListener(listener);
+
+        TimelineStore timelineStore = new TimelineStoreImpl(memoryStore.asSyncClient(), schema);
+        timelineStore.prepareTables();
+        TimelineQueue queue = timelineStore.createTimelineQueue(new TimelineIdentifier.Builder()
+                .addField("timeline_id", "group_a").build());
+
+        for (int i = 0; i < 3; i++) {
+            queue.store(new TimelineMessage().setField("text", "message " + i));
+        }
+        assertEquals(3, listener.getOperationMetrics("putRow").getRequestCount());
+        assertEquals(3, listener.getOperationMetrics("putRow").getRowCount());
+        assertTrue(listener.getOperationMetrics("putRow").getBytes() > 0);
+
+        queue.getLatestSequenceId();
+        assertEquals(1, listener.getOperationMetrics("getRange").getRowCount());
+
+        memoryStore.withThrottling(1.0);
+        try {
+            queue.store(new TimelineMessage().setField("text", "throttled"));
+            fail();
+        } catch (TimelineException e) {
+            assertEquals(MemoryTableStore.ERROR_SERVER_BUSY, e.getMessage());
+        }
+        assertEquals(1, listener.getOperationMetrics("putRow").getErrorCount());
+        assertEquals(1, (long) listener.getErrorCounts().get(MemoryTableStore.ERROR_SERVER_BUSY));
+
+        timelineStore.close();
+        memoryStore.shutdown();
+    }
+}
@@ -0,0 +1,219 @@
+package com.alicloud.openservices.tablestore.timeline2.core;
+
+import com.alicloud.openservices.tablestore.timeline2.TimelineCallback;
+import com.alicloud.openservices.tablestore.timeline2.TimelineQueue;
+import com.alicloud.openservices.tablestore.timeline2.TimelineRejectedException;
+import com.alicloud.openservices.tablestore.timeline2.TimelineStore;
+import com.alicloud.openservices.tablestore.timeline2.memory.MemoryTableStore;
+import com.alicloud.openservices.tablestore.timeline2.model.*;
+import com.alicloud.openservices.tablestore.writer.WriterConfig;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.*;
+
+public class TestInFlightLimiter {
+
+    @Test
+    public void testLimiter() throws Exception {
+        HistogramMetricsListener listener = new HistogramMetricsListener();
+        final InFlightLimiter limiter = new InFlightLimiter(2, 100, listener);
+
+        assertTrue(limiter.acquire(10, 0));
+        assertTrue(limiter.acquire(10, 0));
+        assertFalse(limiter.acquire(10, 0));
+        assertEquals(1, listener.getWriterRejectedCount());
+        assertEquals(2, limiter.getRows());
+        assertEquals(20, limiter.getBytes());
+
+        Thread releaser = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    Thread.sleep(50);
+                } catch (InterruptedException e) {
+                    return;
+                }
+                limiter.release(10);
+            }
+        });
+        releaser.start();
+        assertTrue(limiter.acquire(10, TimeUnit.SECONDS.toNanos(5)));
+        releaser.join();
+        assertEquals(1, listener.getWriterBlockedMicros().getCount() - listener.getWriterRejectedCount());
+        assertTrue(listener.getWriterBlockedMicros().getMax() > 0);
+
+        // the row larger than max bytes is only admitted when nothing is in flight
+        limiter.release(10);
+        assertFalse(limiter.acquire(200, TimeUnit.MILLISECONDS.toNanos(10)));
+        limiter.release(10);
+        assertTrue(limiter.acquire(200, 0));
+        assertEquals(2, listener.getWriterRejectedCount());
+    }
+
+    @Test
+    public void testTryBatchStore() throws Exception {
+        MemoryTableStore memoryStore = new MemoryTableStore();
+        HistogramMetricsListener listener = new HistogramMetricsListener();
+        TimelineSchema schema = new TimelineSchema("limit_table", new TimelineIdentifierSchema.Builder()
+                .addStringField("timeline_id").build())
+                .withMetricsListener(listener)
+                .withInFlightLimit(2, 1024 * 1024);
+        TimelineStore timelineStore = new TimelineStoreImpl(memoryStore.asSyncClient(), schema);
+        timelineStore.prepareTables();
+        TimelineQueue queue = timelineStore.createTimelineQueue(new TimelineIdentifier.Builder()
+                .addField("timeline_id", "group_a").build());
+
+        // the rows are held by writer until flush
+        TimelineFuture<TimelineEntry> first = queue.tryBatchStore(new TimelineMessage().setField("index", 0), null);
+        TimelineFuture<TimelineEntry> second = queue.tryBatchStore(new TimelineMessage().setField("index", 1), null);
+        assertNotNull(first);
+        assertNotNull(second);
+        final AtomicReference<Exception> failure = new AtomicReference<Exception>();
+        TimelineFuture<TimelineEntry> rejected = queue.tryBatchStore(new TimelineMessage().setField("index", 2),
+                new TimelineCallback() {
+                    @Override
+                    public void onCompleted(TimelineIdentifier identifier, TimelineMessage message, TimelineEntry timelineEntry) {
+                    }
+
+                    @Override
+                    public void onFailed(TimelineIdentifier identifier, TimelineMessage message, Exception e) {
+                        failure.set(e);
+                    }
+                });
+        assertTrue(rejected.isDone());
+        assertTrue(failure.get() instanceof TimelineRejectedException);
+        try {
+            rejected.get();
+            fail();
+        } catch (TimelineRejectedException e) {
+            // expected
+        }
+        assertEquals(1, listener.getWriterRejectedCount());
+        assertFalse(first.isDone());
+
+        // the blocked row flushes the rows held by writer instead of waiting for flush interval
+        TimelineFuture<TimelineEntry> third = queue.batchStore(new TimelineMessage().setField("index", 2), null,
+                5, TimeUnit.SECONDS);
+        assertNotNull(third);
+        assertEquals(0, first.get(5, TimeUnit.SECONDS).getMessage().getLong("index"));
+        assertEquals(1, second.get(5, TimeUnit.SECONDS).getMessage().getLong("index"));
+        queue.flush();
+        assertEquals(2, third.get(5, TimeUnit.SECONDS).getMessage().getLong("index"));
+        assertEquals(3, memoryStore.getRowCount("limit_table"));
+        assertEquals(1, listener.getWriterRejectedCount());
+
+        timelineStore.close();
+        memoryStore.shutdown();
+    }
+
+    @Test(timeout = 10000)
+    public void testFlushStalled() throws Exception {
+        MemoryTableStore memoryStore = new MemoryTableStore();
+        HistogramMetricsListener listener = new HistogramMetricsListener();
+        TimelineSchema schema = new TimelineSchema("limit_table", new TimelineIdentifierSchema.Builder()
+                .addStringField("timeline_id").build())
+                .withMetricsListener(listener)
+                .withInFlightLimit(1, 1024 * 1024);
+        TimelineStore timelineStore = new TimelineStoreImpl(memoryStore.asSyncClient(), schema);
+        timelineStore.prepareTables();
+        TimelineQueue queue = timelineStore.createTimelineQueue(new TimelineIdentifier.Builder()
+                .addField("timeline_id", "group_a").build());
+
+        TimelineFuture<TimelineEntry> first = queue.batchStore(new TimelineMessage().setField("index", 0), null);
+        memoryStore.withLatency(2000, 2000);
+
+        // the flush of the first row stalls, the blocked row returns by its timeout without waiting for the flush
+        long start = System.currentTimeMillis();
+        TimelineFuture<TimelineEntry> second = queue.batchStore(new TimelineMessage().setField("index", 1), null,
+                100, TimeUnit.MILLISECONDS);
+        assertTrue(System.currentTimeMillis() - start < 1000);
+        assertTrue(second.isDone());
+        assertEquals(1, listener.getWriterRejectedCount());
+
+        assertEquals(0, first.get(5, TimeUnit.SECONDS).getMessage().getLong("index"));
+        assertEquals(1, memoryStore.getRowCount("limit_table"));
+
+        timelineStore.close();
+        memoryStore.shutdown();
+    }
+
+    @Test(timeout = 10000)
+    public void testLimitLessThanBatch() throws Exception {
+        MemoryTableStore memoryStore = new MemoryTableStore().withLatency(1, 5);
+        WriterConfig writerConfig = new WriterConfig();
+        writerConfig.setFlushInterval(60 * 1000);
+        TimelineSchema schema = new TimelineSchema("limit_table", new TimelineIdentifierSchema.Builder()
+                .addStringField("timeline_id").build())
+                .manualSetSeqId()
+                .withWriterConfig(writerConfig)
+                .withInFlightLimit(5, 1024 * 1024);
+        TimelineStore timelineStore = new TimelineStoreImpl(memoryStore.asSyncClient(), schema);
+        timelineStore.prepareTables();
+        TimelineQueue queue = timelineStore.createTimelineQueue(new TimelineIdentifier.Builder()
+                .addField("timeline_id", "group_a").build());
+
+        // the max rows of limit is less than a batch of writer, the producer is not stalled until flush interval
+        long start = System.currentTimeMillis();
+        List<TimelineFuture<TimelineEntry>> futures = new ArrayList<TimelineFuture<TimelineEntry>>();
+        for (long sequenceId = 1; sequenceId <= 20; sequenceId++) {
+            futures.add(queue.batchStore(sequenceId, new TimelineMessage().setField("index", sequenceId)));
+        }
+        List<TimelineIdentifier> targets = new ArrayList<TimelineIdentifier>();
+        for (int i = 0; i < 20; i++) {
+            targets.add(new TimelineIdentifier.Builder().addField("timeline_id", "user_" + i).build());
+        }
+        TimelineFuture<FanOutResult> fanOutFuture = timelineStore.fanOut(100, new TimelineMessage(), targets);
+        assertTrue(System.currentTimeMillis() - start < 5000);
+
+        timelineStore.flush();
+        assertTrue(fanOutFuture.get(5, TimeUnit.SECONDS).isAllSucceed());
+        for (TimelineFuture<TimelineEntry> future : futures) {
+            future.get(5, TimeUnit.SECONDS);
+        }
+        assertEquals(40, memoryStore.getRowCount("limit_table"));
+
+        timelineStore.close();
+        memoryStore.shutdown();
+    }
+
+    @Test(timeout = 10000)
+    public void testFanOutInterrupted() throws Exception {
+        MemoryTableStore memoryStore = new MemoryTableStore().withLatency(50, 100);
+        TimelineSchema schema = new TimelineSchema("limit_table", new TimelineIdentifierSchema.Builder()
+                .addStringField("timeline_id").build())
+                .manualSetSeqId()
+                .withInFlightLimit(1, 1024 * 1024);
+        TimelineStore timelineStore = new TimelineStoreImpl(memoryStore.asSyncClient(), schema);
+        timelineStore.prepareTables();
+        List<TimelineIdentifier> targets = new ArrayList<TimelineIdentifier>();
+        for (int i = 0; i < 5; i++) {
+            targets.add(new TimelineIdentifier.Builder().addField("timeline_id", "user_" + i).build());
+        }
+
+        // the first row is submitted, and the others fail when the wait for limit is interrupted
+        Thread.currentThread().interrupt();
+        TimelineFuture<FanOutResult> fanOutFuture = timelineStore.fanOut(100, new TimelineMessage(), targets);
+        assertTrue(Thread.interrupted());
+        TimelineFuture<Integer> failedCount = fanOutFuture.thenApply(new TimelineFuture.Function<FanOutResult, Integer>() {
+            @Override
+            public Integer apply(FanOutResult value) {
+                return value.getFailedEntries().size();
+            }
+        });
+
+        FanOutResult result = fanOutFuture.get(5, TimeUnit.SECONDS);
+        assertEquals(1, result.getSucceedEntries().size());
+        assertNotNull(result.getEntry(targets.get(0)));
+        assertEquals(4, result.getFailedEntries().size());
+        assertEquals(4, failedCount.get(5, TimeUnit.SECONDS).intValue());
+        assertEquals(1, memoryStore.getRowCount("limit_table"));
+
+        timelineStore.close();
+        memoryStore.shutdown();
+    }
+}
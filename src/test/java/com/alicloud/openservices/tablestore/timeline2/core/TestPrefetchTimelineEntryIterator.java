@@ -0,0 +1,164 @@
+package com.alicloud.openservices.tablestore.timeline2.core;
+
+import com.alicloud.openservices.tablestore.timeline2.TimelineException;
+import com.alicloud.openservices.tablestore.timeline2.TimelineQueue;
+import com.alicloud.openservices.tablestore.timeline2.TimelineStore;
+import com.alicloud.openservices.tablestore.timeline2.memory.MemoryTableStore;
+import com.alicloud.openservices.tablestore.timeline2.model.*;
+import com.alicloud.openservices.tablestore.timeline2.query.ScanParameter;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Iterator;
+
+import static org.junit.Assert.*;
+
+public class TestPrefetchTimelineEntryIterator {
+    private static final int ROW_COUNT = 12000;
+
+    private MemoryTableStore memoryStore;
+    private TimelineStore timelineStore;
+    private TimelineSchema schema;
+    private TimelineQueue queue;
+
+    @Before
+    public void setUp() {
+        memoryStore = new MemoryTableStore();
+        schema = new TimelineSchema("prefetch_table", new TimelineIdentifierSchema.Builder()
+                .addStringField("timeline_id").build())
+                .manualSetSeqId();
+
+        timelineStore = new TimelineStoreImpl(memoryStore.asSyncClient(), schema);
+        timelineStore.prepareTables();
+        queue = timelineStore.createTimelineQueue(new TimelineIdentifier.Builder()
+                .addField("timeline_id", "group_a").build());
+        // a page of MemoryTableStore contains at most 5000 rows
+        for (long sequenceId = 1; sequenceId <= ROW_COUNT; sequenceId++) {
+            queue.store(sequenceId, new TimelineMessage().setField("text", "hello"));
+        }
+    }
+
+    @After
+    public void tearDown() {
+        timelineStore.close();
+        memoryStore.shutdown();
+    }
+
+    private Iterator<TimelineEntry> newIterator(ScanParameter parameter) {
+        return new PrefetchTimelineEntryIterator(memoryStore.asAsyncClient(), schema, queue.getIdentifier(), parameter);
+    }
+
+    private static void waitForRequests(MemoryTableStore memoryStore, long expected) throws InterruptedException {
+        for (int i = 0; i < 100 && memoryStore.getRequestCount("getRange") < expected; i++) {
+            Thread.sleep(10);
+        }
+        // give the unexpected requests a chance to be sent
+        Thread.sleep(50);
+    }
+
+    @Test
+    public void testPaging() {
+        Iterator<TimelineEntry> iterator = queue.scan(new ScanParameter().scanForward(0).maxCount(ROW_COUNT).prefetch(2));
+        long expected = 1;
+        while (iterator.hasNext()) {
+            assertEquals(expected++, iterator.next().getSequenceID());
+        }
+        assertEquals(ROW_COUNT + 1, expected);
+        assertEquals(3, memoryStore.getRequestCount("getRange"));
+
+        iterator = queue.scan(new ScanParameter().scanBackward(Long.MAX_VALUE).maxCount(5100).prefetch(2));
+        expected = ROW_COUNT;
+        while (iterator.hasNext()) {
+            assertEquals(expected--, iterator.next().getSequenceID());
+        }
+        assertEquals(ROW_COUNT - 5100, expected);
+    }
+
+    @Test
+    public void testDepthBound() throws Exception {
+        Iterator<TimelineEntry> iterator = newIterator(new ScanParameter().scanForward(0).maxCount(ROW_COUNT).prefetch(1));
+        waitForRequests(memoryStore, 1);
+        assertEquals(1, memoryStore.getRequestCount("getRange"));
+
+        // taking the first page allows one more page to be buffered
+        assertEquals(1, iterator.next().getSequenceID());
+        waitForRequests(memoryStore, 2);
+        assertEquals(2, memoryStore.getRequestCount("getRange"));
+
+        iterator = newIterator(new ScanParameter().scanForward(0).maxCount(ROW_COUNT).prefetch(5));
+        waitForRequests(memoryStore, 5);
+        // all the three pages are buffered ahead
+        assertEquals(5, memoryStore.getRequestCount("getRange"));
+        int count = 0;
+        while (iterator.hasNext()) {
+            iterator.next();
+            count++;
+        }
+        assertEquals(ROW_COUNT, count);
+    }
+
+    @Test
+    public void testBytesBound() throws Exception {
+        Iterator<TimelineEntry> iterator = newIterator(new ScanParameter().scanForward(0).maxCount(ROW_COUNT).prefetch(5, 1));
+        waitForRequests(memoryStore, 1);
+        assertEquals(1, memoryStore.getRequestCount("getRange"));
+
+        // the buffered page exceeds the max bytes, the next page is requested only after it's taken
+        assertEquals(1, iterator.next().getSequenceID());
+        waitForRequests(memoryStore, 2);
+        assertEquals(2, memoryStore.getRequestCount("getRange"));
+    }
+
+    @Test(timeout = 5000)
+    public void testSyncFailure() {
+        // the first page is requested by constructor
+        Iterator<TimelineEntry> iterator = newIterator(new ScanParameter().scanForward(0).maxCount(ROW_COUNT));
+        for (int i = 0; i < 5000; i++) {
+            assertTrue(iterator.hasNext());
+            iterator.next();
+        }
+
+        // the request of next page fails synchronously
+        memoryStore.shutdown();
+        try {
+            iterator.hasNext();
+            fail();
+        } catch (TimelineException e) {
+            assertEquals("ClientError", e.getMessage());
+        }
+
+        try {
+            newIterator(new ScanParameter().scanForward(0).prefetch(1)).hasNext();
+            fail();
+        } catch (TimelineException e) {
+            assertEquals("ClientError", e.getMessage());
+        }
+    }
+
+    @Test(timeout = 5000)
+    public void testInterrupted() {
+        memoryStore.withLatency(60 * 1000, 60 * 1000);
+        Iterator<TimelineEntry> iterator = newIterator(new ScanParameter().scanForward(0).prefetch(1));
+
+        final Thread reader = Thread.currentThread();
+        new Thread(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    Thread.sleep(50);
+                } catch (InterruptedException e) {
+                    return;
+                }
+                reader.interrupt();
+            }
+        }).start();
+
+        try {
+            iterator.hasNext();
+            fail();
+        } catch (TimelineException e) {
+            assertTrue(Thread.interrupted());
+        }
+    }
+}
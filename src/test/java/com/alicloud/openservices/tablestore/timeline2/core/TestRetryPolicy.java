@@ -0,0 +1,105 @@
+package com.alicloud.openservices.tablestore.timeline2.core;
+
+import com.alicloud.openservices.tablestore.ClientException;
+import com.alicloud.openservices.tablestore.TableStoreException;
+import com.alicloud.openservices.tablestore.timeline2.RetryPolicy;
+import com.alicloud.openservices.tablestore.timeline2.TimelineQueue;
+import com.alicloud.openservices.tablestore.timeline2.TimelineStore;
+import com.alicloud.openservices.tablestore.timeline2.memory.MemoryTableStore;
+import com.alicloud.openservices.tablestore.timeline2.model.*;
+import com.alicloud.openservices.tablestore.timeline2.query.ScanParameter;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class TestRetryPolicy {
+
+    private static TimelineStore createStore(MemoryTableStore memoryStore, RetryPolicy retryPolicy) {
+        TimelineSchema schema = new TimelineSchema("retry_table", new TimelineIdentifierSchema.Builder()
+                .addStringField("timeline_id").build())
+                .manualSetSeqId()
+                .withRetryPolicy(retryPolicy);
+        TimelineStore timelineStore = new TimelineStoreImpl(memoryStore.asSyncClient(), schema);
+        timelineStore.prepareTables();
+        return timelineStore;
+    }
+
+    @Test
+    public void testPolicy() {
+        RetryPolicy policy = new RetryPolicy(5, 10, 100);
+        for (int i = 0; i < 100; i++) {
+            long backoff = policy.nextBackoffMillis(0);
+            assertTrue(backoff >= 0 && backoff <= 10);
+            assertTrue(policy.nextBackoffMillis(3) <= 80);
+            assertTrue(policy.nextBackoffMillis(40) <= 100);
+        }
+
+        assertTrue(policy.isRetryable(new TableStoreException("busy", null, "OTSServerBusy", "id", 503)));
+        assertTrue(policy.isRetryable(new TableStoreException("exhausted", null, "OTSCapacityUnitExhausted", "id", 403)));
+        assertTrue(policy.isRetryable(new TableStoreException("internal", null, "OTSUnknownError", "id", 500)));
+        assertFalse(policy.isRetryable(new TableStoreException("condition", null, "OTSConditionCheckFail", "id", 403)));
+        assertFalse(policy.isRetryable(new ClientException("invalid")));
+
+        assertFalse(policy.hasHedgedReads());
+        policy.withHedgedReads(95, 10);
+        assertTrue(policy.hasHedgedReads());
+        assertEquals(95, policy.getHedgePercentile(), 0);
+        assertEquals(10, policy.getMinHedgeDelayMillis());
+    }
+
+    @Test
+    public void testRetryIdempotentRequests() throws Exception {
+        MemoryTableStore memoryStore = new MemoryTableStore().withRandomSeed(1);
+        TimelineStore timelineStore = createStore(memoryStore, new RetryPolicy(30, 1, 5));
+        TimelineQueue queue = timelineStore.createTimelineQueue(new TimelineIdentifier.Builder()
+                .addField("timeline_id", "group_a").build());
+
+        memoryStore.withThrottling(0.5);
+        for (long sequenceId = 1; sequenceId <= 10; sequenceId++) {
+            queue.store(sequenceId, new TimelineMessage().setField("index", sequenceId));
+        }
+        for (long sequenceId = 11; sequenceId <= 20; sequenceId++) {
+            queue.storeAsync(sequenceId, new TimelineMessage().setField("index", sequenceId), null)
+                    .get(5, TimeUnit.SECONDS);
+        }
+        assertTrue(memoryStore.getRequestCount("putRow") > 20);
+
+        queue.update(1, new TimelineMessage().setField("index", 100L));
+        assertEquals(100, queue.get(1).getMessage().getLong("index"));
+        queue.delete(20);
+        assertNull(queue.getAsync(20).get(5, TimeUnit.SECONDS));
+
+        List<Long> sequenceIds = new ArrayList<Long>();
+        Iterator<TimelineEntry> iterator = queue.scan(new ScanParameter().scanForward(0).maxCount(100));
+        while (iterator.hasNext()) {
+            sequenceIds.add(iterator.next().getSequenceID());
+        }
+        assertEquals(19, sequenceIds.size());
+
+        timelineStore.close();
+        memoryStore.shutdown();
+    }
+
+    @Test
+    public void testHedgedGet() throws Exception {
+        MemoryTableStore memoryStore = new MemoryTableStore().withLatency(1, 20).withRandomSeed(1);
+        RetryPolicy retryPolicy = new RetryPolicy(0, 1, 1).withHedgedReads(80, 0);
+        TimelineStore timelineStore = createStore(memoryStore, retryPolicy);
+        TimelineQueue queue = timelineStore.createTimelineQueue(new TimelineIdentifier.Builder()
+                .addField("timeline_id", "group_a").build());
+
+        queue.store(1, new TimelineMessage().setField("text", "hello"));
+        for (int i = 0; i < 100; i++) {
+            assertEquals("hello", queue.get(1).getMessage().getString("text"));
+        }
+        assertTrue(memoryStore.getRequestCount("getRow") > 100);
+
+        timelineStore.close();
+        memoryStore.shutdown();
+    }
+}
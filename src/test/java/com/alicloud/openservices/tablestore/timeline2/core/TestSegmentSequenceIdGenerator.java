@@ -0,0 +1,146 @@
+package com.alicloud.openservices.tablestore.timeline2.core;
+
+import com.alicloud.openservices.tablestore.timeline2.TimelineException;
+import com.alicloud.openservices.tablestore.timeline2.TimelineMetaStore;
+import com.alicloud.openservices.tablestore.timeline2.TimelineQueue;
+import com.alicloud.openservices.tablestore.timeline2.TimelineStore;
+import com.alicloud.openservices.tablestore.timeline2.memory.MemoryTableStore;
+import com.alicloud.openservices.tablestore.timeline2.model.*;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+
+import static org.junit.Assert.*;
+
+public class TestSegmentSequenceIdGenerator {
+    private static final String LEASE_TABLE = "lease_table";
+
+    private final TimelineIdentifier identifier = new TimelineIdentifier.Builder()
+            .addField("timeline_id", "group_a")
+            .build();
+
+    private MemoryTableStore memoryStore;
+    private TimelineSchema schema;
+    private SegmentSequenceIdGenerator generator;
+    private TimelineStore timelineStore;
+
+    @Before
+    public void setUp() {
+        memoryStore = new MemoryTableStore();
+        schema = new TimelineSchema("timeline_table", new TimelineIdentifierSchema.Builder()
+                .addStringField("timeline_id").build())
+                .manualSetSeqId();
+        generator = new SegmentSequenceIdGenerator(memoryStore.asSyncClient(), LEASE_TABLE, schema, 10);
+        generator.prepareTables();
+
+        timelineStore = new TimelineStoreImpl(memoryStore.asSyncClient(), schema.withSequenceIdGenerator(generator));
+        timelineStore.prepareTables();
+    }
+
+    @After
+    public void tearDown() {
+        timelineStore.close();
+        memoryStore.shutdown();
+    }
+
+    @Test
+    public void testLeaseSegments() {
+        for (long expected = 1; expected <= 25; expected++) {
+            assertEquals(expected, generator.next(identifier));
+        }
+
+        // a new generator continues from the last lease, the ids left in the segment are skipped
+        SegmentSequenceIdGenerator another = new SegmentSequenceIdGenerator(memoryStore.asSyncClient(), LEASE_TABLE, schema, 10);
+        assertEquals(31, another.next(identifier));
+        assertEquals(26, generator.next(identifier));
+        assertEquals(1, memoryStore.getRowCount(LEASE_TABLE));
+    }
+
+    @Test
+    public void testStartFromLatestStored() {
+        TimelineQueue queue = timelineStore.createTimelineQueue(identifier);
+        queue.store(100, new TimelineMessage().setField("text", "stored without generator"));
+
+        // no lease exists, start from the latest sequence id of timeline instead of 0
+        assertEquals(101, queue.store(new TimelineMessage().setField("text", "hello")).getSequenceID());
+        assertEquals(102, queue.nextSequenceId());
+    }
+
+    @Test
+    public void testMetaWritesBetweenLeases() {
+        TimelineMetaStore metaStore = new TimelineMetaStoreImpl(memoryStore.asSyncClient(),
+                new TimelineMetaSchema("meta_table", schema.getIdentifierSchema()));
+        metaStore.prepareTables();
+
+        long last = 0;
+        for (int round = 0; round < 5; round++) {
+            metaStore.insert(new TimelineMeta(identifier).setField("round", round));
+            for (int i = 0; i < 10; i++) {
+                long sequenceId = generator.next(identifier);
+                assertTrue(sequenceId > last);
+                last = sequenceId;
+            }
+
+            TimelineMeta meta = metaStore.read(identifier);
+            assertEquals(round, meta.getLong("round"));
+            assertFalse(meta.contains(SegmentSequenceIdGenerator.LEASE_COLUMN_NAME));
+
+            metaStore.delete(identifier);
+            assertNull(metaStore.read(identifier));
+        }
+
+        // the lease is not lost by meta writes
+        SegmentSequenceIdGenerator another = new SegmentSequenceIdGenerator(memoryStore.asSyncClient(), LEASE_TABLE, schema, 10);
+        assertEquals(last + 1, another.next(identifier));
+
+        metaStore.close();
+    }
+
+    @Test
+    public void testConcurrentGenerators() throws Exception {
+        final Set<Long> sequenceIds = Collections.synchronizedSet(new HashSet<Long>());
+        final CountDownLatch latch = new CountDownLatch(4);
+        for (int t = 0; t < 4; t++) {
+            final SegmentSequenceIdGenerator instance = new SegmentSequenceIdGenerator(memoryStore.asSyncClient(),
+                    LEASE_TABLE, schema, 10);
+            new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        for (int i = 0; i < 100; i++) {
+                            sequenceIds.add(instance.next(identifier));
+                        }
+                    } finally {
+                        latch.countDown();
+                    }
+                }
+            }).start();
+        }
+        latch.await();
+
+        assertEquals(400, sequenceIds.size());
+    }
+
+    @Test
+    public void testInvalidSchema() {
+        TimelineSchema autoSchema = new TimelineSchema("timeline_table", schema.getIdentifierSchema());
+        try {
+            new SegmentSequenceIdGenerator(memoryStore.asSyncClient(), LEASE_TABLE, autoSchema, 10);
+            fail();
+        } catch (TimelineException e) {
+            // expected
+        }
+
+        try {
+            new SegmentSequenceIdGenerator(memoryStore.asSyncClient(), "timeline_table", schema, 10);
+            fail();
+        } catch (TimelineException e) {
+            // expected
+        }
+    }
+}
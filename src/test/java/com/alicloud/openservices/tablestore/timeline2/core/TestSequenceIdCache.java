@@ -0,0 +1,54 @@
+package com.alicloud.openservices.tablestore.timeline2.core;
+
+import com.alicloud.openservices.tablestore.timeline2.model.TimelineIdentifier;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class TestSequenceIdCache {
+    private final TimelineIdentifier identifier = new TimelineIdentifier.Builder()
+            .addField("timeline_id", "group_a")
+            .build();
+
+    @Test
+    public void testManualSequenceId() {
+        SequenceIdCache cache = new SequenceIdCache(100, 60 * 1000, false);
+
+        // a manual sequence id is not inserted, but updates the cached one
+        cache.onStored(identifier, 3);
+        assertNull(cache.get(identifier));
+        cache.onLoaded(identifier, cache.beforeLoad(identifier), 3);
+        assertEquals(3L, (long) cache.get(identifier));
+        cache.onStored(identifier, 2);
+        assertEquals(3L, (long) cache.get(identifier));
+        cache.onStored(identifier, 4);
+        assertEquals(4L, (long) cache.get(identifier));
+    }
+
+    @Test
+    public void testLoadRacingStore() {
+        SequenceIdCache cache = new SequenceIdCache(100, 60 * 1000, false);
+
+        // the load reads 5 while 6 is stored concurrently
+        long generation = cache.beforeLoad(identifier);
+        cache.onStored(identifier, 6);
+        cache.onLoaded(identifier, generation, 5);
+        assertNull(cache.get(identifier));
+
+        cache.onLoaded(identifier, cache.beforeLoad(identifier), 6);
+        assertEquals(6L, (long) cache.get(identifier));
+    }
+
+    @Test
+    public void testLoadRacingInvalidate() {
+        SequenceIdCache cache = new SequenceIdCache(100, 60 * 1000, true);
+        cache.onStored(identifier, 6);
+        assertEquals(6L, (long) cache.get(identifier));
+
+        // the load reads 6 before it's deleted
+        long generation = cache.beforeLoad(identifier);
+        cache.invalidate(identifier);
+        cache.onLoaded(identifier, generation, 6);
+        assertNull(cache.get(identifier));
+    }
+}
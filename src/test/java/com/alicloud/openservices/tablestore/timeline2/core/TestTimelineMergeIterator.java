@@ -0,0 +1,168 @@
+package com.alicloud.openservices.tablestore.timeline2.core;
+
+import com.alicloud.openservices.tablestore.model.ColumnValue;
+import com.alicloud.openservices.tablestore.model.filter.SingleColumnValueFilter;
+import com.alicloud.openservices.tablestore.timeline2.TimelineQueue;
+import com.alicloud.openservices.tablestore.timeline2.TimelineStore;
+import com.alicloud.openservices.tablestore.timeline2.memory.MemoryTableStore;
+import com.alicloud.openservices.tablestore.timeline2.model.*;
+import com.alicloud.openservices.tablestore.timeline2.query.ScanParameter;
+import com.alicloud.openservices.tablestore.timeline2.query.SearchResult;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class TestTimelineMergeIterator {
+    private MemoryTableStore memoryStore;
+    private TimelineStore timelineStore;
+    private TimelineQueue queueA;
+    private TimelineQueue queueB;
+    private TimelineQueue queueC;
+
+    @Before
+    public void setUp() {
+        memoryStore = new MemoryTableStore();
+        TimelineSchema schema = new TimelineSchema("merge_table", new TimelineIdentifierSchema.Builder()
+                .addStringField("timeline_id").build())
+                .manualSetSeqId();
+
+        timelineStore = new TimelineStoreImpl(memoryStore.asSyncClient(), schema);
+        timelineStore.prepareTables();
+        queueA = createQueue("group_a");
+        queueB = createQueue("group_b");
+        queueC = createQueue("group_c");
+    }
+
+    @After
+    public void tearDown() {
+        timelineStore.close();
+        memoryStore.shutdown();
+    }
+
+    private TimelineQueue createQueue(String id) {
+        return timelineStore.createTimelineQueue(new TimelineIdentifier.Builder()
+                .addField("timeline_id", id).build());
+    }
+
+    private static void store(TimelineQueue queue, long... sequenceIds) {
+        for (long sequenceId : sequenceIds) {
+            queue.store(sequenceId, new TimelineMessage().setField("flag", 1));
+        }
+    }
+
+    private static List<String> consume(Iterator<SearchResult.Entry<TimelineEntry>> iterator) {
+        List<String> result = new ArrayList<String>();
+        while (iterator.hasNext()) {
+            SearchResult.Entry<TimelineEntry> entry = iterator.next();
+            result.add(entry.getIdentifier().getField(0).getValue().asString() + ":" + entry.getData().getSequenceID());
+        }
+        return result;
+    }
+
+    private List<TimelineIdentifier> allIdentifiers() {
+        return Arrays.asList(queueA.getIdentifier(), queueB.getIdentifier(), queueC.getIdentifier());
+    }
+
+    @Test
+    public void testForward() {
+        store(queueA, 1, 4, 7);
+        store(queueB, 2, 5, 8);
+        store(queueC, 3, 6, 9);
+
+        List<String> result = consume(timelineStore.mergeScan(allIdentifiers(),
+                new ScanParameter().scanForward(2, 9).maxCount(100)));
+        assertEquals(Arrays.asList("group_b:2", "group_c:3", "group_a:4", "group_b:5", "group_c:6", "group_a:7", "group_b:8"),
+                result);
+    }
+
+    @Test
+    public void testBackward() {
+        store(queueA, 1, 4, 7);
+        store(queueB, 2, 5, 8);
+        store(queueC, 3, 6, 9);
+
+        List<String> result = consume(timelineStore.mergeScan(allIdentifiers(),
+                new ScanParameter().scanBackward(Long.MAX_VALUE).maxCount(5)));
+        assertEquals(Arrays.asList("group_c:9", "group_b:8", "group_a:7", "group_c:6", "group_b:5"), result);
+    }
+
+    @Test
+    public void testMaxCountAcrossPages() {
+        // a page of MemoryTableStore contains at most 5000 rows
+        long[] sequenceIds = new long[6000];
+        for (int i = 0; i < sequenceIds.length; i++) {
+            sequenceIds[i] = i + 1;
+        }
+        store(queueA, sequenceIds);
+        store(queueB, 10000);
+
+        Iterator<SearchResult.Entry<TimelineEntry>> iterator = timelineStore.mergeScan(
+                Arrays.asList(queueA.getIdentifier(), queueB.getIdentifier()), new ScanParameter().scanForward(0).maxCount(5500));
+        long expected = 1;
+        while (iterator.hasNext()) {
+            SearchResult.Entry<TimelineEntry> entry = iterator.next();
+            assertEquals(queueA.getIdentifier(), entry.getIdentifier());
+            assertEquals(expected++, entry.getData().getSequenceID());
+        }
+        assertEquals(5501, expected);
+
+        // two pages of group_a, the second page is limited by the remaining count, and one page of group_b
+        assertEquals(3, memoryStore.getRequestCount("getRange"));
+    }
+
+    @Test
+    public void testEmptyFilteredPages() {
+        for (long sequenceId = 1; sequenceId <= 5001; sequenceId++) {
+            queueA.store(sequenceId, new TimelineMessage().setField("flag", 0));
+        }
+        store(queueA, 5002, 5003);
+        store(queueB, 1, 6000);
+
+        SingleColumnValueFilter filter = new SingleColumnValueFilter("flag",
+                SingleColumnValueFilter.CompareOperator.EQUAL, ColumnValue.fromLong(1));
+        filter.setPassIfMissing(false);
+        List<String> result = consume(timelineStore.mergeScan(Arrays.asList(queueA.getIdentifier(), queueB.getIdentifier()),
+                new ScanParameter().scanForward(0).maxCount(100).withFilter(filter)));
+        assertEquals(Arrays.asList("group_b:1", "group_a:5002", "group_a:5003", "group_b:6000"), result);
+    }
+
+    @Test
+    public void testTieBreaking() {
+        store(queueA, 1, 2);
+        store(queueB, 1, 2);
+        store(queueC, 1, 2);
+
+        // ties are ordered by the position of timeline in identifiers
+        List<String> result = consume(timelineStore.mergeScan(
+                Arrays.asList(queueC.getIdentifier(), queueA.getIdentifier(), queueB.getIdentifier()),
+                new ScanParameter().scanForward(0).maxCount(100)));
+        assertEquals(Arrays.asList("group_c:1", "group_a:1", "group_b:1", "group_c:2", "group_a:2", "group_b:2"), result);
+
+        // all the entries are equal by the comparator
+        result = consume(timelineStore.mergeScan(allIdentifiers(), new ScanParameter().scanForward(0).maxCount(4),
+                new Comparator<TimelineEntry>() {
+                    @Override
+                    public int compare(TimelineEntry o1, TimelineEntry o2) {
+                        return 0;
+                    }
+                }));
+        assertEquals(Arrays.asList("group_a:1", "group_a:2", "group_b:1", "group_b:2"), result);
+    }
+
+    @Test
+    public void testEmptyTimelines() {
+        store(queueB, 3);
+
+        List<String> result = consume(timelineStore.mergeScan(allIdentifiers(), new ScanParameter().scanForward(0).maxCount(100)));
+        assertEquals(Arrays.asList("group_b:3"), result);
+        assertFalse(timelineStore.mergeScan(new ArrayList<TimelineIdentifier>(), new ScanParameter()).hasNext());
+    }
+}
@@ -0,0 +1,252 @@
+package com.alicloud.openservices.tablestore.timeline2.core;
+
+import com.alicloud.openservices.tablestore.timeline2.ScanCallback;
+import com.alicloud.openservices.tablestore.timeline2.TimelineCallback;
+import com.alicloud.openservices.tablestore.timeline2.TimelineException;
+import com.alicloud.openservices.tablestore.timeline2.TimelineQueue;
+import com.alicloud.openservices.tablestore.timeline2.TimelineStore;
+import com.alicloud.openservices.tablestore.timeline2.memory.MemoryTableStore;
+import com.alicloud.openservices.tablestore.timeline2.model.*;
+import com.alicloud.openservices.tablestore.timeline2.query.ScanParameter;
+import com.alicloud.openservices.tablestore.timeline2.query.ScanResult;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.*;
+
+public class TestTimelineQueueAsync {
+    private MemoryTableStore memoryStore;
+    private TimelineStore timelineStore;
+    private TimelineQueue queue;
+
+    @Before
+    public void setUp() {
+        memoryStore = new MemoryTableStore().withLatency(1, 5);
+        TimelineSchema schema = new TimelineSchema("async_table", new TimelineIdentifierSchema.Builder()
+                .addStringField("timeline_id").build());
+
+        timelineStore = new TimelineStoreImpl(memoryStore.asSyncClient(), schema);
+        timelineStore.prepareTables();
+        queue = timelineStore.createTimelineQueue(new TimelineIdentifier.Builder()
+                .addField("timeline_id", "group_a").build());
+    }
+
+    @After
+    public void tearDown() {
+        timelineStore.close();
+        memoryStore.shutdown();
+    }
+
+    @Test
+    public void testStoreThenGet() throws Exception {
+        final AtomicReference<TimelineEntry> callbackEntry = new AtomicReference<TimelineEntry>();
+        TimelineFuture<TimelineEntry> stored = queue.storeAsync(new TimelineMessage().setField("text", "hello"),
+                new TimelineCallback() {
+                    @Override
+                    public void onCompleted(TimelineIdentifier identifier, TimelineMessage message, TimelineEntry timelineEntry) {
+                        callbackEntry.set(timelineEntry);
+                    }
+
+                    @Override
+                    public void onFailed(TimelineIdentifier identifier, TimelineMessage message, Exception e) {
+                    }
+                });
+
+        TimelineFuture<TimelineEntry> read = stored.thenCompose(new TimelineFuture.Function<TimelineEntry, TimelineFuture<TimelineEntry>>() {
+            @Override
+            public TimelineFuture<TimelineEntry> apply(TimelineEntry entry) {
+                return queue.getAsync(entry.getSequenceID());
+            }
+        });
+
+        TimelineEntry entry = read.get(5, TimeUnit.SECONDS);
+        assertEquals("hello", entry.getMessage().getString("text"));
+        assertEquals(stored.get().getSequenceID(), entry.getSequenceID());
+        assertEquals(entry.getSequenceID(), callbackEntry.get().getSequenceID());
+
+        assertNull(queue.getAsync(entry.getSequenceID() + 1).get());
+    }
+
+    @Test
+    public void testUpdateAndBatchStore() throws Exception {
+        long sequenceId = queue.store(new TimelineMessage().setField("text", "old")).getSequenceID();
+
+        TimelineEntry updated = queue.updateAsync(sequenceId, new TimelineMessage().setField("text", "new"), null)
+                .get(5, TimeUnit.SECONDS);
+        assertEquals(sequenceId, updated.getSequenceID());
+        assertEquals("new", queue.get(sequenceId).getMessage().getString("text"));
+
+        final CountDownLatch done = new CountDownLatch(1);
+        queue.batchStore(new TimelineMessage().setField("text", "batch"))
+                .addListener(new TimelineFuture.CompletionHandler<TimelineEntry>() {
+                    @Override
+                    public void onComplete(TimelineEntry value, Exception ex) {
+                        if (ex == null && value.getSequenceID() > 0) {
+                            done.countDown();
+                        }
+                    }
+                });
+        queue.flush();
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void testDeleteAndLatest() throws Exception {
+        assertEquals(Long.valueOf(0), queue.getLatestSequenceIdAsync().get(5, TimeUnit.SECONDS));
+
+        long first = queue.store(new TimelineMessage().setField("text", "first")).getSequenceID();
+        long second = queue.store(new TimelineMessage().setField("text", "second")).getSequenceID();
+        assertEquals(Long.valueOf(second), queue.getLatestSequenceIdAsync().get(5, TimeUnit.SECONDS));
+
+        queue.deleteAsync(second).get(5, TimeUnit.SECONDS);
+        assertNull(queue.get(second));
+        assertEquals(first, queue.getLatestTimelineEntryAsync().get(5, TimeUnit.SECONDS).getSequenceID());
+    }
+
+    @Test
+    public void testScanPageByToken() throws Exception {
+        for (int i = 0; i < 5; i++) {
+            queue.store(new TimelineMessage().setField("text", "message " + i));
+        }
+
+        ScanParameter parameter = new ScanParameter().scanBackward(Long.MAX_VALUE).maxCount(2);
+        List<String> texts = new ArrayList<String>();
+        while (true) {
+            ScanResult page = queue.scanAsync(parameter).get(5, TimeUnit.SECONDS);
+            for (TimelineEntry entry : page.getEntries()) {
+                texts.add(entry.getMessage().getString("text"));
+            }
+            if (!page.hasNext()) {
+                break;
+            }
+            parameter.withToken(page.getNextToken());
+        }
+        assertEquals("[message 4, message 3, message 2, message 1, message 0]", texts.toString());
+    }
+
+    @Test
+    public void testScanWithCallback() throws Exception {
+        MemoryTableStore localStore = new MemoryTableStore();
+        TimelineStore localTimelineStore = new TimelineStoreImpl(localStore.asSyncClient(), new TimelineSchema("scan_table",
+                new TimelineIdentifierSchema.Builder().addStringField("timeline_id").build()));
+        localTimelineStore.prepareTables();
+        TimelineQueue localQueue = localTimelineStore.createTimelineQueue(new TimelineIdentifier.Builder()
+                .addField("timeline_id", "group_a").build());
+
+        int total = 5100;
+        for (int i = 0; i < total; i++) {
+            localQueue.store(new TimelineMessage().setField("index", i));
+        }
+
+        final List<Integer> pageSizes = new ArrayList<Integer>();
+        ScanResult last = localQueue.scanAsync(new ScanParameter().scanForward(0).maxCount(10000), new ScanCallback() {
+            @Override
+            public boolean onPage(TimelineIdentifier identifier, ScanResult page) {
+                pageSizes.add(page.getEntries().size());
+                return true;
+            }
+        }).get(5, TimeUnit.SECONDS);
+        assertEquals(2, pageSizes.size());
+        assertEquals(total, pageSizes.get(0) + pageSizes.get(1));
+        assertFalse(last.hasNext());
+
+        // stopped by callback, the last page has next token
+        last = localQueue.scanAsync(new ScanParameter().scanForward(0).maxCount(10000), new ScanCallback() {
+            @Override
+            public boolean onPage(TimelineIdentifier identifier, ScanResult page) {
+                return false;
+            }
+        }).get(5, TimeUnit.SECONDS);
+        assertTrue(last.hasNext());
+        assertTrue(last.getNextToken() > last.getEntries().get(last.getEntries().size() - 1).getSequenceID());
+
+        localTimelineStore.close();
+        localStore.shutdown();
+    }
+
+    @Test
+    public void testColumnsToGet() throws Exception {
+        for (int i = 0; i < 3; i++) {
+            queue.store(new TimelineMessage()
+                    .setField("sender", "user_" + i)
+                    .setField("body", "long body " + i));
+        }
+        List<String> columns = Arrays.asList("sender");
+        long sequenceId = queue.getLatestSequenceId();
+
+        TimelineEntry entry = queue.get(sequenceId, columns);
+        assertEquals("user_2", entry.getMessage().getString("sender"));
+        assertFalse(entry.getMessage().contains("body"));
+        assertEquals(sequenceId, entry.getSequenceID());
+        assertTrue(queue.get(sequenceId).getMessage().contains("body"));
+
+        // the entry is returned even if none of the columns exists
+        entry = queue.getAsync(sequenceId, Arrays.asList("not_exist")).get(5, TimeUnit.SECONDS);
+        assertNotNull(entry);
+        assertTrue(entry.getMessage().getFields().isEmpty());
+        assertNull(queue.get(sequenceId + 1, columns));
+
+        ScanParameter parameter = new ScanParameter().scanForward(0).maxCount(10).withColumnsToGet(columns);
+        Iterator<TimelineEntry> iterator = queue.scan(parameter);
+        int count = 0;
+        while (iterator.hasNext()) {
+            TimelineMessage message = iterator.next().getMessage();
+            assertEquals("user_" + count++, message.getString("sender"));
+            assertFalse(message.contains("body"));
+        }
+        assertEquals(3, count);
+
+        for (TimelineEntry scanned : queue.scanAsync(parameter).get(5, TimeUnit.SECONDS).getEntries()) {
+            assertFalse(scanned.getMessage().contains("body"));
+        }
+        iterator = queue.scan(new ScanParameter().scanBackward(Long.MAX_VALUE).maxCount(10).withColumnsToGet(columns).prefetch(1));
+        assertEquals("user_2", iterator.next().getMessage().getString("sender"));
+    }
+
+    @Test
+    public void testFailure() throws Exception {
+        memoryStore.withThrottling(1.0);
+
+        final AtomicReference<Exception> callbackError = new AtomicReference<Exception>();
+        final AtomicReference<Exception> listenerError = new AtomicReference<Exception>();
+        final CountDownLatch done = new CountDownLatch(1);
+        TimelineFuture<TimelineEntry> future = queue.storeAsync(new TimelineMessage().setField("text", "throttled"),
+                new TimelineCallback() {
+                    @Override
+                    public void onCompleted(TimelineIdentifier identifier, TimelineMessage message, TimelineEntry timelineEntry) {
+                    }
+
+                    @Override
+                    public void onFailed(TimelineIdentifier identifier, TimelineMessage message, Exception e) {
+                        callbackError.set(e);
+                    }
+                });
+        future.addListener(new TimelineFuture.CompletionHandler<TimelineEntry>() {
+            @Override
+            public void onComplete(TimelineEntry value, Exception ex) {
+                listenerError.set(ex);
+                done.countDown();
+            }
+        });
+
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+        assertNotNull(listenerError.get());
+        assertTrue(callbackError.get() instanceof TimelineException);
+        assertEquals(MemoryTableStore.ERROR_SERVER_BUSY, callbackError.get().getMessage());
+        try {
+            future.get();
+            fail();
+        } catch (TimelineException e) {
+            assertEquals(MemoryTableStore.ERROR_SERVER_BUSY, e.getMessage());
+        }
+    }
+}
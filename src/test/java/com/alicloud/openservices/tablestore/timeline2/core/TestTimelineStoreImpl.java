@@ -0,0 +1,109 @@
+package com.alicloud.openservices.tablestore.timeline2.core;
+
+import com.alicloud.openservices.tablestore.timeline2.TimelineException;
+import com.alicloud.openservices.tablestore.timeline2.TimelineStore;
+import com.alicloud.openservices.tablestore.timeline2.memory.MemoryTableStore;
+import com.alicloud.openservices.tablestore.timeline2.model.*;
+import com.alicloud.openservices.tablestore.timeline2.utils.Utils;
+import com.alicloud.openservices.tablestore.writer.WriterConfig;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class TestTimelineStoreImpl {
+    private static final String TABLE_NAME = "store_table";
+
+    private MemoryTableStore memoryStore;
+    private TimelineStore timelineStore;
+
+    @Before
+    public void setUp() {
+        memoryStore = new MemoryTableStore().withLatency(1, 5).withRandomSeed(7);
+        WriterConfig writerConfig = new WriterConfig();
+        writerConfig.setFlushInterval(10);
+        TimelineSchema schema = new TimelineSchema(TABLE_NAME, new TimelineIdentifierSchema.Builder()
+                .addStringField("timeline_id").build())
+                .manualSetSeqId()
+                .withWriterConfig(writerConfig)
+                .withOrderedWriter(4);
+
+        timelineStore = new TimelineStoreImpl(memoryStore.asSyncClient(), schema);
+        timelineStore.prepareTables();
+    }
+
+    @After
+    public void tearDown() {
+        timelineStore.close();
+        memoryStore.shutdown();
+    }
+
+    private static List<TimelineIdentifier> identifiers(int count) {
+        List<TimelineIdentifier> identifiers = new ArrayList<TimelineIdentifier>();
+        for (int i = 0; i < count; i++) {
+            identifiers.add(new TimelineIdentifier.Builder().addField("timeline_id", "user_" + i).build());
+        }
+        return identifiers;
+    }
+
+    @Test
+    public void testFanOut() throws Exception {
+        List<TimelineIdentifier> targets = identifiers(50);
+        FanOutResult result = timelineStore.fanOut(10, new TimelineMessage().setField("text", "hello"), targets)
+                .get(5, TimeUnit.SECONDS);
+
+        assertTrue(result.isAllSucceed());
+        assertEquals(50, result.getSucceedEntries().size());
+        for (TimelineIdentifier target : targets) {
+            TimelineEntry entry = result.getEntry(target);
+            assertEquals(10, entry.getSequenceID());
+            assertEquals("hello", entry.getMessage().getString("text"));
+        }
+        assertEquals(50, memoryStore.getRowCount(TABLE_NAME));
+
+        assertTrue(timelineStore.fanOut(11, new TimelineMessage(), new ArrayList<TimelineIdentifier>())
+                .get(5, TimeUnit.SECONDS).isAllSucceed());
+    }
+
+    @Test
+    public void testFanOutPartialFailed() throws Exception {
+        memoryStore.withBatchRowFailure(0.5, MemoryTableStore.ERROR_PARAMETER_INVALID);
+
+        List<TimelineIdentifier> targets = identifiers(20);
+        FanOutResult result = timelineStore.fanOut(10, new TimelineMessage().setField("text", "hello"), targets)
+                .get(5, TimeUnit.SECONDS);
+
+        Map<TimelineIdentifier, TimelineEntry> succeed = result.getSucceedEntries();
+        Map<TimelineIdentifier, Exception> failed = result.getFailedEntries();
+        assertFalse(result.isAllSucceed());
+        assertFalse(succeed.isEmpty());
+        assertFalse(failed.isEmpty());
+        assertEquals(targets.size(), succeed.size() + failed.size());
+        for (Exception e : failed.values()) {
+            assertEquals(MemoryTableStore.ERROR_PARAMETER_INVALID, Utils.convertException(e).getMessage());
+        }
+        assertEquals(succeed.size(), memoryStore.getRowCount(TABLE_NAME));
+    }
+
+    @Test
+    public void testFanOutNullIdentifier() {
+        List<TimelineIdentifier> targets = new ArrayList<TimelineIdentifier>(identifiers(3));
+        targets.add(1, null);
+        try {
+            timelineStore.fanOut(10, new TimelineMessage().setField("text", "hello"), targets);
+            fail();
+        } catch (TimelineException e) {
+            assertEquals("Identifier should not be null.", e.getMessage());
+        }
+
+        // nothing is submitted if any of the targets is invalid
+        timelineStore.flush();
+        assertEquals(0, memoryStore.getRowCount(TABLE_NAME));
+    }
+}
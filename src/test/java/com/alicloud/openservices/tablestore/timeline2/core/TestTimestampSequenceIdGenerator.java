@@ -0,0 +1,65 @@
+package com.alicloud.openservices.tablestore.timeline2.core;
+
+import com.alicloud.openservices.tablestore.timeline2.model.TimelineIdentifier;
+import org.junit.Test;
+
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+
+import static org.junit.Assert.*;
+
+public class TestTimestampSequenceIdGenerator {
+    private final TimelineIdentifier identifier = new TimelineIdentifier.Builder()
+            .addField("timelineId", "user_a")
+            .build();
+
+    @Test
+    public void testTimestampAndCounter() {
+        final long[] now = new long[]{1000};
+        TimestampSequenceIdGenerator generator = new TimestampSequenceIdGenerator() {
+            @Override
+            protected long currentTimeMillis() {
+                return now[0];
+            }
+        };
+
+        assertEquals(1000L << 20, generator.next(identifier));
+        assertEquals((1000L << 20) + 1, generator.next(identifier));
+
+        now[0] = 999;
+        assertEquals((1000L << 20) + 2, generator.next(identifier));
+
+        now[0] = 1001;
+        assertEquals(1001L << 20, generator.next(identifier));
+    }
+
+    @Test
+    public void testConcurrentUnique() throws InterruptedException {
+        final TimestampSequenceIdGenerator generator = new TimestampSequenceIdGenerator();
+        final Set<Long> ids = Collections.newSetFromMap(new ConcurrentHashMap<Long, Boolean>());
+        final int threadCount = 8;
+        final int countPerThread = 10000;
+        final CountDownLatch latch = new CountDownLatch(threadCount);
+
+        for (int i = 0; i < threadCount; i++) {
+            new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    long last = 0;
+                    for (int j = 0; j < countPerThread; j++) {
+                        long id = generator.next(identifier);
+                        assertTrue(id > last);
+                        ids.add(id);
+                        last = id;
+                    }
+                    latch.countDown();
+                }
+            }).start();
+        }
+
+        latch.await();
+        assertEquals(threadCount * countPerThread, ids.size());
+    }
+}
@@ -0,0 +1,341 @@
+package com.alicloud.openservices.tablestore.timeline2.core;
+
+import com.alicloud.openservices.tablestore.timeline2.AdaptiveRateLimiter;
+import com.alicloud.openservices.tablestore.timeline2.TimelineCallback;
+import com.alicloud.openservices.tablestore.timeline2.TimelineException;
+import com.alicloud.openservices.tablestore.timeline2.TimelineQueue;
+import com.alicloud.openservices.tablestore.timeline2.TimelineStore;
+import com.alicloud.openservices.tablestore.timeline2.memory.MemoryTableStore;
+import com.alicloud.openservices.tablestore.timeline2.model.*;
+import com.alicloud.openservices.tablestore.timeline2.query.ScanParameter;
+import com.alicloud.openservices.tablestore.writer.WriterConfig;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class TestWriteCoalescer {
+
+    private static TimelineQueue createQueue(TimelineStore timelineStore, String id) {
+        return timelineStore.createTimelineQueue(new TimelineIdentifier.Builder()
+                .addField("timeline_id", id).build());
+    }
+
+    private static TimelineStore createStore(MemoryTableStore memoryStore, long windowMillis, int maxRows) {
+        TimelineSchema schema = new TimelineSchema("coalesce_table", new TimelineIdentifierSchema.Builder()
+                .addStringField("timeline_id").build())
+                .withWriteCoalescing(windowMillis, maxRows, 4 * 1024 * 1024);
+        TimelineStore timelineStore = new TimelineStoreImpl(memoryStore.asSyncClient(), schema);
+        timelineStore.prepareTables();
+        return timelineStore;
+    }
+
+    @Test
+    public void testCoalesceInOrder() throws Exception {
+        MemoryTableStore memoryStore = new MemoryTableStore().withLatency(5, 10);
+        TimelineStore timelineStore = createStore(memoryStore, 20, 200);
+        TimelineQueue queueA = createQueue(timelineStore, "group_a");
+        TimelineQueue queueB = createQueue(timelineStore, "group_b");
+
+        List<TimelineFuture<TimelineEntry>> futures = new ArrayList<TimelineFuture<TimelineEntry>>();
+        for (int i = 0; i < 100; i++) {
+            futures.add(queueA.storeAsync(new TimelineMessage().setField("index", i), null));
+        }
+        TimelineFuture<TimelineEntry> other = queueB.storeAsync(new TimelineMessage().setField("index", 0), null);
+
+        long lastSequenceId = 0;
+        for (int i = 0; i < futures.size(); i++) {
+            TimelineEntry entry = futures.get(i).get(5, TimeUnit.SECONDS);
+            assertEquals(i, entry.getMessage().getLong("index"));
+            assertTrue(entry.getSequenceID() > lastSequenceId);
+            lastSequenceId = entry.getSequenceID();
+        }
+        assertEquals(0, other.get(5, TimeUnit.SECONDS).getMessage().getLong("index"));
+
+        assertEquals(0, memoryStore.getRequestCount("putRow"));
+        assertTrue(memoryStore.getRequestCount("batchWriteRow") <= 4);
+        assertEquals(101, memoryStore.getRowCount("coalesce_table"));
+
+        timelineStore.close();
+        memoryStore.shutdown();
+    }
+
+    @Test
+    public void testMaxRowsAndFlush() throws Exception {
+        MemoryTableStore memoryStore = new MemoryTableStore();
+        TimelineStore timelineStore = createStore(memoryStore, 60 * 1000, 10);
+        TimelineQueue queue = createQueue(timelineStore, "group_a");
+
+        List<TimelineFuture<TimelineEntry>> futures = new ArrayList<TimelineFuture<TimelineEntry>>();
+        for (int i = 0; i < 20; i++) {
+            futures.add(queue.storeAsync(new TimelineMessage().setField("index", i), null));
+        }
+
+        // the first 20 rows are sent by max rows, wait until the lane is idle
+        futures.get(19).get(5, TimeUnit.SECONDS);
+        Thread.sleep(100);
+
+        // the last 5 rows are held by the long window
+        for (int i = 20; i < 25; i++) {
+            futures.add(queue.storeAsync(new TimelineMessage().setField("index", i), null));
+        }
+        assertFalse(futures.get(24).isDone());
+
+        queue.flush();
+        assertTrue(futures.get(24).isDone());
+        assertEquals(25, memoryStore.getRowCount("coalesce_table"));
+        assertEquals(3, memoryStore.getRequestCount("batchWriteRow"));
+
+        // flush of store sends the rows of all timelines
+        TimelineFuture<TimelineEntry> other = createQueue(timelineStore, "group_b")
+                .storeAsync(new TimelineMessage().setField("index", 0), null);
+        futures.add(queue.storeAsync(new TimelineMessage().setField("index", 25), null));
+        timelineStore.flush();
+        assertTrue(other.isDone());
+        assertTrue(futures.get(25).isDone());
+        assertEquals(27, memoryStore.getRowCount("coalesce_table"));
+
+        timelineStore.close();
+        memoryStore.shutdown();
+    }
+
+    @Test
+    public void testOrderedWriter() throws Exception {
+        MemoryTableStore memoryStore = new MemoryTableStore().withLatency(1, 10);
+        WriterConfig writerConfig = new WriterConfig();
+        writerConfig.setMaxBatchRowsCount(50);
+        writerConfig.setFlushInterval(10);
+        TimelineSchema schema = new TimelineSchema("ordered_table", new TimelineIdentifierSchema.Builder()
+                .addStringField("timeline_id").build())
+                .manualSetSeqId()
+                .withWriterConfig(writerConfig)
+                .withOrderedWriter(2);
+        TimelineStore timelineStore = new TimelineStoreImpl(memoryStore.asSyncClient(), schema);
+        timelineStore.prepareTables();
+
+        final Map<TimelineIdentifier, List<Long>> completed = new ConcurrentHashMap<TimelineIdentifier, List<Long>>();
+        TimelineCallback callback = new TimelineCallback() {
+            @Override
+            public void onCompleted(TimelineIdentifier identifier, TimelineMessage message, TimelineEntry timelineEntry) {
+                completed.get(identifier).add(timelineEntry.getSequenceID());
+            }
+
+            @Override
+            public void onFailed(TimelineIdentifier identifier, TimelineMessage message, Exception ex) {
+            }
+        };
+
+        List<TimelineQueue> queues = new ArrayList<TimelineQueue>();
+        for (int i = 0; i < 5; i++) {
+            TimelineQueue queue = createQueue(timelineStore, "group_" + i);
+            completed.put(queue.getIdentifier(), Collections.synchronizedList(new ArrayList<Long>()));
+            queues.add(queue);
+        }
+        for (long sequenceId = 1; sequenceId <= 100; sequenceId++) {
+            for (TimelineQueue queue : queues) {
+                queue.batchStore(sequenceId, new TimelineMessage().setField("index", sequenceId), callback);
+            }
+        }
+        FanOutResult fanOutResult = timelineStore.fanOut(101, new TimelineMessage().setField("index", 101),
+                new ArrayList<TimelineIdentifier>(completed.keySet())).get(5, TimeUnit.SECONDS);
+        assertTrue(fanOutResult.isAllSucceed());
+
+        for (TimelineQueue queue : queues) {
+            queue.flush();
+            List<Long> sequenceIds = completed.get(queue.getIdentifier());
+            assertEquals(100, sequenceIds.size());
+            for (int i = 0; i < sequenceIds.size(); i++) {
+                assertEquals(i + 1, (long) sequenceIds.get(i));
+            }
+        }
+        assertEquals(0, memoryStore.getRequestCount("putRow"));
+        assertEquals(505, memoryStore.getRowCount("ordered_table"));
+
+        timelineStore.close();
+        memoryStore.shutdown();
+    }
+
+    @Test
+    public void testOrderedWriterFlush() throws Exception {
+        MemoryTableStore memoryStore = new MemoryTableStore().withLatency(50, 100);
+        WriterConfig writerConfig = new WriterConfig();
+        writerConfig.setFlushInterval(60 * 1000);
+        TimelineSchema schema = new TimelineSchema("ordered_table", new TimelineIdentifierSchema.Builder()
+                .addStringField("timeline_id").build())
+                .manualSetSeqId()
+                .withWriterConfig(writerConfig)
+                .withOrderedWriter(2);
+        TimelineStore timelineStore = new TimelineStoreImpl(memoryStore.asSyncClient(), schema);
+        timelineStore.prepareTables();
+
+        // the rows are held by the long flush interval, or in flight
+        List<TimelineFuture<TimelineEntry>> futures = new ArrayList<TimelineFuture<TimelineEntry>>();
+        for (int i = 0; i < 5; i++) {
+            futures.add(createQueue(timelineStore, "group_" + i).batchStore(1, new TimelineMessage().setField("index", i)));
+        }
+
+        timelineStore.flush();
+        for (TimelineFuture<TimelineEntry> future : futures) {
+            assertTrue(future.isDone());
+        }
+        assertEquals(5, memoryStore.getRowCount("ordered_table"));
+
+        timelineStore.close();
+        memoryStore.shutdown();
+    }
+
+    @Test
+    public void testRowFailure() throws Exception {
+        MemoryTableStore memoryStore = new MemoryTableStore().withBatchRowFailure(1.0);
+        TimelineStore timelineStore = createStore(memoryStore, 1, 200);
+        TimelineQueue queue = createQueue(timelineStore, "group_a");
+
+        TimelineFuture<TimelineEntry> future = queue.storeAsync(new TimelineMessage().setField("index", 0), null);
+        try {
+            future.get(5, TimeUnit.SECONDS);
+            fail();
+        } catch (TimelineException e) {
+            assertEquals(MemoryTableStore.ERROR_SERVER_BUSY, e.getMessage());
+        }
+
+        timelineStore.close();
+        memoryStore.shutdown();
+    }
+
+    @Test
+    public void testRetryThrottledRowsInOrder() throws Exception {
+        MemoryTableStore memoryStore = new MemoryTableStore().withLatency(1, 5).withRandomSeed(7)
+                .withBatchRowFailure(0.1, AdaptiveRateLimiter.ERROR_CAPACITY_UNIT_EXHAUSTED);
+        TimelineSchema schema = new TimelineSchema("coalesce_table", new TimelineIdentifierSchema.Builder()
+                .addStringField("timeline_id").build())
+                .manualSetSeqId()
+                .withWriteCoalescing(5, 50, 4 * 1024 * 1024);
+        TimelineStore timelineStore = new TimelineStoreImpl(memoryStore.asSyncClient(), schema);
+        timelineStore.prepareTables();
+
+        final Map<TimelineIdentifier, List<Long>> completed = new ConcurrentHashMap<TimelineIdentifier, List<Long>>();
+        TimelineCallback callback = new TimelineCallback() {
+            @Override
+            public void onCompleted(TimelineIdentifier identifier, TimelineMessage message, TimelineEntry timelineEntry) {
+                completed.get(identifier).add(timelineEntry.getSequenceID());
+            }
+
+            @Override
+            public void onFailed(TimelineIdentifier identifier, TimelineMessage message, Exception ex) {
+            }
+        };
+
+        List<TimelineQueue> queues = new ArrayList<TimelineQueue>();
+        for (int i = 0; i < 2; i++) {
+            TimelineQueue queue = createQueue(timelineStore, "group_" + i);
+            completed.put(queue.getIdentifier(), Collections.synchronizedList(new ArrayList<Long>()));
+            queues.add(queue);
+        }
+        List<TimelineFuture<TimelineEntry>> futures = new ArrayList<TimelineFuture<TimelineEntry>>();
+        for (long sequenceId = 1; sequenceId <= 150; sequenceId++) {
+            for (TimelineQueue queue : queues) {
+                futures.add(queue.storeAsync(sequenceId, new TimelineMessage().setField("index", sequenceId), callback));
+            }
+        }
+        for (TimelineFuture<TimelineEntry> future : futures) {
+            future.get(5, TimeUnit.SECONDS);
+        }
+
+        // the failed rows are retried before the later rows are written, and completed in order
+        for (TimelineQueue queue : queues) {
+            List<Long> sequenceIds = completed.get(queue.getIdentifier());
+            assertEquals(150, sequenceIds.size());
+            for (int i = 0; i < sequenceIds.size(); i++) {
+                assertEquals(i + 1, (long) sequenceIds.get(i));
+            }
+        }
+        assertEquals(300, memoryStore.getRowCount("coalesce_table"));
+        assertTrue(memoryStore.getRequestCount("batchWriteRow") > 6);
+
+        timelineStore.close();
+        memoryStore.shutdown();
+    }
+
+    @Test
+    public void testRetryThrottledRowsWithAutoIncrement() throws Exception {
+        MemoryTableStore memoryStore = new MemoryTableStore().withLatency(1, 5).withRandomSeed(7)
+                .withBatchRowFailure(0.3, AdaptiveRateLimiter.ERROR_CAPACITY_UNIT_EXHAUSTED);
+        TimelineStore timelineStore = createStore(memoryStore, 5, 50);
+        TimelineQueue queue = createQueue(timelineStore, "group_a");
+
+        List<TimelineFuture<TimelineEntry>> futures = new ArrayList<TimelineFuture<TimelineEntry>>();
+        for (int i = 0; i < 300; i++) {
+            futures.add(queue.storeAsync(new TimelineMessage().setField("index", i), null));
+        }
+        int succeed = 0;
+        for (TimelineFuture<TimelineEntry> future : futures) {
+            try {
+                future.get(5, TimeUnit.SECONDS);
+                succeed++;
+            } catch (TimelineException e) {
+                // failed finally, or not written since a previous row failed
+            }
+        }
+
+        // a failed row is never written after the later rows of its timeline
+        Iterator<TimelineEntry> iterator = queue.scan(new ScanParameter().scanForward(0).maxCount(1000));
+        long lastIndex = -1;
+        int count = 0;
+        while (iterator.hasNext()) {
+            long index = iterator.next().getMessage().getLong("index");
+            assertTrue(index > lastIndex);
+            lastIndex = index;
+            count++;
+        }
+        assertEquals(succeed, count);
+        assertTrue(succeed > 0);
+
+        timelineStore.close();
+        memoryStore.shutdown();
+    }
+
+    @Test
+    public void testFailLaterRowsOfTimeline() throws Exception {
+        MemoryTableStore memoryStore = new MemoryTableStore().withLatency(50, 50);
+        TimelineStore timelineStore = createStore(memoryStore, 60 * 1000, 2);
+        // the type of primary key is invalid, so that the rows of timeline are rejected
+        TimelineQueue invalidQueue = timelineStore.createTimelineQueue(new TimelineIdentifier.Builder()
+                .addField("timeline_id", 1).build());
+        TimelineQueue queue = createQueue(timelineStore, "group_a");
+
+        // the first batch is in flight while the next rows are buffered
+        TimelineFuture<TimelineEntry> invalid0 = invalidQueue.storeAsync(new TimelineMessage().setField("index", 0), null);
+        TimelineFuture<TimelineEntry> valid0 = queue.storeAsync(new TimelineMessage().setField("index", 0), null);
+        TimelineFuture<TimelineEntry> invalid1 = invalidQueue.storeAsync(new TimelineMessage().setField("index", 1), null);
+        TimelineFuture<TimelineEntry> valid1 = queue.storeAsync(new TimelineMessage().setField("index", 1), null);
+
+        try {
+            invalid0.get(5, TimeUnit.SECONDS);
+            fail();
+        } catch (TimelineException e) {
+            assertEquals(MemoryTableStore.ERROR_PARAMETER_INVALID, e.getMessage());
+        }
+        try {
+            invalid1.get(5, TimeUnit.SECONDS);
+            fail();
+        } catch (TimelineException e) {
+            assertEquals("Previous row of the timeline failed.", e.getMessage());
+        }
+        assertEquals(0, valid0.get(5, TimeUnit.SECONDS).getMessage().getLong("index"));
+        assertEquals(1, valid1.get(5, TimeUnit.SECONDS).getMessage().getLong("index"));
+
+        // the row failed by invalid parameter is not retried, and the later row is not sent
+        assertEquals(2, memoryStore.getRequestCount("batchWriteRow"));
+        assertEquals(2, memoryStore.getRowCount("coalesce_table"));
+
+        timelineStore.close();
+        memoryStore.shutdown();
+    }
+}
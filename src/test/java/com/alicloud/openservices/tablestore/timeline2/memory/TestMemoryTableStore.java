@@ -0,0 +1,259 @@
+package com.alicloud.openservices.tablestore.timeline2.memory;
+
+import com.alicloud.openservices.tablestore.AsyncClientInterface;
+import com.alicloud.openservices.tablestore.SyncClientInterface;
+import com.alicloud.openservices.tablestore.TableStoreCallback;
+import com.alicloud.openservices.tablestore.TableStoreException;
+import com.alicloud.openservices.tablestore.model.*;
+import com.alicloud.openservices.tablestore.model.filter.SingleColumnValueFilter;
+import com.alicloud.openservices.tablestore.timeline2.TimelineQueue;
+import com.alicloud.openservices.tablestore.timeline2.TimelineStore;
+import com.alicloud.openservices.tablestore.timeline2.core.TimelineStoreImpl;
+import com.alicloud.openservices.tablestore.timeline2.model.TimelineEntry;
+import com.alicloud.openservices.tablestore.timeline2.model.TimelineIdentifier;
+import com.alicloud.openservices.tablestore.timeline2.model.TimelineIdentifierSchema;
+import com.alicloud.openservices.tablestore.timeline2.model.TimelineMessage;
+import com.alicloud.openservices.tablestore.timeline2.model.TimelineSchema;
+import com.alicloud.openservices.tablestore.timeline2.query.ScanParameter;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.*;
+
+public class TestMemoryTableStore {
+    private static final String TABLE_NAME = "memory_table";
+
+    private static SyncClientInterface createTable(MemoryTableStore store) {
+        TableMeta tableMeta = new TableMeta(TABLE_NAME);
+        tableMeta.addPrimaryKeyColumn("id", PrimaryKeyType.STRING);
+        tableMeta.addAutoIncrementPrimaryKeyColumn("seq");
+
+        SyncClientInterface client = store.asSyncClient();
+        client.createTable(new CreateTableRequest(tableMeta, new TableOptions()));
+        return client;
+    }
+
+    private static PrimaryKey primaryKey(String id, PrimaryKeyValue seq) {
+        return PrimaryKeyBuilder.createPrimaryKeyBuilder()
+                .addPrimaryKeyColumn("id", PrimaryKeyValue.fromString(id))
+                .addPrimaryKeyColumn("seq", seq)
+                .build();
+    }
+
+    private static PrimaryKey put(SyncClientInterface client, String id, long value) {
+        RowPutChange change = new RowPutChange(TABLE_NAME, primaryKey(id, PrimaryKeyValue.AUTO_INCREMENT));
+        change.addColumn("value", ColumnValue.fromLong(value));
+        change.setReturnType(ReturnType.RT_PK);
+        return client.putRow(new PutRowRequest(change)).getRow().getPrimaryKey();
+    }
+
+    @Test
+    public void testPutAndGetRow() {
+        MemoryTableStore store = new MemoryTableStore();
+        SyncClientInterface client = createTable(store);
+
+        PrimaryKey pk1 = put(client, "a", 1);
+        PrimaryKey pk2 = put(client, "a", 2);
+        assertTrue(pk1.getPrimaryKeyColumn("seq").getValue().asLong() < pk2.getPrimaryKeyColumn("seq").getValue().asLong());
+        assertEquals(2, store.getRowCount(TABLE_NAME));
+
+        SingleRowQueryCriteria criteria = new SingleRowQueryCriteria(TABLE_NAME, pk2);
+        criteria.setMaxVersions(1);
+        Row row = client.getRow(new GetRowRequest(criteria)).getRow();
+        assertEquals(2, row.getLatestColumn("value").getValue().asLong());
+
+        RowUpdateChange update = new RowUpdateChange(TABLE_NAME, pk2);
+        update.put("other", ColumnValue.fromString("x"));
+        client.updateRow(new UpdateRowRequest(update));
+        row = client.getRow(new GetRowRequest(criteria)).getRow();
+        assertEquals(2, row.getColumns().length);
+
+        client.deleteRow(new DeleteRowRequest(new RowDeleteChange(TABLE_NAME, pk2)));
+        assertNull(client.getRow(new GetRowRequest(criteria)).getRow());
+        assertEquals(1, store.getRequestCount("deleteRow"));
+    }
+
+    @Test
+    public void testConditionCheck() {
+        MemoryTableStore store = new MemoryTableStore();
+        SyncClientInterface client = createTable(store);
+        PrimaryKey pk = put(client, "a", 1);
+
+        RowUpdateChange update = new RowUpdateChange(TABLE_NAME, pk);
+        update.put("value", ColumnValue.fromLong(3));
+        Condition condition = new Condition(RowExistenceExpectation.EXPECT_EXIST);
+        condition.setColumnCondition(new com.alicloud.openservices.tablestore.model.condition.SingleColumnValueCondition("value",
+                com.alicloud.openservices.tablestore.model.condition.SingleColumnValueCondition.CompareOperator.EQUAL,
+                ColumnValue.fromLong(2)));
+        update.setCondition(condition);
+        try {
+            client.updateRow(new UpdateRowRequest(update));
+            fail();
+        } catch (TableStoreException e) {
+            assertEquals(MemoryTableStore.ERROR_CONDITION_CHECK_FAIL, e.getErrorCode());
+        }
+
+        RowPutChange put = new RowPutChange(TABLE_NAME, primaryKey("b", PrimaryKeyValue.fromLong(1)));
+        put.setCondition(new Condition(RowExistenceExpectation.EXPECT_EXIST));
+        try {
+            client.putRow(new PutRowRequest(put));
+            fail();
+        } catch (TableStoreException e) {
+            assertEquals(MemoryTableStore.ERROR_CONDITION_CHECK_FAIL, e.getErrorCode());
+        }
+
+        try {
+            client.getRow(new GetRowRequest(new SingleRowQueryCriteria("not_exist", pk)));
+            fail();
+        } catch (TableStoreException e) {
+            assertEquals(MemoryTableStore.ERROR_OBJECT_NOT_EXIST, e.getErrorCode());
+        }
+    }
+
+    @Test
+    public void testGetRange() {
+        MemoryTableStore store = new MemoryTableStore();
+        SyncClientInterface client = createTable(store);
+        for (int i = 0; i < 10; i++) {
+            put(client, "a", i);
+        }
+        put(client, "b", 100);
+
+        RangeRowQueryCriteria criteria = new RangeRowQueryCriteria(TABLE_NAME);
+        criteria.setInclusiveStartPrimaryKey(primaryKey("a", PrimaryKeyValue.INF_MAX));
+        criteria.setExclusiveEndPrimaryKey(primaryKey("a", PrimaryKeyValue.INF_MIN));
+        criteria.setDirection(Direction.BACKWARD);
+        criteria.setMaxVersions(1);
+        criteria.setLimit(4);
+        GetRangeResponse response = client.getRange(new GetRangeRequest(criteria));
+        assertEquals(4, response.getRows().size());
+        assertEquals(9, response.getRows().get(0).getLatestColumn("value").getValue().asLong());
+        assertEquals(6, response.getRows().get(3).getLatestColumn("value").getValue().asLong());
+        assertNotNull(response.getNextStartPrimaryKey());
+
+        criteria.setInclusiveStartPrimaryKey(primaryKey("a", PrimaryKeyValue.INF_MIN));
+        criteria.setExclusiveEndPrimaryKey(primaryKey("a", PrimaryKeyValue.INF_MAX));
+        criteria.setDirection(Direction.FORWARD);
+        criteria.setLimit(-1);
+        criteria.setFilter(new SingleColumnValueFilter("value", SingleColumnValueFilter.CompareOperator.GREATER_EQUAL,
+                ColumnValue.fromLong(5)));
+        response = client.getRange(new GetRangeRequest(criteria));
+        assertEquals(5, response.getRows().size());
+        assertEquals(5, response.getRows().get(0).getLatestColumn("value").getValue().asLong());
+        assertNull(response.getNextStartPrimaryKey());
+    }
+
+    @Test
+    public void testBatchRowFailure() {
+        MemoryTableStore store = new MemoryTableStore().withRandomSeed(1).withBatchRowFailure(0.5);
+        SyncClientInterface client = createTable(store);
+
+        BatchWriteRowRequest request = new BatchWriteRowRequest();
+        for (int i = 0; i < 100; i++) {
+            RowPutChange change = new RowPutChange(TABLE_NAME, primaryKey("a", PrimaryKeyValue.fromLong(i)));
+            change.addColumn("value", ColumnValue.fromLong(i));
+            request.addRowChange(change);
+        }
+        BatchWriteRowResponse response = client.batchWriteRow(request);
+        int failed = response.getFailedRows().size();
+        assertTrue(failed > 0 && failed < 100);
+        assertEquals(100 - failed, store.getRowCount(TABLE_NAME));
+        for (BatchWriteRowResponse.RowResult result : response.getFailedRows()) {
+            assertEquals(MemoryTableStore.ERROR_SERVER_BUSY, result.getError().getCode());
+        }
+
+        store.withBatchRowFailure(0);
+        MultiRowQueryCriteria criteria = new MultiRowQueryCriteria(TABLE_NAME);
+        criteria.setMaxVersions(1);
+        for (int i = 0; i < 100; i++) {
+            criteria.addRow(primaryKey("a", PrimaryKeyValue.fromLong(i)));
+        }
+        BatchGetRowRequest getRequest = new BatchGetRowRequest();
+        getRequest.addMultiRowQueryCriteria(criteria);
+        BatchGetRowResponse getResponse = client.batchGetRow(getRequest);
+        assertTrue(getResponse.isAllSucceed());
+
+        int exist = 0;
+        for (BatchGetRowResponse.RowResult result : getResponse.getSucceedRows()) {
+            if (result.getRow() != null) {
+                exist++;
+            }
+        }
+        assertEquals(100 - failed, exist);
+    }
+
+    @Test
+    public void testThrottlingOfAsyncClient() throws Exception {
+        MemoryTableStore store = new MemoryTableStore().withLatency(1, 5);
+        createTable(store);
+        store.withThrottling(1.0);
+
+        final AtomicReference<Exception> callbackException = new AtomicReference<Exception>();
+        final CountDownLatch latch = new CountDownLatch(1);
+        AsyncClientInterface asyncClient = store.asAsyncClient();
+        SingleRowQueryCriteria criteria = new SingleRowQueryCriteria(TABLE_NAME, primaryKey("a", PrimaryKeyValue.fromLong(1)));
+        Future<GetRowResponse> future = asyncClient.getRow(new GetRowRequest(criteria), new TableStoreCallback<GetRowRequest, GetRowResponse>() {
+            @Override
+            public void onCompleted(GetRowRequest req, GetRowResponse res) {
+                latch.countDown();
+            }
+
+            @Override
+            public void onFailed(GetRowRequest req, Exception ex) {
+                callbackException.set(ex);
+                latch.countDown();
+            }
+        });
+
+        try {
+            future.get();
+            fail();
+        } catch (ExecutionException e) {
+            assertEquals(MemoryTableStore.ERROR_SERVER_BUSY, ((TableStoreException) e.getCause()).getErrorCode());
+        }
+        latch.await();
+        assertTrue(callbackException.get() instanceof TableStoreException);
+        assertEquals(1, store.getRequestCount("getRow"));
+
+        store.shutdown();
+    }
+
+    @Test
+    public void testTimelineQueue() {
+        MemoryTableStore memoryStore = new MemoryTableStore();
+        TimelineIdentifierSchema identifierSchema = new TimelineIdentifierSchema.Builder()
+                .addStringField("timeline_id").build();
+        TimelineSchema schema = new TimelineSchema(TABLE_NAME, identifierSchema);
+
+        TimelineStore timelineStore = new TimelineStoreImpl(memoryStore.asSyncClient(), schema);
+        timelineStore.prepareTables();
+
+        TimelineIdentifier identifier = new TimelineIdentifier.Builder().addField("timeline_id", "group_a").build();
+        TimelineQueue queue = timelineStore.createTimelineQueue(identifier);
+
+        List<Long> sequenceIds = new ArrayList<Long>();
+        for (int i = 0; i < 5; i++) {
+            sequenceIds.add(queue.store(new TimelineMessage().setField("text", "message " + i)).getSequenceID());
+        }
+        assertEquals((long) sequenceIds.get(4), queue.getLatestSequenceId());
+        assertEquals("message 2", queue.get(sequenceIds.get(2)).getMessage().getString("text"));
+
+        Iterator<TimelineEntry> iterator = queue.scan(new ScanParameter().scanBackward(Long.MAX_VALUE).maxCount(3));
+        int count = 0;
+        while (iterator.hasNext()) {
+            assertEquals((long) sequenceIds.get(4 - count), iterator.next().getSequenceID());
+            count++;
+        }
+        assertEquals(3, count);
+
+        timelineStore.close();
+        memoryStore.shutdown();
+    }
+}
@@ -0,0 +1,52 @@
+package com.alicloud.openservices.tablestore.timeline2.model;
+
+import com.alicloud.openservices.tablestore.timeline2.TimelineException;
+import org.junit.Test;
+
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+public class TestFanOutResult {
+
+    private TimelineIdentifier identifier(String id) {
+        return new TimelineIdentifier.Builder()
+                .addField("timelineId", id)
+                .build();
+    }
+
+    @Test
+    public void testAllSucceed() {
+        TimelineMessage message = new TimelineMessage().setField("text", "hello");
+        TimelineIdentifier[] identifiers = new TimelineIdentifier[]{identifier("user_a"), identifier("user_b")};
+        TimelineEntry[] entries = new TimelineEntry[]{new TimelineEntry(1, message), new TimelineEntry(2, message)};
+        FanOutResult result = new FanOutResult(identifiers, entries, new Exception[2]);
+
+        assertTrue(result.isAllSucceed());
+        assertEquals(2, result.getSucceedEntries().size());
+        assertEquals(0, result.getFailedEntries().size());
+        assertEquals(1, result.getEntry(identifier("user_a")).getSequenceID());
+        assertEquals(2, result.getEntry(identifier("user_b")).getSequenceID());
+        assertNull(result.getEntry(identifier("user_c")));
+    }
+
+    @Test
+    public void testPartialFailed() {
+        TimelineMessage message = new TimelineMessage().setField("text", "hello");
+        TimelineIdentifier[] identifiers = new TimelineIdentifier[]{identifier("user_b"), identifier("user_a"), identifier("user_c")};
+        TimelineEntry[] entries = new TimelineEntry[]{new TimelineEntry(1, message), null, new TimelineEntry(3, message)};
+        Exception[] exceptions = new Exception[]{null, new TimelineException("OTSServerBusy"), null};
+        FanOutResult result = new FanOutResult(identifiers, entries, exceptions);
+
+        assertFalse(result.isAllSucceed());
+
+        Map<TimelineIdentifier, TimelineEntry> succeed = result.getSucceedEntries();
+        assertEquals(2, succeed.size());
+        assertArrayEquals(new Object[]{identifier("user_b"), identifier("user_c")}, succeed.keySet().toArray());
+
+        Map<TimelineIdentifier, Exception> failed = result.getFailedEntries();
+        assertEquals(1, failed.size());
+        assertEquals("OTSServerBusy", failed.get(identifier("user_a")).getMessage());
+        assertNull(result.getEntry(identifier("user_a")));
+    }
+}
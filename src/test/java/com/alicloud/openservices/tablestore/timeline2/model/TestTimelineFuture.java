@@ -0,0 +1,244 @@
+package com.alicloud.openservices.tablestore.timeline2.model;
+
+import com.alicloud.openservices.tablestore.TableStoreCallback;
+import com.alicloud.openservices.tablestore.TableStoreException;
+import com.alicloud.openservices.tablestore.timeline2.TimelineException;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+public class TestTimelineFuture {
+
+    @Test
+    public void testCompleteOnce() throws Exception {
+        TimelineFuture<String> future = new TimelineFuture<String>();
+        assertFalse(future.isDone());
+        assertTrue(future.complete("a"));
+        assertFalse(future.complete("b"));
+        assertFalse(future.completeExceptionally(new RuntimeException()));
+        assertTrue(future.isDone());
+        assertEquals("a", future.get());
+        assertEquals("a", future.get(1, TimeUnit.MILLISECONDS));
+    }
+
+    @Test
+    public void testFailure() throws Exception {
+        TimelineFuture<String> future = TimelineFuture.failedFuture(
+                new TableStoreException("busy", null, "OTSServerBusy", "", 503));
+        try {
+            future.get();
+            fail();
+        } catch (TimelineException e) {
+            assertEquals("OTSServerBusy", e.getMessage());
+        }
+    }
+
+    @Test
+    public void testTimeout() throws Exception {
+        TimelineFuture<String> future = new TimelineFuture<String>();
+        long start = System.nanoTime();
+        try {
+            future.get(20, TimeUnit.MILLISECONDS);
+            fail();
+        } catch (TimeoutException e) {
+            assertTrue(System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(20));
+        }
+
+        // the stale waiter should not break completion
+        future.complete("a");
+        assertEquals("a", future.get());
+    }
+
+    @Test
+    public void testListenersInOrder() {
+        final List<Integer> order = new ArrayList<Integer>();
+        TimelineFuture<String> future = new TimelineFuture<String>();
+        for (int i = 0; i < 3; i++) {
+            final int index = i;
+            future.addListener(new TimelineFuture.CompletionHandler<String>() {
+                @Override
+                public void onComplete(String value, Exception ex) {
+                    order.add(index);
+                }
+            });
+        }
+        future.complete("a");
+
+        // invoked immediately after completion
+        future.addListener(new TimelineFuture.CompletionHandler<String>() {
+            @Override
+            public void onComplete(String value, Exception ex) {
+                order.add(3);
+            }
+        });
+        assertEquals("[0, 1, 2, 3]", order.toString());
+    }
+
+    @Test
+    public void testListenerThrows() {
+        final List<Integer> order = new ArrayList<Integer>();
+        TimelineFuture<String> future = new TimelineFuture<String>();
+        for (int i = 0; i < 3; i++) {
+            final int index = i;
+            future.addListener(new TimelineFuture.CompletionHandler<String>() {
+                @Override
+                public void onComplete(String value, Exception ex) {
+                    order.add(index);
+                    throw new IllegalStateException("Bad listener " + index);
+                }
+            });
+        }
+
+        // the exceptions of listeners are not thrown to the completer
+        assertTrue(future.complete("a"));
+        assertEquals("[0, 1, 2]", order.toString());
+    }
+
+    @Test
+    public void testPollingWaiters() throws Exception {
+        final TimelineFuture<String> future = new TimelineFuture<String>();
+        future.addListener(new TimelineFuture.CompletionHandler<String>() {
+            @Override
+            public void onComplete(String value, Exception ex) {
+            }
+        });
+
+        final CountDownLatch done = new CountDownLatch(1);
+        new Thread(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    future.get();
+                } catch (Exception e) {
+                    // never
+                } finally {
+                    done.countDown();
+                }
+            }
+        }).start();
+        while (future.getNumberOfDependents() < 2) {
+            Thread.sleep(1);
+        }
+
+        // the waiters timed out are unlinked, while the listener and the waiting thread are kept
+        for (int i = 0; i < 10000; i++) {
+            try {
+                future.get(0, TimeUnit.NANOSECONDS);
+                fail();
+            } catch (TimeoutException e) {
+                // expected
+            }
+        }
+        assertEquals(2, future.getNumberOfDependents());
+
+        future.complete("a");
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+        assertEquals(0, future.getNumberOfDependents());
+    }
+
+    @Test
+    public void testComposition() throws Exception {
+        TimelineFuture<String> future = new TimelineFuture<String>();
+        final AtomicInteger handled = new AtomicInteger(0);
+
+        TimelineFuture<Integer> length = future
+                .thenApply(new TimelineFuture.Function<String, Integer>() {
+                    @Override
+                    public Integer apply(String value) {
+                        return value.length();
+                    }
+                })
+                .thenCompose(new TimelineFuture.Function<Integer, TimelineFuture<Integer>>() {
+                    @Override
+                    public TimelineFuture<Integer> apply(Integer value) {
+                        return TimelineFuture.completedFuture(value * 2);
+                    }
+                })
+                .whenComplete(new TimelineFuture.CompletionHandler<Integer>() {
+                    @Override
+                    public void onComplete(Integer value, Exception ex) {
+                        handled.incrementAndGet();
+                    }
+                });
+
+        assertFalse(length.isDone());
+        future.complete("abc");
+        assertEquals(Integer.valueOf(6), length.get());
+        assertEquals(1, handled.get());
+
+        TimelineFuture<Integer> failed = TimelineFuture.completedFuture("abc")
+                .thenApply(new TimelineFuture.Function<String, Integer>() {
+                    @Override
+                    public Integer apply(String value) throws Exception {
+                        throw new TimelineException("Bad");
+                    }
+                });
+        try {
+            failed.get();
+            fail();
+        } catch (TimelineException e) {
+            assertEquals("Bad", e.getMessage());
+        }
+    }
+
+    @Test
+    public void testConcurrentWaiters() throws Exception {
+        final TimelineFuture<String> future = new TimelineFuture<String>();
+        final CountDownLatch done = new CountDownLatch(8);
+        final AtomicInteger succeed = new AtomicInteger(0);
+        for (int i = 0; i < 8; i++) {
+            new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        if ("a".equals(future.get())) {
+                            succeed.incrementAndGet();
+                        }
+                    } catch (Exception e) {
+                        // counted as failure
+                    } finally {
+                        done.countDown();
+                    }
+                }
+            }).start();
+        }
+
+        Thread.sleep(10);
+        future.complete("a");
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+        assertEquals(8, succeed.get());
+    }
+
+    @Test
+    public void testCallbackImpledFuture() {
+        final List<String> events = new ArrayList<String>();
+        TimelineCallbackImpledFuture<String, Long> future = new TimelineCallbackImpledFuture<String, Long>();
+        future.watchBy(new TableStoreCallback<String, Long>() {
+            @Override
+            public void onCompleted(String request, Long result) {
+                events.add(request + ":" + result);
+            }
+
+            @Override
+            public void onFailed(String request, Exception ex) {
+                events.add(request + ":failed");
+            }
+        });
+        future.onCompleted("req", 1L);
+
+        try {
+            future.onCompleted("req", 2L);
+            fail();
+        } catch (IllegalStateException e) {
+            // expected
+        }
+        assertEquals("[req:1]", events.toString());
+    }
+}
@@ -2,9 +2,17 @@ package com.alicloud.openservices.tablestore.timeline2.model;
 
 import com.alicloud.openservices.tablestore.model.Column;
 import com.alicloud.openservices.tablestore.model.ColumnValue;
+import com.alicloud.openservices.tablestore.model.PrimaryKey;
+import com.alicloud.openservices.tablestore.model.PrimaryKeyBuilder;
+import com.alicloud.openservices.tablestore.model.PrimaryKeyValue;
+import com.alicloud.openservices.tablestore.model.Row;
 import org.junit.Test;
 
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
 
 import static org.junit.Assert.*;
 
@@ -83,4 +91,88 @@ public class TestTimelineMessage {
         } catch (IllegalStateException e) {
         }
     }
+
+    @Test
+    public void testBackedByRow() {
+        PrimaryKey primaryKey = PrimaryKeyBuilder.createPrimaryKeyBuilder()
+                .addPrimaryKeyColumn("sequence_id", PrimaryKeyValue.fromLong(1))
+                .build();
+        Row row = new Row(primaryKey, new Column[]{
+                new Column("c3", ColumnValue.fromLong(20190418), 1000),
+                new Column("c0", ColumnValue.fromString("hello world"), 1000),
+                new Column("c1", ColumnValue.fromBoolean(true), 1000),
+                new Column("c3", ColumnValue.fromLong(20190417), 999),
+                new Column("c2", ColumnValue.fromDouble(9.99), 1000)
+        });
+
+        TimelineMessage message = new TimelineMessage(row);
+        assertEquals(message.getString("c0"), "hello world");
+        assertEquals(message.getBoolean("c1"), true);
+        assertEquals(message.getDouble("c2"), 9.99, 0.001);
+        assertEquals(message.getLong("c3"), 20190418);
+        assertTrue(message.contains("c0"));
+        assertTrue(!message.contains("c"));
+        assertTrue(!message.contains("c4"));
+        try {
+            message.getLong("c0");
+            fail();
+        } catch (IllegalStateException e) {
+        }
+
+        // the latest version is kept when the fields are materialized
+        assertEquals(message.getFields().size(), 4);
+        assertEquals(message.getLong("c3"), 20190418);
+
+        message.setField("c4", "new field");
+        message.setField("c0", "replaced");
+        assertEquals(message.getFields().size(), 5);
+        assertEquals(message.getString("c0"), "replaced");
+        assertEquals(message.getString("c4"), "new field");
+        assertEquals(row.getColumns().length, 5);
+        assertEquals(message.toString(), "c0:replaced, c1:true, c2:9.99, c3:20190418, c4:new field");
+    }
+
+    @Test
+    public void testConcurrentReads() throws Exception {
+        final List<TimelineMessage> messages = new ArrayList<TimelineMessage>();
+        for (int i = 0; i < 1000; i++) {
+            messages.add(new TimelineMessage(new Row(PrimaryKeyBuilder.createPrimaryKeyBuilder()
+                    .addPrimaryKeyColumn("sequence_id", PrimaryKeyValue.fromLong(i))
+                    .build(), new Column[]{
+                    new Column("c0", ColumnValue.fromString("hello world"), 1000),
+                    new Column("c1", ColumnValue.fromString("message " + i), 1000)
+            })));
+        }
+
+        // the messages read by getFields and toString of other threads are still readable
+        final List<Throwable> errors = Collections.synchronizedList(new ArrayList<Throwable>());
+        final CountDownLatch latch = new CountDownLatch(4);
+        for (int t = 0; t < 4; t++) {
+            final int thread = t;
+            new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        for (int i = 0; i < messages.size(); i++) {
+                            TimelineMessage message = messages.get(i);
+                            if (thread % 2 == 0) {
+                                assertEquals(2, message.getFields().size());
+                                assertEquals("c0:hello world, c1:message " + i, message.toString());
+                            } else {
+                                assertEquals("hello world", message.getString("c0"));
+                                assertTrue(message.contains("c1"));
+                            }
+                        }
+                    } catch (Throwable e) {
+                        errors.add(e);
+                    } finally {
+                        latch.countDown();
+                    }
+                }
+            }).start();
+        }
+        latch.await();
+
+        assertTrue(errors.toString(), errors.isEmpty());
+    }
 }
@@ -0,0 +1,64 @@
+package com.alicloud.openservices.tablestore.timeline2.model;
+
+import com.alicloud.openservices.tablestore.codec.ContentCodec;
+import com.alicloud.openservices.tablestore.model.Column;
+import com.alicloud.openservices.tablestore.model.ColumnValue;
+import com.alicloud.openservices.tablestore.timeline2.TimelineException;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.zip.DeflaterOutputStream;
+
+import static org.junit.Assert.*;
+
+public class TestTimelineMessageForV1 {
+
+    @Test
+    public void testContentCodec() {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < 1000; i++) {
+            sb.append("hello world ");
+        }
+        String text = sb.toString();
+
+        TimelineMessageForV1 message = new TimelineMessageForV1("short");
+        assertFalse(message.getTimelineMessage().contains("__codec"));
+
+        message.setContent(text, ContentCodec.DEFLATE, 1024);
+        TimelineMessage stored = message.getTimelineMessage();
+        assertEquals("deflate", stored.getString("__codec"));
+        assertEquals(1, stored.getLong("__column_count"));
+        assertTrue(stored.getFields().get("__content10000").getValue().asBinary().length < text.length());
+        assertEquals(text, new TimelineMessageForV1(stored).getContent());
+
+        // the codec of old content is cleared
+        message.setContent("short", ContentCodec.DEFLATE, 1024);
+        assertEquals("", stored.getString("__codec"));
+        assertEquals("short", new TimelineMessageForV1(stored).getContent());
+        assertEquals("short", message.getContent());
+    }
+
+    @Test
+    public void testDecodedTooLong() throws IOException {
+        ByteArrayOutputStream stream = new ByteArrayOutputStream();
+        DeflaterOutputStream output = new DeflaterOutputStream(stream);
+        byte[] zeros = new byte[1024 * 1024];
+        for (int i = 0; i <= ContentCodec.MAX_DECODED_LENGTH / zeros.length; i++) {
+            output.write(zeros);
+        }
+        output.close();
+        byte[] content = stream.toByteArray();
+
+        TimelineMessage stored = new TimelineMessageForV1("short").getTimelineMessage();
+        stored.setField(new Column("__content10000", ColumnValue.fromBinary(content)));
+        stored.setField("__crc32", TimelineMessageForV1.crc32(content));
+        stored.setField("__codec", "deflate");
+        try {
+            new TimelineMessageForV1(stored).getContent();
+            fail();
+        } catch (TimelineException e) {
+            assertTrue(e.getCause() instanceof IOException);
+        }
+    }
+}
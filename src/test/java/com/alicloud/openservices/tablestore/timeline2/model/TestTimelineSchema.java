@@ -3,11 +3,17 @@ package com.alicloud.openservices.tablestore.timeline2.model;
 import com.alicloud.openservices.tablestore.model.search.FieldSchema;
 import com.alicloud.openservices.tablestore.model.search.FieldType;
 import com.alicloud.openservices.tablestore.model.search.IndexSchema;
+import com.alicloud.openservices.tablestore.timeline2.NoopMetricsListener;
+import com.alicloud.openservices.tablestore.timeline2.SequenceIdGenerator;
+import com.alicloud.openservices.tablestore.timeline2.TimelineException;
+import com.alicloud.openservices.tablestore.timeline2.core.HistogramMetricsListener;
+import com.alicloud.openservices.tablestore.timeline2.core.TimestampSequenceIdGenerator;
 import org.junit.Test;
 
 import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 
 public class TestTimelineSchema {
     @Test
@@ -53,5 +59,43 @@ public class TestTimelineSchema {
         timelineSchema.setCallbackExecuteThreads(20);
         assertTrue(timelineSchema.getMaxCallbackExecuteThreads() == 20);
         assertTrue(timelineSchema.getMaxCallbackExecuteThreads() >= timelineSchema.getCallbackExecuteThreads());
+
+        assertEquals(timelineSchema.hasSequenceIdCache(), false);
+        timelineSchema.withSequenceIdCache(1000, 5000);
+        assertEquals(timelineSchema.hasSequenceIdCache(), true);
+        assertEquals(timelineSchema.getSequenceIdCacheSize(), 1000);
+        assertEquals(timelineSchema.getSequenceIdCacheTTLMillis(), 5000);
+
+        assertEquals(timelineSchema.hasSequenceIdGenerator(), false);
+        SequenceIdGenerator generator = new TimestampSequenceIdGenerator();
+        timelineSchema.withSequenceIdGenerator(generator);
+        assertEquals(timelineSchema.isAutoGenerateSeqId(), false);
+        assertEquals(timelineSchema.hasSequenceIdGenerator(), true);
+        assertEquals(timelineSchema.getSequenceIdGenerator(), generator);
+
+        assertEquals(timelineSchema.hasMetricsListener(), false);
+        assertEquals(timelineSchema.getMetricsListener(), NoopMetricsListener.INSTANCE);
+        HistogramMetricsListener listener = new HistogramMetricsListener();
+        timelineSchema.withMetricsListener(listener);
+        assertEquals(timelineSchema.hasMetricsListener(), true);
+        assertEquals(timelineSchema.getMetricsListener(), listener);
+
+        assertEquals(timelineSchema.hasWriteCoalescing(), false);
+        timelineSchema.withWriteCoalescing(5, 100, 1024 * 1024);
+        assertEquals(timelineSchema.hasWriteCoalescing(), true);
+        assertEquals(timelineSchema.getCoalescingWindowMillis(), 5);
+        assertEquals(timelineSchema.getCoalescingMaxRows(), 100);
+        assertEquals(timelineSchema.getCoalescingMaxBytes(), 1024 * 1024);
+        try {
+            timelineSchema.withWriteCoalescing(5, 201, 1024 * 1024);
+            fail();
+        } catch (TimelineException e) {
+            assertTrue(e.getMessage().contains("Max rows"));
+        }
+
+        assertEquals(timelineSchema.hasOrderedWriter(), false);
+        timelineSchema.withOrderedWriter(4);
+        assertEquals(timelineSchema.hasOrderedWriter(), true);
+        assertEquals(timelineSchema.getOrderedWriterPartitions(), 4);
     }
 }
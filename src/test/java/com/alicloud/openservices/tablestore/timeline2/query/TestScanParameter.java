@@ -6,6 +6,9 @@ import com.alicloud.openservices.tablestore.model.filter.SingleColumnValueFilter
 import com.alicloud.openservices.tablestore.timeline2.TimelineException;
 import org.junit.Test;
 
+import java.util.Arrays;
+import java.util.Collections;
+
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.fail;
 
@@ -47,10 +50,27 @@ public class TestScanParameter {
         assertEquals(param.getFrom(), 100);
         assertEquals(param.getTo(), 0);
         assertEquals(param.isForward(), false);
+        assertEquals(param.getPrefetchDepth(), 0);
+
+        param = new ScanParameter()
+                .prefetch(2, 1024);
+        assertEquals(param.getPrefetchDepth(), 2);
+        assertEquals(param.getMaxPrefetchBytes(), 1024);
+        assertEquals(param.getColumnsToGet(), null);
+
+        param = new ScanParameter()
+                .withColumnsToGet(Arrays.asList("sender", "preview"));
+        assertEquals(param.getColumnsToGet(), Arrays.asList("sender", "preview"));
     }
 
     @Test
     public void testIllegalParam() {
+        try {
+            new ScanParameter().withColumnsToGet(Collections.<String>emptyList());
+            fail();
+        } catch (TimelineException e) {
+        }
+
         try {
             new ScanParameter().scanBackward(0, 100);
             fail();
@@ -62,5 +82,17 @@ public class TestScanParameter {
             fail();
         } catch (TimelineException e) {
         }
+
+        try {
+            new ScanParameter().prefetch(-1);
+            fail();
+        } catch (TimelineException e) {
+        }
+
+        try {
+            new ScanParameter().prefetch(2, 0);
+            fail();
+        } catch (TimelineException e) {
+        }
     }
 }
@@ -0,0 +1,86 @@
+package com.alicloud.openservices.tablestore.timeline2.utils;
+
+import com.alicloud.openservices.tablestore.timeline2.TimelineException;
+import com.alicloud.openservices.tablestore.timeline2.model.CacheStatistics;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class TestLRUCache {
+
+    private static class ManualClockCache<K, V> extends LRUCache<K, V> {
+        private long now = 0;
+
+        ManualClockCache(int maxSize, long ttlMillis) {
+            super(maxSize, ttlMillis);
+        }
+
+        @Override
+        protected long currentTimeMillis() {
+            return now;
+        }
+    }
+
+    @Test
+    public void testEvictLeastRecentlyUsed() {
+        LRUCache<String, Long> cache = new LRUCache<String, Long>(2, 60000);
+        cache.put("a", 1L);
+        cache.put("b", 2L);
+        assertEquals(Long.valueOf(1), cache.get("a"));
+
+        cache.put("c", 3L);
+        assertEquals(2, cache.size());
+        assertNull(cache.get("b"));
+        assertEquals(Long.valueOf(1), cache.get("a"));
+        assertEquals(Long.valueOf(3), cache.get("c"));
+
+        CacheStatistics statistics = cache.getStatistics();
+        assertEquals(3, statistics.getHitCount());
+        assertEquals(1, statistics.getMissCount());
+        assertEquals(1, statistics.getEvictionCount());
+        assertEquals(2, statistics.getSize());
+        assertEquals(0.75, statistics.getHitRate(), 0.0001);
+    }
+
+    @Test
+    public void testExpire() {
+        ManualClockCache<String, Long> cache = new ManualClockCache<String, Long>(10, 100);
+        cache.put("a", 1L);
+
+        cache.now = 99;
+        assertEquals(Long.valueOf(1), cache.get("a"));
+
+        cache.now = 100;
+        assertNull(cache.get("a"));
+        assertEquals(0, cache.size());
+        assertEquals(1, cache.getStatistics().getEvictionCount());
+    }
+
+    @Test
+    public void testPeekAndRemove() {
+        LRUCache<String, Long> cache = new LRUCache<String, Long>(10, 60000);
+        cache.put("a", 1L);
+        assertEquals(Long.valueOf(1), cache.peek("a"));
+        assertEquals(0, cache.getStatistics().getHitCount());
+
+        cache.remove("a");
+        assertNull(cache.peek("a"));
+        assertEquals(0, cache.getStatistics().getMissCount());
+        assertEquals(0, cache.getStatistics().getHitRate(), 0.0001);
+    }
+
+    @Test
+    public void testIllegalParam() {
+        try {
+            new LRUCache<String, Long>(0, 100);
+            fail();
+        } catch (TimelineException e) {
+        }
+
+        try {
+            new LRUCache<String, Long>(10, 0);
+            fail();
+        } catch (TimelineException e) {
+        }
+    }
+}
@@ -28,5 +28,10 @@ public class TestTimelineException {
         e = Utils.convertException(exception);
 
         assertEquals("OtherError", e.getMessage());
+
+        TimelineException timelineException = new TimelineException("OTSServerBusy");
+        e = Utils.convertException(timelineException);
+
+        assertTrue(e == timelineException);
     }
 }